@@ -22,6 +22,7 @@ import org.duracloud.common.queue.task.Task;
 import org.duracloud.common.util.UserUtil;
 import org.duracloud.storage.domain.RetrievedContent;
 import org.duracloud.storage.domain.StorageProviderType;
+import org.duracloud.storage.provider.SpaceStatsTracker;
 import org.duracloud.storage.provider.StorageProvider;
 
 /**
@@ -40,8 +41,10 @@ public class AuditStorageProvider implements StorageProvider {
     private String storeType;
     private UserUtil userUtil;
     private TaskQueue taskQueue;
+    private AuditTaskPublisher taskPublisher;
     private ReadLogger readLogger;
     private WriteLogger writeLogger;
+    private SpaceStatsTracker spaceStatsTracker;
 
     public AuditStorageProvider(StorageProvider target,
                                 String account,
@@ -60,6 +63,27 @@ public class AuditStorageProvider implements StorageProvider {
         this.writeLogger = new WriteLogger();
     }
 
+    /**
+     * Creates an AuditStorageProvider which publishes write tasks in the
+     * background, rather than waiting for each to be put on the task queue.
+     */
+    public AuditStorageProvider(StorageProvider target,
+                                String account,
+                                String storeId,
+                                String storeType,
+                                UserUtil userUtil,
+                                AuditTaskPublisher taskPublisher) {
+        this(target, account, storeId, storeType, userUtil, (TaskQueue) null);
+        this.taskPublisher = taskPublisher;
+    }
+
+    /**
+     * Sets the tracker which is told of changes to the contents of spaces.
+     */
+    public void setSpaceStatsTracker(SpaceStatsTracker spaceStatsTracker) {
+        this.spaceStatsTracker = spaceStatsTracker;
+    }
+
     /*
      * Intended to be used for testing
      */
@@ -69,7 +93,8 @@ public class AuditStorageProvider implements StorageProvider {
     }
 
     /*
-     * Handles write tasks. Write tasks are passed to the task queue and logged.
+     * Handles write tasks. Write tasks are passed to the task queue (through the
+     * task publisher, when there is one) and logged.
      */
     private void submitWriteTask(String action,
                                  String spaceId,
@@ -99,7 +124,11 @@ public class AuditStorageProvider implements StorageProvider {
         task.setSourceContentId(sourceContentId);
 
         Task writeTask = task.writeTask();
-        taskQueue.put(writeTask);
+        if (null != taskPublisher) {
+            taskPublisher.publish(writeTask);
+        } else {
+            taskQueue.put(writeTask);
+        }
         writeLogger.log(writeTask);
     }
 
@@ -124,6 +153,12 @@ public class AuditStorageProvider implements StorageProvider {
         readLogger.log(task.writeTask());
     }
 
+    private void spaceChanged(String spaceId) {
+        if (null != spaceStatsTracker) {
+            spaceStatsTracker.spaceChanged(spaceId);
+        }
+    }
+
     private String getUserId() {
         try {
             return userUtil.getCurrentUsername();
@@ -235,6 +270,9 @@ public class AuditStorageProvider implements StorageProvider {
     @Override
     public void deleteSpace(String spaceId) {
         target.deleteSpace(spaceId);
+        if (null != spaceStatsTracker) {
+            spaceStatsTracker.spaceDeleted(spaceId);
+        }
 
         String action = AuditTask.ActionType.DELETE_SPACE.name();
         submitWriteTask(action, spaceId, AuditTask.NA, AuditTask.NA,
@@ -270,6 +308,7 @@ public class AuditStorageProvider implements StorageProvider {
         contentChecksum = target.addContent(spaceId, contentId, contentMimeType,
                                             userProperties, contentSize,
                                             contentChecksum, content);
+        spaceChanged(spaceId);
 
         String action = AuditTask.ActionType.ADD_CONTENT.name();
         submitWriteTask(action, spaceId, contentId, contentChecksum,
@@ -284,6 +323,7 @@ public class AuditStorageProvider implements StorageProvider {
         String contentChecksum =
             target.copyContent(sourceSpaceId, sourceContentId,
                                destSpaceId, destContentId);
+        spaceChanged(destSpaceId);
 
         Map<String, String> props = target.getContentProperties(sourceSpaceId, sourceContentId);
         String contentMimetype = props.get(StorageProvider.PROPERTIES_CONTENT_MIMETYPE);
@@ -303,6 +343,7 @@ public class AuditStorageProvider implements StorageProvider {
         String contentSize = props.get(StorageProvider.PROPERTIES_CONTENT_SIZE);
         String contentChecksum = props.get(StorageProvider.PROPERTIES_CONTENT_CHECKSUM);
         target.deleteContent(spaceId, contentId);
+        spaceChanged(spaceId);
         String action = AuditTask.ActionType.DELETE_CONTENT.name();
         submitWriteTask(action, spaceId, contentId, contentChecksum, contentMimetype,
                         contentSize, null, null, AuditTask.NA, AuditTask.NA);
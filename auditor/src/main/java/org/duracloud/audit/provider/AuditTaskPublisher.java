@@ -0,0 +1,631 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.audit.provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.duracloud.common.queue.TaskQueue;
+import org.duracloud.common.queue.task.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes audit tasks to a task queue in the background, so that storage
+ * operations do not wait on the queue. Tasks are held in a bounded buffer
+ * and published in batches of up to the flush size, a task waits at most
+ * the flush latency for its batch to fill.
+ *
+ * When the buffer is full, publishing waits briefly for space (back-pressure)
+ * and then either spills the task to disk, when a spill directory is set, or
+ * publishes it on the calling thread. Batches which cannot be published are
+ * also spilled to disk, and spilled tasks are published again once the queue
+ * is available, checking at the replay retry interval while spill files
+ * remain. Without a spill directory, failed batches are retried a few
+ * times before their tasks are dropped (they remain in the write log).
+ *
+ * Buffered tasks are drained on shutdown, including when the JVM exits.
+ */
+public class AuditTaskPublisher {
+
+    private static final Logger log =
+        LoggerFactory.getLogger(AuditTaskPublisher.class);
+
+    public static final int DEFAULT_BUFFER_CAPACITY = 10000;
+    public static final int DEFAULT_FLUSH_SIZE = 10;
+    public static final long DEFAULT_FLUSH_LATENCY_MILLIS = 250;
+    public static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 30000;
+
+    protected static final int MAX_PUBLISH_ATTEMPTS = 3;
+    protected static final String SPILL_PREFIX = "audit-";
+    protected static final String SPILL_SUFFIX = ".spill";
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private static final long DEFAULT_REPLAY_RETRY_MILLIS = 30000;
+
+    // Spill directories being replayed, so that publishers sharing a
+    // directory do not publish the same spilled tasks
+    private static final Set<String> REPLAYING = ConcurrentHashMap.newKeySet();
+
+    private static final Set<AuditTaskPublisher> PUBLISHERS =
+        Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private static final AtomicBoolean SHUTDOWN_HOOK = new AtomicBoolean(false);
+
+    private TaskQueue taskQueue;
+    private int flushSize;
+    private long flushLatencyNanos;
+    private File spillDir;
+    private long retryWaitMillis;
+    private long replayRetryMillis = DEFAULT_REPLAY_RETRY_MILLIS;
+
+    private BlockingQueue<Task> buffer;
+    private ThreadPoolExecutor executor;
+    private ScheduledThreadPoolExecutor replayTimer;
+    private AtomicBoolean flushing = new AtomicBoolean(false);
+    private AtomicBoolean replayScheduled = new AtomicBoolean(false);
+    private volatile boolean shutdown = false;
+    private volatile long lastFailureMillis = 0;
+
+    private AtomicLong publishedCount = new AtomicLong(0);
+    private AtomicLong batchCount = new AtomicLong(0);
+    private AtomicLong publishNanos = new AtomicLong(0);
+    private AtomicLong maxPublishNanos = new AtomicLong(0);
+    private AtomicLong overflowCount = new AtomicLong(0);
+    private AtomicLong spilledCount = new AtomicLong(0);
+    private AtomicLong replayedCount = new AtomicLong(0);
+    private AtomicLong droppedCount = new AtomicLong(0);
+
+    public AuditTaskPublisher(TaskQueue taskQueue) {
+        this(taskQueue, DEFAULT_BUFFER_CAPACITY, DEFAULT_FLUSH_SIZE,
+             DEFAULT_FLUSH_LATENCY_MILLIS, null);
+    }
+
+    /**
+     * @param taskQueue          queue to which tasks are published
+     * @param bufferCapacity     maximum number of tasks waiting to be published
+     * @param flushSize          maximum number of tasks published in a batch
+     * @param flushLatencyMillis maximum time a task waits for its batch to fill
+     * @param spillDir           directory to which tasks are written when they
+     *                           cannot be buffered or published, null to not
+     *                           spill tasks to disk
+     */
+    public AuditTaskPublisher(TaskQueue taskQueue,
+                              int bufferCapacity,
+                              int flushSize,
+                              long flushLatencyMillis,
+                              File spillDir) {
+        this(taskQueue, bufferCapacity, flushSize, flushLatencyMillis, spillDir,
+             2000);
+    }
+
+    protected AuditTaskPublisher(TaskQueue taskQueue,
+                                 int bufferCapacity,
+                                 int flushSize,
+                                 long flushLatencyMillis,
+                                 File spillDir,
+                                 long retryWaitMillis) {
+        if (bufferCapacity < 1 || flushSize < 1 || flushLatencyMillis < 0) {
+            throw new IllegalArgumentException(
+                "buffer capacity and flush size must be greater than zero, " +
+                "flush latency must not be negative");
+        }
+        this.taskQueue = taskQueue;
+        this.flushSize = flushSize;
+        this.flushLatencyNanos = TimeUnit.MILLISECONDS.toNanos(flushLatencyMillis);
+        this.spillDir = spillDir;
+        this.retryWaitMillis = retryWaitMillis;
+        this.buffer = new LinkedBlockingQueue<>(bufferCapacity);
+
+        // The thread is released while there is nothing to publish
+        this.executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                                               new LinkedBlockingQueue<>(),
+                                               AuditTaskPublisher::newThread);
+        this.executor.allowCoreThreadTimeOut(true);
+
+        if (null != spillDir) {
+            this.replayTimer = new ScheduledThreadPoolExecutor(1, AuditTaskPublisher::newThread);
+            this.replayTimer.setKeepAliveTime(60, TimeUnit.SECONDS);
+            this.replayTimer.allowCoreThreadTimeOut(true);
+        }
+
+        PUBLISHERS.add(this);
+        if (SHUTDOWN_HOOK.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(
+                new Thread(AuditTaskPublisher::shutdownAll, "audit-publisher-shutdown"));
+        }
+
+        // Publish the tasks spilled before a restart
+        if (hasSpilledTasks()) {
+            scheduleFlush();
+        }
+    }
+
+    /*
+     * Intended to be used for testing
+     */
+    protected void setReplayRetryMillis(long replayRetryMillis) {
+        this.replayRetryMillis = replayRetryMillis;
+    }
+
+    private static Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "audit-publisher");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static void shutdownAll() {
+        List<AuditTaskPublisher> publishers;
+        synchronized (PUBLISHERS) {
+            publishers = new ArrayList<>(PUBLISHERS);
+        }
+        for (AuditTaskPublisher publisher : publishers) {
+            publisher.shutdown(DEFAULT_SHUTDOWN_TIMEOUT_MILLIS);
+        }
+    }
+
+    /**
+     * Adds a task to be published. After shutdown, tasks are published on
+     * the calling thread.
+     *
+     * @param task to publish
+     */
+    public void publish(Task task) {
+        if (shutdown) {
+            taskQueue.put(task);
+            return;
+        }
+
+        boolean buffered;
+        try {
+            buffered = buffer.offer(task, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            buffered = false;
+        }
+
+        if (buffered) {
+            scheduleFlush();
+        } else {
+            overflowCount.incrementAndGet();
+            if (!spill(Collections.singletonList(task))) {
+                taskQueue.put(task);
+                publishedCount.incrementAndGet();
+            }
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushing.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushing.set(false);
+            }
+        }
+    }
+
+    /*
+     * Checks for spilled tasks again after the replay retry interval, so that
+     * they are published once the queue is available even if no new tasks
+     * are published
+     */
+    private void scheduleReplay() {
+        if (null == replayTimer || shutdown || !replayScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            replayTimer.schedule(() -> {
+                replayScheduled.set(false);
+                if (hasSpilledTasks()) {
+                    scheduleFlush();
+                }
+            }, Math.max(replayRetryMillis, 1), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            replayScheduled.set(false);
+        }
+    }
+
+    /*
+     * Publishes batches until the buffer is empty, then publishes any
+     * spilled tasks
+     */
+    private void flush() {
+        try {
+            while (true) {
+                List<Task> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    publishBatch(batch);
+                } else {
+                    replaySpilled();
+                    if (hasSpilledTasks()) {
+                        scheduleReplay();
+                    }
+                    flushing.set(false);
+                    // A task may have been added after the buffer was found
+                    // empty but before the flag was cleared
+                    if (buffer.isEmpty() || !flushing.compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Unexpected error publishing audit tasks: " + e.getMessage(), e);
+            flushing.set(false);
+        }
+    }
+
+    /*
+     * Collects the tasks of the next batch, waiting up to the flush latency
+     * for the batch to fill
+     */
+    private List<Task> nextBatch() {
+        List<Task> batch = new ArrayList<>(flushSize);
+        Task first = buffer.poll();
+        if (null == first) {
+            return batch;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + flushLatencyNanos;
+        while (batch.size() < flushSize) {
+            buffer.drainTo(batch, flushSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= flushSize || remaining <= 0 || shutdown) {
+                break;
+            }
+            try {
+                Task next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                if (null == next) {
+                    break;
+                }
+                batch.add(next);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return batch;
+    }
+
+    private void publishBatch(List<Task> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                long start = System.nanoTime();
+                taskQueue.put(toSet(batch));
+                recordPublish(batch.size(), System.nanoTime() - start);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Unable to publish {} audit tasks to {} (attempt {}): {}",
+                         batch.size(), taskQueue.getName(), attempt, e.getMessage());
+                // Allow the spilled tasks to be published as soon as the
+                // queue is available again
+                lastFailureMillis = System.currentTimeMillis();
+                if (spill(batch)) {
+                    return;
+                }
+                if (attempt >= MAX_PUBLISH_ATTEMPTS || !sleep(retryWaitMillis * attempt)) {
+                    droppedCount.addAndGet(batch.size());
+                    for (Task task : batch) {
+                        log.error("Dropped audit task {} after {} attempts", task, attempt);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private void recordPublish(int tasks, long nanos) {
+        publishedCount.addAndGet(tasks);
+        batchCount.incrementAndGet();
+        publishNanos.addAndGet(nanos);
+        maxPublishNanos.accumulateAndGet(nanos, Math::max);
+        if (log.isDebugEnabled()) {
+            log.debug("Published {} audit tasks in {} ms, {} waiting",
+                      tasks, TimeUnit.NANOSECONDS.toMillis(nanos), buffer.size());
+        }
+    }
+
+    /*
+     * Tasks are compared by identity, so that identical audit events
+     * are each published
+     */
+    private Set<Task> toSet(List<Task> tasks) {
+        Set<Task> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(tasks);
+        return set;
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /*
+     * Writes tasks to a new file in the spill directory
+     *
+     * @return false if there is no spill directory or the tasks could not be
+     * written
+     */
+    private boolean spill(List<Task> tasks) {
+        if (null == spillDir) {
+            return false;
+        }
+
+        Properties props = new Properties();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            props.setProperty(i + "." + Task.KEY_TYPE, task.getType().name());
+            for (Map.Entry<String, String> property : task.getProperties().entrySet()) {
+                if (null != property.getValue()) {
+                    props.setProperty(i + "." + property.getKey(), property.getValue());
+                }
+            }
+        }
+
+        try {
+            spillDir.mkdirs();
+            // Files are named by time, so that they are published in order
+            File tempFile = File.createTempFile(
+                SPILL_PREFIX + System.currentTimeMillis() + "-", ".tmp", spillDir);
+            try (OutputStream out = Files.newOutputStream(tempFile.toPath())) {
+                props.store(out, null);
+            }
+            String name = tempFile.getName();
+            File spillFile = new File(spillDir, name.substring(0, name.length() - 4) +
+                                                SPILL_SUFFIX);
+            Files.move(tempFile.toPath(), spillFile.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE);
+            spilledCount.addAndGet(tasks.size());
+            log.warn("Spilled {} audit tasks to {}", tasks.size(), spillFile);
+            return true;
+        } catch (IOException e) {
+            log.error("Unable to spill {} audit tasks to {}: {}",
+                      tasks.size(), spillDir, e.getMessage());
+            return false;
+        }
+    }
+
+    private File[] listSpillFiles() {
+        if (null == spillDir) {
+            return null;
+        }
+        File[] files = spillDir.listFiles((dir, name) -> name.startsWith(SPILL_PREFIX) &&
+                                                         name.endsWith(SPILL_SUFFIX));
+        if (null != files) {
+            Arrays.sort(files);
+        }
+        return files;
+    }
+
+    private boolean hasSpilledTasks() {
+        File[] files = listSpillFiles();
+        return null != files && files.length > 0;
+    }
+
+    /*
+     * Publishes spilled tasks, oldest first, while no new tasks are waiting.
+     * After a failure, spilled tasks are not published again until the retry
+     * interval has passed.
+     */
+    private void replaySpilled() {
+        if (null == spillDir || System.currentTimeMillis() < lastFailureMillis + replayRetryMillis) {
+            return;
+        }
+
+        String key = spillDir.getAbsolutePath();
+        if (!REPLAYING.add(key)) {
+            return;
+        }
+        try {
+            File[] files = listSpillFiles();
+            if (null == files) {
+                return;
+            }
+            for (File file : files) {
+                if (!buffer.isEmpty()) {
+                    break;
+                }
+
+                List<Task> tasks;
+                try {
+                    tasks = readSpillFile(file);
+                } catch (IOException e) {
+                    log.error("Unable to read spilled audit tasks from {}: {}",
+                              file, e.getMessage());
+                    file.renameTo(new File(file.getPath() + ".failed"));
+                    continue;
+                }
+
+                try {
+                    long start = System.nanoTime();
+                    taskQueue.put(toSet(tasks));
+                    recordPublish(tasks.size(), System.nanoTime() - start);
+                } catch (RuntimeException e) {
+                    log.warn("Unable to publish spilled audit tasks from {}: {}",
+                             file, e.getMessage());
+                    lastFailureMillis = System.currentTimeMillis();
+                    return;
+                }
+
+                replayedCount.addAndGet(tasks.size());
+                if (!file.delete()) {
+                    log.error("Unable to delete spill file {}, its audit tasks " +
+                              "may be published again", file);
+                }
+            }
+        } finally {
+            REPLAYING.remove(key);
+        }
+    }
+
+    private List<Task> readSpillFile(File file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            props.load(in);
+        }
+
+        Map<Integer, Task> tasks = new TreeMap<>();
+        for (String name : props.stringPropertyNames()) {
+            int separator = name.indexOf('.');
+            if (separator < 1) {
+                throw new IOException("Invalid property " + name);
+            }
+
+            Integer index;
+            try {
+                index = Integer.valueOf(name.substring(0, separator));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid property " + name, e);
+            }
+            Task task = tasks.computeIfAbsent(index, i -> new Task());
+
+            String key = name.substring(separator + 1);
+            if (key.equals(Task.KEY_TYPE)) {
+                task.setType(Task.Type.valueOf(props.getProperty(name)));
+            } else {
+                task.addProperty(key, props.getProperty(name));
+            }
+        }
+        return new ArrayList<>(tasks.values());
+    }
+
+    /**
+     * Stops publishing in the background, waiting for the buffered tasks to
+     * be published. Tasks which are still buffered after the timeout are
+     * spilled, or published on the calling thread.
+     *
+     * @param timeoutMillis maximum time to wait for buffered tasks
+     */
+    public void shutdown(long timeoutMillis) {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        PUBLISHERS.remove(this);
+
+        if (null != replayTimer) {
+            replayTimer.shutdownNow();
+        }
+        scheduleFlush();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        List<Task> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        if (!remaining.isEmpty() && !spill(remaining)) {
+            try {
+                taskQueue.put(toSet(remaining));
+                publishedCount.addAndGet(remaining.size());
+            } catch (RuntimeException e) {
+                droppedCount.addAndGet(remaining.size());
+                log.error("Dropped {} audit tasks on shutdown: {}",
+                          remaining.size(), e.getMessage());
+            }
+        }
+        log.info("Audit task publisher for {} shut down: {}",
+                 taskQueue.getName(), getStatistics());
+    }
+
+    public void shutdown() {
+        shutdown(DEFAULT_SHUTDOWN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @return the number of tasks waiting to be published
+     */
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    /**
+     * @return the number of tasks published, including spilled tasks which
+     * have been published
+     */
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * @return the number of tasks which did not fit in the buffer
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the average time taken to publish a batch of tasks
+     */
+    public double getAveragePublishMillis() {
+        long batches = batchCount.get();
+        if (batches == 0) {
+            return 0;
+        }
+        return publishNanos.get() / (batches * 1000000.0);
+    }
+
+    public long getMaxPublishMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxPublishNanos.get());
+    }
+
+    public String getStatistics() {
+        return String.format("depth=%d, published=%d, batches=%d, " +
+                             "avgPublishMillis=%.1f, maxPublishMillis=%d, " +
+                             "overflow=%d, spilled=%d, replayed=%d, dropped=%d",
+                             getQueueDepth(), getPublishedCount(), batchCount.get(),
+                             getAveragePublishMillis(), getMaxPublishMillis(),
+                             getOverflowCount(), getSpilledCount(),
+                             getReplayedCount(), getDroppedCount());
+    }
+
+}
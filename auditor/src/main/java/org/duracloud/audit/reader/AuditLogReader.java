@@ -8,6 +8,7 @@
 package org.duracloud.audit.reader;
 
 import java.io.InputStream;
+import java.util.Date;
 
 import org.duracloud.storage.domain.AuditConfig;
 
@@ -27,6 +28,27 @@ public interface AuditLogReader {
     InputStream getAuditLog(String account, String storeId, String spaceId)
         throws AuditLogReaderException;
 
+    /**
+     * Locates the audit log and provides a writer which streams the audit
+     * events from first to last, optionally limited to a range of dates. The
+     * range is applied to whole log objects (based on the time in their
+     * names), so events near the start and end of the range may be included.
+     *
+     * @param account   The account identifier - ie usually the subdomain of the original request.
+     * @param storeId
+     * @param spaceId
+     * @param startDate the time before which events are not needed, or null
+     * @param endDate   the time after which events are not needed, or null
+     * @return
+     * @throws AuditLogReaderException
+     */
+    AuditLogWriter getAuditLogWriter(String account,
+                                     String storeId,
+                                     String spaceId,
+                                     Date startDate,
+                                     Date endDate)
+        throws AuditLogReaderException;
+
     void initialize(AuditConfig auditConfig);
 
 }
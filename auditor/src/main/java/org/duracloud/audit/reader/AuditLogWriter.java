@@ -0,0 +1,29 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.audit.reader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes an audit log which has been located by the {@link AuditLogReader}
+ * to an output stream.
+ */
+public interface AuditLogWriter {
+
+    /**
+     * Writes the audit log to the output. The output is flushed, but not
+     * closed. If the output cannot be written to (for example, because the
+     * client has disconnected), the retrieval of the audit log is cancelled.
+     *
+     * @param output destination of the audit log
+     * @throws IOException if the audit log cannot be read or written
+     */
+    void write(OutputStream output) throws IOException;
+
+}
@@ -7,28 +7,50 @@
  */
 package org.duracloud.audit.reader.impl;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.PipedInputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.PipedOutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
-import org.apache.commons.io.IOUtils;
 import org.duracloud.audit.AuditLogUtil;
 import org.duracloud.audit.reader.AuditLogReader;
 import org.duracloud.audit.reader.AuditLogReaderException;
 import org.duracloud.audit.reader.AuditLogReaderNotEnabledException;
+import org.duracloud.audit.reader.AuditLogWriter;
+import org.duracloud.common.stream.FailablePipedInputStream;
+import org.duracloud.common.util.DateUtil;
+import org.duracloud.common.util.DateUtil.DateFormat;
 import org.duracloud.common.util.DuracloudConfigBean;
-import org.duracloud.error.ContentStoreException;
 import org.duracloud.s3storage.S3StorageProvider;
 import org.duracloud.storage.domain.AuditConfig;
 import org.duracloud.storage.domain.StorageAccount.OPTS;
@@ -40,6 +62,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
+ * Reads audit logs, which are made up of a series of log objects stored in
+ * the audit log space. The next few log objects are retrieved by a shared,
+ * bounded set of threads while the current one is being written. The bytes
+ * held in memory ahead of the log object being written are limited; the
+ * remainder of a log object which is larger than its share of that limit is
+ * retrieved when it is written.
+ *
  * @author Daniel Bernstein
  * Date: Sept. 17, 2014
  */
@@ -47,14 +76,79 @@ public class AuditLogReaderImpl implements AuditLogReader {
     private static Logger log =
         LoggerFactory.getLogger(AuditLogReaderImpl.class);
 
+    public static final int DEFAULT_THREADS = 8;
+    public static final int DEFAULT_PREFETCH = 4;
+    public static final long DEFAULT_PREFETCH_BYTES = 16 * 1024 * 1024;
+
+    private static final int PIPE_SIZE = 64 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // The time at which a log object begins, as found in its name
+    private static final Pattern LOG_TIMESTAMP =
+        Pattern.compile("\\d{4}-\\d{2}-\\d{2}(-\\d{2}-\\d{2}-\\d{2})?");
+
     private AuditConfig auditConfig;
 
-    private StorageProvider storageProvider;
+    private volatile StorageProvider storageProvider;
+
+    private ThreadPoolExecutor writeExecutor;
+
+    private ThreadPoolExecutor readExecutor;
+
+    private int prefetch = DEFAULT_PREFETCH;
+
+    private long prefetchBytes = DEFAULT_PREFETCH_BYTES;
 
     @Autowired
     private DuracloudConfigBean duracloudConfigBean;
 
     public AuditLogReaderImpl() {
+        this(DEFAULT_THREADS);
+    }
+
+    /**
+     * @param threads the number of audit logs which may be read at once, and
+     *                the number of log objects which may be retrieved at once
+     */
+    public AuditLogReaderImpl(int threads) {
+        threads = Math.max(1, threads);
+        // Writing and reading use separate threads, so writers are never left
+        // waiting on reads which cannot start
+        this.writeExecutor = createExecutor("audit-log-writer-", threads,
+                                            new ArrayBlockingQueue<>(threads * 10));
+        this.readExecutor = createExecutor("audit-log-reader-", threads,
+                                           new LinkedBlockingQueue<>());
+    }
+
+    private ThreadPoolExecutor createExecutor(String name,
+                                              int threads,
+                                              BlockingQueue<Runnable> queue) {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName(name + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                      queue, threadFactory);
+    }
+
+    /**
+     * @param prefetch the number of log objects retrieved ahead of the log
+     *                 object being written
+     */
+    public void setPrefetch(int prefetch) {
+        this.prefetch = Math.max(1, prefetch);
+    }
+
+    /**
+     * @param prefetchBytes the number of bytes of the log objects retrieved
+     *                      ahead of time which may be held in memory for each
+     *                      audit log being read
+     */
+    public void setPrefetchBytes(long prefetchBytes) {
+        this.prefetchBytes = Math.max(1, prefetchBytes);
     }
 
     @Override
@@ -62,17 +156,23 @@ public class AuditLogReaderImpl implements AuditLogReader {
         this.auditConfig = auditConfig;
     }
 
+    /**
+     * Stops the threads which read audit logs.
+     */
+    public void shutdown() {
+        writeExecutor.shutdownNow();
+        readExecutor.shutdownNow();
+    }
+
     @Override
     public InputStream getAuditLog(final String account, final String storeId, final String spaceId)
         throws AuditLogReaderException {
 
-        checkEnabled();
-
-        this.storageProvider = getStorageProvider();
-        final String auditBucket = auditConfig.getAuditLogSpaceId();
+        final AuditLogWriter writer =
+            getAuditLogWriter(account, storeId, spaceId, null, null);
 
-        String prefix = MessageFormat.format("{0}/{1}/{2}/", account, storeId, spaceId);
-        final PipedInputStream is = new PipedInputStream(10 * 1024);
+        final FailablePipedInputStream is =
+            new FailablePipedInputStream(PIPE_SIZE, "Audit log read");
         final PipedOutputStream os;
         try {
             os = new PipedOutputStream(is);
@@ -81,48 +181,57 @@ public class AuditLogReaderImpl implements AuditLogReader {
         }
 
         try {
-            final Iterator<String> it =
-                this.storageProvider.getSpaceContents(auditBucket, prefix);
-            if (!it.hasNext()) {
-                os.write((AuditLogUtil.getHeader() + "\n").getBytes());
-                os.close();
-            }
-
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
+            writeExecutor.execute(() -> {
+                try {
+                    writer.write(os);
+                } catch (Exception ex) {
+                    log.error(MessageFormat.format("failed to complete audit log read routine " +
+                                                   "for space: storeId={0}, spaceId={1}",
+                                                   storeId,
+                                                   spaceId),
+                              ex);
+                    is.fail(ex);
+                } finally {
                     try {
-                        int count = 0;
-
-                        while (it.hasNext()) {
-                            String contentId = it.next();
-                            writeToOutputStream(auditBucket,
-                                                storageProvider,
-                                                os,
-                                                count,
-                                                contentId);
-
-                            count++;
-                        }
-
                         os.close();
-
-                    } catch (ContentStoreException | IOException ex) {
-                        log.error(MessageFormat.format("failed to complete audit log read routine " +
-                                                       "for space: storeId={0}, spaceId={1}",
-                                                       storeId,
-                                                       spaceId),
-                                  ex);
+                    } catch (IOException ex) {
+                        log.warn("failed to close audit log stream: " + ex.getMessage());
                     }
                 }
-            }).start();
-        } catch (StorageException | IOException e) {
+            });
+        } catch (RejectedExecutionException e) {
             throw new AuditLogReaderException(e);
         }
 
         return is;
     }
 
+    @Override
+    public AuditLogWriter getAuditLogWriter(final String account,
+                                            final String storeId,
+                                            final String spaceId,
+                                            final Date startDate,
+                                            final Date endDate)
+        throws AuditLogReaderException {
+
+        checkEnabled();
+
+        final StorageProvider provider = getSharedStorageProvider();
+        final String auditBucket = auditConfig.getAuditLogSpaceId();
+
+        String prefix = MessageFormat.format("{0}/{1}/{2}/", account, storeId, spaceId);
+        final Iterator<String> logs;
+        try {
+            logs = new LogDateFilter(provider.getSpaceContents(auditBucket, prefix),
+                                     startDate,
+                                     endDate);
+        } catch (StorageException e) {
+            throw new AuditLogReaderException(e);
+        }
+
+        return output -> writeAuditLog(provider, auditBucket, logs, output);
+    }
+
     private void checkEnabled() throws AuditLogReaderNotEnabledException {
         if (auditConfig.getAuditLogSpaceId() == null ||
             auditConfig.getAuditQueueName() == null) {
@@ -130,6 +239,22 @@ public class AuditLogReaderImpl implements AuditLogReader {
         }
     }
 
+    /*
+     * The storage provider is created once, and shared by all requests
+     */
+    private StorageProvider getSharedStorageProvider() {
+        StorageProvider provider = this.storageProvider;
+        if (null == provider) {
+            synchronized (this) {
+                if (null == this.storageProvider) {
+                    this.storageProvider = getStorageProvider();
+                }
+                provider = this.storageProvider;
+            }
+        }
+        return provider;
+    }
+
     protected StorageProvider getStorageProvider() {
         if (duracloudConfigBean.getSwiftEndpoint() != null) {
             Map<String, String> map = new HashMap<>();
@@ -145,30 +270,215 @@ public class AuditLogReaderImpl implements AuditLogReader {
         }
     }
 
-    protected void writeToOutputStream(String auditSpaceId,
-                                       StorageProvider storageProvider,
-                                       final PipedOutputStream os,
-                                       int count,
-                                       String contentId)
-        throws ContentStoreException,
-        IOException {
+    private void writeAuditLog(StorageProvider provider,
+                               String auditSpaceId,
+                               Iterator<String> logs,
+                               OutputStream output) throws IOException {
+        Deque<Future<PrefetchedLog>> pendingLogs = new ArrayDeque<>();
+        // Each prefetched log object holds at most its share of the limit
+        int maxLogBytes = (int) Math.min(Integer.MAX_VALUE - 8,
+                                         Math.max(BUFFER_SIZE, prefetchBytes / prefetch));
+        try {
+            while (pendingLogs.size() < prefetch && logs.hasNext()) {
+                pendingLogs.add(readLog(provider, auditSpaceId, logs.next(), maxLogBytes));
+            }
+            if (pendingLogs.isEmpty()) {
+                output.write((AuditLogUtil.getHeader() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            boolean first = true;
+            while (!pendingLogs.isEmpty()) {
+                PrefetchedLog auditLog = getLog(pendingLogs.poll());
+                if (logs.hasNext()) {
+                    pendingLogs.add(readLog(provider, auditSpaceId, logs.next(), maxLogBytes));
+                }
+                try (InputStream is = openLog(provider, auditSpaceId, auditLog)) {
+                    writeToOutputStream(is, first, output);
+                }
+                first = false;
+            }
+            output.flush();
+        } finally {
+            // Stops retrieving logs if the output fails
+            for (Future<PrefetchedLog> pendingLog : pendingLogs) {
+                pendingLog.cancel(true);
+            }
+        }
+    }
+
+    /*
+     * Retrieves up to the given number of bytes of a log object
+     */
+    private Future<PrefetchedLog> readLog(StorageProvider provider,
+                                          String auditSpaceId,
+                                          String contentId,
+                                          int maxLogBytes) {
+        return readExecutor.submit(() -> {
+            try (InputStream is =
+                     provider.getContent(auditSpaceId, contentId).getContentStream()) {
+                ByteArrayOutputStream auditLog =
+                    new ByteArrayOutputStream(Math.min(BUFFER_SIZE, maxLogBytes));
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read = 0;
+                while (auditLog.size() < maxLogBytes &&
+                       (read = is.read(buffer, 0,
+                                       Math.min(buffer.length,
+                                                maxLogBytes - auditLog.size()))) != -1) {
+                    auditLog.write(buffer, 0, read);
+                }
+                boolean complete = read == -1 || is.read() == -1;
+                return new PrefetchedLog(contentId, auditLog.toByteArray(), complete);
+            }
+        });
+    }
+
+    /*
+     * Provides the content of a log object, retrieving the bytes which were
+     * not prefetched
+     */
+    private InputStream openLog(StorageProvider provider,
+                                String auditSpaceId,
+                                PrefetchedLog auditLog) {
+        InputStream prefetched = new ByteArrayInputStream(auditLog.content);
+        if (auditLog.complete) {
+            return prefetched;
+        }
+        String range = "bytes=" + auditLog.content.length + "-";
+        InputStream remainder =
+            provider.getContent(auditSpaceId, auditLog.contentId, range).getContentStream();
+        return new SequenceInputStream(prefetched, remainder);
+    }
+
+    private PrefetchedLog getLog(Future<PrefetchedLog> pendingLog) throws IOException {
+        try {
+            return pendingLog.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while reading audit log");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    protected void writeToOutputStream(InputStream auditLog,
+                                       boolean first,
+                                       OutputStream os)
+        throws IOException {
+        if (!first) {
+            // skip header if not the first file
+            int b = auditLog.read();
+            while (b != -1 && b != '\n') {
+                b = auditLog.read();
+            }
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int last = -1;
+        int read;
+        while ((read = auditLog.read(buffer, 0, buffer.length)) != -1) {
+            if (read > 0) {
+                os.write(buffer, 0, read);
+                last = buffer[read - 1] & 0xff;
+            }
+        }
+        if (last != -1 && last != '\n') {
+            os.write('\n');
+        }
+    }
 
-        try (BufferedReader reader =
-                 new BufferedReader(new InputStreamReader(
-                     storageProvider.getContent(auditSpaceId, contentId).getContentStream()))) {
-            if (count > 0) {
-                // skip header if not hte first file
-                reader.readLine();
+    static Date getLogDate(String contentId) {
+        String name = contentId.substring(contentId.lastIndexOf('/') + 1);
+        Matcher matcher = LOG_TIMESTAMP.matcher(name);
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            if (null != matcher.group(1)) {
+                return DateUtil.convertToDate(matcher.group(), DateFormat.PLAIN_FORMAT);
             }
+            return DateUtil.convertToDate(matcher.group(), DateFormat.SHORT_FORMAT);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Provides the log objects which may include events within a range of
+     * dates. Log objects are named with the time of their first event, and
+     * are listed in order, so a log object may be skipped when the following
+     * log object begins before the start of the range, and no log objects
+     * are provided after the first which begins after the end of the range.
+     * Log objects without a time in their name are always included.
+     */
+    private static class LogDateFilter implements Iterator<String> {
+        private final Iterator<String> logs;
+        private final Date startDate;
+        private final Date endDate;
+        private String lookahead;
+        private String next;
+
+        LogDateFilter(Iterator<String> logs, Date startDate, Date endDate) {
+            this.logs = logs;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            advance();
+        }
 
-            while (true) {
-                String line = reader.readLine();
-                if (line != null) {
-                    IOUtils.write(line + "\n", os);
-                } else {
-                    break;
+        private void advance() {
+            next = null;
+            while (null == next && (null != lookahead || logs.hasNext())) {
+                String contentId = null != lookahead ? lookahead : logs.next();
+                lookahead = null;
+
+                Date logDate = getLogDate(contentId);
+                if (null != endDate && null != logDate && logDate.after(endDate)) {
+                    // Later log objects begin later still
+                    return;
+                }
+                if (null != startDate && null != logDate && logs.hasNext()) {
+                    lookahead = logs.next();
+                    Date nextLogDate = getLogDate(lookahead);
+                    if (null != nextLogDate && nextLogDate.before(startDate)) {
+                        continue;
+                    }
                 }
+                next = contentId;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != next;
+        }
+
+        @Override
+        public String next() {
+            if (null == next) {
+                throw new NoSuchElementException();
             }
+            String contentId = next;
+            advance();
+            return contentId;
+        }
+    }
+
+    /*
+     * The bytes of a log object which were retrieved ahead of time. If the
+     * log object is not complete, the remainder follows these bytes.
+     */
+    private static class PrefetchedLog {
+        private final String contentId;
+        private final byte[] content;
+        private final boolean complete;
+
+        PrefetchedLog(String contentId, byte[] content, boolean complete) {
+            this.contentId = contentId;
+            this.content = content;
+            this.complete = complete;
         }
     }
 
@@ -23,6 +23,7 @@ import org.duracloud.common.queue.TaskQueue;
 import org.duracloud.common.queue.task.Task;
 import org.duracloud.common.util.UserUtil;
 import org.duracloud.storage.domain.StorageProviderType;
+import org.duracloud.storage.provider.SpaceStatsTracker;
 import org.duracloud.storage.provider.StorageProvider;
 import org.easymock.Capture;
 import org.easymock.CaptureType;
@@ -339,6 +340,33 @@ public class AuditStorageProviderTest extends EasyMockSupport {
         assertTrue(contentPropsProp.contains(propValue));
     }
 
+    @Test
+    public void testAddContentPublished() throws Exception {
+        // Write tasks are handed to the publisher rather than the task queue
+        AuditTaskPublisher publisher = createMock(AuditTaskPublisher.class);
+        Capture<Task> auditTaskCapture = Capture.newInstance();
+        publisher.publish(EasyMock.capture(auditTaskCapture));
+        EasyMock.expectLastCall().once();
+        Capture<Task> logCapture = mockWriteLogCall();
+
+        EasyMock.expect(
+            targetProvider.addContent(spaceId, contentId, contentMimeType,
+                                      null, contentSize, contentChecksum, null))
+                .andReturn(contentChecksum);
+        replayAll();
+
+        AuditStorageProvider publishingProvider =
+            new AuditStorageProvider(targetProvider, account, storeId,
+                                     storeType, userUtil, publisher);
+        publishingProvider.setLoggers(readLogger, writeLogger);
+        publishingProvider.addContent(spaceId, contentId, contentMimeType, null,
+                                      contentSize, contentChecksum, null);
+
+        assertEquals(auditTaskCapture.getValue(), logCapture.getValue());
+        verifyTask(auditTaskCapture.getValue(),
+                   AuditTask.ActionType.ADD_CONTENT.name());
+    }
+
     @Test
     public void testCopyContent() throws Exception {
         Capture<Task> auditTaskCapture = mockAuditCall();
@@ -404,6 +432,23 @@ public class AuditStorageProviderTest extends EasyMockSupport {
 
     }
 
+    @Test
+    public void testDeleteContentSpaceStats() throws Exception {
+        mockAuditCall();
+        mockWriteLogCall();
+        SpaceStatsTracker tracker = createMock(SpaceStatsTracker.class);
+        tracker.spaceChanged(spaceId);
+        EasyMock.expectLastCall().once();
+        provider.setSpaceStatsTracker(tracker);
+
+        EasyMock.expect(targetProvider.getContentProperties(spaceId, contentId))
+                .andReturn(new HashMap<>());
+        targetProvider.deleteContent(spaceId, contentId);
+        EasyMock.expectLastCall().once();
+        replayAll();
+        provider.deleteContent(spaceId, contentId);
+    }
+
     @Test
     public void testSetContentProperties() throws Exception {
         Capture<Task> auditTaskCapture = mockAuditCall();
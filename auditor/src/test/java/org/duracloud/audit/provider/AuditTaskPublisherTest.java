@@ -0,0 +1,301 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.audit.provider;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.common.error.DuraCloudRuntimeException;
+import org.duracloud.common.queue.TaskQueue;
+import org.duracloud.common.queue.task.Task;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AuditTaskPublisherTest {
+
+    private TaskQueue taskQueue;
+    private File spillDir;
+    private List<List<Task>> batches;
+    private List<String> threads;
+    private List<AuditTaskPublisher> publishers;
+
+    @Before
+    public void setup() throws Exception {
+        taskQueue = createMock(TaskQueue.class);
+        expect(taskQueue.getName()).andReturn("audit-queue").anyTimes();
+        spillDir = new File("target", "audit-spill-test");
+        FileUtils.deleteDirectory(spillDir);
+        batches = new CopyOnWriteArrayList<>();
+        threads = new CopyOnWriteArrayList<>();
+        publishers = new ArrayList<>();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        for (AuditTaskPublisher publisher : publishers) {
+            publisher.shutdown(1000);
+        }
+        verify(taskQueue);
+        FileUtils.deleteDirectory(spillDir);
+    }
+
+    private AuditTaskPublisher createPublisher(int capacity, int flushSize,
+                                               File spillDir) {
+        AuditTaskPublisher publisher =
+            new AuditTaskPublisher(taskQueue, capacity, flushSize, 50, spillDir, 0);
+        publishers.add(publisher);
+        return publisher;
+    }
+
+    private Task createTask(int index) {
+        Task task = new Task();
+        task.setType(Task.Type.AUDIT);
+        task.addProperty("index", String.valueOf(index));
+        task.addProperty("content-id", "dir/content.id=" + index);
+        return task;
+    }
+
+    private Object recordBatch() {
+        @SuppressWarnings("unchecked")
+        Set<Task> tasks = (Set<Task>) EasyMock.getCurrentArguments()[0];
+        threads.add(Thread.currentThread().getName());
+        batches.add(new ArrayList<>(tasks));
+        return null;
+    }
+
+    private void expectBatches() {
+        taskQueue.put(anyObject(Set.class));
+        expectLastCall().andAnswer(this::recordBatch).anyTimes();
+    }
+
+    private List<Task> getPublished() {
+        List<Task> published = new ArrayList<>();
+        for (List<Task> batch : batches) {
+            published.addAll(batch);
+        }
+        return published;
+    }
+
+    private void waitFor(int tasks) throws InterruptedException {
+        for (int i = 0; i < 500 && getPublished().size() < tasks; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private File[] getSpillFiles() {
+        return spillDir.listFiles((dir, name) -> name.endsWith(
+            AuditTaskPublisher.SPILL_SUFFIX));
+    }
+
+    @Test
+    public void testPublishBatches() throws Exception {
+        expectBatches();
+        replay(taskQueue);
+
+        AuditTaskPublisher publisher = createPublisher(100, 3, null);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            tasks.add(createTask(i));
+            publisher.publish(tasks.get(i));
+        }
+        publisher.shutdown(5000);
+
+        assertEquals(7, publisher.getPublishedCount());
+        assertEquals(0, publisher.getQueueDepth());
+        assertEquals(tasks.size(), getPublished().size());
+        for (List<Task> batch : batches) {
+            assertTrue(batch.size() <= 3);
+        }
+        for (String thread : threads) {
+            assertEquals("audit-publisher", thread);
+        }
+    }
+
+    @Test
+    public void testPublishIdenticalTasks() throws Exception {
+        expectBatches();
+        replay(taskQueue);
+
+        AuditTaskPublisher publisher = createPublisher(100, 10, null);
+        publisher.publish(createTask(1));
+        publisher.publish(createTask(1));
+        publisher.shutdown(5000);
+
+        assertEquals(2, getPublished().size());
+    }
+
+    @Test
+    public void testPublishLatency() throws Exception {
+        expectBatches();
+        replay(taskQueue);
+
+        // A single task is published once the flush latency has passed
+        AuditTaskPublisher publisher = createPublisher(100, 10, null);
+        publisher.publish(createTask(1));
+        waitFor(1);
+        assertEquals(1, batches.size());
+        assertEquals(1, publisher.getPublishedCount());
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        CountDownLatch publishing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // The overflowing task is published while a batch is being published
+        EasyMock.makeThreadSafe(taskQueue, false);
+        taskQueue.put(anyObject(Set.class));
+        expectLastCall().andAnswer(() -> {
+            publishing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return recordBatch();
+        }).anyTimes();
+        Task overflow = createTask(3);
+        taskQueue.put(overflow);
+        expectLastCall();
+        replay(taskQueue);
+
+        AuditTaskPublisher publisher = createPublisher(1, 1, null);
+        publisher.publish(createTask(1));
+        assertTrue(publishing.await(5, TimeUnit.SECONDS));
+
+        // The buffer holds one task, so the next overflows and is published
+        // on the calling thread
+        publisher.publish(createTask(2));
+        publisher.publish(overflow);
+        assertEquals(1, publisher.getOverflowCount());
+
+        release.countDown();
+        publisher.shutdown(5000);
+        assertEquals(3, publisher.getPublishedCount());
+    }
+
+    @Test
+    public void testSpillAndReplay() throws Exception {
+        taskQueue.put(anyObject(Set.class));
+        expectLastCall().andThrow(new DuraCloudRuntimeException("queue down"));
+        expectBatches();
+        replay(taskQueue);
+
+        AuditTaskPublisher publisher = createPublisher(100, 10, spillDir);
+        Task task1 = createTask(1);
+        publisher.publish(task1);
+        for (int i = 0; i < 500 && publisher.getSpilledCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, publisher.getSpilledCount());
+        assertEquals(1, getSpillFiles().length);
+
+        // Spilled tasks are published after the next batch
+        publisher.setReplayRetryMillis(0);
+        Task task2 = createTask(2);
+        publisher.publish(task2);
+        waitFor(2);
+        for (int i = 0; i < 500 && getSpillFiles().length > 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, getSpillFiles().length);
+        assertEquals(1, publisher.getReplayedCount());
+        List<Task> published = getPublished();
+        assertEquals(2, published.size());
+        assertEquals(task2, published.get(0));
+        assertEquals(task1, published.get(1));
+    }
+
+    @Test
+    public void testPeriodicReplay() throws Exception {
+        taskQueue.put(anyObject(Set.class));
+        expectLastCall().andThrow(new DuraCloudRuntimeException("queue down"));
+        expectBatches();
+        replay(taskQueue);
+
+        AuditTaskPublisher publisher = createPublisher(100, 10, spillDir);
+        publisher.setReplayRetryMillis(100);
+        Task task = createTask(1);
+        publisher.publish(task);
+
+        // Spilled tasks are published without further tasks being published
+        waitFor(1);
+        for (int i = 0; i < 500 && getSpillFiles().length > 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, publisher.getSpilledCount());
+        assertEquals(1, publisher.getReplayedCount());
+        assertEquals(0, getSpillFiles().length);
+        assertEquals(task, getPublished().get(0));
+    }
+
+    @Test
+    public void testReplayOnStart() throws Exception {
+        taskQueue.put(anyObject(Set.class));
+        expectLastCall().andThrow(new DuraCloudRuntimeException("queue down"));
+        expectBatches();
+        replay(taskQueue);
+
+        AuditTaskPublisher publisher = createPublisher(100, 10, spillDir);
+        Task task = createTask(1);
+        publisher.publish(task);
+        for (int i = 0; i < 500 && publisher.getSpilledCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        publisher.shutdown(5000);
+        assertEquals(1, getSpillFiles().length);
+
+        // A new publisher publishes the tasks spilled by the last one
+        createPublisher(100, 10, spillDir);
+        waitFor(1);
+        assertEquals(task, getPublished().get(0));
+    }
+
+    @Test
+    public void testDropped() throws Exception {
+        taskQueue.put(anyObject(Set.class));
+        expectLastCall().andThrow(new DuraCloudRuntimeException("queue down"))
+                        .times(AuditTaskPublisher.MAX_PUBLISH_ATTEMPTS);
+        replay(taskQueue);
+
+        AuditTaskPublisher publisher = createPublisher(100, 10, null);
+        publisher.publish(createTask(1));
+        publisher.publish(createTask(2));
+        publisher.shutdown(5000);
+
+        assertEquals(2, publisher.getDroppedCount());
+        assertEquals(0, publisher.getPublishedCount());
+    }
+
+    @Test
+    public void testPublishAfterShutdown() throws Exception {
+        taskQueue.put(isA(Task.class));
+        expectLastCall();
+        replay(taskQueue);
+
+        AuditTaskPublisher publisher = createPublisher(100, 10, null);
+        publisher.shutdown(5000);
+        publisher.publish(createTask(1));
+    }
+
+}
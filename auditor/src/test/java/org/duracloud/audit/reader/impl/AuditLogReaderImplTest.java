@@ -15,9 +15,12 @@ import static org.easymock.EasyMock.isA;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -25,11 +28,19 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.duracloud.audit.AuditLogUtil;
 import org.duracloud.audit.reader.AuditLogReaderException;
+import org.duracloud.audit.reader.AuditLogWriter;
+import org.duracloud.common.util.DateUtil;
+import org.duracloud.common.util.DateUtil.DateFormat;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.mill.test.AbstractTestBase;
 import org.duracloud.storage.domain.AuditConfig;
@@ -167,6 +178,169 @@ public class AuditLogReaderImplTest extends AbstractTestBase {
         }
     }
 
+    @Test
+    public void testGetAuditLogWriterDateRange() throws Exception {
+        String prefix = getPrefix();
+        String[] logs = {"2024-01-01-00-00-00.tsv", "2024-02-01-00-00-00.tsv",
+                         "2024-03-01-00-00-00.tsv", "2024-04-01-00-00-00.tsv",
+                         "2024-05-01-00-00-00.tsv"};
+        Iterator<String> it =
+            Arrays.asList(prefix + "/" + logs[0], prefix + "/" + logs[1],
+                          prefix + "/" + logs[2], prefix + "/" + logs[3],
+                          prefix + "/" + logs[4]).iterator();
+        expect(storageProvider.getSpaceContents(eq(globalAuditSpaceId), eq(prefix))).andReturn(it);
+        expect(config.getAuditLogSpaceId()).andReturn(globalAuditSpaceId);
+        mockCheckEnabled(config);
+
+        // The log which begins before the start of the range may hold events
+        // within the range, the log which begins after the end may not
+        setupGetContentCall(prefix, storageProvider, logs[1], new String[] {"header", "b"});
+        setupGetContentCall(prefix, storageProvider, logs[2], new String[] {"header", "c"});
+
+        replayAll();
+
+        AuditLogReaderImpl auditReader = createAuditLogReader(storageProvider, config);
+        AuditLogWriter writer =
+            auditReader.getAuditLogWriter(account, storeId, spaceId,
+                                          DateUtil.convertToDate("2024-02-15", DateFormat.SHORT_FORMAT),
+                                          DateUtil.convertToDate("2024-03-15", DateFormat.SHORT_FORMAT));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.write(output);
+
+        assertEquals("header\nb\nc\n", output.toString(StandardCharsets.UTF_8.name()));
+        // Listing stops at the first log which begins after the end
+        assertTrue(it.hasNext());
+        auditReader.shutdown();
+    }
+
+    @Test
+    public void testGetAuditLogPrefetch() throws Exception {
+        String prefix = getPrefix();
+        int logCount = 10;
+        String[] contentIds = new String[logCount];
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < logCount; i++) {
+            contentIds[i] = prefix + "/log" + i;
+            final String line = "line" + i;
+            expect(storageProvider.getContent(eq(globalAuditSpaceId), eq(contentIds[i])))
+                .andAnswer(() -> {
+                    threadNames.add(Thread.currentThread().getName());
+                    RetrievedContent content = new RetrievedContent();
+                    String log = "header\n" + line + "\n";
+                    content.setContentStream(
+                        new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8)));
+                    return content;
+                });
+        }
+        expect(storageProvider.getSpaceContents(eq(globalAuditSpaceId), eq(prefix)))
+            .andReturn(Arrays.asList(contentIds).iterator());
+        expect(config.getAuditLogSpaceId()).andReturn(globalAuditSpaceId);
+        mockCheckEnabled(config);
+
+        replayAll();
+
+        AuditLogReaderImpl auditReader = createAuditLogReader(storageProvider, config);
+        auditReader.setPrefetch(3);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        auditReader.getAuditLogWriter(account, storeId, spaceId, null, null).write(output);
+
+        StringBuilder expected = new StringBuilder("header\n");
+        for (int i = 0; i < logCount; i++) {
+            expected.append("line").append(i).append("\n");
+        }
+        // Logs are written in order, though retrieved ahead of time
+        assertEquals(expected.toString(), output.toString(StandardCharsets.UTF_8.name()));
+        for (String threadName : threadNames) {
+            assertTrue(threadName, threadName.startsWith("audit-log-reader-"));
+        }
+        auditReader.shutdown();
+    }
+
+    @Test
+    public void testGetAuditLogLargerThanPrefetch() throws Exception {
+        String prefix = getPrefix();
+        String contentId = prefix + "/log";
+        StringBuilder log = new StringBuilder("header\n");
+        for (int i = 0; log.length() < 200 * 1024; i++) {
+            log.append("line").append(i).append("\n");
+        }
+        byte[] logBytes = log.toString().getBytes(StandardCharsets.UTF_8);
+        // Only the first buffer of the log is prefetched, the rest is
+        // retrieved as it is written
+        int prefetched = 64 * 1024;
+        RetrievedContent content = new RetrievedContent();
+        content.setContentStream(new ByteArrayInputStream(logBytes));
+        RetrievedContent remainder = new RetrievedContent();
+        remainder.setContentStream(
+            new ByteArrayInputStream(logBytes, prefetched, logBytes.length - prefetched));
+
+        expect(storageProvider.getSpaceContents(eq(globalAuditSpaceId), eq(prefix)))
+            .andReturn(Collections.singletonList(contentId).iterator());
+        expect(storageProvider.getContent(eq(globalAuditSpaceId), eq(contentId)))
+            .andReturn(content);
+        expect(storageProvider.getContent(eq(globalAuditSpaceId), eq(contentId),
+                                          eq("bytes=" + prefetched + "-")))
+            .andReturn(remainder);
+        expect(config.getAuditLogSpaceId()).andReturn(globalAuditSpaceId);
+        mockCheckEnabled(config);
+
+        replayAll();
+
+        AuditLogReaderImpl auditReader = createAuditLogReader(storageProvider, config);
+        auditReader.setPrefetchBytes(1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        auditReader.getAuditLogWriter(account, storeId, spaceId, null, null).write(output);
+
+        assertEquals(log.toString(), output.toString(StandardCharsets.UTF_8.name()));
+        auditReader.shutdown();
+    }
+
+    @Test
+    public void testGetAuditLogOutputFailure() throws Exception {
+        String prefix = getPrefix();
+        Iterator<String> it =
+            Collections.nCopies(1000, prefix + "/log").iterator();
+        expect(storageProvider.getSpaceContents(eq(globalAuditSpaceId), eq(prefix))).andReturn(it);
+        expect(storageProvider.getContent(eq(globalAuditSpaceId), eq(prefix + "/log")))
+            .andAnswer(() -> {
+                RetrievedContent content = new RetrievedContent();
+                content.setContentStream(
+                    new ByteArrayInputStream("header\nline\n".getBytes(StandardCharsets.UTF_8)));
+                return content;
+            }).anyTimes();
+        expect(config.getAuditLogSpaceId()).andReturn(globalAuditSpaceId);
+        mockCheckEnabled(config);
+
+        replayAll();
+
+        AuditLogReaderImpl auditReader = createAuditLogReader(storageProvider, config);
+        OutputStream output = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("client disconnected");
+            }
+        };
+        try {
+            auditReader.getAuditLogWriter(account, storeId, spaceId, null, null).write(output);
+            fail("expected output failure");
+        } catch (IOException e) {
+            assertEquals("client disconnected", e.getMessage());
+        }
+        // Listing stops once the output has failed
+        assertTrue(it.hasNext());
+        auditReader.shutdown();
+    }
+
+    @Test
+    public void testGetLogDate() throws Exception {
+        assertEquals(DateUtil.convertToDate("2024-01-02-03-04-05", DateFormat.PLAIN_FORMAT),
+                     AuditLogReaderImpl.getLogDate("a/b/c/2024-01-02-03-04-05.tsv"));
+        assertEquals(DateUtil.convertToDate("2024-01-02", DateFormat.SHORT_FORMAT),
+                     AuditLogReaderImpl.getLogDate("a/b/c/audit-2024-01-02.tsv"));
+        assertNull(AuditLogReaderImpl.getLogDate("a/2024-01-02/log1"));
+        replayAll();
+    }
+
     private void mockCheckEnabled(AuditConfig config) {
         expect(config.getAuditLogSpaceId()).andReturn(globalAuditSpaceId);
         expect(config.getAuditQueueName()).andReturn("queue");
@@ -211,11 +211,13 @@ public class FileChunker {
 
         log.debug("loading file: " + destContentId + "[" + fileSize + "]");
         if (fileSize <= maxChunkSize) {
+            // Without a known checksum, the MD5 is computed as the content is
+            // written rather than by reading the content in advance
             BufferedInputStream buffStream = new BufferedInputStream(stream);
             ChunkInputStream chunk = new ChunkInputStream(destContentId,
                                                           buffStream,
                                                           fileSize,
-                                                          false);
+                                                          null == fileChecksum);
 
             contentWriter.writeSingle(destSpaceId, fileChecksum, chunk, properties);
 
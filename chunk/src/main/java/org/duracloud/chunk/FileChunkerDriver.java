@@ -33,6 +33,7 @@ import org.apache.commons.io.filefilter.OrFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.io.input.AutoCloseInputStream;
 import org.duracloud.chunk.error.NotFoundException;
+import org.duracloud.chunk.writer.ChunkTransferPool;
 import org.duracloud.chunk.writer.ContentWriter;
 import org.duracloud.chunk.writer.DuracloudContentWriter;
 import org.duracloud.chunk.writer.FilesystemContentWriter;
@@ -175,6 +176,14 @@ public class FileChunkerDriver {
                                              "specified in the 'add' " +
                                              "option will be ignored.");
 
+        Option threads = new Option("t",
+                                    "threads",
+                                    true,
+                                    "number of chunks to transfer to the " +
+                                    "cloud store concurrently, default 1");
+        threads.setArgs(1);
+        threads.setArgName("n");
+
         Options options = new Options();
         options.addOption(username);
         options.addOption(password);
@@ -185,6 +194,7 @@ public class FileChunkerDriver {
         options.addOption(cloud);
         options.addOption(excludeChunkMD5s);
         options.addOption(ignoreLargeFiles);
+        options.addOption(threads);
 
         return options;
     }
@@ -235,6 +245,7 @@ public class FileChunkerDriver {
 
         // Where will content be written?
         ContentWriter writer;
+        ChunkTransferPool transferPool = null;
         if (cmd.hasOption("cloud-store")) {
             String[] vals = cmd.getOptionValues("cloud-store");
             String host = vals[0];
@@ -245,8 +256,16 @@ public class FileChunkerDriver {
                 mgr.login(credential);
             }
 
-            writer = new DuracloudContentWriter(mgr.getPrimaryContentStore(),
-                                                username);
+            DuracloudContentWriter duracloudWriter =
+                new DuracloudContentWriter(mgr.getPrimaryContentStore(), username);
+            if (cmd.hasOption("threads")) {
+                int threads = Integer.parseInt(cmd.getOptionValue("threads"));
+                if (threads > 1) {
+                    transferPool = new ChunkTransferPool(threads);
+                    duracloudWriter.setTransferPool(transferPool);
+                }
+            }
+            writer = duracloudWriter;
         } else {
             writer = new FilesystemContentWriter();
         }
@@ -290,7 +309,13 @@ public class FileChunkerDriver {
                                              chunkSize,
                                              chunkMD5,
                                              ignoreLarge);
-            chunk(fromDir, toDir, options, writer);
+            try {
+                chunk(fromDir, toDir, options, writer);
+            } finally {
+                if (null != transferPool) {
+                    transferPool.shutdown();
+                }
+            }
 
             // ...or generate test data
         } else if (cmd.hasOption("generate")) {
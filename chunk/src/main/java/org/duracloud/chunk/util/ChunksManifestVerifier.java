@@ -7,9 +7,13 @@
  */
 package org.duracloud.chunk.util;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.amazonaws.util.CollectionUtils;
 import org.duracloud.chunk.manifest.ChunksManifest;
@@ -29,10 +33,22 @@ import org.slf4j.LoggerFactory;
 public class ChunksManifestVerifier {
     private static final Logger log = LoggerFactory.getLogger(ChunksManifestVerifier.class);
     private ContentStore contentStore;
+    private ExecutorService executor;
 
     public ChunksManifestVerifier(ContentStore contentStore) {
+        this(contentStore, null);
+    }
+
+    /**
+     * @param contentStore the store holding the chunks
+     * @param executor     used to verify chunks concurrently, or null to
+     *                     verify chunks one at a time
+     */
+    public ChunksManifestVerifier(ContentStore contentStore,
+                                  ExecutorService executor) {
         assert contentStore != null;
         this.contentStore = contentStore;
+        this.executor = executor;
     }
 
     /**
@@ -50,38 +66,18 @@ public class ChunksManifestVerifier {
     public Results verifyAllChunks(String spaceId, ChunksManifest manifest) {
 
         Results results = new Results();
-        for (ManifestEntry entry : manifest.getEntries()) {
-            String chunkId = entry.getChunkId();
-            String checksum = entry.getChunkMD5();
-            long byteSize = entry.getByteSize();
-
-            try {
-                Map<String, String> props =
-                    this.contentStore.getContentProperties(spaceId,
-                                                           entry.getChunkId());
-                String remoteChecksum = props.get(ContentStore.CONTENT_CHECKSUM);
-                long remoteByteSize = Long.valueOf(props.get(ContentStore.CONTENT_SIZE));
-
-                if (!checksum.equals(remoteChecksum)) {
-                    results.add(chunkId,
-                                "manifest checksum (" + checksum
-                                + ") does not match DuraCloud checksum ("
-                                + remoteChecksum
-                                + ")",
-                                false);
-                } else if (byteSize != remoteByteSize) {
-                    results.add(chunkId,
-                                "manifest byte size (" + byteSize
-                                + ") does not match DuraCloud byte size ("
-                                + remoteByteSize
-                                + ")",
-                                false);
-                } else {
-                    results.add(chunkId, null, true);
-                }
-
-            } catch (Exception ex) {
-                results.add(chunkId, ex.getMessage(), false);
+        if (null == executor) {
+            for (ManifestEntry entry : manifest.getEntries()) {
+                results.add(verifyChunk(spaceId, entry));
+            }
+        } else {
+            List<ManifestEntry> entries = new ArrayList<>(manifest.getEntries());
+            List<Future<Result>> futures = new ArrayList<>(entries.size());
+            for (ManifestEntry entry : entries) {
+                futures.add(executor.submit(() -> verifyChunk(spaceId, entry)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(getResult(futures.get(i), entries.get(i)));
             }
         }
 
@@ -95,6 +91,52 @@ public class ChunksManifestVerifier {
         }
     }
 
+    private Result verifyChunk(String spaceId, ManifestEntry entry) {
+        String chunkId = entry.getChunkId();
+        String checksum = entry.getChunkMD5();
+        long byteSize = entry.getByteSize();
+
+        try {
+            Map<String, String> props =
+                this.contentStore.getContentProperties(spaceId,
+                                                       entry.getChunkId());
+            String remoteChecksum = props.get(ContentStore.CONTENT_CHECKSUM);
+            long remoteByteSize = Long.valueOf(props.get(ContentStore.CONTENT_SIZE));
+
+            if (!checksum.equals(remoteChecksum)) {
+                return new Result(chunkId,
+                                  "manifest checksum (" + checksum
+                                  + ") does not match DuraCloud checksum ("
+                                  + remoteChecksum
+                                  + ")",
+                                  false);
+            } else if (byteSize != remoteByteSize) {
+                return new Result(chunkId,
+                                  "manifest byte size (" + byteSize
+                                  + ") does not match DuraCloud byte size ("
+                                  + remoteByteSize
+                                  + ")",
+                                  false);
+            } else {
+                return new Result(chunkId, null, true);
+            }
+
+        } catch (Exception ex) {
+            return new Result(chunkId, ex.getMessage(), false);
+        }
+    }
+
+    private Result getResult(Future<Result> future, ManifestEntry entry) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return new Result(entry.getChunkId(), e.getCause().getMessage(), false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(entry.getChunkId(), "interrupted", false);
+        }
+    }
+
     public static final class Results {
         private List<Result> resultList = null;
 
@@ -117,13 +159,19 @@ public class ChunksManifestVerifier {
         }
 
         public void add(String chunkId, String error, boolean success) {
+            add(new Result(chunkId, error, success));
+        }
+
+        private void add(Result result) {
             if (this.resultList == null) {
                 this.resultList = new LinkedList<>();
             }
 
-            this.resultList.add(new Result(chunkId, error, success));
+            this.resultList.add(result);
 
-            if (success) {
+            String chunkId = result.getChunkId();
+            String error = result.getError();
+            if (result.isSuccess()) {
                 log.debug("chunk successfully verified: {}", chunkId);
             } else {
                 log.warn("unable to verify chunk {} due to : {}", chunkId, error);
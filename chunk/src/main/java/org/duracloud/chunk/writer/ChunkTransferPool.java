@@ -0,0 +1,100 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.chunk.writer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transfers content chunks on a fixed number of threads. A permit is
+ * acquired before each chunk is read from its source and is released once
+ * the chunk has been transferred, so the number of chunks held in temporary
+ * files waiting to be transferred never exceeds the number of threads.
+ *
+ * A pool may be shared by several DuracloudContentWriters, in which case
+ * the limit applies to the chunks of all of them together.
+ */
+public class ChunkTransferPool {
+
+    private final int threads;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    /**
+     * @param threads number of chunks to transfer concurrently
+     */
+    public ChunkTransferPool(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be greater than zero");
+        }
+        this.threads = threads;
+        this.permits = new Semaphore(threads);
+
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "chunk-transfer-" +
+                                                 threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Waits until another chunk may be read for transfer.
+     */
+    protected void acquire() throws InterruptedException {
+        permits.acquire();
+    }
+
+    /**
+     * Gives up a permit without transferring a chunk, for example when
+     * the chunk could not be read.
+     */
+    protected void release() {
+        permits.release();
+    }
+
+    /**
+     * Runs a chunk transfer, releasing its permit once it completes.
+     *
+     * @param transfer transfers a chunk for which a permit has been acquired
+     * @return the result of the transfer
+     * @throws RejectedExecutionException if the pool has been shut down, in
+     *                                    which case the permit is released
+     */
+    protected Future<?> transfer(Runnable transfer) {
+        try {
+            return executor.submit(() -> {
+                try {
+                    transfer.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the transfer threads once all submitted transfers are complete.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+}
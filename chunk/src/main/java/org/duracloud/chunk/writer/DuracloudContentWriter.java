@@ -9,15 +9,20 @@ package org.duracloud.chunk.writer;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.io.FileUtils;
 import org.duracloud.chunk.ChunkableContent;
@@ -52,8 +57,9 @@ public class DuracloudContentWriter implements ContentWriter {
 
     private ContentStore contentStore;
     private String username;
-    private Set<String> existingSpaces = new HashSet<String>();
-    private List<AddContentResult> results = new ArrayList<AddContentResult>();
+    private Set<String> existingSpaces = ConcurrentHashMap.newKeySet();
+    private List<AddContentResult> results =
+        Collections.synchronizedList(new ArrayList<AddContentResult>());
     private ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
 
     // if true, skip writing results and throw exception when errors occur
@@ -62,6 +68,9 @@ public class DuracloudContentWriter implements ContentWriter {
     // if true, skip checks for chunks in storage
     private boolean jumpStart = false;
 
+    // if set, chunks are transferred concurrently using this pool
+    private ChunkTransferPool transferPool = null;
+
     private static int DEFAULT_MAX_RETRIES = 4;  //actual attempts will always equal MAX_RETRIES+1
     private static int DEFAULT_WAIT_IN_MS_BETWEEN_RETRIES = 1000;
 
@@ -112,6 +121,19 @@ public class DuracloudContentWriter implements ContentWriter {
         return this.maxRetries;
     }
 
+    /**
+     * Sets the pool used to transfer the chunks of chunked content
+     * concurrently. Chunks are still read from the content stream in order,
+     * but each chunk is transferred on a pool thread while the following
+     * chunks are read. Without a pool, chunks are transferred one at a time.
+     *
+     * @param transferPool pool to transfer chunks, or null to transfer chunks
+     *                     one at a time
+     */
+    public void setTransferPool(ChunkTransferPool transferPool) {
+        this.transferPool = transferPool;
+    }
+
     public List<AddContentResult> getResults() {
         return results;
     }
@@ -149,11 +171,15 @@ public class DuracloudContentWriter implements ContentWriter {
         createSpaceIfNotExist(spaceId);
         boolean errorsExist = false;
         results.clear();
-        for (ChunkInputStream chunk : chunkable) {
-            writeChunk(spaceId, chunk);
-            if (errorsExist = errorsExist()) {
-                break;
+        if (null == transferPool) {
+            for (ChunkInputStream chunk : chunkable) {
+                writeChunk(spaceId, chunk);
+                if (errorsExist = errorsExist()) {
+                    break;
+                }
             }
+        } else {
+            errorsExist = writeChunksConcurrently(spaceId, chunkable);
         }
 
         ChunksManifest manifest = chunkable.finalizeManifest();
@@ -180,12 +206,89 @@ public class DuracloudContentWriter implements ContentWriter {
         return manifest;
     }
 
+    /*
+     * Reads each chunk in turn and transfers it using the transfer pool.
+     * Reading stops once a transfer has failed, and all transfers which have
+     * started are allowed to complete before returning.
+     *
+     * @return true if errors were recorded in the results
+     */
+    private boolean writeChunksConcurrently(String spaceId,
+                                            ChunkableContent chunkable) {
+        List<Future<?>> transfers = new ArrayList<>();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        try {
+            for (ChunkInputStream chunk : chunkable) {
+                transferPool.acquire();
+                SpooledChunk spooled;
+                try {
+                    spooled = spoolChunk(chunk);
+                } catch (RuntimeException e) {
+                    transferPool.release();
+                    throw e;
+                }
+
+                try {
+                    transfers.add(transferPool.transfer(() -> {
+                        try {
+                            transferChunk(spaceId, spooled);
+                        } catch (RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    FileUtils.deleteQuietly(spooled.file);
+                    throw new DuraCloudRuntimeException(
+                        "Unable to transfer chunk " + spooled.chunkId +
+                        " due to: " + e.getMessage(), e);
+                }
+
+                if (null != failure.get() || errorsExist()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, new DuraCloudRuntimeException(
+                "Interrupted while writing chunks to space " + spaceId, e));
+        } finally {
+            waitForTransfers(transfers);
+        }
+
+        if (null != failure.get()) {
+            throw failure.get();
+        }
+        return errorsExist();
+    }
+
+    private void waitForTransfers(List<Future<?>> transfers) {
+        boolean interrupted = false;
+        for (Future<?> transfer : transfers) {
+            while (true) {
+                try {
+                    transfer.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // Failures are recorded by the transfer itself
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     protected boolean errorsExist() {
         boolean containsErrors = false;
-        for (AddContentResult result : this.results) {
-            if (result.getState().equals(AddContentResult.State.ERROR)) {
-                containsErrors = true;
-                break;
+        synchronized (results) {
+            for (AddContentResult result : this.results) {
+                if (result.getState().equals(AddContentResult.State.ERROR)) {
+                    containsErrors = true;
+                    break;
+                }
             }
         }
         return containsErrors;
@@ -195,15 +298,37 @@ public class DuracloudContentWriter implements ContentWriter {
      * Writes chunk to DuraCloud if it does not already exist in DuraCloud with a
      * matching checksum. Retry failed transfers.
      */
-    private void writeChunk(String spaceId, ChunkInputStream chunk)
-        throws NotFoundException {
-        // Write chunk as a temp file
-        String chunkId = chunk.getChunkId();
-        File chunkFile = IOUtil.writeStreamToFile(chunk);
+    private void writeChunk(String spaceId, ChunkInputStream chunk) {
+        transferChunk(spaceId, spoolChunk(chunk));
+    }
 
-        try {
-            String chunkChecksum = getChunkChecksum(chunkFile);
+    /*
+     * Writes chunk as a temp file, computing its checksum along the way, so
+     * that the transfer can be retried
+     */
+    private SpooledChunk spoolChunk(ChunkInputStream chunk) {
+        DigestInputStream digestStream = null;
+        InputStream spoolStream = chunk;
+        if (!chunk.md5Preserved()) {
+            digestStream = ChecksumUtil.wrapStream(chunk, ChecksumUtil.Algorithm.MD5);
+            spoolStream = digestStream;
+        }
+        File chunkFile = IOUtil.writeStreamToFile(spoolStream);
+
+        String chunkChecksum = (null == digestStream) ? chunk.getMD5() :
+                               ChecksumUtil.getChecksum(digestStream);
+        return new SpooledChunk(chunk.getChunkId(), chunkFile, chunkChecksum);
+    }
 
+    /*
+     * Transfers a spooled chunk unless it is already in storage, then
+     * removes the temp file
+     */
+    private void transferChunk(String spaceId, SpooledChunk spooled) {
+        String chunkId = spooled.chunkId;
+        File chunkFile = spooled.file;
+        String chunkChecksum = spooled.checksum;
+        try {
             // Write chunk if it is not already in storage (or jumpstart is enabled)
             if (jumpStart || !chunkInStorage(spaceId, chunkId, chunkChecksum)) {
                 try {
@@ -218,7 +343,7 @@ public class DuracloudContentWriter implements ContentWriter {
                                     new ChunkInputStream(chunkId,
                                                          chunkStream,
                                                          chunkFile.length(),
-                                                         chunk.md5Preserved());
+                                                         false);
                                 writeSingle(spaceId, chunkChecksum, chunkFileStream, attempt == getMaxRetries() + 1);
                             }
                             return "";
@@ -240,14 +365,17 @@ public class DuracloudContentWriter implements ContentWriter {
     }
 
     /*
-     * Determine the checksum of the chunk file
+     * A chunk which has been written to a temp file
      */
-    private String getChunkChecksum(File chunkFile) {
-        try {
-            return checksumUtil.generateChecksum(chunkFile);
-        } catch (IOException e) {
-            throw new DuraCloudRuntimeException("Unable to generate checksum for file " +
-                                                chunkFile + " due to: " + e.getMessage());
+    private static class SpooledChunk {
+        private final String chunkId;
+        private final File file;
+        private final String checksum;
+
+        SpooledChunk(String chunkId, File file, String checksum) {
+            this.chunkId = chunkId;
+            this.file = file;
+            this.checksum = checksum;
         }
     }
 
@@ -449,14 +577,15 @@ public class DuracloudContentWriter implements ContentWriter {
             properties.put(StorageProvider.PROPERTIES_CONTENT_CREATOR, username);
         }
 
+        String md5;
         try {
-            return contentStore.addContent(spaceId,
-                                           contentId,
-                                           contentStream,
-                                           contentSize,
-                                           contentMimetype,
-                                           contentChecksum,
-                                           properties);
+            md5 = contentStore.addContent(spaceId,
+                                          contentId,
+                                          contentStream,
+                                          contentSize,
+                                          contentMimetype,
+                                          contentChecksum,
+                                          properties);
         } catch (ContentStoreException e) {
             log.error(e.getFormattedMessage(), e);
             throw new ContentNotAddedException(spaceId, contentId, e);
@@ -464,6 +593,27 @@ public class DuracloudContentWriter implements ContentWriter {
             log.error("Error adding content:" + ex.getMessage(), ex);
             throw new ContentNotAddedException(spaceId, contentId, ex);
         }
+
+        // Content sent without a checksum is verified against the checksum
+        // computed as it was streamed, and removed if it does not match
+        if (null == contentChecksum && contentStream instanceof ChunkInputStream) {
+            ChunkInputStream chunk = (ChunkInputStream) contentStream;
+            if (chunk.md5Preserved() && !chunk.getMD5().equals(md5)) {
+                String err = "Checksum of streamed content " + chunk.getMD5() +
+                             " does not match stored checksum " + md5;
+                log.error(err);
+                try {
+                    contentStore.deleteContent(spaceId, contentId);
+                } catch (ContentStoreException e) {
+                    log.warn("failed to remove content " + contentId +
+                             " with mismatched checksum: " + e.getMessage());
+                }
+                throw new ContentNotAddedException(spaceId,
+                                                   contentId,
+                                                   new DuraCloudRuntimeException(err));
+            }
+        }
+        return md5;
     }
 
     private void createSpaceIfNotExist(String spaceId)
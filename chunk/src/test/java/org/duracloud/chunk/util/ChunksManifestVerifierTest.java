@@ -8,6 +8,9 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.duracloud.chunk.manifest.ChunksManifest;
 import org.duracloud.chunk.manifest.ChunksManifestBean;
@@ -131,6 +134,47 @@ public class ChunksManifestVerifierTest extends EasyMockSupport {
         assertResultSizeIsEqual(results);
     }
 
+    @Test
+    public void testConcurrentVerification() throws ContentStoreException {
+        ExecutorService executor =
+            Executors.newFixedThreadPool(3, runnable -> new Thread(runnable, "verifier"));
+        ChunksManifestVerifier verifier =
+            new ChunksManifestVerifier(contentStore, executor);
+
+        // The last chunk does not match
+        List<ManifestEntry> entries = manifest.getEntries();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            ManifestEntry entry = entries.get(i);
+            String md5 = (i < entries.size() - 1) ? entry.getChunkMD5() : "badChecksum";
+            expect(contentStore.getContentProperties(spaceId, entry.getChunkId()))
+                .andAnswer(() -> recordThread(threads, entry.getByteSize(), md5));
+        }
+
+        replayAll();
+        Results results = verifier.verifyAllChunks(spaceId, manifest);
+        executor.shutdown();
+
+        assertTrue(!results.isSuccess());
+        assertResultSizeIsEqual(results);
+        // Results are in the order of the manifest
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(entries.get(i).getChunkId(), results.get().get(i).getChunkId());
+            assertEquals(i < entries.size() - 1, results.get().get(i).isSuccess());
+        }
+        assertEquals(entries.size(), threads.size());
+        for (String thread : threads) {
+            assertEquals("verifier", thread);
+        }
+    }
+
+    private Map<String, String> recordThread(List<String> threads,
+                                             long byteSize,
+                                             String md5) {
+        threads.add(Thread.currentThread().getName());
+        return createProperties(byteSize, md5);
+    }
+
     private Map<String, String> createProperties(long byteSize, String chunkMD5) {
         Map<String, String> props = new HashMap<>();
         props.put(ContentStore.CONTENT_CHECKSUM, chunkMD5);
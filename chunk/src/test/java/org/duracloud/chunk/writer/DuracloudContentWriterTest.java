@@ -9,15 +9,18 @@ package org.duracloud.chunk.writer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.duracloud.chunk.ChunkableContent;
 import org.duracloud.chunk.error.NotFoundException;
+import org.duracloud.chunk.manifest.ChunksManifest;
+import org.duracloud.chunk.manifest.ChunksManifestBean.ManifestEntry;
 import org.duracloud.chunk.stream.ChunkInputStream;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.error.DuraCloudRuntimeException;
@@ -46,6 +49,8 @@ public class DuracloudContentWriterTest {
     private final String checksum = "this-is-a-checksum";
     private String spaceId = "test-spaceId";
     private String contentId = "test-contentId";
+    private final long contentSize = 4000;
+    private final long maxChunkSize = 1000;
 
     @Before
     public void setUp() throws ContentStoreException {
@@ -103,7 +108,8 @@ public class DuracloudContentWriterTest {
         return contentStore;
     }
 
-    private void updateMockContentStoreContentCheck(boolean chunkExists)
+    private void updateMockContentStoreContentCheck(boolean chunkExists,
+                                                    boolean validChecksum)
         throws ContentStoreException {
         if (!chunkExists) {
             EasyMock.expect(contentStore.contentExists(EasyMock.isA(String.class),
@@ -116,15 +122,43 @@ public class DuracloudContentWriterTest {
                     .andReturn(true)
                     .anyTimes();
 
-            Map<String, String> props = new HashMap<>();
-            props.put(ContentStore.CONTENT_CHECKSUM, checksum);
+            Map<String, String> chunkChecksums = getChunkChecksums();
             EasyMock.expect(contentStore.getContentProperties(EasyMock.isA(String.class),
                                                               EasyMock.isA(String.class)))
-                    .andReturn(props)
+                    .andAnswer(() -> {
+                        String chunkId = (String) EasyMock.getCurrentArguments()[1];
+                        Map<String, String> props = new HashMap<>();
+                        props.put(ContentStore.CONTENT_CHECKSUM,
+                                  validChecksum ? chunkChecksums.get(chunkId) : checksum);
+                        return props;
+                    })
                     .anyTimes();
         }
     }
 
+    /*
+     * Checksums of the chunks written by doTestWrite, by chunk ID
+     */
+    private Map<String, String> getChunkChecksums() {
+        Map<String, String> checksums = new HashMap<>();
+        ChunkableContent chunkable = new ChunkableContent(contentId,
+                                                          createContentStream(contentSize),
+                                                          contentSize,
+                                                          maxChunkSize);
+        chunkable.setPreserveChunkMD5s(true);
+        for (ChunkInputStream chunk : chunkable) {
+            try {
+                while (chunk.read() != -1) {
+                    // spin through content
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            checksums.put(chunk.getChunkId(), chunk.getMD5());
+        }
+        return checksums;
+    }
+
     private void setupThrowingMockContentStore(int addChunkFailures,
                                                int addChunkSuccesses,
                                                int addManifestFailures,
@@ -197,8 +231,8 @@ public class DuracloudContentWriterTest {
     @Test
     public void testWrite() throws Exception {
         createMockContentStore(true, true);
-        updateMockContentStoreContentCheck(false);
-        doTestWrite(false, false);
+        updateMockContentStoreContentCheck(false, false);
+        doTestWrite(false);
     }
 
     /*
@@ -209,7 +243,7 @@ public class DuracloudContentWriterTest {
     public void testWriteJumpstart() throws Exception {
         createMockContentStore(true, true);
         expectDelete(false);
-        doTestWrite(false, true);
+        doTestWrite(true);
     }
 
     private void expectDelete(boolean expect) throws Exception {
@@ -233,8 +267,8 @@ public class DuracloudContentWriterTest {
     public void testWriteWrongChunkExists() throws Exception {
         expectDelete(false);
         createMockContentStore(true, true);
-        updateMockContentStoreContentCheck(true);
-        doTestWrite(false, false);
+        updateMockContentStoreContentCheck(true, false);
+        doTestWrite(false);
     }
 
     /*
@@ -245,8 +279,8 @@ public class DuracloudContentWriterTest {
     public void testWriteCorrectChunkExists() throws Exception {
         expectDelete(false);
         createMockContentStore(true, false);
-        updateMockContentStoreContentCheck(true);
-        doTestWrite(true, false);
+        updateMockContentStoreContentCheck(true, true);
+        doTestWrite(false);
     }
 
     /*
@@ -258,8 +292,8 @@ public class DuracloudContentWriterTest {
     public void testWriteUnchunkedVersionExists() throws Exception {
         expectDelete(true);
         createMockContentStore(true, true);
-        updateMockContentStoreContentCheck(false);
-        doTestWrite(true, false);
+        updateMockContentStoreContentCheck(false, false);
+        doTestWrite(false);
     }
 
     /*
@@ -269,27 +303,17 @@ public class DuracloudContentWriterTest {
     @Test
     public void testWriteSpaceNotExist() throws Exception {
         createMockContentStore(false, true);
-        updateMockContentStoreContentCheck(false);
-        doTestWrite(false, false);
+        updateMockContentStoreContentCheck(false, false);
+        doTestWrite(false);
     }
 
-    private void doTestWrite(boolean validChecksum, boolean jumpStart) throws Exception {
+    private void doTestWrite(boolean jumpStart) throws Exception {
         DuracloudContentWriter writer =
             new DuracloudContentWriter(contentStore, username, false, jumpStart);
-        if (validChecksum) {
-            writer.setChecksumUtil(new ChecksumUtil(ChecksumUtil.Algorithm.MD5) {
-                @Override
-                public String generateChecksum(File file) throws IOException {
-                    return checksum;
-                }
-            });
-        }
 
         replayMocks();
-        long contentSize = 4000;
         InputStream contentStream = createContentStream(contentSize);
 
-        long maxChunkSize = 1000;
         ChunkableContent chunkable = new ChunkableContent(contentId,
                                                           contentStream,
                                                           contentSize,
@@ -461,6 +485,163 @@ public class DuracloudContentWriterTest {
         EasyMock.verify(contentStore);
     }
 
+    @Test
+    public void testWriteSingleStreamedChecksum() throws Exception {
+        long size = 1000;
+        String streamedChecksum = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+            .generateChecksum(createContentStream(size));
+
+        EasyMock.expect(contentStore.getSpaceACLs(spaceId))
+                .andReturn(new HashMap<String, AclType>())
+                .times(2);
+        EasyMock.expect(contentStore.addContent(EasyMock.eq(spaceId),
+                                                EasyMock.eq(contentId),
+                                                isChunkInputStream(),
+                                                EasyMock.eq(size),
+                                                EasyMock.isA(String.class),
+                                                EasyMock.isNull(),
+                                                (Map) EasyMock.anyObject()))
+                .andReturn(streamedChecksum)
+                .andReturn(checksum);
+        // Content stored with the wrong checksum is removed
+        contentStore.deleteContent(spaceId, contentId);
+        EasyMock.expectLastCall();
+        replayMocks();
+
+        DuracloudContentWriter writer =
+            new DuracloudContentWriter(contentStore, username, true, false);
+        ChunkInputStream chunk =
+            new ChunkInputStream(contentId, createContentStream(size), size, true);
+        Assert.assertEquals(streamedChecksum,
+                            writer.writeSingle(spaceId, null, chunk));
+
+        // Content stored with a different checksum than was streamed
+        chunk = new ChunkInputStream(contentId, createContentStream(size), size, true);
+        try {
+            writer.writeSingle(spaceId, null, chunk);
+            Assert.fail("Exception expected");
+        } catch (DuraCloudRuntimeException expected) {
+            Assert.assertNotNull(expected);
+        }
+
+        EasyMock.verify(contentStore);
+    }
+
+    @Test
+    public void testWriteConcurrently() throws Exception {
+        int chunkCount = 10;
+        long size = chunkCount * maxChunkSize;
+        Map<String, String> stored = new ConcurrentHashMap<>();
+        Set<String> chunkThreads = ConcurrentHashMap.newKeySet();
+
+        EasyMock.expect(contentStore.getSpaceACLs(spaceId))
+                .andReturn(new HashMap<String, AclType>())
+                .times(2);
+        EasyMock.expect(contentStore.contentExists(EasyMock.eq(spaceId),
+                                                   EasyMock.isA(String.class)))
+                .andReturn(false)
+                .anyTimes();
+        EasyMock.expect(contentStore.addContent(EasyMock.eq(spaceId),
+                                                EasyMock.isA(String.class),
+                                                EasyMock.isA(InputStream.class),
+                                                EasyMock.anyLong(),
+                                                EasyMock.isA(String.class),
+                                                EasyMock.isA(String.class),
+                                                (Map) EasyMock.anyObject()))
+                .andAnswer(() -> {
+                    Object[] args = EasyMock.getCurrentArguments();
+                    String id = (String) args[1];
+                    if (!id.equals(contentId + ChunksManifest.manifestSuffix)) {
+                        chunkThreads.add(Thread.currentThread().getName());
+                    }
+                    String md5 = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+                        .generateChecksum((InputStream) args[2]);
+                    Assert.assertEquals(args[5], md5);
+                    stored.put(id, md5);
+                    return md5;
+                })
+                .times(chunkCount + 1);
+        replayMocks();
+
+        ChunkTransferPool pool = new ChunkTransferPool(3);
+        DuracloudContentWriter writer =
+            new DuracloudContentWriter(contentStore, username, true, false);
+        writer.setTransferPool(pool);
+
+        ChunkableContent chunkable = new ChunkableContent(contentId,
+                                                          createContentStream(size),
+                                                          size,
+                                                          maxChunkSize);
+        chunkable.setPreserveChunkMD5s(true);
+        ChunksManifest manifest = writer.write(spaceId, chunkable);
+        pool.shutdown();
+
+        // Chunks are listed in order, with the MD5 of each chunk and of the
+        // whole content
+        List<ManifestEntry> entries = manifest.getEntries();
+        Assert.assertEquals(chunkCount, entries.size());
+        for (int i = 0; i < chunkCount; i++) {
+            ManifestEntry entry = entries.get(i);
+            Assert.assertEquals(i, entry.getIndex());
+            Assert.assertEquals(contentId + ChunksManifest.chunkSuffix + String.format("%04d", i),
+                                entry.getChunkId());
+            Assert.assertEquals(stored.get(entry.getChunkId()), entry.getChunkMD5());
+        }
+        Assert.assertEquals(new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+                                .generateChecksum(createContentStream(size)),
+                            manifest.getHeader().getSourceMD5());
+        Assert.assertTrue(stored.containsKey(manifest.getManifestId()));
+
+        // Chunks are transferred on the pool threads
+        Assert.assertEquals(3, chunkThreads.size());
+        for (String thread : chunkThreads) {
+            Assert.assertTrue(thread, thread.startsWith("chunk-transfer-"));
+        }
+
+        EasyMock.verify(contentStore);
+    }
+
+    @Test
+    public void testWriteConcurrentlyError() throws Exception {
+        int contentSize = 4000;
+        ChunkableContent chunkable = new ChunkableContent(contentId,
+                                                          createContentStream(contentSize),
+                                                          contentSize,
+                                                          1000);
+
+        // The first chunk fails on every attempt, others succeed
+        EasyMock.expect(contentStoreThrow.contentExists(EasyMock.isA(String.class),
+                                                        EasyMock.isA(String.class)))
+                .andReturn(false)
+                .anyTimes();
+        EasyMock.expect(contentStoreThrow.getSpaceACLs(EasyMock.isA(String.class)))
+                .andReturn(new HashMap<String, AclType>())
+                .anyTimes();
+        EasyMock.expect(contentStoreThrow.addContent(EasyMock.isA(String.class),
+                                                     EasyMock.eq(contentId + ".dura-chunk-0000"),
+                                                     isChunkInputStream(),
+                                                     EasyMock.anyLong(),
+                                                     EasyMock.isA(String.class),
+                                                     EasyMock.isA(String.class),
+                                                     (Map) EasyMock.anyObject()))
+                .andThrow(new ContentStoreException("Expected addContent Error "))
+                .times(writerErrorThrow.getMaxRetries() + 1);
+        expectAddContentSuccesses(3);
+        EasyMock.makeThreadSafe(contentStoreThrow, true);
+        replayMocks();
+
+        ChunkTransferPool pool = new ChunkTransferPool(2);
+        writerErrorThrow.setTransferPool(pool);
+        try {
+            writerErrorThrow.write(spaceId, chunkable);
+            Assert.fail("Exception expected");
+        } catch (DuraCloudRuntimeException expected) {
+            Assert.assertNotNull(expected);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     /**
      * This class is an EasyMock helper.
      */
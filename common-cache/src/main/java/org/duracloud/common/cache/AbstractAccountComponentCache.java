@@ -7,39 +7,248 @@
  */
 package org.duracloud.common.cache;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * A thread-safe cache of account components. The component for an account is
+ * created once, by the first thread to request it; other threads requesting
+ * the same account wait for that component rather than creating their own.
+ *
+ * Components are evicted when they have not been requested for the maximum
+ * idle time, and the least recently requested components are evicted when
+ * the cache grows beyond its maximum size. Subclasses remove components in
+ * response to account change events, and may release the resources held by
+ * evicted and removed components by overriding dispose().
+ *
  * @param <T>
  * @author Daniel Bernstein
  */
 public abstract class AbstractAccountComponentCache<T> implements AccountComponentCache<T> {
-    private Map<String, T> cache;
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final long DEFAULT_MAX_IDLE_MILLIS = TimeUnit.HOURS.toMillis(12);
+
+    private static final long MAX_SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Logger log = LoggerFactory.getLogger(AbstractAccountComponentCache.class);
+
+    private Map<String, Entry<T>> cache;
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private long maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_IDLE_MILLIS);
+    private volatile long lastSweepNanos = System.nanoTime();
+
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+    private AtomicLong loadFailures = new AtomicLong();
+    private AtomicLong totalLoadNanos = new AtomicLong();
+    private AtomicLong evictions = new AtomicLong();
+    private AtomicLong invalidations = new AtomicLong();
 
     public AbstractAccountComponentCache() {
-        this.cache = new HashMap<>();
+        this.cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param maxSize the number of accounts for which components are held,
+     *                0 for no limit
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param maxIdleMillis the time after which a component which has not
+     *                      been requested is evicted, 0 for no limit
+     */
+    public void setMaxIdleMillis(long maxIdleMillis) {
+        this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
     }
 
     protected void remove(String key) {
-        this.cache.remove(key);
+        Entry<T> entry = this.cache.remove(key);
+        if (null != entry) {
+            invalidations.incrementAndGet();
+            log.debug("removed cached component for account {}", key);
+            dispose(key, entry);
+        }
     }
 
     protected void removeAll() {
-        this.cache.clear();
+        for (String key : this.cache.keySet()) {
+            Entry<T> entry = this.cache.remove(key);
+            if (null != entry) {
+                invalidations.incrementAndGet();
+                dispose(key, entry);
+            }
+        }
+        log.debug("removed all cached components");
+    }
+
+    /**
+     * Releases the resources held by a component which has been evicted or
+     * removed from the cache. Requests which obtained the component before
+     * it was removed may still be using it. Does nothing by default.
+     *
+     * @param component the component which is no longer cached
+     */
+    protected void dispose(T component) {
+    }
+
+    /*
+     * Disposes of the component once it has been created, if it is still
+     * being created
+     */
+    private void dispose(String accountId, Entry<T> entry) {
+        entry.value.thenAccept(component -> {
+            try {
+                dispose(component);
+            } catch (RuntimeException e) {
+                log.warn("failed to dispose of cached component for account {}: {}",
+                         accountId, e.getMessage(), e);
+            }
+        });
     }
 
     @Override
     public T get(String accountId) {
-        T instance = this.cache.get(accountId);
-        if (instance == null) {
-            instance = createInstance(accountId);
-            this.cache.put(accountId, instance);
+        long now = System.nanoTime();
+        Entry<T> entry = this.cache.get(accountId);
+        if (null != entry && !isIdle(entry, now)) {
+            hits.incrementAndGet();
+        } else {
+            if (null != entry) {
+                evict(accountId, entry);
+            }
+            Entry<T> created = new Entry<>(now);
+            entry = this.cache.putIfAbsent(accountId, created);
+            if (null == entry) {
+                // This thread creates the component, others wait for it
+                misses.incrementAndGet();
+                entry = created;
+                load(accountId, created);
+                evictExcess();
+            } else {
+                hits.incrementAndGet();
+            }
+        }
+
+        entry.lastAccessNanos = now;
+        sweep(now);
+        return entry.getValue();
+    }
+
+    private void load(String accountId, Entry<T> entry) {
+        long start = System.nanoTime();
+        try {
+            entry.value.complete(createInstance(accountId));
+        } catch (RuntimeException | Error e) {
+            loadFailures.incrementAndGet();
+            // Allow the next request to try again
+            this.cache.remove(accountId, entry);
+            entry.value.completeExceptionally(e);
+        } finally {
+            totalLoadNanos.addAndGet(System.nanoTime() - start);
         }
+    }
+
+    private boolean isIdle(Entry<T> entry, long now) {
+        return maxIdleNanos > 0 && entry.value.isDone() &&
+               now - entry.lastAccessNanos > maxIdleNanos;
+    }
+
+    private void evict(String accountId, Entry<T> entry) {
+        if (this.cache.remove(accountId, entry)) {
+            evictions.incrementAndGet();
+            log.debug("evicted cached component for account {}", accountId);
+            dispose(accountId, entry);
+        }
+    }
+
+    /*
+     * Evicts the components which have been idle for longer than the maximum,
+     * checking at most once per idle period (or minute, if shorter).
+     */
+    private void sweep(long now) {
+        long interval = Math.min(maxIdleNanos, MAX_SWEEP_INTERVAL_NANOS);
+        if (maxIdleNanos <= 0 || now - lastSweepNanos < interval) {
+            return;
+        }
+        lastSweepNanos = now;
+        for (Map.Entry<String, Entry<T>> cached : this.cache.entrySet()) {
+            if (isIdle(cached.getValue(), now)) {
+                evict(cached.getKey(), cached.getValue());
+            }
+        }
+    }
+
+    /*
+     * Evicts the least recently requested components until the cache is
+     * within its maximum size.
+     */
+    private void evictExcess() {
+        while (maxSize > 0 && this.cache.size() > maxSize) {
+            Map.Entry<String, Entry<T>> eldest = null;
+            for (Map.Entry<String, Entry<T>> cached : this.cache.entrySet()) {
+                if (null == eldest ||
+                    cached.getValue().lastAccessNanos - eldest.getValue().lastAccessNanos < 0) {
+                    eldest = cached;
+                }
+            }
+            if (null == eldest) {
+                return;
+            }
+            evict(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * @return the number of accounts for which components are cached
+     */
+    public int size() {
+        return this.cache.size();
+    }
 
-        return instance;
+    @Override
+    public AccountComponentCacheStats getStats() {
+        return new AccountComponentCacheStats(hits.get(),
+                                              misses.get(),
+                                              loadFailures.get(),
+                                              totalLoadNanos.get(),
+                                              evictions.get(),
+                                              invalidations.get());
     }
 
     protected abstract T createInstance(String accountId);
 
+    private static class Entry<T> {
+        private final CompletableFuture<T> value = new CompletableFuture<>();
+        private volatile long lastAccessNanos;
+
+        Entry(long now) {
+            this.lastAccessNanos = now;
+        }
+
+        T getValue() {
+            try {
+                return value.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+    }
+
 }
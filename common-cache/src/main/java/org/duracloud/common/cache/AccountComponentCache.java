@@ -20,4 +20,9 @@ public interface AccountComponentCache<T> {
     public T get(String accountId);
 
     void onEvent(AccountChangeEvent event);
+
+    /**
+     * @return the hit, miss and load time statistics of this cache
+     */
+    AccountComponentCacheStats getStats();
 }
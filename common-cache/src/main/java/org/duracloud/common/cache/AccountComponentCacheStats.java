@@ -0,0 +1,98 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the activity of an account component cache.
+ */
+public class AccountComponentCacheStats {
+
+    private long hits;
+    private long misses;
+    private long loadFailures;
+    private long totalLoadNanos;
+    private long evictions;
+    private long invalidations;
+
+    public AccountComponentCacheStats(long hits,
+                                      long misses,
+                                      long loadFailures,
+                                      long totalLoadNanos,
+                                      long evictions,
+                                      long invalidations) {
+        this.hits = hits;
+        this.misses = misses;
+        this.loadFailures = loadFailures;
+        this.totalLoadNanos = totalLoadNanos;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+    }
+
+    /**
+     * @return the number of requests for a component which was cached (or
+     * was being created by another request)
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of requests which created a component
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of components which could not be created
+     */
+    public long getLoadFailures() {
+        return loadFailures;
+    }
+
+    /**
+     * @return the total time spent creating components, in milliseconds
+     */
+    public long getTotalLoadMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalLoadNanos);
+    }
+
+    /**
+     * @return the mean time spent creating a component, in milliseconds
+     */
+    public double getAverageLoadMillis() {
+        return misses == 0 ? 0 : (double) totalLoadNanos / misses / 1000000;
+    }
+
+    /**
+     * @return the number of components evicted because they were idle or the
+     * cache was full
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of components removed due to account changes
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountComponentCacheStats[hits=" + hits +
+               ", misses=" + misses +
+               ", loadFailures=" + loadFailures +
+               ", totalLoadMillis=" + getTotalLoadMillis() +
+               ", evictions=" + evictions +
+               ", invalidations=" + invalidations + "]";
+    }
+}
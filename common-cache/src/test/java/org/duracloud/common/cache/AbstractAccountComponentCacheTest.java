@@ -0,0 +1,248 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.duracloud.common.event.AccountChangeEvent;
+import org.duracloud.common.event.AccountChangeEvent.EventType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AbstractAccountComponentCacheTest {
+
+    private TestCache cache;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        cache = new TestCache();
+        executor = Executors.newFixedThreadPool(32);
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSingleFlightUnderContention() throws Exception {
+        int accounts = 8;
+        int threads = 32;
+        int requests = 200;
+        cache.loadMillis = 20;
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Map<String, Component>>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                Map<String, Component> seen = new ConcurrentHashMap<>();
+                start.await();
+                for (int i = 0; i < requests; i++) {
+                    String accountId = "account-" + (i % accounts);
+                    Component component = cache.get(accountId);
+                    assertEquals(accountId, component.accountId);
+                    Component previous = seen.putIfAbsent(accountId, component);
+                    if (null != previous) {
+                        assertSame(previous, component);
+                    }
+                }
+                return seen;
+            }));
+        }
+        start.countDown();
+
+        Map<String, Component> first = results.get(0).get(30, TimeUnit.SECONDS);
+        for (Future<Map<String, Component>> result : results) {
+            Map<String, Component> seen = result.get(30, TimeUnit.SECONDS);
+            for (String accountId : seen.keySet()) {
+                assertSame(first.get(accountId), seen.get(accountId));
+            }
+        }
+
+        // Each account was created exactly once
+        assertEquals(accounts, cache.created.get());
+        AccountComponentCacheStats stats = cache.getStats();
+        assertEquals(accounts, stats.getMisses());
+        assertEquals((long) threads * requests - accounts, stats.getHits());
+        assertTrue(stats.getTotalLoadMillis() >= accounts * cache.loadMillis);
+    }
+
+    @Test
+    public void testInvalidationUnderContention() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                int requests = 0;
+                while (running.get()) {
+                    String accountId = "account-" + (requests++ % 4);
+                    if (thread == 0 && requests % 10 == 0) {
+                        cache.onEvent(new AccountChangeEvent(EventType.ACCOUNT_CHANGED,
+                                                             accountId, "host"));
+                    } else if (thread == 1 && requests % 50 == 0) {
+                        cache.onEvent(new AccountChangeEvent(EventType.ALL_ACCOUNTS_CHANGED,
+                                                             null, "host"));
+                    } else {
+                        assertEquals(accountId, cache.get(accountId).accountId);
+                    }
+                }
+                return requests;
+            }));
+        }
+        start.countDown();
+        Thread.sleep(500);
+        running.set(false);
+
+        for (Future<Integer> result : results) {
+            assertTrue(result.get(30, TimeUnit.SECONDS) > 0);
+        }
+        AccountComponentCacheStats stats = cache.getStats();
+        assertTrue(stats.getInvalidations() > 0);
+        // Components are only created again after they have been removed
+        assertTrue(cache.created.get() <= stats.getInvalidations() + 4);
+        assertTrue(cache.size() <= 4);
+    }
+
+    @Test
+    public void testInvalidation() {
+        Component component = cache.get("account-1");
+        Component other = cache.get("account-2");
+        assertSame(component, cache.get("account-1"));
+
+        cache.onEvent(new AccountChangeEvent(EventType.ACCOUNT_CHANGED, "account-1", "host"));
+        assertTrue(component.disposed);
+        assertFalse(other.disposed);
+        assertNotSame(component, cache.get("account-1"));
+        assertSame(other, cache.get("account-2"));
+
+        cache.onEvent(new AccountChangeEvent(EventType.ALL_ACCOUNTS_CHANGED, null, "host"));
+        assertTrue(other.disposed);
+        assertNotSame(other, cache.get("account-2"));
+        assertEquals(3, cache.getStats().getInvalidations());
+    }
+
+    @Test
+    public void testLoadFailure() {
+        cache.failures.set(1);
+        try {
+            cache.get("account-1");
+            fail("expected exception to be thrown when the component cannot be created");
+        } catch (IllegalStateException e) {
+            assertEquals("load failed", e.getMessage());
+        }
+
+        // The failure is not cached
+        assertEquals("account-1", cache.get("account-1").accountId);
+        assertEquals(1, cache.getStats().getLoadFailures());
+        assertEquals(2, cache.getStats().getMisses());
+    }
+
+    @Test
+    public void testSizeEviction() throws Exception {
+        cache.setMaxSize(2);
+        Component component1 = cache.get("account-1");
+        Thread.sleep(2);
+        Component component2 = cache.get("account-2");
+        Thread.sleep(2);
+        cache.get("account-1");
+        Thread.sleep(2);
+
+        // The least recently requested component is evicted
+        cache.get("account-3");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getStats().getEvictions());
+        assertFalse(component1.disposed);
+        assertTrue(component2.disposed);
+        assertSame(component1, cache.get("account-1"));
+        assertNotSame(component2, cache.get("account-2"));
+    }
+
+    @Test
+    public void testIdleEviction() throws Exception {
+        cache.setMaxIdleMillis(50);
+        Component component1 = cache.get("account-1");
+        Component component2 = cache.get("account-2");
+        Thread.sleep(100);
+
+        assertNotSame(component1, cache.get("account-1"));
+        // Other idle components are swept
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getStats().getEvictions());
+        assertTrue(component1.disposed);
+        assertTrue(component2.disposed);
+        assertNotSame(component2, cache.get("account-2"));
+    }
+
+    private static class Component {
+        private final String accountId;
+        private volatile boolean disposed = false;
+
+        Component(String accountId) {
+            this.accountId = accountId;
+        }
+    }
+
+    private static class TestCache extends AbstractAccountComponentCache<Component> {
+        private AtomicInteger created = new AtomicInteger(0);
+        private AtomicInteger failures = new AtomicInteger(0);
+        private long loadMillis = 0;
+
+        @Override
+        public void onEvent(AccountChangeEvent event) {
+            if (event.getEventType().equals(EventType.ALL_ACCOUNTS_CHANGED)) {
+                removeAll();
+            } else {
+                remove(event.getAccountId());
+            }
+        }
+
+        @Override
+        protected Component createInstance(String accountId) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("load failed");
+            }
+            try {
+                Thread.sleep(loadMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            created.incrementAndGet();
+            return new Component(accountId);
+        }
+
+        @Override
+        protected void dispose(Component component) {
+            component.disposed = true;
+        }
+    }
+
+}
@@ -92,9 +92,7 @@ public class SubscriptionManagerConfig {
                     try {
                         Map<String, String> map = mapper.readValue(body, typeRef);
                         AccountChangeEvent event = AccountChangeEvent.deserialize(map.get("Message"));
-                        for (AccountComponentCache<?> cache : componentCaches) {
-                            cache.onEvent(event);
-                        }
+                        dispatch(event, componentCaches);
                     } catch (IOException e) {
                         log.warn("unable to dispatch message: " + message + " : " + e.getMessage(), e);
                     }
@@ -105,9 +103,7 @@ public class SubscriptionManagerConfig {
                     log.info("message received: " + message);
                     try {
                         AccountChangeEvent event = AccountChangeEvent.deserialize(message);
-                        for (AccountComponentCache<?> cache : componentCaches) {
-                            cache.onEvent(event);
-                        }
+                        dispatch(event, componentCaches);
                     } catch (Exception e) {
                         log.warn("unable to dispatch message: " + message + " : " + e.getMessage(), e);
                     }
@@ -120,4 +116,20 @@ public class SubscriptionManagerConfig {
         }
     }
 
+    /*
+     * Passes the event to each cache, so that a failure in one cache does not
+     * leave stale components in the others.
+     */
+    private void dispatch(AccountChangeEvent event,
+                          List<AccountComponentCache<?>> componentCaches) {
+        for (AccountComponentCache<?> cache : componentCaches) {
+            try {
+                cache.onEvent(event);
+            } catch (RuntimeException e) {
+                log.error("unable to apply event " + event + " to cache " + cache +
+                          " : " + e.getMessage(), e);
+            }
+        }
+    }
+
 }
@@ -9,15 +9,29 @@ package org.duracloud.common.queue.rabbitmq;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.CancelCallback;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.DeliverCallback;
+import com.rabbitmq.client.Delivery;
 import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.GetResponse;
 import org.apache.commons.lang3.time.DurationFormatUtils;
@@ -27,7 +41,6 @@ import org.duracloud.common.queue.TaskNotFoundException;
 import org.duracloud.common.queue.TaskQueue;
 import org.duracloud.common.queue.TimeoutException;
 import org.duracloud.common.queue.task.Task;
-import org.duracloud.common.retry.Retriable;
 import org.duracloud.common.retry.Retrier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,19 +49,44 @@ import org.slf4j.LoggerFactory;
  * RabbitMQ implementation of the TaskQueue
  * emulates the functionality of a queue.
  *
+ * Tasks are taken from a consumer registered with the broker, which pushes up
+ * to the prefetch count of messages into a local buffer, rather than by
+ * requesting each message from the broker. A prefetch of 0 takes tasks by
+ * requesting messages one at a time. Tasks are published in batches, and each
+ * batch waits for the broker to confirm that it has received the messages.
+ *
+ * Messages are written in the format read by java.util.Properties.
+ *
  * @author Shibo Liu
  * Date: 07/03/19
  */
 public class RabbitmqTaskQueue implements TaskQueue {
     private static Logger log = LoggerFactory.getLogger(RabbitmqTaskQueue.class);
 
+    public static final int DEFAULT_PREFETCH = 10;
+    public static final long DEFAULT_TAKE_WAIT_MILLIS = 1000;
+
+    private static final int PUBLISH_BATCH_SIZE = 100;
+    private static final long CONFIRM_TIMEOUT_MILLIS = 30000;
+    private static final String CONTENT_TYPE = "text/plain";
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
     private Channel mqChannel;
     private String queueName;
     private Integer visibilityTimeout = -1;  // No such thing in RabbitmQ
-    private Integer unAcknowlededMesageCount = 0;
     private String queueUrl;
     private String exchangeName;
 
+    // Channels must not be used by multiple threads at once
+    private final Object channelLock = new Object();
+    private boolean confirmsEnabled = false;
+
+    private int prefetch = DEFAULT_PREFETCH;
+    private long takeWaitMillis = DEFAULT_TAKE_WAIT_MILLIS;
+    private volatile String consumerTag;
+    private BlockingQueue<Task> deliveries = new LinkedBlockingQueue<>();
+    private AtomicInteger unacknowledgedCount = new AtomicInteger(0);
+
     public enum MsgProp {
         DELIVERY_TAG, ROUTING_KEY, EXCHANGE
     }
@@ -93,25 +131,44 @@ public class RabbitmqTaskQueue implements TaskQueue {
         }
     }
 
+    /**
+     * Sets the maximum number of messages the broker pushes to this queue
+     * before they are deleted or requeued. Must be set before the first take.
+     *
+     * @param prefetch number of messages, 0 to request messages one at a time
+     */
+    public void setPrefetch(int prefetch) {
+        if (prefetch < 0) {
+            throw new IllegalArgumentException("prefetch must not be negative");
+        }
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Sets the time a take waits for a message to be delivered before a
+     * TimeoutException is thrown
+     */
+    public void setTakeWaitMillis(long takeWaitMillis) {
+        this.takeWaitMillis = takeWaitMillis;
+    }
+
     @Override
     public String getName() {
         return this.queueName;
     }
 
     protected Task marshallTask(byte[] msgBody, long deliveryTag, String routingKey, String exchange) {
-        Properties props = new Properties();
         Task task = null;
-        String msg = new String(msgBody);
         try {
-            props.load(new StringReader(msg));
+            Map<String, String> props = parseMessage(new String(msgBody, StandardCharsets.UTF_8));
 
             if (props.containsKey(Task.KEY_TYPE)) {
                 task = new Task();
-                for (final String key : props.stringPropertyNames()) {
-                    if (key.equals(Task.KEY_TYPE)) {
-                        task.setType(Task.Type.valueOf(props.getProperty(key)));
+                for (Map.Entry<String, String> prop : props.entrySet()) {
+                    if (prop.getKey().equals(Task.KEY_TYPE)) {
+                        task.setType(Task.Type.valueOf(prop.getValue()));
                     } else {
-                        task.addProperty(key, props.getProperty(key));
+                        task.addProperty(prop.getKey(), prop.getValue());
                     }
                 }
                 task.addProperty(MsgProp.DELIVERY_TAG.name(), String.valueOf(deliveryTag));
@@ -121,139 +178,406 @@ public class RabbitmqTaskQueue implements TaskQueue {
                 log.error("RabbitMQ message from queue: " + queueName + " at " + queueUrl +
                           ", does not contain a 'task type'");
             }
-        } catch (IOException ioe) {
-            log.error("Error creating Task", ioe);
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Error creating Task", e);
         }
         return task;
     }
 
-    protected String unmarshallTask(Task task) {
-        Properties props = new Properties();
-        props.setProperty(Task.KEY_TYPE, task.getType().name());
-        for (String key : task.getProperties().keySet()) {
-            String value = task.getProperty(key);
-            if (null != value) {
-                props.setProperty(key, value);
+    /*
+     * Reads the properties of a message. Messages are expected to be written
+     * one property per line, as by unmarshallTask(), other messages are read
+     * with java.util.Properties.
+     */
+    private Map<String, String> parseMessage(String msg) throws IOException {
+        Map<String, String> props = new HashMap<>();
+        int length = msg.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && msg.charAt(lineEnd) != '\n' && msg.charAt(lineEnd) != '\r') {
+                lineEnd++;
+            }
+            if (!parseLine(msg, lineStart, lineEnd, props)) {
+                return loadProperties(msg);
             }
+            lineStart = lineEnd + 1;
         }
-        StringWriter sw = new StringWriter();
-        String msgBody = null;
-        try {
-            props.store(sw, null);
-            msgBody = sw.toString();
-        } catch (IOException ioe) {
-            log.error("Error unmarshalling Task, queue: " + queueName +
-                      ", msgBody: " + msgBody, ioe);
+        return props;
+    }
+
+    /*
+     * @return false if the line is continued on the next line
+     */
+    private boolean parseLine(String msg, int start, int end, Map<String, String> props) {
+        int i = start;
+        while (i < end && isWhitespace(msg.charAt(i))) {
+            i++;
+        }
+        if (i == end || msg.charAt(i) == '#' || msg.charAt(i) == '!') {
+            return true;
+        }
+
+        int backslashes = 0;
+        for (int j = end - 1; j >= i && msg.charAt(j) == '\\'; j--) {
+            backslashes++;
+        }
+        if (backslashes % 2 == 1) {
+            return false;
+        }
+
+        StringBuilder key = new StringBuilder();
+        boolean separated = false;
+        while (i < end) {
+            char c = msg.charAt(i);
+            if (c == '\\') {
+                i = unescape(msg, i + 1, key);
+                continue;
+            } else if (c == '=' || c == ':') {
+                separated = true;
+                i++;
+                break;
+            } else if (isWhitespace(c)) {
+                break;
+            }
+            key.append(c);
+            i++;
+        }
+
+        while (i < end && isWhitespace(msg.charAt(i))) {
+            i++;
+        }
+        if (!separated && i < end && (msg.charAt(i) == '=' || msg.charAt(i) == ':')) {
+            i++;
+            while (i < end && isWhitespace(msg.charAt(i))) {
+                i++;
+            }
         }
-        return msgBody;
+
+        StringBuilder value = new StringBuilder(end - i);
+        while (i < end) {
+            char c = msg.charAt(i);
+            if (c == '\\') {
+                i = unescape(msg, i + 1, value);
+            } else {
+                value.append(c);
+                i++;
+            }
+        }
+        props.put(key.toString(), value.toString());
+        return true;
     }
 
-    @Override
-    public void put(final Task task) {
-        try {
-            String queueName = this.queueName;
-            final String msgBody = unmarshallTask(task);
-            byte[] messageBodyBytes = msgBody.getBytes();
-            new Retrier(4, 10000, 2).execute(new Retriable() {
-                @Override
-                public Object retry() throws Exception {
-                    mqChannel.basicPublish(exchangeName, queueName, null, messageBodyBytes);
-                    return null;
+    /*
+     * Appends the character escaped at the given index
+     *
+     * @return the index after the escaped character
+     */
+    private int unescape(String msg, int i, StringBuilder out) {
+        char c = msg.charAt(i);
+        switch (c) {
+            case 'n':
+                out.append('\n');
+                break;
+            case 'r':
+                out.append('\r');
+                break;
+            case 't':
+                out.append('\t');
+                break;
+            case 'f':
+                out.append('\f');
+                break;
+            case 'u':
+                if (i + 4 >= msg.length()) {
+                    throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
                 }
-            });
-            unAcknowlededMesageCount++;
-            log.info("RabbitMQ message successfully placed {} on queue - queue: {}",
-                     task, queueName);
+                out.append((char) Integer.parseInt(msg.substring(i + 1, i + 5), 16));
+                return i + 5;
+            default:
+                out.append(c);
+                break;
+        }
+        return i + 1;
+    }
 
-        } catch (Exception ex) {
-            log.error("failed to place {} on {} at {} due to {}", task, queueName, queueUrl, ex.getMessage());
-            throw new DuraCloudRuntimeException(ex);
+    private boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+    private Map<String, String> loadProperties(String msg) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader(msg));
+        Map<String, String> props = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            props.put(key, properties.getProperty(key));
         }
+        return props;
     }
 
-    /**
-     * Convenience method that calls put(Set<Task>)
-     *
-     * @param tasks
+    /*
+     * Writes a task in the format read by java.util.Properties, without the
+     * date comment and the synchronization of Properties.store()
      */
+    protected String unmarshallTask(Task task) {
+        StringBuilder msg = new StringBuilder(256);
+        appendProperty(msg, Task.KEY_TYPE, task.getType().name());
+        for (Map.Entry<String, String> prop : task.getProperties().entrySet()) {
+            if (null != prop.getKey() && null != prop.getValue()) {
+                appendProperty(msg, prop.getKey(), prop.getValue());
+            }
+        }
+        return msg.toString();
+    }
+
+    private void appendProperty(StringBuilder msg, String key, String value) {
+        escape(msg, key, true);
+        msg.append('=');
+        escape(msg, value, false);
+        msg.append('\n');
+    }
+
+    private void escape(StringBuilder msg, String text, boolean isKey) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    msg.append("\\\\");
+                    break;
+                case '\n':
+                    msg.append("\\n");
+                    break;
+                case '\r':
+                    msg.append("\\r");
+                    break;
+                case '\t':
+                    msg.append("\\t");
+                    break;
+                case '\f':
+                    msg.append("\\f");
+                    break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    msg.append('\\').append(c);
+                    break;
+                case ' ':
+                    if (i == 0 || isKey) {
+                        msg.append('\\');
+                    }
+                    msg.append(c);
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        msg.append("\\u");
+                        for (int shift = 12; shift >= 0; shift -= 4) {
+                            msg.append(HEX[(c >> shift) & 0xF]);
+                        }
+                    } else {
+                        msg.append(c);
+                    }
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void put(final Task task) {
+        publish(Arrays.asList(task));
+    }
+
     @Override
     public void put(Task... tasks) {
-        for (Task task : tasks) {
-            this.put(task);
-        }
+        publish(Arrays.asList(tasks));
     }
 
     @Override
     public void put(Set<Task> tasks) {
+        publish(tasks);
+    }
+
+    /*
+     * Publishes tasks in batches, each batch is published again if the
+     * broker does not confirm that all of its messages were received
+     */
+    private void publish(Collection<Task> tasks) {
+        List<byte[]> batch = new ArrayList<>(Math.min(tasks.size(), PUBLISH_BATCH_SIZE));
         for (Task task : tasks) {
-            this.put(task);
+            batch.add(unmarshallTask(task).getBytes(StandardCharsets.US_ASCII));
+            if (batch.size() == PUBLISH_BATCH_SIZE) {
+                publishBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            publishBatch(batch);
+        }
+
+        if (log.isDebugEnabled()) {
+            for (Task task : tasks) {
+                log.debug("RabbitMQ message successfully placed {} on queue - queue: {}",
+                          task, queueName);
+            }
         }
     }
 
-    @Override
-    public Set<Task> take(int maxTasks) throws TimeoutException {
-        Integer size = size();
-        if (size > 0) {
-            if (size < maxTasks) {
-                size = maxTasks;
+    private void publishBatch(List<byte[]> messages) {
+        try {
+            new Retrier(4, 10000, 2).execute(() -> {
+                publishAndConfirm(messages);
+                return null;
+            });
+            log.info("{} RabbitMQ messages successfully placed on queue: {}",
+                     messages.size(), queueName);
+        } catch (Exception ex) {
+            log.error("failed to place {} messages on {} at {} due to {}",
+                      messages.size(), queueName, queueUrl, ex.getMessage());
+            throw new DuraCloudRuntimeException(ex);
+        }
+    }
+
+    private void publishAndConfirm(List<byte[]> messages) throws Exception {
+        AMQP.BasicProperties props = new AMQP.BasicProperties.Builder()
+            .contentType(CONTENT_TYPE)
+            .timestamp(new Date())
+            .build();
+        synchronized (channelLock) {
+            if (!confirmsEnabled) {
+                mqChannel.confirmSelect();
+                confirmsEnabled = true;
             }
-            Set<Task> tasks = new HashSet<>();
-            try {
-                for (int i = 0; i < size; i++) {
-                    Task task = take();
-                    tasks.add(task);
-                }
-                return tasks;
-            } catch (Exception e) {
-                for (Task task : tasks) {
-                    requeue(task);
-                }
-                throw new TimeoutException("Failed to get at least one message from queue: " +
-                                           queueName + ", queueUrl: " + queueUrl);
+            for (byte[] message : messages) {
+                mqChannel.basicPublish(exchangeName, queueName, props, message);
+            }
+            if (!mqChannel.waitForConfirms(CONFIRM_TIMEOUT_MILLIS)) {
+                throw new IOException("RabbitMQ did not accept all of the " +
+                                      messages.size() + " messages published to " +
+                                      queueName);
             }
-        } else {
+        }
+    }
+
+    @Override
+    public Set<Task> take(int maxTasks) throws TimeoutException {
+        List<Task> tasks = prefetch > 0 ? takeDelivered(maxTasks) : takeRequested(maxTasks);
+        if (tasks.isEmpty()) {
             throw new TimeoutException("No tasks available from queue: " +
                                        queueName + ", queueUrl: " + queueUrl);
         }
+        unacknowledgedCount.addAndGet(tasks.size());
+        return new HashSet<>(tasks);
     }
 
     @Override
     public Task take() throws TimeoutException {
-        Integer size = size();
-        if (size > 0) {
-            try {
-                GetResponse response = mqChannel.basicGet(queueName, false);
+        return take(1).iterator().next();
+    }
+
+    /*
+     * Takes tasks from those delivered by the consumer, waiting for at least
+     * one to be delivered
+     */
+    private List<Task> takeDelivered(int maxTasks) throws TimeoutException {
+        List<Task> tasks = new ArrayList<>(maxTasks);
+        try {
+            startConsumer();
+            Task task = deliveries.poll(takeWaitMillis, TimeUnit.MILLISECONDS);
+            if (null != task) {
+                tasks.add(task);
+                deliveries.drainTo(tasks, maxTasks - 1);
+            }
+        } catch (IOException ex) {
+            log.error("failed to consume tasks from " + queueName + " due to " + ex.getMessage(), ex);
+            throw new TimeoutException("No tasks available from queue: " +
+                                       queueName + ", queueUrl: " + queueUrl, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return tasks;
+    }
+
+    private void startConsumer() throws IOException {
+        if (null != consumerTag) {
+            return;
+        }
+        synchronized (channelLock) {
+            if (null == consumerTag) {
+                DeliverCallback deliverCallback = this::delivered;
+                CancelCallback cancelCallback = tag -> {
+                    log.warn("RabbitMQ consumer of queue {} was cancelled", queueName);
+                    consumerTag = null;
+                };
+                mqChannel.basicQos(prefetch);
+                consumerTag = mqChannel.basicConsume(queueName, false, deliverCallback,
+                                                     cancelCallback);
+                log.info("Consuming RabbitMQ queue {} with prefetch {}", queueName, prefetch);
+            }
+        }
+    }
+
+    private void delivered(String tag, Delivery delivery) throws IOException {
+        Task task = toTask(delivery.getEnvelope(), delivery.getProperties(), delivery.getBody());
+        if (null != task) {
+            deliveries.add(task);
+        }
+    }
+
+    /*
+     * Takes up to the given number of tasks by requesting each message
+     */
+    private List<Task> takeRequested(int maxTasks) throws TimeoutException {
+        List<Task> tasks = new ArrayList<>(maxTasks);
+        try {
+            while (tasks.size() < maxTasks) {
+                GetResponse response;
+                synchronized (channelLock) {
+                    response = mqChannel.basicGet(queueName, false);
+                }
                 if (response == null) {
-                    throw new TimeoutException("No tasks available from queue: " +
-                                               queueName + ", queueUrl: " + queueUrl);
-                } else {
-                    AMQP.BasicProperties properties = response.getProps();
-                    Envelope envelope = response.getEnvelope();
-                    byte[] body = response.getBody();
-                    String routingKey = envelope.getRoutingKey();
-                    String exchange = envelope.getExchange();
-                    long deliveryTag = envelope.getDeliveryTag();
-                    Long sentTime = properties.getTimestamp().getTime();
-                    Long preworkQueueTime = System.currentTimeMillis() - sentTime;
-                    log.info(
-                        "RabbitMQ message received - queue: {}, queueUrl: {}, deliveryTag: {}, preworkQueueTime: {}"
-                        , queueName, queueUrl, deliveryTag
-                        , DurationFormatUtils.formatDuration(preworkQueueTime, "HH:mm:ss,SSS"));
-                    Task task = marshallTask(body, deliveryTag, routingKey, exchange);
-                    task.setVisibilityTimeout(visibilityTimeout);
-                    return task;
+                    break;
                 }
-            } catch (Exception ex) {
-                log.error("failed to take task from " + queueName + " due to " + ex.getMessage(), ex);
-                throw new TimeoutException("No tasks available from queue: " +
-                                           queueName + ", queueUrl: " + queueUrl);
+                Task task = toTask(response.getEnvelope(), response.getProps(), response.getBody());
+                if (null != task) {
+                    tasks.add(task);
+                }
+            }
+        } catch (Exception ex) {
+            log.error("failed to take task from " + queueName + " due to " + ex.getMessage(), ex);
+            for (Task task : tasks) {
+                requeue(task);
             }
-        } else {
             throw new TimeoutException("No tasks available from queue: " +
                                        queueName + ", queueUrl: " + queueUrl);
         }
+        return tasks;
     }
 
+    /*
+     * Creates the task of a message. Messages which are not tasks are
+     * rejected, so that they are not delivered again.
+     */
+    private Task toTask(Envelope envelope, AMQP.BasicProperties properties, byte[] body)
+        throws IOException {
+        long deliveryTag = envelope.getDeliveryTag();
+        if (null != properties && null != properties.getTimestamp()) {
+            Long preworkQueueTime = System.currentTimeMillis() - properties.getTimestamp().getTime();
+            log.info(
+                "RabbitMQ message received - queue: {}, queueUrl: {}, deliveryTag: {}, preworkQueueTime: {}"
+                , queueName, queueUrl, deliveryTag
+                , DurationFormatUtils.formatDuration(preworkQueueTime, "HH:mm:ss,SSS"));
+        }
+
+        Task task = marshallTask(body, deliveryTag, envelope.getRoutingKey(), envelope.getExchange());
+        if (null == task) {
+            synchronized (channelLock) {
+                mqChannel.basicReject(deliveryTag, false);
+            }
+            return null;
+        }
+        task.setVisibilityTimeout(visibilityTimeout);
+        return task;
+    }
 
     /**
      * RabbitMQ does not have this feature, messages would not be visible until rejected and requeued
@@ -265,9 +589,11 @@ public class RabbitmqTaskQueue implements TaskQueue {
     @Override
     public void deleteTask(Task task) throws TaskNotFoundException {
         try {
-            mqChannel.basicAck(Long.parseLong(task.getProperty(MsgProp.DELIVERY_TAG.name())), false);
+            synchronized (channelLock) {
+                mqChannel.basicAck(Long.parseLong(task.getProperty(MsgProp.DELIVERY_TAG.name())), false);
+            }
             log.info("successfully deleted {}", task);
-            unAcknowlededMesageCount--;
+            unacknowledgedCount.decrementAndGet();
 
         } catch (Exception e) {
             log.error("failed to delete task " + task + ": " + e.getMessage(), e);
@@ -302,8 +628,10 @@ public class RabbitmqTaskQueue implements TaskQueue {
         int attempts = task.getAttempts();
         task.incrementAttempts();
         try {
-            mqChannel.basicReject(Long.parseLong(task.getProperty(MsgProp.DELIVERY_TAG.name())), true);
-            unAcknowlededMesageCount--;
+            synchronized (channelLock) {
+                mqChannel.basicReject(Long.parseLong(task.getProperty(MsgProp.DELIVERY_TAG.name())), true);
+            }
+            unacknowledgedCount.decrementAndGet();
         } catch (Exception e) {
             log.error("unable to reject message {}, re-put message instead ", task);
             put(task);
@@ -316,17 +644,24 @@ public class RabbitmqTaskQueue implements TaskQueue {
     @Override
     public Integer size() {
         try {
-            Long sizeLong = mqChannel.messageCount(queueName);
+            Long sizeLong;
+            synchronized (channelLock) {
+                sizeLong = mqChannel.messageCount(queueName);
+            }
             return sizeLong.intValue();
         } catch (Exception e) {
             return 0;
         }
     }
 
+    /**
+     * @return the number of messages in the queue, plus those delivered to
+     * this queue which have not been deleted or requeued
+     */
     @Override
     public Integer sizeIncludingInvisibleAndDelayed() {
 
-        return size() + unAcknowlededMesageCount;
+        return size() + unacknowledgedCount.get() + deliveries.size();
     }
 
     private Integer getVisibilityTimeout() {
@@ -7,7 +7,9 @@
  */
 package org.duracloud.common.queue.rabbitmq;
 
+import static org.easymock.EasyMock.anyLong;
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.hamcrest.core.Is.is;
@@ -15,15 +17,27 @@ import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertThat;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.Properties;
 import java.util.Set;
 
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.CancelCallback;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DeliverCallback;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
 import com.rabbitmq.client.impl.AMQImpl;
+import org.duracloud.common.queue.TimeoutException;
 import org.duracloud.common.queue.task.Task;
 import org.duracloud.common.queue.task.Task.Type;
+import org.easymock.EasyMock;
 import org.easymock.EasyMockRunner;
 import org.easymock.EasyMockSupport;
 import org.junit.After;
@@ -49,7 +63,7 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
     public void setup() {
     }
 
-    private void setupRabbitmqClient() throws IOException {
+    private void setupRabbitmqClient() throws Exception {
         connection = createMock("Connection", Connection.class);
         channel = createMock("Channel", Channel.class);
         InetAddress address = InetAddress.getByName("127.0.0.1");
@@ -60,6 +74,8 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
         channel.basicPublish(anyObject(String.class), anyObject(String.class),
                              anyObject(null), anyObject(byte[].class));
         expectLastCall().anyTimes();
+        expect(channel.confirmSelect()).andReturn(new AMQImpl.Confirm.SelectOk()).anyTimes();
+        expect(channel.waitForConfirms(anyLong())).andReturn(true).anyTimes();
     }
 
     @After
@@ -72,7 +88,7 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
     }
 
     @Test
-    public void testMarshallTask() throws IOException {
+    public void testMarshallTask() throws Exception {
         setupRabbitmqClient();
         replayAll();
         createSubject();
@@ -96,7 +112,7 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
     }
 
     @Test
-    public void testUnmarshallTask() throws IOException {
+    public void testUnmarshallTask() throws Exception {
         setupRabbitmqClient();
         replayAll();
         createSubject();
@@ -114,7 +130,7 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
     }
 
     @Test
-    public void testPut() throws IOException {
+    public void testPut() throws Exception {
         setupRabbitmqClient();
         replayAll();
         createSubject();
@@ -131,7 +147,7 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
     }
 
     @Test
-    public void testPutMuliple() throws IOException {
+    public void testPutMuliple() throws Exception {
         setupRabbitmqClient();
         replayAll();
         createSubject();
@@ -142,4 +158,143 @@ public class RabbitmqTaskQueueTest extends EasyMockSupport {
         }
         this.queue.put(tasks);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMarshallUnmarshallTask() throws Exception {
+        setupRabbitmqClient();
+        replayAll();
+        createSubject();
+
+        Task task = new Task();
+        task.setType(Task.Type.DUP);
+        task.addProperty("key with spaces=:", " value\\with\nspecial#!chars ");
+        task.addProperty("content-id", "dir/caf\u00e9-\u4e2d.txt");
+        task.addProperty("empty", "");
+        String message = queue.unmarshallTask(task);
+
+        byte[] msgBody = message.getBytes(StandardCharsets.US_ASCII);
+        Task result = queue.marshallTask(msgBody, 5, queueName, exchange);
+        assertThat(result.getType(), is(equalTo(Task.Type.DUP)));
+        assertThat(result.getProperty("key with spaces=:"),
+                   is(equalTo(" value\\with\nspecial#!chars ")));
+        assertThat(result.getProperty("content-id"), is(equalTo("dir/caf\u00e9-\u4e2d.txt")));
+        assertThat(result.getProperty("empty"), is(equalTo("")));
+
+        // Messages are readable by java.util.Properties
+        Properties props = new Properties();
+        props.load(new StringReader(message));
+        assertThat(props.getProperty("content-id"), is(equalTo("dir/caf\u00e9-\u4e2d.txt")));
+        assertThat(props.getProperty(Task.KEY_TYPE), is(equalTo(Task.Type.DUP.name())));
+    }
+
+    @Test
+    public void testMarshallTaskContinuedLine() throws Exception {
+        setupRabbitmqClient();
+        replayAll();
+        createSubject();
+
+        String message = "# comment\n" + Task.KEY_TYPE + " : " + Task.Type.DUP.name() + "\n" +
+                         "key1 = value\\\n    continued\n";
+        Task task = queue.marshallTask(message.getBytes(), 0, queueName, exchange);
+        assertThat(task.getType(), is(equalTo(Task.Type.DUP)));
+        assertThat(task.getProperty("key1"), is(equalTo("valuecontinued")));
+    }
+
+    @Test
+    public void testPutConfirmedBatches() throws Exception {
+        connection = createMock("Connection", Connection.class);
+        channel = createMock("Channel", Channel.class);
+        expect(connection.createChannel()).andReturn(channel);
+        expect(channel.queueBind(queueName, exchange, queueName)).andReturn(new AMQImpl.Queue.BindOk());
+        expect(connection.getAddress()).andReturn(InetAddress.getByName("127.0.0.1"));
+        expect(channel.confirmSelect()).andReturn(new AMQImpl.Confirm.SelectOk()).once();
+        channel.basicPublish(eq(exchange), eq(queueName), anyObject(AMQP.BasicProperties.class),
+                             anyObject(byte[].class));
+        expectLastCall().times(150);
+        // One confirmation for each batch of 100 messages
+        expect(channel.waitForConfirms(anyLong())).andReturn(true).times(2);
+        replayAll();
+        createSubject();
+
+        Set<Task> tasks = new HashSet<>();
+        for (int i = 0; i < 150; i++) {
+            tasks.add(createSampleAuditTask(i));
+        }
+        this.queue.put(tasks);
+    }
+
+    @Test
+    public void testTakeDelivered() throws Exception {
+        setupRabbitmqClient();
+        channel.basicQos(2);
+        expectLastCall();
+        expect(channel.basicConsume(eq(queueName), eq(false), anyObject(DeliverCallback.class),
+                                    anyObject(CancelCallback.class))).andAnswer(this::deliver);
+        // The message which is not a task is rejected
+        channel.basicReject(3, false);
+        expectLastCall();
+        channel.basicAck(1, false);
+        expectLastCall();
+        channel.basicReject(2, true);
+        expectLastCall();
+        expect(channel.messageCount(queueName)).andReturn(0L).anyTimes();
+        replayAll();
+        createSubject();
+        queue.setPrefetch(2);
+        queue.setTakeWaitMillis(10);
+
+        Set<Task> tasks = queue.take(5);
+        assertThat(tasks.size(), is(equalTo(2)));
+        assertThat(queue.sizeIncludingInvisibleAndDelayed(), is(equalTo(2)));
+        for (Task task : tasks) {
+            if (task.getProperty(RabbitmqTaskQueue.MsgProp.DELIVERY_TAG.name()).equals("1")) {
+                queue.deleteTask(task);
+            } else {
+                queue.requeue(task);
+            }
+        }
+        assertThat(queue.sizeIncludingInvisibleAndDelayed(), is(equalTo(0)));
+
+        try {
+            queue.take();
+            Assert.fail("Exception expected");
+        } catch (TimeoutException e) {
+            // Expected, no more tasks were delivered
+        }
+    }
+
+    private String deliver() throws IOException {
+        DeliverCallback callback = (DeliverCallback) EasyMock.getCurrentArguments()[2];
+        AMQP.BasicProperties props = new AMQP.BasicProperties.Builder()
+            .timestamp(new Date()).build();
+        for (int i = 1; i <= 2; i++) {
+            String message = queue.unmarshallTask(createSampleAuditTask(i));
+            callback.handle("consumer-tag", new Delivery(new Envelope(i, false, exchange, queueName),
+                                                         props, message.getBytes()));
+        }
+        callback.handle("consumer-tag", new Delivery(new Envelope(3, false, exchange, queueName),
+                                                     null, "not a task".getBytes()));
+        return "consumer-tag";
+    }
+
+    @Test
+    public void testTakeRequested() throws Exception {
+        setupRabbitmqClient();
+        Task sample = createSampleAuditTask(1);
+        GetResponse response = new GetResponse(new Envelope(7, false, exchange, queueName), null,
+                                               (Task.KEY_TYPE + "=" + sample.getType().name() +
+                                                "\ntimestamp=1").getBytes(), 0);
+        expect(channel.basicGet(queueName, false)).andReturn(response);
+        expect(channel.basicGet(queueName, false)).andReturn(null);
+        replayAll();
+        createSubject();
+        queue.setPrefetch(0);
+
+        Set<Task> tasks = queue.take(3);
+        assertThat(tasks.size(), is(equalTo(1)));
+        Task task = tasks.iterator().next();
+        assertThat(task.getProperty("timestamp"), is(equalTo("1")));
+        assertThat(task.getProperty(RabbitmqTaskQueue.MsgProp.DELIVERY_TAG.name()),
+                   is(equalTo("7")));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.stream;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+
+/**
+ * A piped input stream which fails on reaching the end of the stream if the
+ * writer could not write all of its content, so that partial content is not
+ * mistaken for complete content. The writer calls fail() before closing its
+ * end of the pipe. This is needed when the writing thread is pooled, as the
+ * pipe is then unable to detect the failure of the writer.
+ */
+public class FailablePipedInputStream extends PipedInputStream {
+
+    private final String description;
+    private volatile Exception failure;
+
+    /**
+     * @param pipeSize    size of the pipe's buffer
+     * @param description describes the content being written, used in the
+     *                    error raised on failure
+     */
+    public FailablePipedInputStream(int pipeSize, String description) {
+        super(pipeSize);
+        this.description = description;
+    }
+
+    /**
+     * Records that the writer failed, to be raised to the reader once the
+     * content written before the failure has been read.
+     *
+     * @param e cause of the failure
+     */
+    public void fail(Exception e) {
+        this.failure = e;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        return checkFailure(super.read());
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        return checkFailure(super.read(b, off, len));
+    }
+
+    private int checkFailure(int result) throws IOException {
+        if (result < 0 && null != failure) {
+            throw new IOException(description + " failed: " +
+                                  failure.getMessage(), failure);
+        }
+        return result;
+    }
+
+}
@@ -19,7 +19,7 @@ public class DateUtil {
     }
 
     public enum DateFormat {
-        LONG_FORMAT("yyyy-MM-dd'T'HH:mm:ss.sss"),
+        LONG_FORMAT("yyyy-MM-dd'T'HH:mm:ss.SSS"),
         DEFAULT_FORMAT("yyyy-MM-dd'T'HH:mm:ss"),
         MID_FORMAT("yyyy-MM-dd'T'HH:mm"),
         SHORT_FORMAT("yyyy-MM-dd"),
@@ -0,0 +1,194 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads pages of a marker-based listing in the background, ahead of the
+ * consumer. Each page is requested using the last item of the previous
+ * page as its marker, so pages are loaded one after another, but the
+ * next page is being loaded while the current page is consumed.
+ *
+ * At most pagesAhead loaded pages are held waiting for the consumer. An
+ * empty page marks the end of the listing. If loading a page fails, the
+ * error is returned to the consumer once all pages loaded before the
+ * failure have been consumed, and no further pages are loaded.
+ *
+ * @param <T> type of the items in each page
+ */
+public class PagePrefetcher<T> {
+
+    /**
+     * Loads a single page of a listing.
+     *
+     * @param <T> type of the items in each page
+     */
+    public interface PageLoader<T> {
+        /**
+         * @param marker the last item of the previous page
+         * @return the page following the marker, empty if there are no more items
+         * @throws Exception if the page cannot be loaded
+         */
+        List<T> loadPage(T marker) throws Exception;
+    }
+
+    private static final ExecutorService DEFAULT_EXECUTOR = createDefaultExecutor();
+
+    private final PageLoader<T> loader;
+    private final Executor executor;
+    private final int pagesAhead;
+
+    private final Deque<List<T>> pages = new ArrayDeque<>();
+    private T marker;
+    private Exception error;
+    private boolean loading = false;
+    private boolean complete = false;
+    private boolean closed = false;
+
+    /**
+     * Creates a prefetcher which loads pages using a shared pool of daemon
+     * threads.
+     *
+     * @param loader     loads each page
+     * @param marker     marker of the first page to load, the last item of the
+     *                   most recently loaded page
+     * @param pagesAhead maximum number of loaded pages waiting to be consumed
+     */
+    public PagePrefetcher(PageLoader<T> loader, T marker, int pagesAhead) {
+        this(loader, marker, pagesAhead, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Creates a prefetcher and starts loading the first page.
+     *
+     * @param loader     loads each page
+     * @param marker     marker of the first page to load, the last item of the
+     *                   most recently loaded page
+     * @param pagesAhead maximum number of loaded pages waiting to be consumed
+     * @param executor   runs the page loads
+     */
+    public PagePrefetcher(PageLoader<T> loader,
+                          T marker,
+                          int pagesAhead,
+                          Executor executor) {
+        if (pagesAhead < 1) {
+            throw new IllegalArgumentException("pagesAhead must be greater than zero");
+        }
+        if (null == executor) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.loader = loader;
+        this.marker = marker;
+        this.pagesAhead = pagesAhead;
+        this.executor = executor;
+
+        synchronized (this) {
+            scheduleLoad();
+        }
+    }
+
+    /**
+     * Waits for and returns the next page of the listing.
+     *
+     * @return the next page, or null if the end of the listing has been reached
+     * @throws Exception the error which prevented the page from being loaded
+     */
+    public synchronized List<T> nextPage() throws Exception {
+        while (pages.isEmpty() && null == error && !complete && !closed) {
+            wait();
+        }
+
+        List<T> page = pages.poll();
+        if (null != page) {
+            scheduleLoad();
+            return page;
+        } else if (null != error) {
+            throw error;
+        }
+        return null;
+    }
+
+    /**
+     * Stops loading pages and discards any pages not yet consumed. A page
+     * load which is already running is allowed to finish, but its result
+     * is discarded.
+     */
+    public synchronized void close() {
+        closed = true;
+        pages.clear();
+        notifyAll();
+    }
+
+    /*
+     * Starts loading the next page if no load is running and there is room
+     * for another page. Must be called while holding the lock.
+     */
+    private void scheduleLoad() {
+        if (loading || complete || closed || null != error ||
+            pages.size() >= pagesAhead) {
+            return;
+        }
+
+        loading = true;
+        final T pageMarker = marker;
+        try {
+            executor.execute(() -> load(pageMarker));
+        } catch (RejectedExecutionException e) {
+            loading = false;
+            error = e;
+            notifyAll();
+        }
+    }
+
+    private void load(T pageMarker) {
+        List<T> page = null;
+        Exception loadError = null;
+        try {
+            page = loader.loadPage(pageMarker);
+        } catch (Exception e) {
+            loadError = e;
+        } catch (Error e) {
+            loadError = new RuntimeException(e);
+        }
+
+        synchronized (this) {
+            loading = false;
+            if (!closed) {
+                if (null != loadError) {
+                    error = loadError;
+                } else if (null == page || page.isEmpty()) {
+                    complete = true;
+                } else {
+                    pages.add(page);
+                    marker = page.get(page.size() - 1);
+                    scheduleLoad();
+                }
+            }
+            notifyAll();
+        }
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "page-prefetch-" +
+                                                 threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+}
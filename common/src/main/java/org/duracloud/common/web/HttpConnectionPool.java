@@ -0,0 +1,208 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.web;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of persistent (keep-alive) HTTP connections which can be shared by
+ * any number of RestHttpHelper instances. Connections are reused across
+ * requests, so the TCP and TLS handshakes are paid once per connection
+ * rather than once per request.
+ *
+ * The pool must be closed when it is no longer needed in order to release
+ * the underlying connections and the idle connection eviction thread.
+ */
+public class HttpConnectionPool implements Closeable {
+
+    private final Logger log = LoggerFactory.getLogger(HttpConnectionPool.class);
+
+    public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 50;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    public static final long DEFAULT_MAX_IDLE_TIME_MS = 30 * 1000;
+    public static final long DEFAULT_KEEP_ALIVE_MS = 60 * 1000;
+    public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS = 60 * 1000;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    // Both clients share the same connection manager. The second client is
+    // used for HEAD requests, for which content compression is disabled.
+    private CloseableHttpClient httpClient;
+    private CloseableHttpClient noCompressionHttpClient;
+    private int connectionRequestTimeoutMs;
+
+    /**
+     * Creates a connection pool using default limits and no socket timeout.
+     */
+    public HttpConnectionPool() {
+        this(DEFAULT_MAX_TOTAL_CONNECTIONS,
+             DEFAULT_MAX_CONNECTIONS_PER_ROUTE,
+             -1,
+             DEFAULT_MAX_IDLE_TIME_MS,
+             DEFAULT_KEEP_ALIVE_MS);
+    }
+
+    /**
+     * Creates a connection pool which waits up to the default connection
+     * request timeout for a connection to become available.
+     *
+     * @param maxTotalConnections    maximum number of connections held open by the pool
+     * @param maxConnectionsPerRoute maximum number of connections held open to a single host
+     * @param socketTimeoutMs        socket timeout, a value of less than zero indicates "no timeout"
+     * @param maxIdleTimeMs          connections which have been idle for longer than this period
+     *                               are closed by a background eviction thread
+     * @param keepAliveMs            maximum period a connection is kept alive between
+     *                               requests when the server does not specify a keep-alive timeout
+     */
+    public HttpConnectionPool(int maxTotalConnections,
+                              int maxConnectionsPerRoute,
+                              int socketTimeoutMs,
+                              long maxIdleTimeMs,
+                              long keepAliveMs) {
+        this(maxTotalConnections,
+             maxConnectionsPerRoute,
+             socketTimeoutMs,
+             maxIdleTimeMs,
+             keepAliveMs,
+             DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS);
+    }
+
+    /**
+     * Creates a connection pool.
+     *
+     * @param maxTotalConnections        maximum number of connections held open by the pool
+     * @param maxConnectionsPerRoute     maximum number of connections held open to a single host
+     * @param socketTimeoutMs            socket timeout, a value of less than zero indicates
+     *                                   "no timeout"
+     * @param maxIdleTimeMs              connections which have been idle for longer than this
+     *                                   period are closed by a background eviction thread
+     * @param keepAliveMs                maximum period a connection is kept alive between
+     *                                   requests when the server does not specify a keep-alive
+     *                                   timeout
+     * @param connectionRequestTimeoutMs maximum period a request waits for a connection to be
+     *                                   released to the pool (such as by a response stream
+     *                                   which has not been closed), 0 indicates "no timeout"
+     */
+    public HttpConnectionPool(int maxTotalConnections,
+                              int maxConnectionsPerRoute,
+                              int socketTimeoutMs,
+                              long maxIdleTimeMs,
+                              long keepAliveMs,
+                              int connectionRequestTimeoutMs) {
+        if (maxTotalConnections < 1 || maxConnectionsPerRoute < 1) {
+            throw new IllegalArgumentException("Connection limits must be greater than zero");
+        }
+        this.connectionRequestTimeoutMs = connectionRequestTimeoutMs;
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotalConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        if (socketTimeoutMs > -1) {
+            connectionManager.setDefaultSocketConfig(
+                SocketConfig.custom().setSoTimeout(socketTimeoutMs).build());
+        }
+
+        ConnectionKeepAliveStrategy keepAliveStrategy =
+            new BoundedKeepAliveStrategy(keepAliveMs);
+
+        // Idle eviction only needs to run once per connection manager
+        httpClient = buildClient(keepAliveStrategy, maxIdleTimeMs).build();
+        noCompressionHttpClient = buildClient(keepAliveStrategy, 0)
+            .disableContentCompression()
+            .build();
+    }
+
+    private HttpClientBuilder buildClient(ConnectionKeepAliveStrategy keepAliveStrategy,
+                                          long maxIdleTimeMs) {
+        HttpClientBuilder builder =
+            HttpClients.custom()
+                       .setConnectionManager(connectionManager)
+                       .setConnectionManagerShared(true)
+                       .setKeepAliveStrategy(keepAliveStrategy)
+                       // Set CookieSpec to STANDARD for RFC 6265 compliant policy
+                       .setDefaultRequestConfig(
+                           RequestConfig.custom()
+                                        .setCookieSpec(CookieSpecs.STANDARD)
+                                        .setConnectionRequestTimeout(connectionRequestTimeoutMs)
+                                        .build());
+        if (maxIdleTimeMs > 0) {
+            builder.evictExpiredConnections()
+                   .evictIdleConnections(maxIdleTimeMs, TimeUnit.MILLISECONDS);
+        }
+        return builder;
+    }
+
+    /**
+     * @param contentCompression true if the client should request and
+     *                           decompress compressed response content
+     * @return an HTTP client which draws its connections from this pool
+     */
+    protected CloseableHttpClient getHttpClient(boolean contentCompression) {
+        return contentCompression ? httpClient : noCompressionHttpClient;
+    }
+
+    /**
+     * @return connection statistics (leased, available, pending, max) across all routes
+     */
+    public PoolStats getStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    @Override
+    public void close() {
+        try {
+            httpClient.close();
+            noCompressionHttpClient.close();
+        } catch (IOException e) {
+            log.warn("Error closing pooled http client: {}", e.getMessage());
+        }
+        connectionManager.close();
+    }
+
+    /**
+     * Honors the Keep-Alive header sent by the server, but never keeps a
+     * connection alive longer than the configured maximum.
+     */
+    private static class BoundedKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+        private long maxKeepAliveMs;
+
+        public BoundedKeepAliveStrategy(long maxKeepAliveMs) {
+            this.maxKeepAliveMs = maxKeepAliveMs;
+        }
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE
+                .getKeepAliveDuration(response, context);
+            if (maxKeepAliveMs <= 0) {
+                return duration;
+            } else if (duration <= 0) {
+                return maxKeepAliveMs;
+            }
+            return Math.min(duration, maxKeepAliveMs);
+        }
+    }
+
+}
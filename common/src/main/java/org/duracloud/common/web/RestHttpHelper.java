@@ -36,6 +36,7 @@ import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.SocketConfig;
 import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
@@ -67,6 +68,11 @@ public class RestHttpHelper {
 
     private int socketTimeoutMs = -1;
 
+    private HttpConnectionPool connectionPool;
+
+    // Reused across requests when a connection pool is in use
+    private AuthCache authCache;
+
     public RestHttpHelper() {
         this(null);
     }
@@ -95,6 +101,23 @@ public class RestHttpHelper {
         this.socketTimeoutMs = socketTimeoutMs;
     }
 
+    /**
+     * Constructor which directs all requests through a shared pool of
+     * persistent connections. The socket timeout is defined by the pool.
+     *
+     * @param credential     credentials for preemptive basic auth, may be null
+     * @param connectionPool the pool from which connections are drawn
+     */
+    public RestHttpHelper(Credential credential,
+                          HttpConnectionPool connectionPool) {
+        this(credential, -1);
+        if (null == connectionPool) {
+            throw new IllegalArgumentException("Connection pool must not be null");
+        }
+        this.connectionPool = connectionPool;
+        this.authCache = new BasicAuthCache();
+    }
+
     private enum Method {
         GET() {
             @Override
@@ -297,7 +320,9 @@ public class RestHttpHelper {
         }
 
         org.apache.http.HttpResponse response;
-        if (null != credsProvider) {
+        if (null != connectionPool) {
+            response = executePooledRequest(httpRequest, method);
+        } else if (null != credsProvider) {
 
             HttpClientBuilder builder = HttpClients.custom()
                        .setDefaultCredentialsProvider(credsProvider);
@@ -335,6 +360,42 @@ public class RestHttpHelper {
         return httpResponse;
     }
 
+    private org.apache.http.HttpResponse executePooledRequest(HttpRequestBase httpRequest,
+                                                              Method method)
+        throws IOException {
+        CloseableHttpClient httpClient =
+            connectionPool.getHttpClient(!method.equals(Method.HEAD));
+
+        HttpClientContext localContext = HttpClientContext.create();
+        if (null != credsProvider) {
+            localContext.setCredentialsProvider(credsProvider);
+
+            // Use preemptive basic auth
+            URI requestUri = httpRequest.getURI();
+            HttpHost target = new HttpHost(requestUri.getHost(),
+                                           requestUri.getPort(),
+                                           requestUri.getScheme());
+            if (null == authCache.get(target)) {
+                authCache.put(target, new BasicScheme());
+            }
+            localContext.setAuthCache(authCache);
+        }
+
+        org.apache.http.HttpResponse response =
+            httpClient.execute(httpRequest, localContext);
+
+        // A pooled connection is not released until its response content has
+        // been consumed. Only GET responses are expected to be streamed by the
+        // caller, all others are small, so they are read in full to allow the
+        // connection to be returned to the pool right away.
+        HttpEntity entity = response.getEntity();
+        if (null != entity && !method.equals(Method.GET)) {
+            response.setEntity(new BufferedHttpEntity(entity));
+            EntityUtils.consume(entity);
+        }
+        return response;
+    }
+
     private CloseableHttpClient buildClient(HttpClientBuilder builder,
                                             Method method) {
         if (method.equals(Method.HEAD)) {
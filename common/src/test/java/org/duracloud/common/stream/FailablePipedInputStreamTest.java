@@ -0,0 +1,52 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class FailablePipedInputStreamTest {
+
+    @Test
+    public void testComplete() throws Exception {
+        FailablePipedInputStream in = new FailablePipedInputStream(1024, "Test");
+        try (PipedOutputStream out = new PipedOutputStream(in)) {
+            out.write("content".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals("content", IOUtils.toString(in, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFailed() throws Exception {
+        FailablePipedInputStream in = new FailablePipedInputStream(1024, "Test");
+        try (PipedOutputStream out = new PipedOutputStream(in)) {
+            out.write("partial".getBytes(StandardCharsets.UTF_8));
+            in.fail(new RuntimeException("write error"));
+        }
+
+        // The content written before the failure is readable
+        byte[] buffer = new byte[7];
+        assertEquals(7, in.read(buffer));
+        assertEquals("partial", new String(buffer, StandardCharsets.UTF_8));
+        try {
+            in.read();
+            fail("Exception expected at the end of a failed stream");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Test failed: write error"));
+        }
+    }
+
+}
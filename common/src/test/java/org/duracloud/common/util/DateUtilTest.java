@@ -40,7 +40,7 @@ public class DateUtilTest {
         String dayRegex = "-1[7-8]";
         String timeMinRegex = "[0-9][0-9]:[0,3]1";
         String timeSec = ":58";
-        String timeSubSec = ".058";
+        String timeSubSec = "\\.734";
 
         String longDate = DateUtil.convertToStringLong(time);
         assertTrue(longDate, longDate.matches(
@@ -0,0 +1,159 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PagePrefetcherTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /*
+     * Pages of pageSize integers counting up from the marker, until total
+     * items have been listed
+     */
+    private List<Integer> page(Integer marker, int pageSize, int total) {
+        int start = null == marker ? 0 : marker + 1;
+        List<Integer> page = new ArrayList<>();
+        for (int i = start; i < Math.min(start + pageSize, total); i++) {
+            page.add(i);
+        }
+        return page;
+    }
+
+    @Test
+    public void testAllPages() throws Exception {
+        for (int total = 0; total < 25; total++) {
+            final int items = total;
+            PagePrefetcher<Integer> prefetcher =
+                new PagePrefetcher<>(marker -> page(marker, 5, items), null, 2, executor);
+
+            List<Integer> listed = new ArrayList<>();
+            List<Integer> page;
+            while ((page = prefetcher.nextPage()) != null) {
+                listed.addAll(page);
+            }
+            assertEquals(total, listed.size());
+            for (int i = 0; i < total; i++) {
+                assertEquals(Integer.valueOf(i), listed.get(i));
+            }
+            assertNull(prefetcher.nextPage());
+        }
+    }
+
+    @Test
+    public void testPagesAheadBound() throws Exception {
+        AtomicInteger loads = new AtomicInteger(0);
+        PagePrefetcher<Integer> prefetcher =
+            new PagePrefetcher<>(marker -> {
+                loads.incrementAndGet();
+                return page(marker, 1, 100);
+            }, null, 3, executor);
+
+        // Without a consumer, loading stops once the bound is reached
+        waitForLoads(loads, 3);
+        Thread.sleep(100);
+        assertEquals(3, loads.get());
+
+        assertEquals(Collections.singletonList(0), prefetcher.nextPage());
+        waitForLoads(loads, 4);
+        Thread.sleep(100);
+        assertEquals(4, loads.get());
+        prefetcher.close();
+    }
+
+    @Test
+    public void testErrorAfterLoadedPages() throws Exception {
+        RuntimeException failure = new RuntimeException("expected");
+        PagePrefetcher<Integer> prefetcher =
+            new PagePrefetcher<>(marker -> {
+                if (null != marker && marker >= 3) {
+                    throw failure;
+                }
+                return page(marker, 2, 100);
+            }, null, 5, executor);
+
+        assertEquals(2, prefetcher.nextPage().size());
+        assertEquals(2, prefetcher.nextPage().size());
+        for (int i = 0; i < 2; i++) {
+            try {
+                prefetcher.nextPage();
+                fail("Exception expected");
+            } catch (RuntimeException e) {
+                assertSame(failure, e);
+            }
+        }
+    }
+
+    @Test
+    public void testRejectedExecution() throws Exception {
+        executor.shutdown();
+        PagePrefetcher<Integer> prefetcher =
+            new PagePrefetcher<>(marker -> page(marker, 2, 10), null, 1, executor);
+        try {
+            prefetcher.nextPage();
+            fail("Exception expected");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PagePrefetcher<Integer> prefetcher =
+            new PagePrefetcher<>(marker -> {
+                started.countDown();
+                release.await();
+                return page(marker, 2, 10);
+            }, null, 1, executor);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        prefetcher.close();
+        release.countDown();
+        assertNull(prefetcher.nextPage());
+    }
+
+    private void waitForLoads(AtomicInteger loads, int expected) throws Exception {
+        long end = System.currentTimeMillis() + 5000;
+        while (loads.get() < expected && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, loads.get());
+    }
+
+}
@@ -26,6 +26,7 @@ public class MockServlet
                          HttpServletResponse response) throws ServletException,
         IOException {
         processRequest(request, response);
+        response.getWriter().write("mock-content");
     }
 
     @Override
@@ -9,6 +9,7 @@ package org.duracloud.common.web;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -19,6 +20,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.duracloud.common.model.Credential;
 import org.duracloud.common.web.RestHttpHelper.HttpResponse;
@@ -152,6 +154,47 @@ public class RestHttpHelperTest {
         file.delete();
     }
 
+    @Test
+    public void testPooledRequests() throws Exception {
+        Credential credential = new Credential("joeUser", "joesPassword");
+        try (HttpConnectionPool pool = new HttpConnectionPool(2, 2, 10000, 1000, 1000)) {
+            helper = new RestHttpHelper(credential, pool);
+
+            // More requests than connections, so connections must be released
+            // back to the pool in order for all requests to complete
+            for (int i = 0; i < 5; i++) {
+                HttpResponse response = helper.get(getUrl());
+                verifyResponse(response);
+                assertNotNull(response.getResponseBody());
+                verifyResponse(helper.head(getUrl()));
+                verifyResponse(helper.put(getUrl(), "<x>junk</x>", headers));
+                verifyResponse(helper.post(getUrl(), "<x>junk</x>", headers));
+                verifyResponse(helper.delete(getUrl()));
+            }
+            assertEquals(0, pool.getStats().getLeased());
+        }
+    }
+
+    @Test
+    public void testPooledRequestTimeout() throws Exception {
+        Credential credential = new Credential("joeUser", "joesPassword");
+        try (HttpConnectionPool pool = new HttpConnectionPool(1, 1, 10000, 1000, 1000, 200)) {
+            helper = new RestHttpHelper(credential, pool);
+
+            // The connection is held until the response content is read
+            HttpResponse response = helper.get(getUrl());
+            try {
+                helper.get(getUrl());
+                fail("Exception expected when no connection is released");
+            } catch (ConnectionPoolTimeoutException e) {
+                // Expected
+            }
+
+            assertNotNull(response.getResponseBody());
+            verifyResponse(helper.get(getUrl()));
+        }
+    }
+
     private String getUrl() {
         return "http://" + host + ":" + port + context;
     }
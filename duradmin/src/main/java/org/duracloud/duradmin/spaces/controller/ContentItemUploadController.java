@@ -63,6 +63,7 @@ public class ContentItemUploadController {
             String spaceId = null;
             String storeId = null;
             String contentId = null;
+            long contentSize = -1;
             List<ContentItem> results = new ArrayList<ContentItem>();
 
             while (iter.hasNext()) {
@@ -76,6 +77,8 @@ public class ContentItemUploadController {
                         storeId = value;
                     } else if (item.getFieldName().equals("contentId")) {
                         contentId = value;
+                    } else if (item.getFieldName().equals("contentSize")) {
+                        contentSize = parseContentSize(value);
                     }
                 } else {
                     log.debug("setting fileStream: {}", item);
@@ -99,6 +102,7 @@ public class ContentItemUploadController {
                         new ContentItemUploadTask(ci,
                                                   contentStore,
                                                   item.openStream(),
+                                                  contentSize,
                                                   request.getUserPrincipal()
                                                          .getName());
 
@@ -115,6 +119,7 @@ public class ContentItemUploadController {
                                                   auth);
                     results.add(result);
                     contentId = null;
+                    contentSize = -1;
                 }
             }
 
@@ -127,4 +132,17 @@ public class ContentItemUploadController {
 
     }
 
+    /*
+     * The size of a file is provided by the browser ahead of the file, which
+     * allows the file to be streamed to storage as it is received
+     */
+    private long parseContentSize(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("ignoring invalid content size: {}", value);
+            return -1;
+        }
+    }
+
 }
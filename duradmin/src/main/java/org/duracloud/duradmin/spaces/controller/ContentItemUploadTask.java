@@ -9,7 +9,9 @@
 package org.duracloud.duradmin.spaces.controller;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,13 +19,22 @@ import java.util.Map;
 import org.apache.commons.fileupload.ProgressListener;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.ProxyInputStream;
 import org.duracloud.client.ContentStore;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.IOUtil;
 import org.duracloud.duradmin.domain.ContentItem;
+import org.duracloud.error.ContentStoreException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Uploads a content item from a stream. When the size of the content is known
+ * the stream is forwarded directly to DuraStore, and its checksum is computed
+ * as it is read so that it can be compared with the checksum of the stored
+ * content. Otherwise the stream is first written to a temp file in order to
+ * determine its size.
+ *
  * @author Daniel Bernstein
  */
 public class ContentItemUploadTask implements Comparable, ProgressListener {
@@ -37,16 +48,29 @@ public class ContentItemUploadTask implements Comparable, ProgressListener {
     private String username;
     private Date startDate = null;
     private InputStream stream = null;
+    private long contentSize;
+
+    public ContentItemUploadTask(ContentItem contentItem,
+                                 ContentStore contentStore,
+                                 InputStream stream,
+                                 String username) throws Exception {
+        this(contentItem, contentStore, stream, -1, username);
+    }
 
+    /**
+     * @param contentSize the size of the content in bytes, -1 if unknown
+     */
     public ContentItemUploadTask(ContentItem contentItem,
                                  ContentStore contentStore,
                                  InputStream stream,
+                                 long contentSize,
                                  String username) throws Exception {
-        this.stream = stream;
+        this.stream = new ProgressInputStream(stream);
         this.contentItem = contentItem;
         this.contentStore = contentStore;
+        this.contentSize = contentSize;
         this.username = username;
-        this.totalBytes = -1;
+        this.totalBytes = contentSize;
         log.info("new task created for {} by {}", contentItem, username);
     }
 
@@ -57,16 +81,20 @@ public class ContentItemUploadTask implements Comparable, ProgressListener {
             log.info("executing file upload: {}", contentItem);
             startDate = new Date();
 
-            tmpFile = IOUtil.writeStreamToFile(this.stream);
-            tmpStream = IOUtil.getFileStream(tmpFile);
-
-            contentStore.addContent(contentItem.getSpaceId(),
-                                    contentItem.getContentId(),
-                                    tmpStream,
-                                    tmpFile.length(),
-                                    contentItem.getContentMimetype(),
-                                    null,
-                                    null);
+            if (contentSize >= 0) {
+                streamContent();
+            } else {
+                tmpFile = IOUtil.writeStreamToFile(this.stream);
+                tmpStream = IOUtil.getFileStream(tmpFile);
+
+                contentStore.addContent(contentItem.getSpaceId(),
+                                        contentItem.getContentId(),
+                                        tmpStream,
+                                        tmpFile.length(),
+                                        contentItem.getContentMimetype(),
+                                        null,
+                                        null);
+            }
             log.info("file upload completed successfully: {}", contentItem);
 
         } catch (Exception ex) {
@@ -82,6 +110,46 @@ public class ContentItemUploadTask implements Comparable, ProgressListener {
         }
     }
 
+    /*
+     * Forwards the stream to DuraStore, then verifies that the expected number
+     * of bytes were sent and that they were stored intact.
+     */
+    private void streamContent() throws Exception {
+        DigestInputStream digestStream =
+            ChecksumUtil.wrapStream(this.stream, ChecksumUtil.Algorithm.MD5);
+        String checksum = contentStore.addContent(contentItem.getSpaceId(),
+                                                  contentItem.getContentId(),
+                                                  digestStream,
+                                                  contentSize,
+                                                  contentItem.getContentMimetype(),
+                                                  null,
+                                                  null);
+
+        String error = null;
+        if (bytesRead != contentSize || digestStream.read() != -1) {
+            error = "Size of uploaded content does not match the expected size of " +
+                    contentSize + " bytes";
+        } else {
+            String streamChecksum = ChecksumUtil.getChecksum(digestStream);
+            if (null != checksum && !checksum.equals(streamChecksum)) {
+                error = "Checksum of stored content " + checksum +
+                        " does not match the checksum of uploaded content " +
+                        streamChecksum;
+            }
+        }
+
+        if (null != error) {
+            try {
+                contentStore.deleteContent(contentItem.getSpaceId(),
+                                           contentItem.getContentId());
+            } catch (ContentStoreException e) {
+                log.warn("failed to remove content item {} after failed upload: {}",
+                         contentItem, e.getMessage());
+            }
+            throw new ContentStoreException(error + ": " + contentItem);
+        }
+    }
+
     public void update(long pBytesRead, long pContentLength, int pItems) {
         bytesRead = pBytesRead;
         totalBytes = pContentLength;
@@ -129,4 +197,23 @@ public class ContentItemUploadTask implements Comparable, ProgressListener {
                "}";
     }
 
+    /*
+     * Reports the progress of the upload as the content is read
+     */
+    private class ProgressInputStream extends ProxyInputStream {
+        private long count = 0;
+
+        ProgressInputStream(InputStream stream) {
+            super(stream);
+        }
+
+        @Override
+        protected void afterRead(int n) throws IOException {
+            if (n > 0) {
+                count += n;
+                update(count, contentSize, 1);
+            }
+        }
+    }
+
 }
@@ -188,6 +188,9 @@ $.widget("ui.uploader", {
 
                    $.each(files, function(j, file){
                        if(file.name == initialVal){
+                           //the size precedes the file so that the file
+                           //can be streamed to storage as it is received.
+                           formData.append('contentSize', file.size);
                            formData.append('file', file);
                        }
                    });
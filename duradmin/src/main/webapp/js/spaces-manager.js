@@ -3135,28 +3135,15 @@ $(function() {
   $.widget("ui.spacedetail", $.extend({}, $.ui.basedetailpane.prototype, {
     _spaceId : null,
     _init : function() {
-      var that = this;
       $.ui.basedetailpane.prototype._init.call(this);
-      $("#recount").die().live("click", function() {
-        $(this).parent().empty().append("Recounting " + that._createThrobberHtml());
-        that._pollItemCount({
-          storeId : that._storeId,
-          spaceId : that._spaceId,
-        }, true);
-
-      });
-    },
-
-    _createThrobberHtml : function() {
-      return "<img src='/duradmin/images/wait.gif'/>";
     },
 
     _extractSpaceProperties : function(space) {
       var itemCount;
       if (space.itemCount == null || space.itemCount == undefined || parseInt(space.itemCount) < 0) {
-        itemCount = space.properties.count + ": performing exact count " + this._createThrobberHtml();
+        itemCount = space.properties.count;
       } else {
-        itemCount = space.itemCount + " <button id='recount'><i class='pre refresh'></i>Recount</button>";
+        itemCount = space.itemCount;
       }
       ;
 
@@ -3205,28 +3192,6 @@ $(function() {
       return mimetypePanel;
     },
 
-    _pollItemCount : function(space, recount) {
-      var that = this;
-
-      dc.store.GetSpace(space.storeId, space.spaceId, {
-        success : function(s) {
-          if (that._isObjectAlreadyDisplayedInDetail(s.spaceId)) {
-            if (s != undefined && s != null) {
-              that._extractSpaceProperties(s);
-              if (s.itemCount == null || parseInt(s.itemCount) < 0) {
-                setTimeout(function() {
-                  recount = false;
-                  that._pollItemCount(s);
-                }, 5000);
-              }
-            }
-          }
-        },
-      }, {
-        recount : recount
-      });
-    },
-
     load : function(space) {
       var that = this;
       this._storeId = space.storeId;
@@ -3280,16 +3245,6 @@ $(function() {
 
       this._extractSpaceProperties(space);
 
-      if (space.itemCount == null || parseInt(space.itemCount) < 0) {
-        // attach poller if itemCount is
-        // null or -1
-
-        setTimeout(function() {
-          that._pollItemCount(space);
-        }, 5000);
-
-      }
-
       this._loadHistoryPanel(space);
 
       if (this._isAdmin() && this._isS3(space.storeId)) {
@@ -12,10 +12,12 @@ import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.duracloud.client.ContentStore;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.duradmin.domain.ContentItem;
 import org.duracloud.error.ContentStoreException;
 import org.easymock.EasyMock;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -48,6 +50,13 @@ public class ContentItemUploadTaskTest {
 
     private ContentStore createMockContentStore() throws ContentStoreException {
         ContentStore store = EasyMock.createMock("Store", ContentStore.class);
+        expectSpooledContent(store);
+
+        EasyMock.replay(store);
+        return store;
+    }
+
+    private void expectSpooledContent(ContentStore store) throws ContentStoreException {
         EasyMock.expect(store.addContent(EasyMock.eq(contentItem.getSpaceId()),
                                          EasyMock.eq(contentItem.getContentId()),
                                          EasyMock.<InputStream>anyObject(),
@@ -56,11 +65,31 @@ public class ContentItemUploadTaskTest {
                                          EasyMock.<String>isNull(),
                                          EasyMock.<Map<String, String>>isNull()))
                 .andReturn(null);
+    }
 
-        EasyMock.replay(store);
+    private ContentStore createStreamingContentStore(int size, String checksum)
+        throws ContentStoreException {
+        ContentStore store = EasyMock.createMock("Store", ContentStore.class);
+        EasyMock.expect(store.addContent(EasyMock.eq(contentItem.getSpaceId()),
+                                         EasyMock.eq(contentItem.getContentId()),
+                                         EasyMock.<InputStream>anyObject(),
+                                         EasyMock.eq((long) size),
+                                         EasyMock.eq(contentItem.getContentMimetype()),
+                                         EasyMock.<String>isNull(),
+                                         EasyMock.<Map<String, String>>isNull()))
+                .andAnswer(() -> {
+                    // Read the expected size of content, as the store would
+                    InputStream content = (InputStream) EasyMock.getCurrentArguments()[2];
+                    IOUtils.readFully(content, new byte[size]);
+                    return checksum;
+                });
         return store;
     }
 
+    private String getChecksum(String value) {
+        return new ChecksumUtil(ChecksumUtil.Algorithm.MD5).generateChecksum(value);
+    }
+
     @After
     public void tearDown() throws Exception {
         EasyMock.verify(contentStore);
@@ -76,4 +105,62 @@ public class ContentItemUploadTaskTest {
         task.execute();
 
     }
+
+    @Test
+    public void testExecuteStreaming() throws Exception {
+        contentStore = createStreamingContentStore(text.length(), getChecksum(text));
+        EasyMock.replay(contentStore);
+
+        task = new ContentItemUploadTask(contentItem,
+                                         contentStore,
+                                         stream,
+                                         text.length(),
+                                         username);
+        task.execute();
+
+        Map<String, String> props = task.getProperties();
+        Assert.assertEquals(String.valueOf(text.length()), props.get("bytesRead"));
+        Assert.assertEquals(String.valueOf(text.length()), props.get("totalBytes"));
+    }
+
+    @Test
+    public void testExecuteStreamingChecksumMismatch() throws Exception {
+        contentStore = createStreamingContentStore(text.length(), getChecksum("other"));
+        contentStore.deleteContent(contentItem.getSpaceId(), contentItem.getContentId());
+        EasyMock.expectLastCall();
+        EasyMock.replay(contentStore);
+
+        task = new ContentItemUploadTask(contentItem,
+                                         contentStore,
+                                         stream,
+                                         text.length(),
+                                         username);
+        try {
+            task.execute();
+            Assert.fail("Exception expected");
+        } catch (ContentStoreException e) {
+            Assert.assertTrue(e.getMessage().contains("Checksum"));
+        }
+    }
+
+    @Test
+    public void testExecuteStreamingSizeMismatch() throws Exception {
+        contentStore = createStreamingContentStore(text.length() - 1, getChecksum("hell"));
+        contentStore.deleteContent(contentItem.getSpaceId(), contentItem.getContentId());
+        EasyMock.expectLastCall();
+        EasyMock.replay(contentStore);
+
+        // The stream is longer than the size provided with it
+        task = new ContentItemUploadTask(contentItem,
+                                         contentStore,
+                                         stream,
+                                         text.length() - 1,
+                                         username);
+        try {
+            task.execute();
+            Assert.fail("Exception expected");
+        } catch (ContentStoreException e) {
+            Assert.assertTrue(e.getMessage().contains("size"));
+        }
+    }
 }
@@ -7,17 +7,20 @@
  */
 package org.duracloud.durastore.rest;
 
-import java.io.InputStream;
 import java.text.MessageFormat;
+import java.util.Date;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.commons.lang3.StringUtils;
 import org.duracloud.audit.reader.AuditLogReader;
 import org.duracloud.audit.reader.AuditLogReaderNotEnabledException;
+import org.duracloud.audit.reader.AuditLogWriter;
 import org.duracloud.common.error.DuraCloudRuntimeException;
 import org.duracloud.storage.domain.StorageAccount;
 import org.duracloud.storage.error.NotFoundException;
@@ -49,17 +52,34 @@ public class AuditLogRest extends BaseRest {
         this.storageProviderFactory = storageProviderFactory;
     }
 
+    /**
+     * Streams the audit log of a space. The optional start and end times (in
+     * milliseconds) limit the log to the events near that range.
+     */
     @Path("/{spaceId}")
     @GET
     public Response getAuditLog(@PathParam("spaceId") String spaceId,
-                                @QueryParam("storeID") String storeId) {
+                                @QueryParam("storeID") String storeId,
+                                @QueryParam("start") String startMs,
+                                @QueryParam("end") String endMs) {
 
         String account = getSubdomain();
 
-        log.info("getting audit log for account:{}, storeId:{}, spaceId:{}",
+        log.info("getting audit log for account:{}, storeId:{}, spaceId:{} [{}:{}]",
                  account,
                  storeId,
-                 spaceId);
+                 spaceId,
+                 startMs,
+                 endMs);
+
+        Date startDate;
+        Date endDate;
+        try {
+            startDate = toDate(startMs);
+            endDate = toDate(endMs);
+        } catch (NumberFormatException e) {
+            return responseBadRequest(e);
+        }
 
         if (StringUtils.isBlank(storeId)) {
             for (StorageAccount storageAccount : this.storageProviderFactory.getStorageAccounts()) {
@@ -80,8 +100,11 @@ public class AuditLogRest extends BaseRest {
             StorageProvider store = storageProviderFactory.getStorageProvider(storeId);
             store.getSpaceProperties(spaceId);
 
-            InputStream auditLog = auditLogReader.getAuditLog(account, storeId, spaceId);
-            return responseOkStream(auditLog);
+            AuditLogWriter auditLog =
+                auditLogReader.getAuditLogWriter(account, storeId, spaceId, startDate, endDate);
+            // Writing stops when the client disconnects and the output fails
+            StreamingOutput output = auditLog::write;
+            return Response.ok(output, MediaType.TEXT_PLAIN).build();
         } catch (NotFoundException e) {
 
             log.error(MessageFormat.format("Error for  account:{0}, storeId:{1}, spaceId:{2}: space not found.",
@@ -103,4 +126,16 @@ public class AuditLogRest extends BaseRest {
         }
     }
 
+    private Date toDate(String ms) throws NumberFormatException {
+        if (null == ms) {
+            return null;
+        }
+        try {
+            return new Date(Long.parseLong(ms));
+        } catch (NumberFormatException ex) {
+            throw new NumberFormatException("Unable to parse date: " + ms
+                                            + ". Input value must be in epoch milliseconds.");
+        }
+    }
+
 }
@@ -8,9 +8,12 @@
 package org.duracloud.durastore.rest;
 
 import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.duracloud.common.constant.ManifestFormat;
 import org.duracloud.manifest.ManifestGenerator;
+import org.duracloud.manifest.ManifestWriter;
 import org.duracloud.manifest.error.ManifestArgumentException;
 import org.duracloud.manifest.error.ManifestNotFoundException;
 import org.slf4j.Logger;
@@ -24,6 +27,8 @@ public class ManifestResource {
 
     private final Logger log = LoggerFactory.getLogger(ManifestResource.class);
 
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     private ManifestGenerator manifestGenerator;
 
     public ManifestResource(ManifestGenerator manifestGenerator) {
@@ -42,6 +47,36 @@ public class ManifestResource {
                                              validateFormat(fmt));
     }
 
+    /**
+     * Validates the request, then provides the manifest as output which is
+     * written directly to the response as the manifest is generated.
+     *
+     * @param gzip true if the output should be gzip encoded
+     * @return manifest output
+     */
+    public StreamingOutput streamManifest(String account,
+                                          String storeId,
+                                          String spaceId,
+                                          String fmt,
+                                          boolean gzip)
+        throws ManifestArgumentException, ManifestNotFoundException {
+
+        ManifestWriter writer =
+            manifestGenerator.getManifestWriter(account,
+                                                storeId,
+                                                spaceId,
+                                                validateFormat(fmt));
+        if (!gzip) {
+            return writer::write;
+        }
+
+        return output -> {
+            GZIPOutputStream gzipOutput = new GZIPOutputStream(output, GZIP_BUFFER_SIZE);
+            writer.write(gzipOutput);
+            gzipOutput.finish();
+        };
+    }
+
     private ManifestFormat validateFormat(String format)
         throws ManifestArgumentException {
         // null is default.
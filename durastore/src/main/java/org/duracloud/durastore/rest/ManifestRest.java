@@ -23,6 +23,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.http.client.utils.URIBuilder;
 import org.duracloud.common.constant.Constants;
@@ -68,6 +70,10 @@ public class ManifestRest extends BaseRest {
 
     private static final String DEFAULT_FORMAT = ManifestFormat.TSV.name();
 
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String VARY = "Vary";
+    private static final String GZIP = "gzip";
+
     @Autowired
     public ManifestRest(ManifestResource manifestResource,
                         StorageProviderFactory storageProviderFactory) {
@@ -100,12 +106,17 @@ public class ManifestRest extends BaseRest {
 
         try {
 
-            InputStream manifest =
-                manifestResource.getManifest(account, storeId, spaceId, format);
+            boolean gzip = acceptsGzip();
+            StreamingOutput manifest =
+                manifestResource.streamManifest(account, storeId, spaceId, format, gzip);
 
-            return Response.ok(manifest)
-                           .type(ManifestFormat.valueOf(format)
-                                               .getMimeType()).build();
+            ResponseBuilder response =
+                Response.ok(manifest).type(ManifestFormat.valueOf(format).getMimeType());
+            response.header(VARY, ACCEPT_ENCODING);
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+            }
+            return response.build();
 
         } catch (ManifestArgumentException e) {
             log.error("Error for, {}:{} [{}]",
@@ -124,6 +135,20 @@ public class ManifestRest extends BaseRest {
         }
     }
 
+    private boolean acceptsGzip() {
+        String acceptEncoding = request.getHeader(ACCEPT_ENCODING);
+        if (null == acceptEncoding) {
+            return false;
+        }
+        for (String encoding : acceptEncoding.split(",")) {
+            String[] params = encoding.trim().split(";");
+            if (GZIP.equalsIgnoreCase(params[0].trim())) {
+                return params.length < 2 || !params[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
     @Path("/{spaceId}")
     @POST
     public Response generateManifest(@PathParam("spaceId") String spaceId,
@@ -7,9 +7,17 @@
  */
 package org.duracloud.durastore.rest;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.duracloud.common.model.AclType;
 import org.duracloud.durastore.error.ResourceException;
@@ -36,6 +44,8 @@ public class SpaceResource {
 
     protected static final Logger log = LoggerFactory.getLogger(SpaceResource.class);
 
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
     private StorageProviderFactory storageProviderFactory;
 
     public SpaceResource(StorageProviderFactory storageProviderFactory) {
@@ -115,7 +125,12 @@ public class SpaceResource {
     }
 
     /**
-     * Gets a listing of the contents of a space.
+     * Gets a listing of the contents of a space. The listing is written to
+     * the output stream incrementally, retrieving items from the storage
+     * provider in pages of at most DEFAULT_MAX_RESULTS, so memory use does not
+     * grow with maxResults. The first page is retrieved before this method
+     * returns so that errors (such as a missing space) can be reported in the
+     * response status.
      *
      * @param spaceID
      * @param storeID
@@ -124,28 +139,21 @@ public class SpaceResource {
      * @param marker
      * @return XML listing of space contents
      */
-    public String getSpaceContents(String spaceID,
-                                   String storeID,
-                                   String prefix,
-                                   long maxResults,
-                                   String marker) throws ResourceException {
-        Element spaceElem = new Element("space");
-        spaceElem.setAttribute("id", spaceID);
+    public StreamingOutput getSpaceContents(String spaceID,
+                                            String storeID,
+                                            String prefix,
+                                            long maxResults,
+                                            String marker) throws ResourceException {
+        long totalResults = maxResults > 0 ? maxResults : StorageProvider.DEFAULT_MAX_RESULTS;
+        StorageProvider storage;
+        List<String> firstPage;
 
         try {
-            StorageProvider storage = storageProviderFactory.getStorageProvider(storeID);
-
-            List<String> contents = storage.getSpaceContentsChunked(spaceID,
-                                                                    prefix,
-                                                                    maxResults,
-                                                                    marker);
-            if (contents != null) {
-                for (String contentItem : contents) {
-                    Element contentElem = new Element("item");
-                    contentElem.setText(contentItem);
-                    spaceElem.addContent(contentElem);
-                }
-            }
+            storage = storageProviderFactory.getStorageProvider(storeID);
+            firstPage = storage.getSpaceContentsChunked(spaceID,
+                                                        prefix,
+                                                        getPageSize(totalResults),
+                                                        marker);
         } catch (NotFoundException e) {
             throw new ResourceNotFoundException("build space XML for", spaceID, e);
         } catch (Exception e) {
@@ -153,9 +161,63 @@ public class SpaceResource {
             throw new ResourceException("build space XML for", spaceID, e);
         }
 
-        Document doc = new Document(spaceElem);
-        XMLOutputter xmlConverter = new XMLOutputter();
-        return xmlConverter.outputString(doc);
+        return output -> writeSpaceContents(output, storage, spaceID, storeID,
+                                            prefix, totalResults, firstPage);
+    }
+
+    private long getPageSize(long remainingResults) {
+        return Math.min(remainingResults, StorageProvider.DEFAULT_MAX_RESULTS);
+    }
+
+    private void writeSpaceContents(OutputStream output,
+                                    StorageProvider storage,
+                                    String spaceID,
+                                    String storeID,
+                                    String prefix,
+                                    long totalResults,
+                                    List<String> firstPage) throws IOException {
+        try {
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(
+                new BufferedOutputStream(output), StandardCharsets.UTF_8.name());
+            writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            writer.writeStartElement("space");
+            writer.writeAttribute("id", spaceID);
+
+            long written = 0;
+            List<String> page = firstPage;
+            while (page != null && !page.isEmpty()) {
+                for (String contentItem : page) {
+                    writer.writeStartElement("item");
+                    writer.writeCharacters(contentItem);
+                    writer.writeEndElement();
+                }
+                written += page.size();
+
+                // Providers may return fewer items than requested in a page,
+                // so keep going until the listing is full or exhausted
+                if (written >= totalResults) {
+                    break;
+                }
+                String lastItem = page.get(page.size() - 1);
+                page = storage.getSpaceContentsChunked(spaceID,
+                                                       prefix,
+                                                       getPageSize(totalResults - written),
+                                                       lastItem);
+            }
+
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to write space XML for " + spaceID, e);
+        } catch (RuntimeException e) {
+            // The response status has already been sent, so the listing
+            // is left incomplete, which the client will fail to parse
+            log.error("Error writing space XML for " + spaceID + ": " + e.getMessage(), e);
+            storageProviderFactory.expireStorageProvider(storeID);
+            throw new IOException("Unable to write space XML for " + spaceID, e);
+        }
     }
 
     /**
@@ -26,6 +26,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.duracloud.common.error.NoUserLoggedInException;
 import org.duracloud.common.model.AclType;
@@ -130,11 +131,11 @@ public class SpaceRest extends BaseRest {
                                 String prefix,
                                 long maxResults,
                                 String marker) throws ResourceException {
-        String xml = spaceResource.getSpaceContents(spaceID,
-                                                    storeID,
-                                                    prefix,
-                                                    maxResults,
-                                                    marker);
+        StreamingOutput xml = spaceResource.getSpaceContents(spaceID,
+                                                             storeID,
+                                                             prefix,
+                                                             maxResults,
+                                                             marker);
         return addSpacePropertiesToResponse(Response.ok(xml, APPLICATION_XML),
                                             spaceID,
                                             storeID);
@@ -7,6 +7,8 @@
  */
 package org.duracloud.durastore.util;
 
+import java.io.File;
+
 import org.duracloud.account.db.model.DuracloudMill;
 import org.duracloud.account.db.model.RabbitmqConfig;
 import org.duracloud.account.db.repo.DuracloudMillRepo;
@@ -17,6 +19,10 @@ import org.duracloud.storage.domain.AuditConfig;
  * @author Daniel Bernstein
  */
 public class AuditConfigBuilder {
+
+    protected static final String DURACLOUD_HOME = "duracloud.home";
+    protected static final String AUDIT_SPILL_DIR = "audit-spill";
+
     private DuracloudMillRepo millRepo;
 
     public AuditConfigBuilder(DuracloudMillRepo millRepo) {
@@ -39,6 +45,12 @@ public class AuditConfigBuilder {
             config.setRabbitmqUsername(rmqConf.getUsername());
             config.setRabbitmqPassword(rmqConf.getPassword());
         }
+
+        // Audit tasks are spilled alongside the DuraStore logs
+        String home = System.getProperty(DURACLOUD_HOME);
+        if (null != home) {
+            config.setPublishSpillDir(new File(home, AUDIT_SPILL_DIR).getPath());
+        }
         return config;
     }
 
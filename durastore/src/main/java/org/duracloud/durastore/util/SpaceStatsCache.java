@@ -0,0 +1,315 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.durastore.util;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.duracloud.mill.db.repo.JpaManifestItemRepo;
+import org.duracloud.storage.domain.SpaceStats;
+import org.duracloud.storage.provider.SpaceStatsTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the item count and byte total of spaces, as recorded in the
+ * manifest. The manifest is kept up to date by the mill as it processes the
+ * audit events of each change to storage, so the stats are available without
+ * listing the contents of the space.
+ *
+ * The stats of a space are read from the manifest when first requested, and
+ * read again in the background once they reach the maximum age, or once they
+ * reach the minimum age after a change is made to the space through this
+ * node (allowing the mill time to record the change).
+ */
+public class SpaceStatsCache {
+
+    public static final int DEFAULT_THREADS = 2;
+    public static final int DEFAULT_MAX_SIZE = 10000;
+    public static final long DEFAULT_MIN_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    public static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    public static final long DEFAULT_MAX_IDLE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Logger log = LoggerFactory.getLogger(SpaceStatsCache.class);
+
+    private JpaManifestItemRepo manifestItemRepo;
+    private ThreadPoolExecutor refreshExecutor;
+    private Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private long minAgeNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MIN_AGE_MILLIS);
+    private long maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_AGE_MILLIS);
+    private long maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_IDLE_MILLIS);
+    private volatile long lastSweepNanos = System.nanoTime();
+
+    public SpaceStatsCache(JpaManifestItemRepo manifestItemRepo) {
+        this(manifestItemRepo, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param manifestItemRepo the manifest
+     * @param threads          the number of spaces for which stats may be
+     *                         refreshed at once
+     */
+    public SpaceStatsCache(JpaManifestItemRepo manifestItemRepo, int threads) {
+        this.manifestItemRepo = manifestItemRepo;
+
+        threads = Math.max(1, threads);
+        AtomicInteger threadCount = new AtomicInteger(0);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("space-stats-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.refreshExecutor =
+            new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                   new ArrayBlockingQueue<>(threads * 50),
+                                   threadFactory);
+    }
+
+    /**
+     * @param maxSize the number of spaces for which stats are held
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param minAgeMillis the age at which the stats of a changed space are
+     *                     refreshed
+     */
+    public void setMinAgeMillis(long minAgeMillis) {
+        this.minAgeNanos = TimeUnit.MILLISECONDS.toNanos(minAgeMillis);
+    }
+
+    /**
+     * @param maxAgeMillis the age at which the stats of a space are refreshed
+     */
+    public void setMaxAgeMillis(long maxAgeMillis) {
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    }
+
+    /**
+     * @param maxIdleMillis the time after which the stats of a space which
+     *                      have not been requested are discarded
+     */
+    public void setMaxIdleMillis(long maxIdleMillis) {
+        this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+    }
+
+    /**
+     * Stops the threads which refresh space stats.
+     */
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * @param account the account
+     * @param storeId the storage provider account ID
+     * @return the tracker of the spaces of a store, which provides null stats
+     * for the spaces which the manifest does not cover
+     */
+    public SpaceStatsTracker getTracker(String account, String storeId) {
+        return new StoreTracker(account, storeId);
+    }
+
+    protected SpaceStats getSpaceStats(String account, String storeId, String spaceId) {
+        String key = getKey(account, storeId, spaceId);
+        long now = System.nanoTime();
+        sweep(now);
+
+        Entry entry = cache.get(key);
+        if (null == entry) {
+            Entry created = new Entry(now);
+            entry = cache.putIfAbsent(key, created);
+            if (null == entry) {
+                // This thread reads the stats, others wait for them
+                entry = created;
+                evictExcess();
+                try {
+                    created.stats.complete(readSpaceStats(account, storeId, spaceId));
+                    created.loadedNanos = System.nanoTime();
+                } catch (RuntimeException e) {
+                    log.warn("Unable to read the stats of space {}/{}/{} from the manifest: {}",
+                             account, storeId, spaceId, e.getMessage());
+                    // Allow the next request to try again
+                    cache.remove(key, created);
+                    created.stats.complete(null);
+                    return null;
+                }
+            }
+        }
+        entry.lastAccessNanos = now;
+
+        SpaceStats stats = entry.stats.join();
+        if (needsRefresh(entry, now)) {
+            refresh(account, storeId, spaceId, entry);
+        }
+        return stats;
+    }
+
+    private boolean needsRefresh(Entry entry, long now) {
+        long age = now - entry.loadedNanos;
+        return age > maxAgeNanos || (entry.changed && age > minAgeNanos);
+    }
+
+    private void refresh(String account, String storeId, String spaceId, Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    // Changes made during the read lead to another refresh
+                    entry.changed = false;
+                    entry.stats = CompletableFuture.completedFuture(
+                        readSpaceStats(account, storeId, spaceId));
+                    entry.loadedNanos = System.nanoTime();
+                } catch (RuntimeException e) {
+                    log.warn("Unable to refresh the stats of space {}/{}/{} from the manifest: {}",
+                             account, storeId, spaceId, e.getMessage());
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Refreshed on a later request
+            entry.refreshing.set(false);
+        }
+    }
+
+    /*
+     * Spaces without items in the manifest are reported as unknown, as they
+     * may be spaces which the manifest does not cover (the space is then
+     * counted by listing, which is quick for a space which is empty).
+     */
+    protected SpaceStats readSpaceStats(String account, String storeId, String spaceId) {
+        Object[] row = manifestItemRepo.getStorageStatsByAccountAndStoreIdAndSpaceId(
+            account, storeId, spaceId);
+        if (null != row && row.length == 1 && row[0] instanceof Object[]) {
+            row = (Object[]) row[0];
+        }
+        long itemCount = 0;
+        long byteCount = 0;
+        if (null != row && row.length > 0 && row[0] instanceof Number) {
+            itemCount = ((Number) row[0]).longValue();
+        }
+        if (null != row && row.length > 1 && row[1] instanceof Number) {
+            byteCount = ((Number) row[1]).longValue();
+        }
+        return itemCount > 0 ? new SpaceStats(itemCount, byteCount) : null;
+    }
+
+    protected void spaceChanged(String account, String storeId, String spaceId) {
+        Entry entry = cache.get(getKey(account, storeId, spaceId));
+        if (null != entry) {
+            entry.changed = true;
+        }
+    }
+
+    protected void spaceDeleted(String account, String storeId, String spaceId) {
+        cache.remove(getKey(account, storeId, spaceId));
+    }
+
+    /**
+     * @return the number of spaces for which stats are held
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    private String getKey(String account, String storeId, String spaceId) {
+        return account + "/" + storeId + "/" + spaceId;
+    }
+
+    /*
+     * Discards the stats which have not been requested for longer than the
+     * maximum idle time, checking at most once per minute.
+     */
+    private void sweep(long now) {
+        if (now - lastSweepNanos < SWEEP_INTERVAL_NANOS) {
+            return;
+        }
+        lastSweepNanos = now;
+        cache.entrySet().removeIf(cached -> cached.getValue().stats.isDone() &&
+                                            now - cached.getValue().lastAccessNanos > maxIdleNanos);
+    }
+
+    /*
+     * Discards the least recently requested stats until the cache is within
+     * its maximum size.
+     */
+    private void evictExcess() {
+        while (maxSize > 0 && cache.size() > maxSize) {
+            Map.Entry<String, Entry> eldest = null;
+            for (Map.Entry<String, Entry> cached : cache.entrySet()) {
+                if (null == eldest ||
+                    cached.getValue().lastAccessNanos - eldest.getValue().lastAccessNanos < 0) {
+                    eldest = cached;
+                }
+            }
+            if (null == eldest) {
+                return;
+            }
+            cache.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private static class Entry {
+        private volatile CompletableFuture<SpaceStats> stats = new CompletableFuture<>();
+        private volatile long loadedNanos;
+        private volatile long lastAccessNanos;
+        private volatile boolean changed = false;
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        Entry(long now) {
+            this.loadedNanos = now;
+            this.lastAccessNanos = now;
+        }
+    }
+
+    /*
+     * The tracker of the spaces of a single store
+     */
+    private class StoreTracker implements SpaceStatsTracker {
+        private final String account;
+        private final String storeId;
+
+        StoreTracker(String account, String storeId) {
+            this.account = account;
+            this.storeId = storeId;
+        }
+
+        @Override
+        public SpaceStats getSpaceStats(String spaceId) {
+            return SpaceStatsCache.this.getSpaceStats(account, storeId, spaceId);
+        }
+
+        @Override
+        public void spaceChanged(String spaceId) {
+            SpaceStatsCache.this.spaceChanged(account, storeId, spaceId);
+        }
+
+        @Override
+        public void spaceDeleted(String spaceId) {
+            SpaceStatsCache.this.spaceDeleted(account, storeId, spaceId);
+        }
+    }
+
+}
@@ -36,6 +36,7 @@ public class StorageProviderFactoryCache extends AbstractAccountComponentCache<S
     private DuracloudMillRepo millRepo;
     private DuraCloudRequestContextUtil contextUtil;
     private AccountChangeNotifier notifier;
+    private SpaceStatsCache spaceStatsCache;
 
     private Logger log = LoggerFactory.getLogger(StorageProviderFactoryCache.class);
 
@@ -54,6 +55,14 @@ public class StorageProviderFactoryCache extends AbstractAccountComponentCache<S
         this.notifier = notifier;
     }
 
+    /**
+     * Sets the cache of space stats, shared by the storage providers of all
+     * accounts.
+     */
+    public void setSpaceStatsCache(SpaceStatsCache spaceStatsCache) {
+        this.spaceStatsCache = spaceStatsCache;
+    }
+
     @Override
     public void onEvent(AccountChangeEvent event) {
         String accountId = event.getAccountId();
@@ -104,8 +113,21 @@ public class StorageProviderFactoryCache extends AbstractAccountComponentCache<S
                                            this.contextUtil,
                                            this.notifier,
                                            auditConfig);
+        factory.setSpaceStatsCache(spaceStatsCache);
 
         return factory;
     }
 
+    /*
+     * Stops the audit publisher of a factory which is no longer cached. The
+     * publisher is otherwise kept running, as it is registered to be drained
+     * on JVM exit.
+     */
+    @Override
+    protected void dispose(StorageProviderFactory factory) {
+        if (factory instanceof StorageProviderFactoryImpl) {
+            ((StorageProviderFactoryImpl) factory).shutdown();
+        }
+    }
+
 }
@@ -7,6 +7,7 @@
  */
 package org.duracloud.durastore.util;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -14,6 +15,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.duracloud.audit.provider.AuditStorageProvider;
+import org.duracloud.audit.provider.AuditTaskPublisher;
 import org.duracloud.common.changenotifier.AccountChangeNotifier;
 import org.duracloud.common.queue.QueueType;
 import org.duracloud.common.queue.TaskQueue;
@@ -36,6 +38,7 @@ import org.duracloud.storage.domain.StorageProviderType;
 import org.duracloud.storage.error.NotFoundException;
 import org.duracloud.storage.error.StorageException;
 import org.duracloud.storage.provider.BrokeredStorageProvider;
+import org.duracloud.storage.provider.SpaceStatsTracker;
 import org.duracloud.storage.provider.StatelessStorageProvider;
 import org.duracloud.storage.provider.StorageProvider;
 import org.duracloud.storage.provider.StorageProviderBase;
@@ -59,9 +62,11 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
     private Map<String, StorageProvider> storageProviders;
     private UserUtil userUtil;
     private TaskQueue auditQueue;
+    private AuditTaskPublisher auditPublisher;
     private boolean cacheStorageProvidersOnInit = false;
     private DuraCloudRequestContextUtil contextUtil;
     private AccountChangeNotifier notifier;
+    private SpaceStatsCache spaceStatsCache;
 
     public StorageProviderFactoryImpl(StorageAccountManager storageAccountManager,
                                       StatelessStorageProvider statelessStorageProvider,
@@ -129,6 +134,11 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
     }
 
     private void configureAuditQueue(AuditConfig auditConfig) {
+        if (null != auditPublisher) {
+            auditPublisher.shutdown();
+            auditPublisher = null;
+        }
+
         if (null == auditConfig) {
             // If no audit config defined, turn off auditing
             this.auditQueue = new NoopTaskQueue();
@@ -154,8 +164,43 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
                     //AWS - SQS
                     this.auditQueue = new SQSTaskQueue(queueName);
                 }
+                this.auditPublisher = createAuditPublisher(auditConfig);
+            }
+        }
+    }
+
+    private AuditTaskPublisher createAuditPublisher(AuditConfig auditConfig) {
+        int bufferCapacity = null == auditConfig.getPublishBufferCapacity() ?
+                             AuditTaskPublisher.DEFAULT_BUFFER_CAPACITY :
+                             auditConfig.getPublishBufferCapacity();
+        int flushSize = null == auditConfig.getPublishFlushSize() ?
+                        AuditTaskPublisher.DEFAULT_FLUSH_SIZE :
+                        auditConfig.getPublishFlushSize();
+        long flushLatency = null == auditConfig.getPublishFlushLatencyMillis() ?
+                            AuditTaskPublisher.DEFAULT_FLUSH_LATENCY_MILLIS :
+                            auditConfig.getPublishFlushLatencyMillis();
+        File spillDir = null;
+        if (null != auditConfig.getPublishSpillDir()) {
+            // Each account spills to its own directory
+            spillDir = new File(auditConfig.getPublishSpillDir());
+            String accountName = getAccountManager().getAccountName();
+            if (null != accountName) {
+                spillDir = new File(spillDir, accountName);
             }
         }
+        log.info("Configuring Audit publisher with buffer capacity: {}, flush size: {}, " +
+                 "flush latency: {} ms, spill directory: {}",
+                 bufferCapacity, flushSize, flushLatency, spillDir);
+        return new AuditTaskPublisher(auditQueue, bufferCapacity, flushSize,
+                                      flushLatency, spillDir);
+    }
+
+    /**
+     * Sets the cache of space stats, used to provide the item count and byte
+     * total of spaces without listing their contents.
+     */
+    public void setSpaceStatsCache(SpaceStatsCache spaceStatsCache) {
+        this.spaceStatsCache = spaceStatsCache;
     }
 
     @Override
@@ -163,6 +208,14 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
         return this.auditQueue;
     }
 
+    /**
+     * @return the publisher of the audit tasks of storage changes, null when
+     * auditing is turned off
+     */
+    public AuditTaskPublisher getAuditPublisher() {
+        return this.auditPublisher;
+    }
+
     /**
      * This method returns all of the registered storage accounts.
      *
@@ -249,18 +302,38 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
                                        + storageAccountId + "): unable to create");
         }
 
-        StorageProvider auditProvider =
-            new AuditStorageProvider(storageProvider,
-                                     storageAccountManager.getAccountName(),
-                                     storageAccountId,
-                                     type.getName(),
-                                     userUtil,
-                                     auditQueue);
+        AuditStorageProvider auditProvider;
+        if (null != auditPublisher) {
+            auditProvider = new AuditStorageProvider(storageProvider,
+                                                     storageAccountManager.getAccountName(),
+                                                     storageAccountId,
+                                                     type.getName(),
+                                                     userUtil,
+                                                     auditPublisher);
+        } else {
+            auditProvider = new AuditStorageProvider(storageProvider,
+                                                     storageAccountManager.getAccountName(),
+                                                     storageAccountId,
+                                                     type.getName(),
+                                                     userUtil,
+                                                     auditQueue);
+        }
 
         if (storageProvider instanceof StorageProviderBase) {
             ((StorageProviderBase) storageProvider).setWrappedStorageProvider(auditProvider);
         }
 
+        // Space stats are read from the manifest, which is only kept up to
+        // date when changes are audited
+        if (null != spaceStatsCache && null != auditPublisher &&
+            storageProvider instanceof StorageProviderBase) {
+            SpaceStatsTracker tracker =
+                spaceStatsCache.getTracker(storageAccountManager.getAccountName(),
+                                           storageAccountId);
+            ((StorageProviderBase) storageProvider).setSpaceStatsTracker(tracker);
+            auditProvider.setSpaceStatsTracker(tracker);
+        }
+
         StorageProvider aclProvider = new ACLStorageProvider(auditProvider, notifier, contextUtil);
         StorageProvider brokeredProvider =
             new BrokeredStorageProvider(statelessProvider,
@@ -293,4 +366,17 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
         storageProviders.remove(storageAccountId);
     }
 
+    /**
+     * Stops the audit task publisher, after publishing its buffered tasks.
+     * Called when the factory is no longer needed. Tasks audited by
+     * transfers still in progress are published by the transferring thread.
+     * The multipart transfer threads of the storage providers are left to
+     * time out once idle, so that those transfers are able to complete.
+     */
+    public void shutdown() {
+        if (null != auditPublisher) {
+            auditPublisher.shutdown();
+        }
+    }
+
 }
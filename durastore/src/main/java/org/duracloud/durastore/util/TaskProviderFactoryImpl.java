@@ -7,6 +7,7 @@
  */
 package org.duracloud.durastore.util;
 
+import java.io.File;
 import java.util.Map;
 
 import com.amazonaws.services.cloudfront.AmazonCloudFrontClient;
@@ -40,6 +41,8 @@ import org.duracloud.swifttask.SwiftTaskProvider;
 public class TaskProviderFactoryImpl extends ProviderFactoryBase
     implements TaskProviderFactory {
 
+    protected static final String SNAPSHOT_CLEANUP_DIR = "snapshot-cleanup";
+
     private StorageProviderFactory storageProviderFactory;
     private ManifestStore manifestStore;
 
@@ -149,7 +152,8 @@ public class TaskProviderFactoryImpl extends ProviderFactoryBase
                                                     bridgePass,
                                                     bridgeMemberId,
                                                     this.storageProviderFactory.getAuditQueue(),
-                                                    this.manifestStore);
+                                                    this.manifestStore,
+                                                    getCleanupCheckpointDir(dcAccountName));
         } else {
             throw new TaskException("No TaskProvider is available for " + type);
         }
@@ -157,4 +161,17 @@ public class TaskProviderFactoryImpl extends ProviderFactoryBase
         return taskProvider;
     }
 
+    /*
+     * Snapshot cleanup progress is recorded alongside the DuraStore logs,
+     * in a directory for each account
+     */
+    private File getCleanupCheckpointDir(String accountName) {
+        String home = System.getProperty(AuditConfigBuilder.DURACLOUD_HOME);
+        if (null == home) {
+            return null;
+        }
+        File dir = new File(home, SNAPSHOT_CLEANUP_DIR);
+        return null == accountName ? dir : new File(dir, accountName);
+    }
+
 }
\ No newline at end of file
@@ -13,11 +13,14 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.isA;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -25,12 +28,12 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
 import org.duracloud.common.constant.Constants;
 import org.duracloud.common.constant.ManifestFormat;
-import org.duracloud.common.util.IOUtil;
 import org.duracloud.manifest.error.ManifestArgumentException;
 import org.duracloud.manifest.error.ManifestNotFoundException;
 import org.duracloud.storage.domain.StorageAccount;
@@ -85,12 +88,41 @@ public class ManifestRestTest extends EasyMockSupport {
     @Test
     public void getManifestSync() throws Exception {
         String format = ManifestFormat.TSV.name();
-        expectGetManifest(format);
+        expectStreamManifest(format, false);
+        expect(request.getHeader(HttpHeaders.ACCEPT_ENCODING)).andReturn(null);
+        setupAccountId();
+        replayAll();
+        Response response = rest.getManifest(spaceId, format, storeId);
+        StreamingOutput output = (StreamingOutput) response.getEntity();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        output.write(bytes);
+        assertEquals(testContent, bytes.toString(StandardCharsets.UTF_8.name()));
+        assertNull(response.getMetadata().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void getManifestGzip() throws Exception {
+        String format = ManifestFormat.TSV.name();
+        expectStreamManifest(format, true);
+        expect(request.getHeader(HttpHeaders.ACCEPT_ENCODING))
+            .andReturn("deflate, gzip;q=0.8");
         setupAccountId();
         replayAll();
         Response response = rest.getManifest(spaceId, format, storeId);
-        InputStream is = (InputStream) response.getEntity();
-        assertEquals(testContent, IOUtil.readStringFromStream(is));
+        assertEquals("gzip", response.getMetadata().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING,
+                     response.getMetadata().getFirst(HttpHeaders.VARY));
+    }
+
+    @Test
+    public void getManifestGzipRefused() throws Exception {
+        String format = ManifestFormat.TSV.name();
+        expectStreamManifest(format, false);
+        expect(request.getHeader(HttpHeaders.ACCEPT_ENCODING)).andReturn("gzip;q=0");
+        setupAccountId();
+        replayAll();
+        Response response = rest.getManifest(spaceId, format, storeId);
+        assertNull(response.getMetadata().getFirst(HttpHeaders.CONTENT_ENCODING));
     }
 
     @Test
@@ -160,6 +192,14 @@ public class ManifestRestTest extends EasyMockSupport {
             });
     }
 
+    protected void expectStreamManifest(String format, boolean gzip)
+        throws ManifestArgumentException,
+        ManifestNotFoundException {
+        StreamingOutput output = out -> out.write(testContent.getBytes(StandardCharsets.UTF_8));
+        expect(resource.streamManifest(account, storeId, spaceId, format, gzip))
+            .andReturn(output);
+    }
+
     protected void setupAccountId() {
         expect(request.getAttribute(Constants.ACCOUNT_ID_ATTRIBUTE)).andReturn(account);
     }
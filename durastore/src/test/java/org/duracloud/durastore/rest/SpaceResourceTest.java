@@ -0,0 +1,121 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.durastore.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.duracloud.durastore.error.ResourceNotFoundException;
+import org.duracloud.storage.error.NotFoundException;
+import org.duracloud.storage.provider.StorageProvider;
+import org.duracloud.storage.util.StorageProviderFactory;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpaceResourceTest {
+
+    private static final String spaceId = "space-id";
+    private static final String storeId = "store-id";
+
+    private StorageProviderFactory storageProviderFactory;
+    private StorageProvider storageProvider;
+    private SpaceResource spaceResource;
+
+    @Before
+    public void setUp() {
+        storageProviderFactory = EasyMock.createMock("StorageProviderFactory",
+                                                     StorageProviderFactory.class);
+        storageProvider = EasyMock.createMock("StorageProvider",
+                                              StorageProvider.class);
+        EasyMock.expect(storageProviderFactory.getStorageProvider(storeId))
+                .andReturn(storageProvider);
+        spaceResource = new SpaceResource(storageProviderFactory);
+    }
+
+    @After
+    public void tearDown() {
+        EasyMock.verify(storageProviderFactory, storageProvider);
+    }
+
+    private void replayMocks() {
+        EasyMock.replay(storageProviderFactory, storageProvider);
+    }
+
+    @Test
+    public void testGetSpaceContents() throws Exception {
+        long maxResults = StorageProvider.DEFAULT_MAX_RESULTS + 3;
+
+        // Provider returns short pages, which are combined up to maxResults
+        List<String> page1 = Arrays.asList("a", "b&c");
+        List<String> page2 = new ArrayList<>();
+        for (int i = 0; i < StorageProvider.DEFAULT_MAX_RESULTS; i++) {
+            page2.add("item-" + i);
+        }
+
+        EasyMock.expect(storageProvider.getSpaceContentsChunked(
+            spaceId, null, StorageProvider.DEFAULT_MAX_RESULTS, null)).andReturn(page1);
+        EasyMock.expect(storageProvider.getSpaceContentsChunked(
+            spaceId, null, StorageProvider.DEFAULT_MAX_RESULTS, "b&c")).andReturn(page2);
+        EasyMock.expect(storageProvider.getSpaceContentsChunked(
+            spaceId, null, 1, "item-" + (StorageProvider.DEFAULT_MAX_RESULTS - 1)))
+                .andReturn(Arrays.asList("x"));
+        replayMocks();
+
+        StreamingOutput output =
+            spaceResource.getSpaceContents(spaceId, storeId, null, maxResults, null);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        output.write(bytes);
+        String xml = bytes.toString(StandardCharsets.UTF_8.name());
+
+        assertEquals(maxResults, xml.split("<item>").length - 1);
+        assertTrue(xml.contains("<space id=\"space-id\"><item>a</item><item>b&amp;c</item>"));
+        assertTrue(xml.endsWith("<item>x</item></space>"));
+    }
+
+    @Test
+    public void testGetSpaceContentsEmpty() throws Exception {
+        EasyMock.expect(storageProvider.getSpaceContentsChunked(
+            spaceId, "prefix", 10, null)).andReturn(Collections.emptyList());
+        replayMocks();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        spaceResource.getSpaceContents(spaceId, storeId, "prefix", 10, null)
+                     .write(bytes);
+        String xml = bytes.toString(StandardCharsets.UTF_8.name());
+        assertTrue(xml.contains("<space id=\"space-id\""));
+        assertFalse(xml.contains("<item>"));
+    }
+
+    @Test
+    public void testGetSpaceContentsNotFound() throws Exception {
+        EasyMock.expect(storageProvider.getSpaceContentsChunked(
+            spaceId, null, StorageProvider.DEFAULT_MAX_RESULTS, null))
+                .andThrow(new NotFoundException("not found"));
+        replayMocks();
+
+        try {
+            spaceResource.getSpaceContents(spaceId, storeId, null, 0, null);
+            fail("Exception expected");
+        } catch (ResourceNotFoundException e) {
+            // Expected
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.durastore.util;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.duracloud.mill.db.repo.JpaManifestItemRepo;
+import org.duracloud.storage.domain.SpaceStats;
+import org.duracloud.storage.provider.SpaceStatsTracker;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpaceStatsCacheTest {
+
+    private static final String account = "account";
+    private static final String storeId = "store-id";
+    private static final String spaceId = "space-id";
+
+    private JpaManifestItemRepo repo;
+    private SpaceStatsCache cache;
+    private SpaceStatsTracker tracker;
+
+    @Before
+    public void setUp() {
+        repo = createMock("JpaManifestItemRepo", JpaManifestItemRepo.class);
+        cache = new SpaceStatsCache(repo);
+        tracker = cache.getTracker(account, storeId);
+    }
+
+    @After
+    public void tearDown() {
+        verify(repo);
+        cache.shutdown();
+    }
+
+    private void expectStats(long count, long bytes) {
+        expect(repo.getStorageStatsByAccountAndStoreIdAndSpaceId(account, storeId, spaceId))
+            .andReturn(new Object[] {new Object[] {BigInteger.valueOf(count),
+                                                   BigDecimal.valueOf(bytes)}});
+    }
+
+    @Test
+    public void testGetSpaceStats() {
+        expectStats(1500, 2048);
+        replay(repo);
+
+        SpaceStats stats = tracker.getSpaceStats(spaceId);
+        Assert.assertEquals(1500, stats.getItemCount());
+        Assert.assertEquals(2048, stats.getByteCount());
+
+        // The manifest is read once
+        Assert.assertSame(stats, tracker.getSpaceStats(spaceId));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testGetSpaceStatsNotInManifest() {
+        expect(repo.getStorageStatsByAccountAndStoreIdAndSpaceId(account, storeId, spaceId))
+            .andReturn(new Object[] {0L, null});
+        replay(repo);
+
+        Assert.assertNull(tracker.getSpaceStats(spaceId));
+    }
+
+    @Test
+    public void testGetSpaceStatsFailure() {
+        expect(repo.getStorageStatsByAccountAndStoreIdAndSpaceId(account, storeId, spaceId))
+            .andThrow(new RuntimeException("database unavailable"));
+        expectStats(10, 100);
+        replay(repo);
+
+        Assert.assertNull(tracker.getSpaceStats(spaceId));
+        // The failure is not cached
+        Assert.assertEquals(10, tracker.getSpaceStats(spaceId).getItemCount());
+    }
+
+    @Test
+    public void testRefreshAfterChange() throws Exception {
+        expectStats(10, 100);
+        expectStats(11, 150);
+        replay(repo);
+        cache.setMinAgeMillis(0);
+
+        Assert.assertEquals(10, tracker.getSpaceStats(spaceId).getItemCount());
+        Thread.sleep(5);
+        // Unchanged stats are not refreshed before the maximum age
+        Assert.assertEquals(10, tracker.getSpaceStats(spaceId).getItemCount());
+
+        tracker.spaceChanged(spaceId);
+        Thread.sleep(5);
+        // The stats are refreshed in the background
+        Assert.assertEquals(10, tracker.getSpaceStats(spaceId).getItemCount());
+        long count = 0;
+        for (int i = 0; i < 100 && count != 11; i++) {
+            Thread.sleep(10);
+            count = tracker.getSpaceStats(spaceId).getItemCount();
+        }
+        Assert.assertEquals(11, count);
+        Assert.assertEquals(150, tracker.getSpaceStats(spaceId).getByteCount());
+    }
+
+    @Test
+    public void testSpaceDeleted() {
+        expectStats(10, 100);
+        expectStats(0, 0);
+        replay(repo);
+
+        Assert.assertNotNull(tracker.getSpaceStats(spaceId));
+        tracker.spaceDeleted(spaceId);
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNull(tracker.getSpaceStats(spaceId));
+    }
+
+    @Test
+    public void testMaxSize() {
+        for (int i = 0; i < 3; i++) {
+            expect(repo.getStorageStatsByAccountAndStoreIdAndSpaceId(account, storeId, spaceId + i))
+                .andReturn(new Object[] {1L, 1L});
+        }
+        replay(repo);
+        cache.setMaxSize(2);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertNotNull(tracker.getSpaceStats(spaceId + i));
+        }
+        Assert.assertEquals(2, cache.size());
+    }
+
+}
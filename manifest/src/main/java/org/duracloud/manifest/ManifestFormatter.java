@@ -7,7 +7,9 @@
  */
 package org.duracloud.manifest;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Writer;
 import java.text.ParseException;
 
 import org.duracloud.mill.db.model.ManifestItem;
@@ -26,6 +28,16 @@ public interface ManifestFormatter {
      */
     public void writeManifestItemToOutput(ManifestItem item, OutputStream outputStream);
 
+    /**
+     * Writes the item (preceded by the header, if it has not yet been written)
+     * to the writer. The writer is expected to be buffered, it is not flushed.
+     *
+     * @param item   to write, null items are ignored
+     * @param writer destination of formatted items
+     * @throws IOException if the item cannot be written
+     */
+    public void writeManifestItem(ManifestItem item, Writer writer) throws IOException;
+
     /**
      * Returns the header if there is one, otherwise null.
      *
@@ -40,4 +40,23 @@ public interface ManifestGenerator {
                                    ManifestFormat format)
         throws ManifestArgumentException, ManifestNotFoundException;
 
+    /**
+     * This method validates the given args and provides a writer which
+     * streams the manifest directly to an output stream, without the hand-off
+     * through a pipe required by {@link #getManifest}.
+     *
+     * @param account of manifest items
+     * @param storeId of manifest items
+     * @param spaceId of manifest items
+     * @param format  of manifest
+     * @return {@link ManifestWriter} of manifest content
+     * @throws ManifestArgumentException if format or date are invalid
+     * @throws ManifestNotFoundException if no manifest is created
+     */
+    public ManifestWriter getManifestWriter(String account,
+                                            String storeId,
+                                            String spaceId,
+                                            ManifestFormat format)
+        throws ManifestArgumentException, ManifestNotFoundException;
+
 }
@@ -0,0 +1,29 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.manifest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a manifest which has already been validated by the
+ * {@link ManifestGenerator} to an output stream.
+ */
+public interface ManifestWriter {
+
+    /**
+     * Writes the manifest to the output. The output is flushed, but not
+     * closed. If the output cannot be written to (for example, because the
+     * client has disconnected), the retrieval of manifest items is cancelled.
+     *
+     * @param output destination of the manifest
+     * @throws IOException if the manifest cannot be written to the output
+     */
+    public void write(OutputStream output) throws IOException;
+
+}
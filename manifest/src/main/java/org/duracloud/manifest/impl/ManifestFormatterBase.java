@@ -9,6 +9,7 @@ package org.duracloud.manifest.impl;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
 import org.apache.commons.io.IOUtils;
@@ -37,6 +38,22 @@ public abstract class ManifestFormatterBase implements ManifestFormatter {
         }
     }
 
+    @Override
+    public void writeManifestItem(ManifestItem item, Writer writer)
+        throws IOException {
+        String header = getHeader();
+        if (null != header && !headerWasWritten) {
+            writer.write(header);
+            writer.write('\n');
+            headerWasWritten = true;
+        }
+
+        if (item != null) {
+            writer.write(formatLine(item));
+            writer.write('\n');
+        }
+    }
+
     protected void writeHeader(OutputStream output) {
         String header = getHeader();
         if (null != header && !headerWasWritten) {
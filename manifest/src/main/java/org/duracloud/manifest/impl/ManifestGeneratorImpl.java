@@ -7,16 +7,27 @@
  */
 package org.duracloud.manifest.impl;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
 import org.duracloud.common.constant.ManifestFormat;
+import org.duracloud.common.stream.FailablePipedInputStream;
 import org.duracloud.manifest.ManifestFormatter;
 import org.duracloud.manifest.ManifestGenerator;
+import org.duracloud.manifest.ManifestWriter;
 import org.duracloud.manifest.error.ManifestArgumentException;
 import org.duracloud.manifest.error.ManifestGeneratorException;
 import org.duracloud.manifest.error.ManifestNotFoundException;
@@ -33,16 +44,59 @@ import org.slf4j.LoggerFactory;
  * @author Daniel Bernstein Date: Sept. 16, 2014
  */
 public class ManifestGeneratorImpl implements ManifestGenerator {
+
+    public static final int DEFAULT_THREADS = 10;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final int PREFETCH_BATCHES = 4;
+    private static final int PIPE_SIZE = 64 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private ManifestStore manifestStore;
     private StorageProviderFactory storageProviderFactory;
+    private ThreadPoolExecutor executor;
+    private int batchSize = DEFAULT_BATCH_SIZE;
     private static Logger log =
         LoggerFactory.getLogger(ManifestGeneratorImpl.class);
 
     public ManifestGeneratorImpl(ManifestStore manifestStore,
                                  StorageProviderFactory storageProviderFactory) {
+        this(manifestStore, storageProviderFactory, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param threads the number of manifests which may be generated at once,
+     *                further requests wait for a thread (up to a limit, after
+     *                which they are rejected)
+     */
+    public ManifestGeneratorImpl(ManifestStore manifestStore,
+                                 StorageProviderFactory storageProviderFactory,
+                                 int threads) {
         super();
         this.manifestStore = manifestStore;
         this.storageProviderFactory = storageProviderFactory;
+        this.executor = createExecutor(Math.max(1, threads));
+    }
+
+    private ThreadPoolExecutor createExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("manifest-generator-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                      new ArrayBlockingQueue<>(threads * 10),
+                                      threadFactory);
+    }
+
+    /**
+     * @param batchSize the number of manifest items read from the manifest
+     *                  store at a time when streaming a manifest
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
     }
 
     @Override
@@ -61,7 +115,8 @@ public class ManifestGeneratorImpl implements ManifestGenerator {
 
             storeId = validateStoreId(storeId);
             validateSpaceId(storeId, spaceId);
-            PipedInputStream is = new PipedInputStream(10 * 1024);
+            final FailablePipedInputStream is =
+                new FailablePipedInputStream(PIPE_SIZE, "Manifest generation");
             final PipedOutputStream os = new PipedOutputStream(is);
             final Iterator<ManifestItem> it =
                 this.manifestStore.getItems(account, storeId, spaceId);
@@ -69,29 +124,9 @@ public class ManifestGeneratorImpl implements ManifestGenerator {
             if (!it.hasNext()) {
                 formatter.writeManifestItemToOutput(null, os);
                 os.close();
-                return is;
             } else {
-
-                new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            while (it.hasNext()) {
-                                formatter.writeManifestItemToOutput(it.next(), os);
-                            }
-                            try {
-                                os.close();
-                            } catch (IOException e) {
-                                log.error("failed to close piped output stream : " + e.getMessage(), e);
-                            }
-
-                        } catch (Exception e) {
-                            log.error("error writing to piped output stream : " + e.getMessage(), e);
-                        }
-                    }
-                }).start();
+                executor.execute(() -> writeToPipe(it, formatter, os, is));
             }
-
             return is;
 
         } catch (IOException | RuntimeException ex) {
@@ -101,6 +136,87 @@ public class ManifestGeneratorImpl implements ManifestGenerator {
 
     }
 
+    @Override
+    public ManifestWriter getManifestWriter(String account,
+                                            String storeId,
+                                            String spaceId,
+                                            ManifestFormat format)
+        throws ManifestArgumentException, ManifestNotFoundException {
+
+        log.info("streaming manifest for account:{}, storeId:{}, spaceId:{}, format:{}",
+                 account,
+                 storeId,
+                 spaceId,
+                 format);
+        final String validStoreId = validateStoreId(storeId);
+        validateSpaceId(validStoreId, spaceId);
+        final ManifestFormatter formatter = getFormatter(format);
+        return output -> streamManifest(account, validStoreId, spaceId, formatter, output);
+    }
+
+    /*
+     * Items are read from the manifest store by a task on the executor, and
+     * formatted on the calling thread. The task stops reading when the
+     * calling thread falls behind, and stops entirely if the output fails.
+     */
+    private void streamManifest(String account,
+                                String storeId,
+                                String spaceId,
+                                ManifestFormatter formatter,
+                                OutputStream output) throws IOException {
+        ManifestItemPrefetcher items =
+            new ManifestItemPrefetcher(batchSize, PREFETCH_BATCHES);
+        executor.execute(
+            () -> items.fill(() -> manifestStore.getItems(account, storeId, spaceId)));
+        try {
+            Writer writer = new BufferedWriter(
+                new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writeItems(items, formatter, writer);
+            writer.flush();
+        } catch (IOException e) {
+            log.warn("stopped streaming manifest for account:{}, storeId:{}, " +
+                     "spaceId:{} : {}", account, storeId, spaceId, e.getMessage());
+            throw e;
+        } finally {
+            items.cancel();
+        }
+    }
+
+    private void writeToPipe(Iterator<ManifestItem> items,
+                             ManifestFormatter formatter,
+                             PipedOutputStream os,
+                             FailablePipedInputStream is) {
+        Writer writer = new BufferedWriter(
+            new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE);
+        try {
+            try {
+                writeItems(items, formatter, writer);
+            } finally {
+                // Provide the items which were written before any failure
+                writer.flush();
+            }
+        } catch (Exception e) {
+            log.error("error writing to piped output stream : " + e.getMessage(), e);
+            is.fail(e);
+        } finally {
+            try {
+                os.close();
+            } catch (IOException e) {
+                log.error("failed to close piped output stream : " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void writeItems(Iterator<ManifestItem> items,
+                            ManifestFormatter formatter,
+                            Writer writer) throws IOException {
+        // Ensures the header is written for empty manifests
+        formatter.writeManifestItem(null, writer);
+        while (items.hasNext()) {
+            formatter.writeManifestItem(items.next(), writer);
+        }
+    }
+
     protected void validateSpaceId(String storeId, String spaceId)
         throws ManifestNotFoundException {
         StorageProvider store =
@@ -154,4 +270,12 @@ public class ManifestGeneratorImpl implements ManifestGenerator {
         return factory.create(format);
     }
 
+    /**
+     * Stops the threads which generate manifests, waiting for those being
+     * generated to complete.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
 }
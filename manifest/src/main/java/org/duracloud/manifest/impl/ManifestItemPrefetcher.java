@@ -0,0 +1,140 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.manifest.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.duracloud.manifest.error.ManifestGeneratorException;
+import org.duracloud.mill.db.model.ManifestItem;
+
+/**
+ * Reads manifest items in batches on one thread (by calling fill()) and
+ * provides them to another thread (which iterates over this object). At most
+ * a fixed number of batches are held, so reading stops when the items are
+ * not being consumed. Reading also stops when the iteration is cancelled.
+ */
+class ManifestItemPrefetcher implements Iterator<ManifestItem> {
+
+    private static final long OFFER_WAIT_MILLIS = 100;
+
+    // Marks the end of the items, compared by identity
+    private final List<ManifestItem> end = new ArrayList<>(0);
+
+    private final BlockingQueue<List<ManifestItem>> batches;
+    private final int batchSize;
+    private volatile boolean cancelled = false;
+    private volatile Exception failure;
+    private Iterator<ManifestItem> current = Collections.emptyIterator();
+    private boolean done = false;
+
+    /**
+     * @param batchSize the number of items read in each batch
+     * @param capacity  the number of batches which may be held
+     */
+    ManifestItemPrefetcher(int batchSize, int capacity) {
+        this.batchSize = Math.max(1, batchSize);
+        this.batches = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Reads all items, blocking while the maximum number of batches are held.
+     *
+     * @param source provides the items to read
+     */
+    void fill(Supplier<Iterator<ManifestItem>> source) {
+        try {
+            Iterator<ManifestItem> items = source.get();
+            List<ManifestItem> batch = new ArrayList<>(batchSize);
+            while (!cancelled && items.hasNext()) {
+                batch.add(items.next());
+                if (batch.size() == batchSize) {
+                    offer(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                offer(batch);
+            }
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            try {
+                offer(end);
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops reading items. Batches which have been read are discarded.
+     */
+    void cancel() {
+        cancelled = true;
+        batches.clear();
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void offer(List<ManifestItem> batch) throws InterruptedException {
+        while (!cancelled) {
+            if (batches.offer(batch, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (done) {
+                return false;
+            }
+
+            List<ManifestItem> batch;
+            try {
+                batch = batches.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManifestGeneratorException(
+                    "Interrupted while waiting for manifest items", e);
+            }
+
+            if (batch == end) {
+                done = true;
+                if (null != failure) {
+                    throw new ManifestGeneratorException(
+                        "Unable to read manifest items: " + failure.getMessage(),
+                        failure);
+                }
+            }
+            current = batch.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public ManifestItem next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+}
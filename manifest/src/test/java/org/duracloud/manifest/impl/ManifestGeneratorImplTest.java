@@ -10,21 +10,29 @@ package org.duracloud.manifest.impl;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.duracloud.common.constant.ManifestFormat;
+import org.duracloud.manifest.ManifestWriter;
 import org.duracloud.manifest.error.ManifestArgumentException;
+import org.duracloud.manifest.error.ManifestGeneratorException;
 import org.duracloud.manifest.error.ManifestNotFoundException;
 import org.duracloud.mill.db.model.ManifestItem;
 import org.duracloud.mill.manifest.ManifestStore;
@@ -172,6 +180,163 @@ public class ManifestGeneratorImplTest extends AbstractTestBase {
         }
     }
 
+    @Test
+    public void testStreamManifest() throws Exception {
+        int count = 25;
+        List<ManifestItem> list = new LinkedList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(createManifestItem(i));
+        }
+        List<String> threads = new CopyOnWriteArrayList<>();
+        expect(store.getItems(eq(account), eq(storeId), eq(spaceId)))
+            .andAnswer(() -> {
+                threads.add(Thread.currentThread().getName());
+                return list.iterator();
+            });
+        mockStorageProviderFactory();
+
+        replayAll();
+        generator = new ManifestGeneratorImpl(store, storageProviderFactory, 2);
+        generator.setBatchSize(10);
+        ManifestWriter writer =
+            generator.getManifestWriter(account, storeId, spaceId, ManifestFormat.TSV);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.write(output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(count + 1, lines.length);
+        assertEquals(new TsvManifestFormatter().getHeader(), lines[0]);
+        for (int i = 0; i < count; i++) {
+            assertTrue(lines[i + 1].contains("content-" + i));
+        }
+        assertEquals(1, threads.size());
+        assertTrue(threads.get(0).startsWith("manifest-generator-"));
+    }
+
+    @Test
+    public void testStreamEmptyManifest() throws Exception {
+        expect(store.getItems(eq(account), eq(storeId), eq(spaceId)))
+            .andReturn(new LinkedList<ManifestItem>().iterator());
+        mockStorageProviderFactory();
+
+        replayAll();
+        generator = new ManifestGeneratorImpl(store, storageProviderFactory);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        generator.getManifestWriter(account, storeId, spaceId, ManifestFormat.TSV)
+                 .write(output);
+
+        assertEquals(new TsvManifestFormatter().getHeader() + "\n",
+                     output.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    public void testStreamManifestDisconnect() throws Exception {
+        // Provides items until the stream is cancelled
+        AtomicInteger read = new AtomicInteger(0);
+        Iterator<ManifestItem> it = new Iterator<ManifestItem>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public ManifestItem next() {
+                return createManifestItem(read.incrementAndGet());
+            }
+        };
+        expect(store.getItems(eq(account), eq(storeId), eq(spaceId))).andReturn(it);
+        mockStorageProviderFactory();
+
+        // The client disconnects once the first part has been written
+        OutputStream output = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        replayAll();
+        generator = new ManifestGeneratorImpl(store, storageProviderFactory);
+        generator.setBatchSize(10);
+        ManifestWriter writer =
+            generator.getManifestWriter(account, storeId, spaceId, ManifestFormat.TSV);
+        try {
+            writer.write(output);
+            fail("expected exception to be thrown when the output fails");
+        } catch (IOException e) {
+            assertEquals("Broken pipe", e.getMessage());
+        }
+
+        // Reading stops shortly after the output fails
+        int lastRead = -1;
+        for (int i = 0; i < 50 && lastRead != read.get(); i++) {
+            lastRead = read.get();
+            Thread.sleep(250);
+        }
+        assertEquals(lastRead, read.get());
+        assertTrue("read " + lastRead, lastRead < 100000);
+    }
+
+    @Test
+    public void testStreamManifestIteratorFailure() throws Exception {
+        Iterator<ManifestItem> it = createMock(Iterator.class);
+        expect(it.hasNext()).andReturn(true).times(2);
+        expect(it.next()).andReturn(createManifestItem(1));
+        expect(it.next()).andThrow(new RuntimeException("exception"));
+        expect(store.getItems(eq(account), eq(storeId), eq(spaceId))).andReturn(it);
+        mockStorageProviderFactory();
+
+        replayAll();
+        generator = new ManifestGeneratorImpl(store, storageProviderFactory);
+        ManifestWriter writer =
+            generator.getManifestWriter(account, storeId, spaceId, ManifestFormat.TSV);
+        try {
+            writer.write(new ByteArrayOutputStream());
+            fail("expected exception to be thrown when items cannot be read");
+        } catch (ManifestGeneratorException e) {
+            assertTrue(e.getMessage().contains("exception"));
+        }
+    }
+
+    @Test
+    public void testPrefetcherBackPressure() throws Exception {
+        replayAll();
+        ManifestItemPrefetcher prefetcher = new ManifestItemPrefetcher(2, 2);
+        AtomicInteger read = new AtomicInteger(0);
+        Iterator<ManifestItem> it = new Iterator<ManifestItem>() {
+            @Override
+            public boolean hasNext() {
+                return read.get() < 100;
+            }
+
+            @Override
+            public ManifestItem next() {
+                return createManifestItem(read.incrementAndGet());
+            }
+        };
+        Thread filler = new Thread(() -> prefetcher.fill(() -> it));
+        filler.start();
+
+        // Two batches are held, and a third is waiting to be added
+        Thread.sleep(200);
+        assertEquals(6, read.get());
+        assertEquals("content-1", prefetcher.next().getContentId());
+
+        prefetcher.cancel();
+        filler.join(5000);
+        assertFalse(filler.isAlive());
+        assertTrue(prefetcher.isCancelled());
+        assertTrue(read.get() < 100);
+    }
+
+    private ManifestItem createManifestItem(int index) {
+        ManifestItem item = new ManifestItem();
+        item.setSpaceId(spaceId);
+        item.setContentId("content-" + index);
+        item.setContentChecksum("checksum-" + index);
+        return item;
+    }
+
     protected ManifestItem createMockManifestItem() {
         ManifestItem item = createMock(ManifestItem.class);
         expect(item.getContentChecksum()).andReturn("checksum");
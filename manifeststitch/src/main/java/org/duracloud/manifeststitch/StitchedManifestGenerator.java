@@ -9,22 +9,37 @@ package org.duracloud.manifeststitch;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.io.input.AutoCloseInputStream;
 import org.duracloud.chunk.manifest.ChunksManifest;
 import org.duracloud.chunk.manifest.ChunksManifestBean.ManifestHeader;
 import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.constant.ManifestFormat;
 import org.duracloud.common.error.DuraCloudRuntimeException;
+import org.duracloud.common.stream.FailablePipedInputStream;
 import org.duracloud.domain.Content;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.manifest.ManifestFormatter;
@@ -39,67 +54,236 @@ import org.slf4j.LoggerFactory;
  * out all chunks, and 3) reading and parsing from any *.dura-manifest files the
  * checksum of the stitched file.
  *
+ * The manifest is stitched in a single pass as it is read, and the stitched
+ * lines are provided as soon as they are available. The *.dura-manifest files
+ * are read by a bounded pool of threads, while the lines of the stitched
+ * manifest remain in the order of the original manifest. The pool is shared
+ * by all manifests stitched by the generator, and also runs the stitching of
+ * manifests provided as streams. It is stopped by shutdown().
+ *
  * @author Daniel Bernstein Date: 08/28/2015
  */
 public class StitchedManifestGenerator {
+
+    public static final int DEFAULT_THREADS = 4;
+
+    // The number of lines which may be waiting on each thread
+    private static final int PENDING_LINES_PER_THREAD = 16;
+    private static final int PIPE_SIZE = 64 * 1024;
+
     private Logger log =
         LoggerFactory.getLogger(StitchedManifestGenerator.class);
     private ContentStore store;
+    private int threads;
+    private ThreadPoolExecutor executor;
+    private Map<String, ManifestItem> cache;
 
     public StitchedManifestGenerator(ContentStore store) {
+        this(store, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param store   from which the manifest and chunk manifests are read
+     * @param threads the number of threads used to stitch manifests and read
+     *                chunk manifests
+     */
+    public StitchedManifestGenerator(ContentStore store, int threads) {
         this.store = store;
+        this.threads = Math.max(1, threads);
+        this.executor = createExecutor(this.threads);
     }
 
-    public InputStream generate(String spaceId, ManifestFormat format) throws IOException {
+    private ThreadPoolExecutor createExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "manifest-stitch-" +
+                                                 threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor =
+            new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                   new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 
-        final File stitchedManifestFile =
-            File.createTempFile("stitched-manifest-" + spaceId,
-                                "." + format.name().toLowerCase());
-        //download manifest and process each line.
-        try (InputStream manifest = store.getManifest(spaceId, format);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(manifest));
-             BufferedWriter writer =
-                 new BufferedWriter(new OutputStreamWriter(new FileOutputStream(stitchedManifestFile)));) {
-            ManifestFormatter formatter = new ManifestFormatterFactory().create(format);
-            String header = formatter.getHeader();
-            String line = null;
-            try {
-                while ((line = reader.readLine()) != null) {
-                    //ignore any whitespace
-                    if (line.trim().length() == 0) {
-                        continue;
-                    }
+    /**
+     * Sets a cache of the items described by chunk manifests, so that chunk
+     * manifests which have not changed need not be read again when a space is
+     * stitched repeatedly. Items are cached by space, content ID and checksum
+     * of the chunk manifest. The cache must be thread-safe.
+     *
+     * @param cache of stitched items, null for no cache
+     */
+    public void setCache(Map<String, ManifestItem> cache) {
+        this.cache = cache;
+    }
 
-                    //write header if there is one.
-                    if (header != null && line.equals(header)) {
-                        writeLine(line, writer);
-                        continue;
-                    }
+    /**
+     * Provides the stitched manifest as it is generated. If the manifest
+     * cannot be completely stitched, reading from the stream fails once the
+     * lines which were stitched have been read.
+     *
+     * @param spaceId of the manifest
+     * @param format  of the manifest
+     * @return the stitched manifest
+     * @throws IOException if the manifest cannot be retrieved, or the
+     *                     generator has been shut down
+     */
+    public InputStream generate(String spaceId, ManifestFormat format) throws IOException {
+        final InputStream manifest = getManifest(spaceId, format);
+        final FailablePipedInputStream stitched =
+            new FailablePipedInputStream(PIPE_SIZE, "Manifest stitching");
+        final PipedOutputStream output = new PipedOutputStream(stitched);
 
-                    //process the line
-                    processLine(line, formatter, writer);
-                }
+        try {
+            executor.execute(() -> writeToPipe(spaceId, manifest, format, output, stitched));
+        } catch (RejectedExecutionException e) {
+            manifest.close();
+            throw new IOException("manifest stitching has been shut down", e);
+        }
+        return stitched;
+    }
+
+    private void writeToPipe(String spaceId,
+                             InputStream manifest,
+                             ManifestFormat format,
+                             PipedOutputStream output,
+                             FailablePipedInputStream stitched) {
+        try {
+            stitch(spaceId, manifest, format, output);
+        } catch (Exception e) {
+            log.error("failed to complete manifest stitching for space " +
+                      spaceId + ": " + e.getMessage(), e);
+            stitched.fail(e);
+        } finally {
+            try {
+                output.close();
             } catch (IOException e) {
-                log.error("failed to complete manifest stiching.", e);
+                log.warn("failed to close stitched manifest: " + e.getMessage());
             }
+        }
+    }
+
+    /**
+     * Writes the stitched manifest to the output as it is generated. The
+     * output is flushed, but not closed.
+     *
+     * @param spaceId of the manifest
+     * @param format  of the manifest
+     * @param output  destination of the stitched manifest
+     * @throws IOException if the manifest cannot be retrieved or stitched, or
+     *                     the output cannot be written
+     */
+    public void generate(String spaceId,
+                         ManifestFormat format,
+                         OutputStream output) throws IOException {
+        stitch(spaceId, getManifest(spaceId, format), format, output);
+    }
+
+    private InputStream getManifest(String spaceId, ManifestFormat format)
+        throws IOException {
+        try {
+            return store.getManifest(spaceId, format);
         } catch (ContentStoreException e) {
             log.error("failed to generate stitched manifest: " + e.getMessage(), e);
             throw new IOException(e);
         }
+    }
+
+    private void stitch(String spaceId,
+                        InputStream manifest,
+                        ManifestFormat format,
+                        OutputStream output) throws IOException {
+        ManifestFormatter formatter = new ManifestFormatterFactory().create(format);
+        String header = formatter.getHeader();
+        int maxPendingLines = threads * PENDING_LINES_PER_THREAD;
+        Deque<Future<String>> pendingLines = new ArrayDeque<>();
+
+        try (BufferedReader reader =
+                 new BufferedReader(new InputStreamReader(manifest, StandardCharsets.UTF_8))) {
+            BufferedWriter writer =
+                new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            String line = null;
+            while ((line = reader.readLine()) != null) {
+                //ignore any whitespace
+                if (line.trim().length() == 0) {
+                    continue;
+                }
 
-        return new AutoCloseInputStream.Builder().setInputStream(new FileInputStream(stitchedManifestFile) {
-            @Override
-            public void close() throws IOException {
-                super.close();
-                stitchedManifestFile.delete();
+                Future<String> stitchedLine;
+                if (header != null && line.equals(header)) {
+                    stitchedLine = CompletableFuture.completedFuture(line);
+                } else {
+                    stitchedLine = processLine(line, formatter);
+                    if (null == stitchedLine) {
+                        continue;
+                    }
+                }
+
+                pendingLines.add(stitchedLine);
+                writeCompletedLines(pendingLines, maxPendingLines, writer);
+            }
+
+            writeCompletedLines(pendingLines, 0, writer);
+            writer.flush();
+        } finally {
+            for (Future<String> pendingLine : pendingLines) {
+                pendingLine.cancel(true);
             }
-        }).get();
+        }
     }
 
-    private void processLine(String line,
-                             ManifestFormatter formatter,
-                             BufferedWriter writer)
-        throws IOException, ContentStoreException {
+    /**
+     * Stops the threads used to stitch manifests. Manifests which are being
+     * stitched are not completed.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /*
+     * Writes lines in their original order, as long as they are complete. If
+     * more than the maximum number of lines are pending, this waits for the
+     * first to complete.
+     */
+    private void writeCompletedLines(Deque<Future<String>> pendingLines,
+                                     int maxPendingLines,
+                                     BufferedWriter writer) throws IOException {
+        while (!pendingLines.isEmpty() &&
+               (pendingLines.size() > maxPendingLines || pendingLines.peek().isDone())) {
+            writeLine(getLine(pendingLines.poll()), writer);
+        }
+    }
+
+    private String getLine(Future<String> stitchedLine) throws IOException {
+        // A chunk manifest which has not yet been picked up by the pool is
+        // read here, as the pool may be busy stitching other manifests
+        if (stitchedLine instanceof RunnableFuture) {
+            ((RunnableFuture<String>) stitchedLine).run();
+        }
+        try {
+            return stitchedLine.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while stitching manifest");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /*
+     * Provides the stitched line, or null if the line is a chunk (which is
+     * not included in the stitched manifest).
+     */
+    private Future<String> processLine(String line,
+                                       ManifestFormatter formatter)
+        throws IOException {
         // parse manifest entry
         ManifestItem item = null;
         try {
@@ -111,13 +295,21 @@ public class StitchedManifestGenerator {
         String contentId = item.getContentId();
 
         if (contentId.endsWith(ChunksManifest.manifestSuffix)) {
-            writeLine(processChunkManifest(item, formatter), writer);
+            final ManifestItem chunkManifestItem = item;
+            FutureTask<String> stitchedLine =
+                new FutureTask<>(() -> processChunkManifest(chunkManifestItem, formatter));
+            try {
+                executor.execute(stitchedLine);
+            } catch (RejectedExecutionException e) {
+                // read when the line is written
+            }
+            return stitchedLine;
         } else if (contentId.contains(ChunksManifest.chunkSuffix)) {
             // ignore chunks
-            return;
+            return null;
         } else {
             // else write it.
-            writeLine(line, writer);
+            return CompletableFuture.completedFuture(line);
         }
     }
 
@@ -126,6 +318,12 @@ public class StitchedManifestGenerator {
         String contentId = item.getContentId();
         String spaceId = item.getSpaceId();
 
+        String cacheKey = spaceId + "/" + contentId + "/" + item.getContentChecksum();
+        ManifestItem cachedItem = null == cache ? null : cache.get(cacheKey);
+        if (null != cachedItem) {
+            return formatter.formatLine(cachedItem);
+        }
+
         //extract checksum from chunk manifest.
         Content content = store.getContent(spaceId, contentId);
         try (InputStream is = content.getStream()) {
@@ -139,6 +337,9 @@ public class StitchedManifestGenerator {
             newItem.setSpaceId(spaceId);
             newItem.setContentId(newContentId);
             newItem.setContentChecksum(checksum);
+            if (null != cache) {
+                cache.put(cacheKey, newItem);
+            }
 
             // retrieve new
             return formatter.formatLine(newItem);
@@ -3,10 +3,12 @@ package org.duracloud.manifeststitch;
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -14,12 +16,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.apache.commons.io.IOUtils;
 import org.duracloud.chunk.manifest.ChunksManifest;
 import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.constant.ManifestFormat;
 import org.duracloud.domain.Content;
+import org.duracloud.error.ContentStoreException;
 import org.duracloud.manifest.ManifestFormatter;
 import org.duracloud.manifest.impl.TsvManifestFormatter;
 import org.duracloud.mill.db.model.ManifestItem;
@@ -85,6 +94,144 @@ public class StitchedManifestGeneratorTest extends EasyMockSupport {
         reader.close();
     }
 
+    @Test
+    public void testGenerateConcurrentInOrder() throws Exception {
+        int count = 20;
+        ContentStore store = createMock(ContentStore.class);
+        TsvManifestFormatter formatter = new TsvManifestFormatter();
+        StringBuilder unstitched = new StringBuilder(formatter.getHeader() + "\n");
+        List<String> threads = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String sourceContentId = "chunked-" + i + ".dat";
+            String manifestContentId = sourceContentId + ChunksManifest.manifestSuffix;
+            unstitched.append(formatLine(formatter, manifestContentId));
+            unstitched.append(formatLine(formatter, sourceContentId +
+                                                    ChunksManifest.chunkSuffix + "0000"));
+            unstitched.append(formatLine(formatter, "unchunked-" + i + ".dat"));
+
+            // Earlier chunk manifests take longer to read
+            Content content = createMock(Content.class);
+            long delay = (count - i) * 5;
+            String sourceMd5 = "md5-" + i;
+            expect(content.getStream()).andAnswer(() -> {
+                threads.add(Thread.currentThread().getName());
+                Thread.sleep(delay);
+                return createChunkManifest(sourceContentId, sourceMd5);
+            });
+            expect(store.getContent(spaceId, manifestContentId)).andReturn(content);
+        }
+        expect(store.getManifest(spaceId, ManifestFormat.TSV))
+            .andReturn(new ByteArrayInputStream(unstitched.toString().getBytes()));
+        replayAll();
+
+        StitchedManifestGenerator generator = new StitchedManifestGenerator(store, 4);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        generator.generate(spaceId, ManifestFormat.TSV, output);
+
+        String[] lines = output.toString().split("\\R");
+        assertEquals(1 + count * 2, lines.length);
+        assertEquals(formatter.getHeader(), lines[0]);
+        for (int i = 0; i < count; i++) {
+            ManifestItem stitched = formatter.parseLine(lines[1 + i * 2]);
+            assertEquals("chunked-" + i + ".dat", stitched.getContentId());
+            assertEquals("md5-" + i, stitched.getContentChecksum());
+            assertTrue(lines[2 + i * 2].contains("unchunked-" + i + ".dat"));
+        }
+        // Chunk manifests are read by the pool, or by the stitching thread
+        // when the pool has not yet reached them
+        String caller = Thread.currentThread().getName();
+        for (String thread : threads) {
+            assertTrue(thread.startsWith("manifest-stitch-") || thread.equals(caller));
+        }
+        generator.shutdown();
+    }
+
+    @Test
+    public void testGenerateCached() throws Exception {
+        String sourceContentId = "content.dat";
+        String manifestContentId = sourceContentId + ChunksManifest.manifestSuffix;
+        ContentStore store = createMock(ContentStore.class);
+        Content content = createMock(Content.class);
+        TsvManifestFormatter formatter = new TsvManifestFormatter();
+        String unstitched = formatter.getHeader() + "\n" +
+                            formatLine(formatter, manifestContentId);
+
+        expect(store.getManifest(spaceId, ManifestFormat.TSV))
+            .andAnswer(() -> new ByteArrayInputStream(unstitched.getBytes())).times(2);
+        // The chunk manifest is only read once
+        expect(store.getContent(spaceId, manifestContentId)).andReturn(content);
+        expect(content.getStream()).andReturn(createChunkManifest(sourceContentId, "md5"));
+        replayAll();
+
+        StitchedManifestGenerator generator = new StitchedManifestGenerator(store);
+        Map<String, ManifestItem> cache = new ConcurrentHashMap<>();
+        generator.setCache(cache);
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            generator.generate(spaceId, ManifestFormat.TSV, output);
+            String[] lines = output.toString().split("\\R");
+            assertEquals(2, lines.length);
+            assertEquals("md5", formatter.parseLine(lines[1]).getContentChecksum());
+        }
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testGenerateFailure() throws Exception {
+        String manifestContentId = "content.dat" + ChunksManifest.manifestSuffix;
+        ContentStore store = createMock(ContentStore.class);
+        TsvManifestFormatter formatter = new TsvManifestFormatter();
+        String unstitched = formatter.getHeader() + "\n" +
+                            formatLine(formatter, manifestContentId);
+
+        expect(store.getManifest(spaceId, ManifestFormat.TSV))
+            .andReturn(new ByteArrayInputStream(unstitched.getBytes()));
+        expect(store.getContent(spaceId, manifestContentId))
+            .andThrow(new ContentStoreException("not found"));
+        replayAll();
+
+        StitchedManifestGenerator generator = new StitchedManifestGenerator(store);
+        InputStream stitched = generator.generate(spaceId, ManifestFormat.TSV);
+        try {
+            IOUtils.toString(stitched, StandardCharsets.UTF_8);
+            fail("expected exception to be thrown when the manifest cannot be stitched");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("not found"));
+        }
+    }
+
+    @Test
+    public void testGenerateAfterShutdown() throws Exception {
+        ContentStore store = createMock(ContentStore.class);
+        expect(store.getManifest(spaceId, ManifestFormat.TSV))
+            .andReturn(new ByteArrayInputStream(new byte[0]));
+        replayAll();
+
+        StitchedManifestGenerator generator = new StitchedManifestGenerator(store);
+        generator.shutdown();
+        try {
+            generator.generate(spaceId, ManifestFormat.TSV);
+            fail("expected exception to be thrown when the generator is shut down");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("shut down"));
+        }
+    }
+
+    private InputStream createChunkManifest(String sourceContentId, String sourceMd5) {
+        ChunksManifest manifest = new ChunksManifest(sourceContentId, "text/plain", 1000);
+        manifest.setMD5OfSourceContent(sourceMd5);
+        String xml = ManifestDocumentBinding.createDocumentFrom(manifest);
+        return new ByteArrayInputStream(xml.getBytes());
+    }
+
+    private String formatLine(ManifestFormatter formatter, String contentId) {
+        ManifestItem item = new ManifestItem();
+        item.setContentChecksum("checksum-md5");
+        item.setContentId(contentId);
+        item.setSpaceId(spaceId);
+        return formatter.formatLine(item) + "\n";
+    }
+
     private void write(BufferedWriter writer,
                        ManifestFormatter formatter,
                        String contentId) throws IOException {
@@ -23,8 +23,10 @@ import org.duracloud.common.util.ApplicationConfig;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.retrieval.config.RetrievalToolConfig;
 import org.duracloud.retrieval.mgmt.CSVFileOutputWriter;
+import org.duracloud.retrieval.mgmt.LocalChecksumCache;
 import org.duracloud.retrieval.mgmt.OutputWriter;
 import org.duracloud.retrieval.mgmt.RetrievalManager;
+import org.duracloud.retrieval.mgmt.SegmentedDownloader;
 import org.duracloud.retrieval.mgmt.SpaceListManager;
 import org.duracloud.retrieval.mgmt.StatusManager;
 import org.duracloud.retrieval.source.DuraStoreSpecifiedRetrievalSource;
@@ -96,6 +98,23 @@ public class RetrievalTool {
                                           outWriter,
                                           createSpaceDir,
                                           applyTimestamps);
+        if (retConfig.getSegmentThreads() > 0) {
+            retManager.setSegmentedDownloader(
+                new SegmentedDownloader(SegmentedDownloader.DEFAULT_SEGMENT_SIZE,
+                                        retConfig.getSegmentThreads()));
+        }
+        if (retConfig.isChecksumCache()) {
+            LocalChecksumCache checksumCache =
+                new LocalChecksumCache(retConfig.getWorkDir());
+            try {
+                checksumCache.load();
+                retManager.setChecksumCache(checksumCache);
+            } catch (IOException e) {
+                logger.error("Unable to load the local checksum cache, local " +
+                             "files will be read to compare them: " +
+                             e.getMessage(), e);
+            }
+        }
 
         executor.execute(retManager);
     }
@@ -214,7 +233,9 @@ public class RetrievalTool {
                                               retConfig.getContext(),
                                               retConfig.getUsername(),
                                               retConfig.getPassword(),
-                                              retConfig.getStoreId());
+                                              retConfig.getStoreId(),
+                                              retConfig.getNumThreads() +
+                                              retConfig.getSegmentThreads());
 
             executor = Executors.newFixedThreadPool(1);
             if (retConfig.isListOnly()) {
@@ -239,6 +260,8 @@ public class RetrievalTool {
 
             }
             System.exit(-1);
+        } finally {
+            clientUtil.close();
         }
     }
 }
@@ -35,6 +35,8 @@ public class RetrievalToolConfig implements Serializable {
     private boolean applyTimestamps;
     private boolean listOnly;
     private File listFile;
+    private int segmentThreads;
+    private boolean checksumCache;
 
     public String getPrintableConfig() {
         StringBuilder config = new StringBuilder();
@@ -75,6 +77,14 @@ public class RetrievalToolConfig implements Serializable {
         config.append(isApplyTimestamps()).append("\n");
         config.append("Retrieval Tool List Content Only: ");
         config.append(isListOnly()).append("\n");
+        if (segmentThreads > 0) {
+            config.append("Retrieval Tool Concurrent Segments: ");
+            config.append(getSegmentThreads()).append("\n");
+        }
+        if (checksumCache) {
+            config.append("Retrieval Tool Local Checksum Cache: ");
+            config.append(isChecksumCache()).append("\n");
+        }
 
         if (listFile != null) {
             config.append("Retrieval Tool content ID 'list file': ");
@@ -210,4 +220,20 @@ public class RetrievalToolConfig implements Serializable {
         this.listFile = listFile;
     }
 
+    public int getSegmentThreads() {
+        return segmentThreads;
+    }
+
+    public void setSegmentThreads(int segmentThreads) {
+        this.segmentThreads = segmentThreads;
+    }
+
+    public boolean isChecksumCache() {
+        return checksumCache;
+    }
+
+    public void setChecksumCache(boolean checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
 }
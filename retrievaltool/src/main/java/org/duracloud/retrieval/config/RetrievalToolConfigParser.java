@@ -20,6 +20,7 @@ import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 import org.duracloud.common.util.CommandLineToolUtil;
 import org.duracloud.common.util.ConsolePrompt;
+import org.duracloud.retrieval.mgmt.SegmentedDownloader;
 
 /**
  * Handles reading the configuration parameters for the Retrieval Tool
@@ -158,6 +159,27 @@ public class RetrievalToolConfigParser {
                        "operate on one space at a time.");
         listFile.setRequired(false);
         cmdOptions.addOption(listFile);
+
+        Option segments =
+            new Option("g", "segments", true,
+                       "the number of byte ranges of large files which are " +
+                       "retrieved concurrently. Files of at least " +
+                       (2 * SegmentedDownloader.DEFAULT_SEGMENT_SIZE / (1024 * 1024)) +
+                       " MB are retrieved in segments, which are retried " +
+                       "individually on failure (optional, not set by " +
+                       "default, files are retrieved as a single stream)");
+        segments.setRequired(false);
+        cmdOptions.addOption(segments);
+
+        Option checksumCache =
+            new Option("e", "checksum-cache", false,
+                       "indicates that the checksums of local files should " +
+                       "be kept in the work directory, so that local files " +
+                       "which have not changed in size or modification time " +
+                       "are not read again to compare them with DuraCloud " +
+                       "content (optional, not set by default)");
+        checksumCache.setRequired(false);
+        cmdOptions.addOption(checksumCache);
     }
 
     /**
@@ -293,6 +315,19 @@ public class RetrievalToolConfigParser {
             config.setNumThreads(DEFAULT_NUM_THREADS);
         }
 
+        if (cmd.hasOption("g")) {
+            try {
+                config.setSegmentThreads(Integer.valueOf(cmd.getOptionValue("g")));
+            } catch (NumberFormatException e) {
+                throw new ParseException("The value for segments (-g) must " +
+                                         "be a number.");
+            }
+        }
+
+        if (cmd.hasOption("e")) {
+            config.setChecksumCache(true);
+        }
+
         if (cmd.hasOption("d")) {
             config.setApplyTimestamps(false);
         } else {
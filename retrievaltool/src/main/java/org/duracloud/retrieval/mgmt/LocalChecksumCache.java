@@ -0,0 +1,192 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.retrieval.mgmt;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the MD5 checksums of local files, so that files which have not
+ * changed since they were last retrieved or checked do not need to be read
+ * again to determine their checksum. A cached checksum is only used while
+ * the size and last modified time of the file are those which were recorded
+ * along with the checksum.
+ *
+ * Checksums are appended to a file in the work directory as they are
+ * recorded, so the cache is kept across runs of the Retrieval Tool. The file
+ * is compacted when it is loaded.
+ */
+public class LocalChecksumCache {
+
+    private final Logger logger =
+        LoggerFactory.getLogger(LocalChecksumCache.class);
+
+    public static final String CACHE_FILE_NAME = "checksum-cache.txt";
+
+    private static final char SEPARATOR = '\t';
+
+    private File cacheFile;
+    private Map<String, Entry> entries;
+    private Writer writer;
+
+    public LocalChecksumCache(File workDir) {
+        this.cacheFile = new File(workDir, CACHE_FILE_NAME);
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Loads the checksums recorded by earlier runs, and opens the cache file
+     * for the recording of new checksums.
+     */
+    public synchronized void load() throws IOException {
+        int lines = 0;
+        if (cacheFile.exists()) {
+            try (BufferedReader reader =
+                     Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines++;
+                    parseLine(line);
+                }
+            }
+        }
+
+        // Rewrite the file without replaced entries
+        if (lines > entries.size()) {
+            File tempFile = new File(cacheFile.getPath() + ".tmp");
+            try (Writer tempWriter =
+                     Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    writeEntry(tempWriter, entry.getKey(), entry.getValue());
+                }
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        writer = Files.newBufferedWriter(cacheFile.toPath(), StandardCharsets.UTF_8,
+                                         StandardOpenOption.CREATE,
+                                         StandardOpenOption.APPEND);
+        logger.info("Loaded {} local file checksums from {}",
+                    entries.size(), cacheFile.getAbsolutePath());
+    }
+
+    private void parseLine(String line) {
+        // checksum, size, modified time, path
+        String[] fields = line.split(String.valueOf(SEPARATOR), 4);
+        if (fields.length == 4) {
+            try {
+                entries.put(fields[3], new Entry(fields[0],
+                                                 Long.parseLong(fields[1]),
+                                                 Long.parseLong(fields[2])));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid checksum cache entry: {}", line);
+            }
+        }
+    }
+
+    /**
+     * Gets the cached checksum of a file.
+     *
+     * @param file local file
+     * @return the checksum of the file, or null if no checksum was recorded
+     * for the file at its current size and last modified time
+     */
+    public String getChecksum(File file) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        if (null != entry &&
+            entry.size == file.length() &&
+            entry.modified == file.lastModified()) {
+            return entry.checksum;
+        }
+        return null;
+    }
+
+    /**
+     * Records the checksum of a file at its current size and last modified
+     * time.
+     *
+     * @param file     local file
+     * @param checksum MD5 of the file
+     */
+    public void putChecksum(File file, String checksum) {
+        String path = file.getAbsolutePath();
+        if (path.indexOf('\n') >= 0 || path.indexOf('\r') >= 0) {
+            return;
+        }
+
+        Entry entry = new Entry(checksum, file.length(), file.lastModified());
+        entries.put(path, entry);
+        synchronized (this) {
+            if (null != writer) {
+                try {
+                    writeEntry(writer, path, entry);
+                    writer.flush();
+                } catch (IOException e) {
+                    logger.warn("Unable to record checksum of {} in {}: {}",
+                                path, cacheFile.getAbsolutePath(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void writeEntry(Writer out, String path, Entry entry) throws IOException {
+        out.write(entry.checksum);
+        out.write(SEPARATOR);
+        out.write(String.valueOf(entry.size));
+        out.write(SEPARATOR);
+        out.write(String.valueOf(entry.modified));
+        out.write(SEPARATOR);
+        out.write(path);
+        out.write('\n');
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Closes the cache file, checksums recorded after the cache is closed
+     * are only kept in memory.
+     */
+    public synchronized void close() {
+        if (null != writer) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close {}: {}",
+                            cacheFile.getAbsolutePath(), e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    private static class Entry {
+        private final String checksum;
+        private final long size;
+        private final long modified;
+
+        Entry(String checksum, long size, long modified) {
+            this.checksum = checksum;
+            this.size = size;
+            this.modified = modified;
+        }
+    }
+
+}
@@ -43,6 +43,8 @@ public class RetrievalManager implements Runnable {
     private boolean applyTimestamps;
     private boolean complete;
     private Phaser phaser;
+    private SegmentedDownloader segmentedDownloader;
+    private LocalChecksumCache checksumCache;
 
     public RetrievalManager(RetrievalSource source,
                             File contentDir,
@@ -72,6 +74,22 @@ public class RetrievalManager implements Runnable {
                                    new ThreadPoolExecutor.AbortPolicy());
     }
 
+    /**
+     * Sets the downloader which the retrieval workers use to retrieve large
+     * files as concurrent byte ranges. It is shut down along with this manager.
+     */
+    public void setSegmentedDownloader(SegmentedDownloader segmentedDownloader) {
+        this.segmentedDownloader = segmentedDownloader;
+    }
+
+    /**
+     * Sets the cache of local file checksums used by the retrieval workers.
+     * It is closed along with this manager.
+     */
+    public void setChecksumCache(LocalChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
     /**
      * Begins the content retrieval process
      */
@@ -118,6 +136,8 @@ public class RetrievalManager implements Runnable {
                                                          outWriter,
                                                          createSpaceDir,
                                                          applyTimestamps);
+            worker.setSegmentedDownloader(segmentedDownloader);
+            worker.setChecksumCache(checksumCache);
             phaser.register();
             CompletableFuture.runAsync(worker, workerPool)
                              .thenRun(phaser::arriveAndDeregister);
@@ -138,6 +158,12 @@ public class RetrievalManager implements Runnable {
 
         logger.info("Waiting for retrievals to complete, this may take some time...");
         phaser.arriveAndAwaitAdvance();
+        if (null != segmentedDownloader) {
+            segmentedDownloader.shutdown();
+        }
+        if (null != checksumCache) {
+            checksumCache.close();
+        }
 
         complete = true;
     }
@@ -16,6 +16,7 @@ import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.Map;
@@ -57,6 +58,8 @@ public class RetrievalWorker implements Runnable {
     private int attempts;
     private File localFile;
     private ContentStream contentStream;
+    private SegmentedDownloader segmentedDownloader;
+    private LocalChecksumCache checksumCache;
 
     private StatusManager statusManager;
 
@@ -81,6 +84,23 @@ public class RetrievalWorker implements Runnable {
         this.attempts = 0;
     }
 
+    /**
+     * Sets the downloader used to retrieve large files as concurrent byte
+     * ranges. When not set, all files are retrieved as a single stream.
+     */
+    public void setSegmentedDownloader(SegmentedDownloader segmentedDownloader) {
+        this.segmentedDownloader = segmentedDownloader;
+    }
+
+    /**
+     * Sets the cache of local file checksums, which allows local files that
+     * have not changed to be compared without reading them. When not set,
+     * local files are read each time they are compared.
+     */
+    public void setChecksumCache(LocalChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+    }
+
     public void run() {
         try {
             statusManager.startingWork();
@@ -171,6 +191,11 @@ public class RetrievalWorker implements Runnable {
      */
     protected boolean checksumsMatch(File localFile, String remoteChecksum)
         throws IOException {
+        String localChecksum = getChecksum(localFile);
+        return localChecksum.equals(getRemoteChecksum(remoteChecksum));
+    }
+
+    private String getRemoteChecksum(String remoteChecksum) {
         if (remoteChecksum == null || "".equals(remoteChecksum)) {
             if (contentStream != null) {
                 remoteChecksum = contentStream.getChecksum();
@@ -178,17 +203,30 @@ public class RetrievalWorker implements Runnable {
                 remoteChecksum = source.getSourceChecksum(contentItem);
             }
         }
-        String localChecksum = getChecksum(localFile);
-        return localChecksum.equals(remoteChecksum);
+        return remoteChecksum;
     }
 
     protected String getChecksum(File localFile) throws IOException {
+        if (null != checksumCache) {
+            String cachedChecksum = checksumCache.getChecksum(localFile);
+            if (null != cachedChecksum) {
+                return cachedChecksum;
+            }
+        }
+
         ChecksumUtil checksumUtil =
             new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
         String localChecksum = checksumUtil.generateChecksum(localFile);
+        cacheChecksum(localFile, localChecksum);
         return localChecksum;
     }
 
+    private void cacheChecksum(File localFile, String localChecksum) {
+        if (null != checksumCache) {
+            checksumCache.putChecksum(localFile, localChecksum);
+        }
+    }
+
     /*
      * Renames the given file, returns the copied file. Does not change
      * the original passed in file path.
@@ -234,6 +272,14 @@ public class RetrievalWorker implements Runnable {
      * otherwise an IOException is thrown.
      */
     protected Map<String, String> retrieveToFile(File localFile, RetrievalListener listener) throws IOException {
+        if (null != segmentedDownloader &&
+            source.isRangeRetrievalSupported(contentItem)) {
+            Map<String, String> props = getContentProperties();
+            long size = getContentSize(props);
+            if (segmentedDownloader.isSegmented(size)) {
+                return retrieveSegmentsToFile(localFile, props, size);
+            }
+        }
 
         try {
             contentStream = new Retrier(5, 4000, 3).execute(() -> {
@@ -245,11 +291,15 @@ public class RetrievalWorker implements Runnable {
             throw new IOException(ex);
         }
 
+        // The checksum is computed as the content is written, so that the
+        // local file does not need to be read again to verify it
+        DigestInputStream digestStream = null;
         try (
             InputStream inStream = contentStream.getStream();
             OutputStream outStream = new FileOutputStream(localFile);
         ) {
-            IOUtil.copy(inStream, outStream);
+            digestStream = ChecksumUtil.wrapStream(inStream, ChecksumUtil.Algorithm.MD5);
+            IOUtil.copy(digestStream, outStream);
         } catch (IOException e) {
             try {
                 deleteFile(localFile);
@@ -260,7 +310,8 @@ public class RetrievalWorker implements Runnable {
             throw e;
         }
 
-        if (!checksumsMatch(localFile, contentStream.getChecksum())) {
+        String localChecksum = ChecksumUtil.getChecksum(digestStream);
+        if (!localChecksum.equals(getRemoteChecksum(contentStream.getChecksum()))) {
             deleteFile(localFile);
             throw new IOException("Calculated checksum value for retrieved " +
                                   "file does not match properties checksum.");
@@ -270,9 +321,53 @@ public class RetrievalWorker implements Runnable {
         if (applyTimestamps) {
             applyTimestamps(contentStream, localFile);
         }
+        cacheChecksum(localFile, localChecksum);
         return contentStream.getProperties();
     }
 
+    /*
+     * Transfers the remote file to the local file as a set of byte ranges
+     * which are retrieved concurrently
+     */
+    protected Map<String, String> retrieveSegmentsToFile(File localFile,
+                                                         Map<String, String> props,
+                                                         long size)
+        throws IOException {
+        contentStream = new ContentStream(null, props);
+        String localChecksum;
+        try {
+            localChecksum = segmentedDownloader.download(source,
+                                                         contentItem,
+                                                         localFile,
+                                                         size,
+                                                         contentStream.getChecksum());
+        } catch (IOException | RuntimeException e) {
+            try {
+                deleteFile(localFile);
+            } catch (IOException ioe) {
+                logger.error("Exception deleting local file " +
+                             localFile.getAbsolutePath() + " due to: " + ioe.getMessage());
+            }
+            throw e;
+        }
+
+        // Set time stamps
+        if (applyTimestamps) {
+            applyTimestamps(contentStream, localFile);
+        }
+        cacheChecksum(localFile, localChecksum);
+        return props;
+    }
+
+    private long getContentSize(Map<String, String> props) {
+        String size = null == props ? null : props.get(ContentStore.CONTENT_SIZE);
+        try {
+            return null == size ? -1 : Long.parseLong(size);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     /*
      * Applies timestamps which are found in the content item's properties
      * to the retrieved file
@@ -0,0 +1,320 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.retrieval.mgmt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.retrieval.source.ContentStream;
+import org.duracloud.retrieval.source.RetrievalSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retrieves large content items as a set of byte ranges (segments) which are
+ * downloaded concurrently and written in place into a file allocated at the
+ * full size of the content item. Segments which fail are retried without
+ * downloading again the segments which completed.
+ *
+ * The MD5 of the file is computed as segments complete, in file order, so
+ * that the checksum is available as soon as the last segment is written.
+ *
+ * A single downloader is shared by all retrieval workers, which bounds the
+ * number of concurrent range requests made by the Retrieval Tool.
+ */
+public class SegmentedDownloader {
+
+    private final Logger logger =
+        LoggerFactory.getLogger(SegmentedDownloader.class);
+
+    public static final long DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    protected static final int MAX_SEGMENT_ATTEMPTS = 5;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private long segmentSize;
+    private long retryWaitMillis;
+    private ThreadPoolExecutor executor;
+
+    /**
+     * @param segmentSize size of the byte range retrieved by each request
+     * @param threads     number of segments retrieved concurrently
+     */
+    public SegmentedDownloader(long segmentSize, int threads) {
+        this(segmentSize, threads, 2000);
+    }
+
+    protected SegmentedDownloader(long segmentSize,
+                                  int threads,
+                                  long retryWaitMillis) {
+        if (segmentSize < 1 || threads < 1) {
+            throw new IllegalArgumentException(
+                "segment size and threads must be greater than zero");
+        }
+        this.segmentSize = segmentSize;
+        this.retryWaitMillis = retryWaitMillis;
+
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "retrieval-segment-" +
+                                                 threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                               new LinkedBlockingQueue<>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Determines if content of the given size is retrieved in segments. Only
+     * content which spans at least two segments is segmented.
+     *
+     * @param contentSize size of the content item, negative if not known
+     * @return true if the content should be retrieved in segments
+     */
+    public boolean isSegmented(long contentSize) {
+        return contentSize >= 2 * segmentSize;
+    }
+
+    /**
+     * Retrieves a content item into the given file.
+     *
+     * @param source      source of the content item byte ranges
+     * @param contentItem content item to retrieve
+     * @param localFile   file to which the content is written, replaced if
+     *                    it exists
+     * @param contentSize size of the content item
+     * @param checksum    expected MD5 of the content item, not verified if
+     *                    null
+     * @return the MD5 of the retrieved file
+     * @throws IOException if a segment could not be retrieved or the checksum
+     *                     of the file does not match the expected checksum
+     */
+    public String download(RetrievalSource source,
+                           ContentItem contentItem,
+                           File localFile,
+                           long contentSize,
+                           String checksum) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        for (long start = 0; start < contentSize; start += segmentSize) {
+            long end = Math.min(start + segmentSize, contentSize) - 1;
+            segments.add(new Segment(segments.size(), start, end));
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(localFile, "rw")) {
+            // Allocate the full size, so that segments can be written in any order
+            file.setLength(0);
+            file.setLength(contentSize);
+            FileChannel channel = file.getChannel();
+            FileDigest digest = new FileDigest(channel, segments);
+
+            List<Segment> pending = segments;
+            for (int attempt = 1; !pending.isEmpty(); attempt++) {
+                pending = downloadSegments(source, contentItem, channel, digest,
+                                           pending);
+                if (!pending.isEmpty()) {
+                    if (attempt >= MAX_SEGMENT_ATTEMPTS) {
+                        throw new IOException(
+                            pending.size() + " of " + segments.size() +
+                            " segments of " + contentItem + " could not be " +
+                            "retrieved after " + attempt + " attempts");
+                    }
+                    logger.warn("Retrying {} of {} segments of {}",
+                                pending.size(), segments.size(), contentItem);
+                    sleep(retryWaitMillis * attempt);
+                }
+            }
+            channel.force(false);
+
+            String localChecksum = digest.getChecksum();
+            if (null != checksum && !checksum.equals(localChecksum)) {
+                throw new IOException("Calculated checksum value " + localChecksum +
+                                      " for retrieved file " + localFile +
+                                      " does not match properties checksum " +
+                                      checksum);
+            }
+            return localChecksum;
+        }
+    }
+
+    /*
+     * Retrieves the given segments concurrently
+     *
+     * @return the segments which failed
+     */
+    private List<Segment> downloadSegments(RetrievalSource source,
+                                           ContentItem contentItem,
+                                           FileChannel channel,
+                                           FileDigest digest,
+                                           List<Segment> segments)
+        throws IOException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (Segment segment : segments) {
+            futures.add(executor.submit(() -> {
+                downloadSegment(source, contentItem, channel, segment);
+                digest.segmentComplete(segment);
+                return null;
+            }));
+        }
+
+        List<Segment> failed = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException e) {
+                Segment segment = segments.get(i);
+                logger.warn("Failed to retrieve bytes " + segment.start + "-" +
+                            segment.end + " of " + contentItem + ": " +
+                            e.getCause().getMessage());
+                failed.add(segment);
+            } catch (InterruptedException e) {
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted retrieving " + contentItem, e);
+            }
+        }
+        return failed;
+    }
+
+    private void downloadSegment(RetrievalSource source,
+                                 ContentItem contentItem,
+                                 FileChannel channel,
+                                 Segment segment) throws IOException {
+        ContentStream contentStream =
+            source.getSourceContent(contentItem, segment.start, segment.end);
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long position = segment.start;
+        try (InputStream inStream = contentStream.getStream()) {
+            while (position <= segment.end) {
+                int length = (int) Math.min(buffer.length, segment.end + 1 - position);
+                int read = inStream.read(buffer, 0, length);
+                if (read < 0) {
+                    break;
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+            }
+        }
+
+        if (position != segment.end + 1) {
+            throw new IOException("Retrieved " + (position - segment.start) +
+                                  " of the " + segment.length() + " bytes");
+        }
+    }
+
+    private void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting to retry", e);
+        }
+    }
+
+    /**
+     * Stops the threads used to retrieve segments
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class Segment {
+        private final int index;
+        private final long start;
+        private final long end;
+
+        Segment(int index, long start, long end) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+
+        long length() {
+            return end - start + 1;
+        }
+    }
+
+    /*
+     * Computes the MD5 of the file from the segments written to it. Each
+     * segment is read back from the file once it and all of the segments
+     * before it are complete.
+     */
+    private static class FileDigest {
+        private final FileChannel channel;
+        private final List<Segment> segments;
+        private final boolean[] complete;
+        private final MessageDigest digest;
+        private final ByteBuffer buffer;
+        private int next;
+
+        FileDigest(FileChannel channel, List<Segment> segments) {
+            this.channel = channel;
+            this.segments = segments;
+            this.complete = new boolean[segments.size()];
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.next = 0;
+            try {
+                this.digest = MessageDigest.getInstance(ChecksumUtil.Algorithm.MD5.toString());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        synchronized void segmentComplete(Segment segment) throws IOException {
+            complete[segment.index] = true;
+            while (next < complete.length && complete[next]) {
+                Segment nextSegment = segments.get(next);
+                long position = nextSegment.start;
+                while (position <= nextSegment.end) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(),
+                                                nextSegment.end + 1 - position));
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of file at " + position);
+                    }
+                    buffer.flip();
+                    digest.update(buffer);
+                    position += read;
+                }
+                next++;
+            }
+        }
+
+        synchronized String getChecksum() {
+            if (next < complete.length) {
+                throw new IllegalStateException("Not all segments are complete");
+            }
+            return ChecksumUtil.checksumBytesToString(digest.digest());
+        }
+    }
+
+}
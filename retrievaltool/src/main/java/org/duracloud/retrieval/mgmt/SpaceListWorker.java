@@ -15,6 +15,7 @@ import java.io.Writer;
 import java.util.Iterator;
 
 import org.duracloud.chunk.util.ChunkUtil;
+import org.duracloud.client.ContentIterator;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.util.DateUtil;
 import org.slf4j.Logger;
@@ -30,6 +31,10 @@ public class SpaceListWorker implements Runnable {
 
     private final Logger logger = LoggerFactory.getLogger(SpaceListWorker.class);
 
+    // The listing is streamed to the output file as it is read, so a page
+    // size well above the default only reduces the number of requests
+    protected static final long LISTING_PAGE_SIZE = 10000;
+
     private ContentStore contentStore;
     private String spaceId;
     private File contentDir;
@@ -73,7 +78,8 @@ public class SpaceListWorker implements Runnable {
 
             logger.info("Writing space '" + spaceId + "' listing to: " +
                                outputFile.getAbsolutePath());
-            Iterator<String> contentIterator = contentStore.getSpaceContents(spaceId);
+            Iterator<String> contentIterator =
+                new ContentIterator(contentStore, spaceId, null, LISTING_PAGE_SIZE, true);
             try (Writer writer = new BufferedWriter(new OutputStreamWriter(
                 new FileOutputStream(outputFile), "UTF-8"))) {
                 while (contentIterator.hasNext()) {
@@ -134,6 +134,28 @@ public class DuraStoreRetrievalSource implements RetrievalSource {
         return new ContentStream(content.getStream(), content.getProperties());
     }
 
+    @Override
+    public boolean isRangeRetrievalSupported(ContentItem contentItem) {
+        return true;
+    }
+
+    @Override
+    public ContentStream getSourceContent(ContentItem contentItem,
+                                          long startByte,
+                                          long endByte) {
+        try {
+            Content content = contentStore.getContent(contentItem.getSpaceId(),
+                                                      contentItem.getContentId(),
+                                                      startByte,
+                                                      endByte);
+            return new ContentStream(content.getStream(), content.getProperties());
+        } catch (ContentStoreException e) {
+            throw new RuntimeException("Unable to get bytes " + startByte + "-" +
+                                       endByte + " of " + contentItem.toString() +
+                                       " due to: " + e.getMessage());
+        }
+    }
+
     protected Content doGetContent(ContentItem contentItem, RetrievalListener listener) {
         try {
             return contentStore.getContent(contentItem.getSpaceId(),
@@ -84,6 +84,16 @@ public class DuraStoreStitchingRetrievalSource extends DuraStoreRetrievalSource
         }
     }
 
+    /**
+     * Chunked content is stitched together from its chunks, so byte ranges
+     * can only be retrieved from content which is not chunked
+     */
+    @Override
+    public boolean isRangeRetrievalSupported(ContentItem contentItem) {
+        return !chunkUtil.isChunkManifest(contentItem.getContentId()) &&
+               !chunkUtil.isChunk(contentItem.getContentId());
+    }
+
     @Override
     protected Content doGetContent(ContentItem item, RetrievalListener listener) {
         log.debug("enter doGetContent: {}", item);
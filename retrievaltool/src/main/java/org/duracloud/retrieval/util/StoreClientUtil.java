@@ -11,6 +11,7 @@ import org.duracloud.client.ContentStore;
 import org.duracloud.client.ContentStoreManager;
 import org.duracloud.client.ContentStoreManagerImpl;
 import org.duracloud.common.model.Credential;
+import org.duracloud.common.web.HttpConnectionPool;
 import org.duracloud.error.ContentStoreException;
 
 /**
@@ -21,6 +22,8 @@ public class StoreClientUtil {
 
     private static final int SOCKET_TIMEOUT_MS = 10 * 1000;
 
+    private HttpConnectionPool connectionPool;
+
     public ContentStore createContentStore(String host,
                                            int port,
                                            String context,
@@ -29,6 +32,39 @@ public class StoreClientUtil {
                                            String storeId) {
         ContentStoreManager storeManager =
             new ContentStoreManagerImpl(host, String.valueOf(port), context, SOCKET_TIMEOUT_MS);
+        return createContentStore(storeManager, username, password, storeId);
+    }
+
+    /**
+     * Creates a ContentStore which reuses persistent connections, with enough
+     * connections available to serve the given number of worker threads.
+     * The connections are held open until close() is called.
+     */
+    public ContentStore createContentStore(String host,
+                                           int port,
+                                           String context,
+                                           String username,
+                                           String password,
+                                           String storeId,
+                                           int numThreads) {
+        // Allow for listing and property calls alongside the worker downloads
+        int maxConnections = Math.max(numThreads, 1) * 2;
+        close();
+        connectionPool =
+            new HttpConnectionPool(maxConnections,
+                                   maxConnections,
+                                   SOCKET_TIMEOUT_MS,
+                                   HttpConnectionPool.DEFAULT_MAX_IDLE_TIME_MS,
+                                   HttpConnectionPool.DEFAULT_KEEP_ALIVE_MS);
+        ContentStoreManager storeManager =
+            new ContentStoreManagerImpl(host, String.valueOf(port), context, connectionPool);
+        return createContentStore(storeManager, username, password, storeId);
+    }
+
+    private ContentStore createContentStore(ContentStoreManager storeManager,
+                                            String username,
+                                            String password,
+                                            String storeId) {
         storeManager.login(new Credential(username, password));
 
         ContentStore contentStore;
@@ -46,4 +82,15 @@ public class StoreClientUtil {
         return contentStore;
     }
 
+    /**
+     * Closes the persistent connections used by the ContentStore, if any.
+     * The ContentStore may not be used after it is closed.
+     */
+    public void close() {
+        if (null != connectionPool) {
+            connectionPool.close();
+            connectionPool = null;
+        }
+    }
+
 }
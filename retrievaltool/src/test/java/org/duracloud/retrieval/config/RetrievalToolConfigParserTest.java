@@ -69,6 +69,8 @@ public class RetrievalToolConfigParserTest extends RetrievalTestBase {
         argsMap.remove("-d");
         argsMap.remove("-l");
         argsMap.remove("-w");
+        argsMap.remove("-g");
+        argsMap.remove("-e");
 
         // Process configs, make sure optional params are set to defaults
         retConfig = retConfigParser.processOptions(mapToArray(argsMap));
@@ -82,6 +84,8 @@ public class RetrievalToolConfigParserTest extends RetrievalTestBase {
         assertEquals(false, retConfig.isListOnly());
         assertEquals(expectedPassword, retConfig.getPassword());
         assertNull(retConfig.getWorkDir());
+        assertEquals(0, retConfig.getSegmentThreads());
+        assertEquals(false, retConfig.isChecksumCache());
 
         // Make sure error is thrown on missing required params
         for (String arg : argsMap.keySet()) {
@@ -95,6 +99,8 @@ public class RetrievalToolConfigParserTest extends RetrievalTestBase {
         addArgFailTest(retConfigParser, argsMap, "-r", "nonNum", failMsg);
         failMsg = "Threads arg should require a numerical value";
         addArgFailTest(retConfigParser, argsMap, "-t", "nonNum", failMsg);
+        failMsg = "Segments arg should require a numerical value";
+        addArgFailTest(retConfigParser, argsMap, "-g", "nonNum", failMsg);
     }
 
     private HashMap<String, String> getArgsMap() {
@@ -110,6 +116,8 @@ public class RetrievalToolConfigParserTest extends RetrievalTestBase {
         argsMap.put("-o", "");
         argsMap.put("-t", "5");
         argsMap.put("-d", "");
+        argsMap.put("-g", "4");
+        argsMap.put("-e", "");
         return argsMap;
     }
 
@@ -134,6 +142,9 @@ public class RetrievalToolConfigParserTest extends RetrievalTestBase {
         assertEquals(true, retConfig.isOverwrite());
         assertEquals(argsMap.get("-t"),
                      String.valueOf(retConfig.getNumThreads()));
+        assertEquals(argsMap.get("-g"),
+                     String.valueOf(retConfig.getSegmentThreads()));
+        assertEquals(true, retConfig.isChecksumCache());
     }
 
     private String[] mapToArray(HashMap<String, String> map) {
@@ -0,0 +1,88 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.retrieval.mgmt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.retrieval.RetrievalTestBase;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalChecksumCacheTest extends RetrievalTestBase {
+
+    private File workDir;
+    private File localFile;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        workDir = new File(tempDir, "work");
+        workDir.mkdirs();
+        localFile = createTempFile("checksum-cache");
+        FileUtils.writeStringToFile(localFile, "content", StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testGetChecksum() throws Exception {
+        LocalChecksumCache cache = new LocalChecksumCache(workDir);
+        cache.load();
+        assertNull(cache.getChecksum(localFile));
+
+        cache.putChecksum(localFile, "checksum");
+        assertEquals("checksum", cache.getChecksum(localFile));
+
+        // Changed size
+        FileUtils.writeStringToFile(localFile, "changed content",
+                                    StandardCharsets.UTF_8);
+        localFile.setLastModified(1000000L);
+        cache.putChecksum(localFile, "checksum");
+        FileUtils.writeStringToFile(localFile, "new content",
+                                    StandardCharsets.UTF_8);
+        localFile.setLastModified(1000000L);
+        assertNull(cache.getChecksum(localFile));
+
+        // Changed modified time
+        cache.putChecksum(localFile, "checksum");
+        localFile.setLastModified(2000000L);
+        assertNull(cache.getChecksum(localFile));
+        cache.close();
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        File otherFile = createTempFile("checksum-cache-other");
+        FileUtils.writeStringToFile(otherFile, "other", StandardCharsets.UTF_8);
+
+        LocalChecksumCache cache = new LocalChecksumCache(workDir);
+        cache.load();
+        cache.putChecksum(localFile, "checksum-1");
+        cache.putChecksum(localFile, "checksum-2");
+        cache.putChecksum(otherFile, "checksum-3");
+        cache.close();
+
+        File cacheFile = new File(workDir, LocalChecksumCache.CACHE_FILE_NAME);
+        assertEquals(3, Files.readAllLines(cacheFile.toPath()).size());
+
+        cache = new LocalChecksumCache(workDir);
+        cache.load();
+        assertEquals(2, cache.size());
+        assertEquals("checksum-2", cache.getChecksum(localFile));
+        assertEquals("checksum-3", cache.getChecksum(otherFile));
+
+        // Replaced entries are removed when loaded
+        assertEquals(2, Files.readAllLines(cacheFile.toPath()).size());
+        cache.close();
+    }
+
+}
@@ -153,6 +153,41 @@ public class RetrievalWorkerTest extends RetrievalTestBase {
         assertFalse(worker.checksumsMatch(localFile));
     }
 
+    @Test
+    public void testChecksumsMatchCached() throws Exception {
+        RetrievalWorker worker = createRetrievalWorker(true);
+        LocalChecksumCache checksumCache = new LocalChecksumCache(tempDir);
+        worker.setChecksumCache(checksumCache);
+        File localFile = createTempFile("checksum-cache-test");
+
+        FileUtils.writeStringToFile(localFile, contentValue);
+        assertTrue(worker.checksumsMatch(localFile));
+        assertNotNull(checksumCache.getChecksum(localFile));
+
+        // A cached checksum is used while the size and modified time match
+        String checksum = checksumCache.getChecksum(localFile);
+        checksumCache.putChecksum(localFile, "cached-checksum");
+        assertFalse(worker.checksumsMatch(localFile));
+
+        checksumCache.putChecksum(localFile, checksum);
+        assertTrue(worker.checksumsMatch(localFile));
+    }
+
+    @Test
+    public void testRetrieveFileCachesChecksum() throws Exception {
+        RetrievalWorker worker = createRetrievalWorker(true);
+        LocalChecksumCache checksumCache = new LocalChecksumCache(tempDir);
+        worker.setChecksumCache(checksumCache);
+        File localFile = worker.getLocalFile();
+        assertFalse(localFile.exists());
+
+        worker.retrieveFile();
+        assertTrue(localFile.exists());
+        assertEquals(new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+                         .generateChecksum(localFile),
+                     checksumCache.getChecksum(localFile));
+    }
+
     @Test
     public void testRenameFile() throws Exception {
         RetrievalWorker worker = createRetrievalWorker(true);
@@ -218,6 +253,32 @@ public class RetrievalWorkerTest extends RetrievalTestBase {
         }
     }
 
+    @Test
+    public void testRetrieveToFileInSegments() throws Exception {
+        RetrievalWorker worker = new RetrievalWorker(new ContentItem(spaceId, contentId),
+            new RangedMockRetrievalSource(),
+            tempDir,
+            true,
+            createMockOutputWriter(),
+            true,
+            true);
+        SegmentedDownloader downloader = new SegmentedDownloader(4, 2, 0);
+        worker.setSegmentedDownloader(downloader);
+
+        File localFile = createTempFile("retrieve-segments-test");
+        try {
+            Map<String, String> props = worker.retrieveToFile(localFile, null);
+            assertNotNull(props);
+        } finally {
+            downloader.shutdown();
+        }
+        assertEquals(contentValue, FileUtils.readFileToString(localFile));
+
+        BasicFileAttributes fileAttributes =
+            Files.readAttributes(localFile.toPath(), BasicFileAttributes.class);
+        assertEquals(testTime, fileAttributes.lastModifiedTime().toMillis());
+    }
+
     @Test
     public void testApplyTimestamps() throws Exception {
         String time1 = DateUtil.convertToStringLong(testTime + 100000);
@@ -346,6 +407,37 @@ public class RetrievalWorkerTest extends RetrievalTestBase {
 
     }
 
+    /*
+     * Create a retrieval source which only provides byte ranges of the content
+     */
+    private class RangedMockRetrievalSource extends MockRetrievalSource {
+        @Override
+        public Map<String, String> getSourceProperties(ContentItem contentItem) {
+            Map<String, String> props = super.getSourceProperties(contentItem);
+            props.put(ContentStore.CONTENT_SIZE, String.valueOf(contentValue.length()));
+            return props;
+        }
+
+        @Override
+        public boolean isRangeRetrievalSupported(ContentItem contentItem) {
+            return true;
+        }
+
+        @Override
+        public ContentStream getSourceContent(ContentItem contentItem, RetrievalListener listener) {
+            throw new RuntimeException("Content should be retrieved in segments");
+        }
+
+        @Override
+        public ContentStream getSourceContent(ContentItem contentItem,
+                                              long startByte,
+                                              long endByte) {
+            String range = contentValue.substring((int) startByte, (int) endByte + 1);
+            return new ContentStream(new ByteArrayInputStream(range.getBytes()),
+                                     new HashMap<>());
+        }
+    }
+
     /*
      * Create a retrieval source that will always provide content streams
      * with checksums that do not match
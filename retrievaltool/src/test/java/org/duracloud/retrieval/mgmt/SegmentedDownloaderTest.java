@@ -0,0 +1,186 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.retrieval.mgmt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.retrieval.RetrievalTestBase;
+import org.duracloud.retrieval.source.ContentStream;
+import org.duracloud.retrieval.source.RetrievalSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentedDownloaderTest extends RetrievalTestBase {
+
+    private static final int SEGMENT_SIZE = 10;
+
+    private ContentItem contentItem = new ContentItem("space-id", "content-id");
+    private byte[] content;
+    private String checksum;
+    private SegmentedDownloader downloader;
+    private RangeSource source;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        content = new byte[95];
+        new Random(1).nextBytes(content);
+        checksum = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+            .generateChecksum(new ByteArrayInputStream(content));
+        downloader = new SegmentedDownloader(SEGMENT_SIZE, 3, 0);
+        source = new RangeSource();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        downloader.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void testIsSegmented() {
+        assertFalse(downloader.isSegmented(-1));
+        assertFalse(downloader.isSegmented(SEGMENT_SIZE));
+        assertTrue(downloader.isSegmented(2 * SEGMENT_SIZE));
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        File localFile = createTempFile("download");
+        assertEquals(checksum, downloader.download(source, contentItem, localFile,
+                                                   content.length, checksum));
+        assertArrayEquals(content, FileUtils.readFileToByteArray(localFile));
+
+        assertEquals(10, source.requests.size());
+        for (AtomicInteger count : source.requests.values()) {
+            assertEquals(1, count.get());
+        }
+        assertEquals(Integer.valueOf(SEGMENT_SIZE * 9), source.firstBytes().last());
+        for (String thread : source.threads) {
+            assertTrue(thread, thread.startsWith("retrieval-segment-"));
+        }
+    }
+
+    @Test
+    public void testRetryFailedSegments() throws Exception {
+        source.failures.put(30, 1);
+        source.truncated.put(60, 2);
+
+        File localFile = createTempFile("retry");
+        assertEquals(checksum, downloader.download(source, contentItem, localFile,
+                                                   content.length, checksum));
+        assertArrayEquals(content, FileUtils.readFileToByteArray(localFile));
+
+        // Only the failed segments are retrieved again
+        for (Map.Entry<Integer, AtomicInteger> request : source.requests.entrySet()) {
+            int expected = request.getKey() == 30 ? 2 : request.getKey() == 60 ? 3 : 1;
+            assertEquals("segment " + request.getKey(), expected, request.getValue().get());
+        }
+    }
+
+    @Test
+    public void testSegmentFailure() throws Exception {
+        source.failures.put(50, SegmentedDownloader.MAX_SEGMENT_ATTEMPTS);
+
+        try {
+            downloader.download(source, contentItem, createTempFile("failure"),
+                                content.length, checksum);
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("1 of 10 segments"));
+        }
+        assertEquals(SegmentedDownloader.MAX_SEGMENT_ATTEMPTS, source.requests.get(50).get());
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        try {
+            downloader.download(source, contentItem, createTempFile("mismatch"),
+                                content.length, "invalid-checksum");
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("invalid-checksum"));
+        }
+    }
+
+    /*
+     * Provides byte ranges of the content, failing or truncating the ranges
+     * starting at the given bytes the given number of times
+     */
+    private class RangeSource implements RetrievalSource {
+        private Map<Integer, AtomicInteger> requests = new ConcurrentHashMap<>();
+        private Map<Integer, Integer> failures = new HashMap<>();
+        private Map<Integer, Integer> truncated = new HashMap<>();
+        private Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        TreeSet<Integer> firstBytes() {
+            return new TreeSet<>(requests.keySet());
+        }
+
+        @Override
+        public ContentStream getSourceContent(ContentItem contentItem,
+                                              long startByte,
+                                              long endByte) {
+            int start = (int) startByte;
+            threads.add(Thread.currentThread().getName());
+            int attempt = requests.computeIfAbsent(start, s -> new AtomicInteger())
+                                  .incrementAndGet();
+            if (attempt <= failures.getOrDefault(start, 0)) {
+                throw new RuntimeException("Unable to get bytes " + start);
+            }
+
+            int length = (int) (endByte - startByte + 1);
+            if (attempt <= truncated.getOrDefault(start, 0)) {
+                length = length / 2;
+            }
+            return new ContentStream(new ByteArrayInputStream(content, start, length),
+                                     new HashMap<>());
+        }
+
+        @Override
+        public ContentItem getNextContentItem() {
+            return null;
+        }
+
+        @Override
+        public Map<String, String> getSourceProperties(ContentItem contentItem) {
+            return null;
+        }
+
+        @Override
+        public String getSourceChecksum(ContentItem contentItem) {
+            return null;
+        }
+
+        @Override
+        public ContentStream getSourceContent(ContentItem contentItem,
+                                              RetrievalListener listener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -10,11 +10,13 @@ package org.duracloud.retrieval.mgmt;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import org.duracloud.client.ContentStore;
+import org.duracloud.client.SpaceContentsReader;
 import org.duracloud.retrieval.RetrievalTestBase;
 import org.easymock.EasyMock;
 import org.junit.Test;
@@ -27,13 +29,15 @@ public class SpaceListManagerTest extends RetrievalTestBase {
 
     @Test
     public void testCountFilesCreated() throws Exception {
-        List<String> emptyList = Collections.emptyList();
-
         ContentStore contentStore = EasyMock.createMock(ContentStore.class);
         EasyMock.expect(contentStore.getStorageProviderType()).andReturn("mock-provider").times(3);
-        EasyMock.expect(contentStore.getSpaceContents("space1")).andReturn(emptyList.iterator());
-        EasyMock.expect(contentStore.getSpaceContents("space2")).andReturn(emptyList.iterator());
-        EasyMock.expect(contentStore.getSpaceContents("space3")).andReturn(emptyList.iterator());
+        for (String spaceId : new String[] {"space1", "space2", "space3"}) {
+            EasyMock.expect(contentStore.getSpaceContentsReader(spaceId,
+                                                                null,
+                                                                SpaceListWorker.LISTING_PAGE_SIZE,
+                                                                null))
+                    .andReturn(createEmptyReader(spaceId));
+        }
         EasyMock.replay(contentStore);
 
         List<String> spaces = new ArrayList<String>();
@@ -50,4 +54,10 @@ public class SpaceListManagerTest extends RetrievalTestBase {
         assertTrue(tempDir.exists());
         assertEquals(spaces.size(), tempDir.listFiles().length);
     }
+
+    private SpaceContentsReader createEmptyReader(String spaceId) throws Exception {
+        String xml = "<space id=\"" + spaceId + "\"></space>";
+        return new SpaceContentsReader(
+            new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
 }
\ No newline at end of file
@@ -16,15 +16,18 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.duracloud.client.ContentStore;
+import org.duracloud.client.SpaceContentsReader;
 import org.duracloud.retrieval.RetrievalTestBase;
 import org.easymock.EasyMock;
 import org.junit.Before;
@@ -63,15 +66,42 @@ public class SpaceListWorkerTest extends RetrievalTestBase {
         contentStore = EasyMock.createMock(ContentStore.class);
         EasyMock.expect(contentStore.getStorageProviderType())
                 .andReturn("mock-provider").times(3);
-        EasyMock.expect(contentStore.getSpaceContents("space1"))
-                .andReturn(contents1.iterator());
-        EasyMock.expect(contentStore.getSpaceContents("space1"))
-                .andReturn(contents1.iterator());
-        EasyMock.expect(contentStore.getSpaceContents("space2"))
-                .andReturn(contents2.iterator());
+        expectListing("space1", contents1);
+        expectListing("space2", contents2);
         EasyMock.replay(contentStore);
     }
 
+    private void expectListing(String spaceId, List<String> contents)
+        throws Exception {
+        // The listing fits in the first page, the following page is empty
+        EasyMock.expect(contentStore.getSpaceContentsReader(
+                    EasyMock.eq(spaceId),
+                    EasyMock.isNull(),
+                    EasyMock.eq(SpaceListWorker.LISTING_PAGE_SIZE),
+                    EasyMock.isNull()))
+                .andAnswer(() -> createReader(spaceId, contents))
+                .anyTimes();
+        EasyMock.expect(contentStore.getSpaceContentsReader(
+                    EasyMock.eq(spaceId),
+                    EasyMock.isNull(),
+                    EasyMock.eq(SpaceListWorker.LISTING_PAGE_SIZE),
+                    EasyMock.eq(contents.get(contents.size() - 1))))
+                .andAnswer(() -> createReader(spaceId, new ArrayList<>()))
+                .anyTimes();
+    }
+
+    private SpaceContentsReader createReader(String spaceId,
+                                             List<String> contents)
+        throws Exception {
+        StringBuilder xml = new StringBuilder("<space id=\"" + spaceId + "\">");
+        for (String item : contents) {
+            xml.append("<item>").append(item).append("</item>");
+        }
+        xml.append("</space>");
+        return new SpaceContentsReader(
+            new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
     @Test
     public void testSpaceList1() throws Exception {
         doTestSpaceList1();
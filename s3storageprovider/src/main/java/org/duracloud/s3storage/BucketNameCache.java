@@ -0,0 +1,189 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.s3storage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.amazonaws.services.s3.model.Bucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the mapping of space IDs to the names of the S3 buckets which hold
+ * them, so that resolving a bucket name does not require listing all
+ * buckets on every call. The bucket listing is reloaded when a space ID is
+ * not found in the cache, and once the cached listing is older than the
+ * maximum age, so that buckets removed by other nodes are not used
+ * indefinitely.
+ *
+ * Bucket names are of the form [hidden-]{20 character prefix}.{spaceId}.
+ * If more than one bucket maps to the same space ID, the first one in the
+ * listing is used.
+ */
+public class BucketNameCache {
+
+    private final Logger log = LoggerFactory.getLogger(BucketNameCache.class);
+
+    private static final Pattern BUCKET_NAME_PATTERN =
+        Pattern.compile("(?:" + Pattern.quote(S3StorageProvider.HIDDEN_SPACE_PREFIX) +
+                        ")?\\w{20}[.](.+)");
+
+    public static final long DEFAULT_MAX_AGE_MS = 5 * 60 * 1000;
+
+    private final Supplier<List<Bucket>> bucketLister;
+    private final long maxAgeMs;
+
+    private volatile Map<String, String> bucketNames = new ConcurrentHashMap<>();
+    private volatile long loadedAt = 0;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong refreshes = new AtomicLong(0);
+
+    /**
+     * @param bucketLister provides the complete list of buckets
+     */
+    public BucketNameCache(Supplier<List<Bucket>> bucketLister) {
+        this(bucketLister, DEFAULT_MAX_AGE_MS);
+    }
+
+    /**
+     * @param bucketLister provides the complete list of buckets
+     * @param maxAgeMs     period after which the bucket listing is reloaded
+     */
+    public BucketNameCache(Supplier<List<Bucket>> bucketLister, long maxAgeMs) {
+        this.bucketLister = bucketLister;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Gets the name of the bucket for a space, reloading the bucket listing
+     * if the space is not in the cache.
+     *
+     * @param spaceId ID of the space
+     * @return the bucket name, or null if no bucket exists for the space
+     */
+    public String getBucketName(String spaceId) {
+        String bucketName = bucketNames.get(spaceId);
+        if (null != bucketName && !isExpired()) {
+            hits.incrementAndGet();
+            return bucketName;
+        }
+
+        misses.incrementAndGet();
+        synchronized (this) {
+            // The listing may have been reloaded while waiting
+            bucketName = bucketNames.get(spaceId);
+            if (null == bucketName || isExpired()) {
+                refresh();
+                bucketName = bucketNames.get(spaceId);
+            }
+        }
+        return bucketName;
+    }
+
+    private boolean isExpired() {
+        return System.currentTimeMillis() - loadedAt > maxAgeMs;
+    }
+
+    /*
+     * Replaces the cached mappings with those from a new bucket listing.
+     * Must be called while holding the lock.
+     */
+    private void refresh() {
+        Map<String, String> loaded = new ConcurrentHashMap<>();
+        for (Bucket bucket : bucketLister.get()) {
+            String bucketName = bucket.getName();
+            String spaceId = getSpaceId(bucketName);
+            if (null != spaceId) {
+                loaded.putIfAbsent(spaceId, bucketName);
+            }
+        }
+        bucketNames = loaded;
+        loadedAt = System.currentTimeMillis();
+
+        long refreshCount = refreshes.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug("Reloaded {} bucket names (refreshes: {}, hits: {}, misses: {}, " +
+                      "hit rate: {})", loaded.size(), refreshCount, hits.get(),
+                      misses.get(), getHitRate());
+        }
+    }
+
+    /**
+     * @param bucketName name of an S3 bucket
+     * @return the space ID held in the bucket, or null if the bucket name is
+     * not in the form used for spaces
+     */
+    protected static String getSpaceId(String bucketName) {
+        Matcher matcher = BUCKET_NAME_PATTERN.matcher(bucketName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Records the bucket for a newly created space.
+     */
+    public synchronized void put(String spaceId, String bucketName) {
+        if (null != bucketName) {
+            bucketNames.put(spaceId, bucketName);
+        }
+    }
+
+    /**
+     * Removes a space, for example once its bucket has been deleted.
+     */
+    public synchronized void remove(String spaceId) {
+        bucketNames.remove(spaceId);
+    }
+
+    /**
+     * Removes all spaces. The bucket listing is reloaded on the next lookup.
+     */
+    public synchronized void clear() {
+        bucketNames = new ConcurrentHashMap<>();
+        loadedAt = 0;
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups for which the space was not in the cache
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of times the bucket listing has been loaded
+     */
+    public long getRefreshCount() {
+        return refreshes.get();
+    }
+
+    /**
+     * @return fraction of lookups answered from the cache, 0 if there have
+     * been no lookups
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+}
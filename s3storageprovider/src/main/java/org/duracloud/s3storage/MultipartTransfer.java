@@ -0,0 +1,412 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.s3storage;
+
+import static org.duracloud.storage.error.StorageException.NO_RETRY;
+import static org.duracloud.storage.error.StorageException.RETRY;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import org.apache.commons.io.IOUtils;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.storage.error.ChecksumMismatchException;
+import org.duracloud.storage.error.StorageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transfers large objects to S3 as multipart uploads, with the parts sent
+ * concurrently, and copies large objects with multipart copies of byte
+ * ranges of the source object.
+ *
+ * Each uploaded part is sent with its MD5 so that S3 rejects a corrupted
+ * part, and the MD5 of the whole content is computed as the parts are read
+ * so that it can be checked before the upload is completed. The ETag of the
+ * completed upload, which is derived from the part MD5s, is checked as
+ * well. If any part fails the upload is aborted so that no parts are left
+ * stored.
+ *
+ * Parts are held in memory until they are sent, so the number of parts
+ * read but not yet sent, across all uploads, is limited to the number of
+ * transfer threads.
+ */
+public class MultipartTransfer {
+
+    private final Logger log = LoggerFactory.getLogger(MultipartTransfer.class);
+
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    public static final int MAX_PARTS = 10000;
+
+    private final AmazonS3 s3Client;
+    private final long partSize;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore bufferedParts;
+
+    /**
+     * @param s3Client client used for the transfers
+     * @param partSize size of each part, other than the last, in bytes
+     * @param threads  number of parts to transfer concurrently
+     */
+    public MultipartTransfer(AmazonS3 s3Client, long partSize, int threads) {
+        if (partSize < 1 || threads < 1) {
+            throw new IllegalArgumentException(
+                "part size and threads must be greater than zero");
+        }
+        this.s3Client = s3Client;
+        this.partSize = partSize;
+        this.bufferedParts = new Semaphore(threads);
+
+        // Threads are only kept while transfers are running
+        final AtomicInteger threadCount = new AtomicInteger(0);
+        ThreadFactory threadFactory = runnable -> newThread(runnable, threadCount);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                               new LinkedBlockingQueue<>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private Thread newThread(Runnable runnable, AtomicInteger threadCount) {
+        Thread thread = new Thread(runnable, "s3-multipart-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+
+    /*
+     * Increases the part size if needed to keep within the part limit
+     */
+    protected long getPartSize(long contentSize) {
+        long minSize = (contentSize + MAX_PARTS - 1) / MAX_PARTS;
+        return Math.max(partSize, minSize);
+    }
+
+    /**
+     * Uploads content as a multipart upload.
+     *
+     * @param request          describes the object to create
+     * @param content          the content to upload, which is read on the
+     *                         calling thread
+     * @param contentSize      the expected size of the content, or a
+     *                         negative value if it is not known
+     * @param expectedChecksum the expected MD5 of the content, may be null
+     * @return the MD5 of the uploaded content
+     * @throws ChecksumMismatchException if the content does not match the
+     *                                   expected checksum
+     */
+    public String upload(InitiateMultipartUploadRequest request,
+                         InputStream content,
+                         long contentSize,
+                         String expectedChecksum) {
+        String bucketName = request.getBucketName();
+        String key = request.getKey();
+        String uploadId = initiate(request);
+
+        List<Future<PartETag>> parts = new ArrayList<>();
+        boolean completed = false;
+        try {
+            long size = getPartSize(contentSize);
+            MessageDigest contentDigest = getDigest();
+            MessageDigest partDigests = getDigest();
+            long totalSize = 0;
+
+            for (int partNumber = 1; ; partNumber++) {
+                bufferedParts.acquire();
+                byte[] part;
+                int partLength;
+                try {
+                    throwIfFailed(parts);
+                    part = new byte[(int) Math.min(size, Integer.MAX_VALUE - 8)];
+                    partLength = IOUtils.read(content, part);
+                } catch (IOException | InterruptedException | RuntimeException e) {
+                    bufferedParts.release();
+                    throw e;
+                }
+
+                if (partLength == 0 && partNumber > 1) {
+                    bufferedParts.release();
+                    break;
+                }
+
+                contentDigest.update(part, 0, partLength);
+                MessageDigest partDigest = getDigest();
+                partDigest.update(part, 0, partLength);
+                byte[] partMd5 = partDigest.digest();
+                partDigests.update(partMd5);
+                totalSize += partLength;
+
+                UploadPartRequest partRequest = new UploadPartRequest()
+                    .withBucketName(bucketName)
+                    .withKey(key)
+                    .withUploadId(uploadId)
+                    .withPartNumber(partNumber)
+                    .withPartSize(partLength)
+                    .withMD5Digest(Base64.getEncoder().encodeToString(partMd5))
+                    .withInputStream(new ByteArrayInputStream(part, 0, partLength));
+                parts.add(submitBuffered(() -> s3Client.uploadPart(partRequest).getPartETag()));
+
+                if (partLength < part.length) {
+                    break;
+                }
+            }
+
+            List<PartETag> partETags = waitForParts(parts);
+
+            if (contentSize >= 0 && totalSize != contentSize) {
+                throw new StorageException(
+                    "The content body was incomplete for " + key + " to S3 bucket " +
+                    bucketName + ", " + totalSize + " of " + contentSize +
+                    " bytes were read. Content was not added.", NO_RETRY);
+            }
+
+            String checksum = ChecksumUtil.checksumBytesToString(contentDigest.digest());
+            if (null != expectedChecksum && !expectedChecksum.equals(checksum)) {
+                throw new ChecksumMismatchException(
+                    "Checksum mismatch detected attempting to add content " + key +
+                    " to S3 bucket " + bucketName + ", expected " + expectedChecksum +
+                    " but computed " + checksum + ". Content was not added.", NO_RETRY);
+            }
+
+            CompleteMultipartUploadResult result = s3Client.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+            completed = true;
+
+            String expectedETag = ChecksumUtil.checksumBytesToString(partDigests.digest()) +
+                                  "-" + partETags.size();
+            if (!expectedETag.equals(stripQuotes(result.getETag()))) {
+                s3Client.deleteObject(bucketName, key);
+                throw new ChecksumMismatchException(
+                    "The ETag of multipart upload " + key + " to S3 bucket " + bucketName +
+                    " (" + result.getETag() + ") does not match the ETag computed " +
+                    "from its parts (" + expectedETag + "). Content was not added.",
+                    NO_RETRY);
+            }
+            return checksum;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while uploading " + key +
+                                       " to S3 bucket " + bucketName, e, NO_RETRY);
+        } catch (IOException e) {
+            throw new StorageException("Could not read content " + key +
+                                       " for upload to S3 bucket " + bucketName +
+                                       " due to error: " + e.getMessage(), e, NO_RETRY);
+        } catch (AmazonClientException e) {
+            throw new StorageException("Could not add content " + key +
+                                       " to S3 bucket " + bucketName +
+                                       " due to error: " + e.getMessage(), e, NO_RETRY);
+        } finally {
+            if (!completed) {
+                awaitParts(parts);
+                abort(bucketName, key, uploadId);
+            }
+        }
+    }
+
+    /**
+     * Copies an object using multipart copies of ranges of the source.
+     *
+     * @param request    describes the object to create, including its metadata
+     * @param srcBucket  bucket of the source object
+     * @param srcKey     key of the source object
+     * @param sourceSize size of the source object
+     * @return the ETag of the new object
+     */
+    public String copy(InitiateMultipartUploadRequest request,
+                       String srcBucket,
+                       String srcKey,
+                       long sourceSize) {
+        String bucketName = request.getBucketName();
+        String key = request.getKey();
+        String uploadId = initiate(request);
+
+        List<Future<PartETag>> parts = new ArrayList<>();
+        boolean completed = false;
+        try {
+            long size = getPartSize(sourceSize);
+            int partNumber = 1;
+            for (long start = 0; start < sourceSize; start += size) {
+                CopyPartRequest partRequest = new CopyPartRequest()
+                    .withSourceBucketName(srcBucket)
+                    .withSourceKey(srcKey)
+                    .withDestinationBucketName(bucketName)
+                    .withDestinationKey(key)
+                    .withUploadId(uploadId)
+                    .withPartNumber(partNumber++)
+                    .withFirstByte(start)
+                    .withLastByte(Math.min(start + size, sourceSize) - 1);
+                parts.add(executor.submit(() -> s3Client.copyPart(partRequest).getPartETag()));
+            }
+
+            List<PartETag> partETags = waitForParts(parts);
+            CompleteMultipartUploadResult result = s3Client.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+            completed = true;
+            return result.getETag();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while copying " + srcKey +
+                                       " to " + key, e, NO_RETRY);
+        } catch (AmazonClientException e) {
+            throw new StorageException("Error copying from: " + srcBucket + " / " + srcKey +
+                                       ", to: " + bucketName + " / " + key +
+                                       " due to error: " + e.getMessage(), e, RETRY);
+        } finally {
+            if (!completed) {
+                awaitParts(parts);
+                abort(bucketName, key, uploadId);
+            }
+        }
+    }
+
+    private String initiate(InitiateMultipartUploadRequest request) {
+        try {
+            return s3Client.initiateMultipartUpload(request).getUploadId();
+        } catch (AmazonClientException e) {
+            throw new StorageException("Could not start multipart upload of " +
+                                       request.getKey() + " to S3 bucket " +
+                                       request.getBucketName() + " due to error: " +
+                                       e.getMessage(), e, RETRY);
+        }
+    }
+
+    /*
+     * Runs the transfer of a part held in memory, releasing its permit once
+     * it completes, or if it cannot be run
+     */
+    private Future<PartETag> submitBuffered(PartTransfer transfer) {
+        try {
+            return executor.submit(() -> {
+                try {
+                    return transfer.run();
+                } finally {
+                    bufferedParts.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bufferedParts.release();
+            throw e;
+        }
+    }
+
+    private interface PartTransfer {
+        PartETag run();
+    }
+
+    private void throwIfFailed(List<Future<PartETag>> parts) throws InterruptedException {
+        for (Future<PartETag> part : parts) {
+            if (part.isDone()) {
+                getPart(part);
+            }
+        }
+    }
+
+    private List<PartETag> waitForParts(List<Future<PartETag>> parts)
+        throws InterruptedException {
+        List<PartETag> partETags = new ArrayList<>();
+        for (Future<PartETag> part : parts) {
+            partETags.add(getPart(part));
+        }
+        partETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+        return partETags;
+    }
+
+    private PartETag getPart(Future<PartETag> part) throws InterruptedException {
+        try {
+            return part.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new StorageException(cause.getMessage(), cause, NO_RETRY);
+        }
+    }
+
+    /*
+     * Waits for parts which are still being transferred when an upload
+     * fails, so that the upload can be aborted once none of its parts can
+     * be stored after the abort.
+     */
+    private void awaitParts(List<Future<PartETag>> parts) {
+        for (Future<PartETag> part : parts) {
+            try {
+                part.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // The failure of the upload has already been reported
+            }
+        }
+    }
+
+    /*
+     * Aborts an upload so that its parts are no longer stored
+     */
+    private void abort(String bucketName, String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(
+                new AbortMultipartUploadRequest(bucketName, key, uploadId));
+        } catch (AmazonClientException e) {
+            log.warn("Unable to abort multipart upload {} of {} to S3 bucket {}, " +
+                     "its parts will be removed by the bucket lifecycle policy: {}",
+                     uploadId, key, bucketName, e.getMessage());
+        }
+    }
+
+    private MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(ChecksumUtil.Algorithm.MD5.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String stripQuotes(String etag) {
+        if (null != etag && etag.length() > 1 &&
+            etag.startsWith("\"") && etag.endsWith("\"")) {
+            return etag.substring(1, etag.length() - 1);
+        }
+        return etag;
+    }
+
+    /**
+     * Stops the transfer threads once all submitted transfers are complete.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+}
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3;
@@ -39,6 +40,7 @@ import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.CopyObjectResult;
 import com.amazonaws.services.s3.model.DeletePublicAccessBlockRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
@@ -61,6 +63,7 @@ import org.duracloud.common.util.DateUtil;
 import org.duracloud.storage.domain.ContentByteRange;
 import org.duracloud.storage.domain.ContentIterator;
 import org.duracloud.storage.domain.RetrievedContent;
+import org.duracloud.storage.domain.StorageAccount.OPTS;
 import org.duracloud.storage.domain.StorageProviderType;
 import org.duracloud.storage.error.ChecksumMismatchException;
 import org.duracloud.storage.error.NotFoundException;
@@ -88,11 +91,29 @@ public class S3StorageProvider extends StorageProviderBase {
     private static final String UTF_8 = StandardCharsets.UTF_8.name();
     public static final String HIDDEN_SPACE_PREFIX = "hidden-";
 
+    // According to AWS docs, the access key (used in DuraCloud as a
+    // prefix for uniqueness) is a 20 character alphanumeric sequence.
+    private static final Pattern SPACE_BUCKET_PATTERN = Pattern.compile("\\w{20}[.].*");
+
     protected static final String HEADER_VALUE_PREFIX = UTF_8 + "''";
     protected static final String HEADER_KEY_SUFFIX = "*";
 
+    public static final long DEFAULT_MULTIPART_THRESHOLD = 100L * 1024 * 1024;
+    public static final long DEFAULT_MULTIPART_PART_SIZE = 16L * 1024 * 1024;
+    public static final int DEFAULT_MULTIPART_THREADS = 4;
+
+    // Largest object which S3 accepts in a single put or copy
+    protected static final long MAX_SINGLE_TRANSFER_SIZE = 5L * 1024 * 1024 * 1024;
+
+    // User metadata holding the MD5 of content stored in parts, as the ETag
+    // of such content is not its MD5
+    protected static final String MULTIPART_CHECKSUM_KEY = "multipart-checksum";
+
     protected String accessKeyId = null;
     protected AmazonS3 s3Client = null;
+    protected BucketNameCache bucketNameCache;
+    protected long multipartThreshold;
+    protected MultipartTransfer multipartTransfer;
 
     public S3StorageProvider(String accessKey, String secretKey) {
         this(S3ProviderUtil.getAmazonS3Client(accessKey, secretKey, null),
@@ -113,6 +134,45 @@ public class S3StorageProvider extends StorageProviderBase {
                              Map<String, String> options) {
         this.accessKeyId = accessKey;
         this.s3Client = s3Client;
+        this.bucketNameCache = new BucketNameCache(this::listAllBuckets);
+
+        this.multipartThreshold = getLongOption(options, OPTS.MULTIPART_THRESHOLD,
+                                                DEFAULT_MULTIPART_THRESHOLD);
+        long partSize = Math.max(MultipartTransfer.MIN_PART_SIZE,
+                                 getLongOption(options, OPTS.MULTIPART_PART_SIZE,
+                                               DEFAULT_MULTIPART_PART_SIZE));
+        long threads = Math.max(1, getLongOption(options, OPTS.MULTIPART_THREADS,
+                                                 DEFAULT_MULTIPART_THREADS));
+        this.multipartTransfer = new MultipartTransfer(s3Client, partSize, (int) threads);
+    }
+
+    private long getLongOption(Map<String, String> options, OPTS option, long defaultValue) {
+        String value = null == options ? null : options.get(option.name());
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid value {} of option {}, using {}",
+                         value, option.name(), defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Determines if content is transferred in parts. Subclasses for services
+     * which do not support multipart uploads and copies can disable them.
+     *
+     * @return true if content at or above the multipart threshold is
+     * transferred in parts
+     */
+    protected boolean isMultipartEnabled() {
+        return true;
+    }
+
+    protected boolean useMultipart(long contentSize) {
+        return isMultipartEnabled() &&
+               (contentSize >= multipartThreshold || contentSize > MAX_SINGLE_TRANSFER_SIZE);
     }
 
     /**
@@ -162,7 +222,8 @@ public class S3StorageProvider extends StorageProviderBase {
         log.debug("getSpaceContents(" + spaceId + ", " + prefix);
 
         throwIfSpaceNotExist(spaceId);
-        return new ContentIterator(this, spaceId, prefix);
+        // Retrieve the next page of the listing while the current one is consumed
+        return new ContentIterator(this, spaceId, prefix, StorageProvider.DEFAULT_MAX_RESULTS, 1, null);
     }
 
     /**
@@ -243,6 +304,7 @@ public class S3StorageProvider extends StorageProviderBase {
 
         // enable ACLs
         final var bucketName = bucket.getName();
+        bucketNameCache.put(spaceId, bucketName);
         s3Client.deletePublicAccessBlock(new DeletePublicAccessBlockRequest()
             .withBucketName(bucketName));
 
@@ -318,6 +380,7 @@ public class S3StorageProvider extends StorageProviderBase {
 
             s3Client.setBucketLifecycleConfiguration(bucketName, configuration);
 
+            bucketNameCache.put(spaceId, bucketName);
             return spaceId;
         } catch (AmazonClientException e) {
             String err = "Could not create S3 bucket with name " + bucketName
@@ -386,6 +449,7 @@ public class S3StorageProvider extends StorageProviderBase {
                          + " due to error: " + e.getMessage();
             throw new StorageException(err, e, RETRY);
         }
+        bucketNameCache.remove(spaceId);
     }
 
     /**
@@ -394,6 +458,25 @@ public class S3StorageProvider extends StorageProviderBase {
     protected Map<String, String> getAllSpaceProperties(String spaceId) {
         log.debug("getAllSpaceProperties(" + spaceId + ")");
 
+        Map<String, String> spaceProperties = getStoredSpaceProperties(spaceId);
+
+        // Add space count
+        spaceProperties.put(PROPERTIES_SPACE_COUNT,
+                            getSpaceCount(spaceId, MAX_ITEM_COUNT));
+
+        return spaceProperties;
+    }
+
+    /**
+     * Retrieves the space properties stored as bucket tags. Unlike
+     * getAllSpaceProperties(), this does not list the space contents.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    protected Map<String, String> getStoredSpaceProperties(String spaceId) {
+        log.debug("getStoredSpaceProperties(" + spaceId + ")");
+
         // Will throw if bucket does not exist
         String bucketName = getBucketName(spaceId);
 
@@ -416,13 +499,7 @@ public class S3StorageProvider extends StorageProviderBase {
         }
 
         // Handle @ symbol (change from +), to allow for email usernames in ACLs
-        spaceProperties = replaceInMapValues(spaceProperties, "+", "@");
-
-        // Add space count
-        spaceProperties.put(PROPERTIES_SPACE_COUNT,
-                            getSpaceCount(spaceId, MAX_ITEM_COUNT));
-
-        return spaceProperties;
+        return replaceInMapValues(spaceProperties, "+", "@");
     }
 
     /*
@@ -493,7 +570,7 @@ public class S3StorageProvider extends StorageProviderBase {
 
         Map<String, String> originalProperties;
         try {
-            originalProperties = getAllSpaceProperties(spaceId);
+            originalProperties = getStoredSpaceProperties(spaceId);
         } catch (NotFoundException e) {
             // Likely adding a new space, so no existing properties yet.
             originalProperties = new HashMap<>();
@@ -619,14 +696,6 @@ public class S3StorageProvider extends StorageProviderBase {
 
         ObjectMetadata objMetadata = new ObjectMetadata();
         objMetadata.setContentType(contentMimeType);
-        if (contentSize > 0) {
-            objMetadata.setContentLength(contentSize);
-        }
-        if (null != contentChecksum && !contentChecksum.isEmpty()) {
-            String encodedChecksum =
-                ChecksumUtil.convertToBase64Encoding(contentChecksum);
-            objMetadata.setContentMD5(encodedChecksum);
-        }
 
         if (contentEncoding != null) {
             objMetadata.setContentEncoding(contentEncoding);
@@ -644,6 +713,20 @@ public class S3StorageProvider extends StorageProviderBase {
             }
         }
 
+        if (useMultipart(contentSize)) {
+            return addMultipartContent(bucketName, contentId, objMetadata,
+                                       contentSize, contentChecksum, content);
+        }
+
+        if (contentSize > 0) {
+            objMetadata.setContentLength(contentSize);
+        }
+        if (null != contentChecksum && !contentChecksum.isEmpty()) {
+            String encodedChecksum =
+                ChecksumUtil.convertToBase64Encoding(contentChecksum);
+            objMetadata.setContentMD5(encodedChecksum);
+        }
+
         PutObjectRequest putRequest = new PutObjectRequest(bucketName,
                                                            contentId,
                                                            wrappedContent,
@@ -721,6 +804,57 @@ public class S3StorageProvider extends StorageProviderBase {
         return providerChecksum;
     }
 
+    /*
+     * Adds content in parts. The MD5 of the content is stored in the object
+     * metadata, as the ETag of content stored in parts is not its MD5.
+     */
+    private String addMultipartContent(String bucketName,
+                                       String contentId,
+                                       ObjectMetadata objMetadata,
+                                       long contentSize,
+                                       String contentChecksum,
+                                       InputStream content) {
+        boolean checksumKnown = null != contentChecksum && !contentChecksum.isEmpty();
+        if (checksumKnown) {
+            objMetadata.addUserMetadata(MULTIPART_CHECKSUM_KEY, contentChecksum);
+        }
+
+        String checksum =
+            multipartTransfer.upload(createMultipartRequest(bucketName, contentId, objMetadata),
+                                     content,
+                                     contentSize,
+                                     checksumKnown ? contentChecksum : null);
+
+        if (!checksumKnown) {
+            // The checksum is only known once all of the content has been
+            // read, so it is added by copying the object onto itself
+            objMetadata.addUserMetadata(MULTIPART_CHECKSUM_KEY, checksum);
+            try {
+                multipartTransfer.copy(createMultipartRequest(bucketName, contentId, objMetadata),
+                                       bucketName, contentId, contentSize);
+            } catch (StorageException e) {
+                try {
+                    s3Client.deleteObject(bucketName, contentId);
+                } catch (AmazonClientException ex) {
+                    log.warn("Unable to remove content {} from S3 bucket {}: {}",
+                             contentId, bucketName, ex.getMessage());
+                }
+                throw new StorageException("Could not store the checksum of content " +
+                                           contentId + " in S3 bucket " + bucketName +
+                                           ". Content was not added.", e, NO_RETRY);
+            }
+        }
+        return checksum;
+    }
+
+    private InitiateMultipartUploadRequest createMultipartRequest(String bucketName,
+                                                                  String contentId,
+                                                                  ObjectMetadata objMetadata) {
+        return new InitiateMultipartUploadRequest(bucketName, contentId, objMetadata)
+            .withStorageClass(DEFAULT_STORAGE_CLASS)
+            .withCannedACL(CannedAccessControlList.Private);
+    }
+
     private String removeContentEncoding(Map<String, String> properties) {
         if (properties != null) {
             return properties.remove(CONTENT_ENCODING);
@@ -813,7 +947,13 @@ public class S3StorageProvider extends StorageProviderBase {
         // Will throw if destination bucket does not exist
         String destBucketName = getBucketName(destSpaceId);
 
-        throwIfContentNotExist(sourceBucketName, sourceContentId);
+        ObjectMetadata sourceMetadata =
+            getExistingObjectMetadata(sourceBucketName, sourceContentId);
+
+        if (null != sourceMetadata && useMultipart(sourceMetadata.getContentLength())) {
+            return copyMultipartContent(sourceBucketName, sourceContentId, sourceMetadata,
+                                        destSpaceId, destBucketName, destContentId);
+        }
 
         CopyObjectRequest request = new CopyObjectRequest(sourceBucketName,
                                                           sourceContentId,
@@ -823,10 +963,70 @@ public class S3StorageProvider extends StorageProviderBase {
         request.setCannedAccessControlList(CannedAccessControlList.Private);
 
         CopyObjectResult result = doCopyObject(request);
+        String checksum = result.getETag();
+        if (null != sourceMetadata &&
+            null != sourceMetadata.getUserMetadata().get(MULTIPART_CHECKSUM_KEY)) {
+            // The copy keeps the checksum stored with content added in parts
+            checksum = getContentProperties(destSpaceId, destContentId)
+                .get(PROPERTIES_CONTENT_CHECKSUM);
+        }
         return StorageProviderUtil.compareChecksum(this,
                                                    sourceSpaceId,
                                                    sourceContentId,
-                                                   result.getETag());
+                                                   checksum);
+    }
+
+    /*
+     * Copies content in parts, each part being a range of the source object
+     * copied within S3. S3 verifies each part as it is copied; the copy is
+     * then checked to have the size and checksum of the source.
+     */
+    private String copyMultipartContent(String sourceBucketName,
+                                        String sourceContentId,
+                                        ObjectMetadata sourceMetadata,
+                                        String destSpaceId,
+                                        String destBucketName,
+                                        String destContentId) {
+        long sourceSize = sourceMetadata.getContentLength();
+        String sourceChecksum =
+            prepContentProperties(sourceMetadata).get(PROPERTIES_CONTENT_CHECKSUM);
+
+        ObjectMetadata destMetadata = new ObjectMetadata();
+        destMetadata.setUserMetadata(new HashMap<>(sourceMetadata.getUserMetadata()));
+        destMetadata.setContentType(sourceMetadata.getContentType());
+        if (null != sourceMetadata.getContentEncoding()) {
+            destMetadata.setContentEncoding(sourceMetadata.getContentEncoding());
+        }
+        if (isMD5(sourceChecksum)) {
+            destMetadata.addUserMetadata(MULTIPART_CHECKSUM_KEY, sourceChecksum);
+        }
+
+        multipartTransfer.copy(createMultipartRequest(destBucketName, destContentId, destMetadata),
+                               sourceBucketName,
+                               sourceContentId,
+                               sourceSize);
+
+        Map<String, String> destProperties = getContentProperties(destSpaceId, destContentId);
+        if (!String.valueOf(sourceSize).equals(destProperties.get(PROPERTIES_CONTENT_SIZE))) {
+            throw new StorageException("The copy of " + sourceContentId + " to " +
+                                       destContentId + " in space " + destSpaceId +
+                                       " has size " +
+                                       destProperties.get(PROPERTIES_CONTENT_SIZE) +
+                                       " rather than " + sourceSize, NO_RETRY);
+        }
+        return StorageProviderUtil.compareChecksum(
+            destProperties.get(PROPERTIES_CONTENT_CHECKSUM),
+            destSpaceId,
+            destContentId,
+            sourceChecksum);
+    }
+
+    /*
+     * Determines if a checksum is an MD5 rather than the ETag of content
+     * stored in parts by another client
+     */
+    private boolean isMD5(String checksum) {
+        return null != checksum && !checksum.contains("-");
     }
 
     private CopyObjectResult doCopyObject(CopyObjectRequest request) {
@@ -986,8 +1186,12 @@ public class S3StorageProvider extends StorageProviderBase {
     }
 
     protected void throwIfContentNotExist(String bucketName, String contentId) {
+        getExistingObjectMetadata(bucketName, contentId);
+    }
+
+    private ObjectMetadata getExistingObjectMetadata(String bucketName, String contentId) {
         try {
-            s3Client.getObjectMetadata(bucketName, contentId);
+            return s3Client.getObjectMetadata(bucketName, contentId);
         } catch (AmazonClientException e) {
             String err = "Could not find content item with ID " + contentId +
                          " in S3 bucket " + bucketName + ". S3 error: " + e.getMessage();
@@ -1011,19 +1215,41 @@ public class S3StorageProvider extends StorageProviderBase {
     protected void updateObjectProperties(String bucketName,
                                           String contentId,
                                           ObjectMetadata objMetadata) {
+        // Will throw if content does not exist
+        ObjectMetadata existing = getExistingObjectMetadata(bucketName, contentId);
         try {
             AccessControlList originalACL =
                 s3Client.getObjectAcl(bucketName, contentId);
-            CopyObjectRequest copyRequest = new CopyObjectRequest(bucketName,
-                                                                  contentId,
-                                                                  bucketName,
-                                                                  contentId);
-            copyRequest.setStorageClass(DEFAULT_STORAGE_CLASS);
-            copyRequest.setNewObjectMetadata(objMetadata);
-            s3Client.copyObject(copyRequest);
+
+            // Keep the checksum of content stored in parts
+            String checksum = getETagValue(existing.getETag());
+            String multipartChecksum =
+                existing.getUserMetadata().get(MULTIPART_CHECKSUM_KEY);
+            if (null != multipartChecksum) {
+                objMetadata.addUserMetadata(MULTIPART_CHECKSUM_KEY, multipartChecksum);
+            }
+
+            // A single copy is used up to the largest size it allows
+            if (isMultipartEnabled() &&
+                existing.getContentLength() > MAX_SINGLE_TRANSFER_SIZE) {
+                if (null == multipartChecksum && isMD5(checksum)) {
+                    objMetadata.addUserMetadata(MULTIPART_CHECKSUM_KEY, checksum);
+                }
+                multipartTransfer.copy(createMultipartRequest(bucketName, contentId, objMetadata),
+                                       bucketName,
+                                       contentId,
+                                       existing.getContentLength());
+            } else {
+                CopyObjectRequest copyRequest = new CopyObjectRequest(bucketName,
+                                                                      contentId,
+                                                                      bucketName,
+                                                                      contentId);
+                copyRequest.setStorageClass(DEFAULT_STORAGE_CLASS);
+                copyRequest.setNewObjectMetadata(objMetadata);
+                s3Client.copyObject(copyRequest);
+            }
             s3Client.setObjectAcl(bucketName, contentId, originalACL);
         } catch (AmazonClientException e) {
-            throwIfContentNotExist(bucketName, contentId);
             String err = "Could not update metadata for content " + contentId + " in S3 bucket " +
                          bucketName + " due to error: " + e.getMessage();
             throw new StorageException(err, e, NO_RETRY);
@@ -1063,8 +1289,13 @@ public class S3StorageProvider extends StorageProviderBase {
 
         // Set the user properties
         Map<String, String> userProperties = objMetadata.getUserMetadata();
+        String multipartChecksum = null;
         for (String metaName : userProperties.keySet()) {
             String metaValue = userProperties.get(metaName);
+            if (MULTIPART_CHECKSUM_KEY.equals(metaName)) {
+                multipartChecksum = metaValue;
+                continue;
+            }
             contentProperties.put(getWithSpace(decodeHeaderKey(metaName)), decodeHeaderValue(metaValue));
         }
 
@@ -1102,6 +1333,9 @@ public class S3StorageProvider extends StorageProviderBase {
         String checksum = objMetadata.getETag();
         if (checksum != null) {
             String eTagValue = getETagValue(checksum);
+            if (null != multipartChecksum) {
+                eTagValue = multipartChecksum;
+            }
             contentProperties.put(PROPERTIES_CONTENT_CHECKSUM, eTagValue);
             contentProperties.put(PROPERTIES_CONTENT_MD5, eTagValue);
             contentProperties.put(Headers.ETAG, eTagValue);
@@ -1134,6 +1368,9 @@ public class S3StorageProvider extends StorageProviderBase {
      * Gets the name of an existing bucket based on a space ID. If no bucket
      * with this spaceId exists, throws a NotFoundException
      *
+     * Bucket names are cached; the list of buckets is only retrieved from S3
+     * when the space is not found in the cache.
+     *
      * @param spaceId the space Id to convert into an S3 bucket name
      * @return S3 bucket name of a given DuraCloud space
      * @throws NotFoundException if no bucket matches this spaceID
@@ -1142,15 +1379,18 @@ public class S3StorageProvider extends StorageProviderBase {
         // Determine if there is an existing bucket that matches this space ID.
         // The bucket name may use any access key ID as the prefix, so there is
         // no way to know the exact bucket name up front.
-        List<Bucket> buckets = listAllBuckets();
-        for (Bucket bucket : buckets) {
-            String bucketName = bucket.getName();
-            spaceId = spaceId.replace(".", "[.]");
-            if (bucketName.matches("(" + HIDDEN_SPACE_PREFIX + ")?[\\w]{20}[.]" + spaceId)) {
-                return bucketName;
-            }
+        String bucketName = bucketNameCache.getBucketName(spaceId);
+        if (null == bucketName) {
+            throw new NotFoundException("No S3 bucket found matching spaceID: " + spaceId);
         }
-        throw new NotFoundException("No S3 bucket found matching spaceID: " + spaceId);
+        return bucketName;
+    }
+
+    /**
+     * @return the cache of bucket names, which provides hit rate statistics
+     */
+    public BucketNameCache getBucketNameCache() {
+        return bucketNameCache;
     }
 
     /**
@@ -1175,13 +1415,7 @@ public class S3StorageProvider extends StorageProviderBase {
      * DuraCloud space naming conventions, false otherwise
      */
     protected boolean isSpace(String bucketName) {
-        boolean isSpace = false;
-        // According to AWS docs, the access key (used in DuraCloud as a
-        // prefix for uniqueness) is a 20 character alphanumeric sequence.
-        if (bucketName.matches("[\\w]{20}[.].*")) {
-            isSpace = true;
-        }
-        return isSpace;
+        return SPACE_BUCKET_PATTERN.matcher(bucketName).matches();
     }
 
     /**
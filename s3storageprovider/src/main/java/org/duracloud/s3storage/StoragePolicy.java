@@ -7,6 +7,7 @@
  */
 package org.duracloud.s3storage;
 
+import com.amazonaws.services.s3.model.AbortIncompleteMultipartUpload;
 import com.amazonaws.services.s3.model.BucketLifecycleConfiguration;
 import com.amazonaws.services.s3.model.StorageClass;
 
@@ -19,6 +20,10 @@ import com.amazonaws.services.s3.model.StorageClass;
  */
 public class StoragePolicy {
 
+    // Parts of uploads which were neither completed nor aborted, for
+    // example due to a restart, are removed after this many days
+    public static final int DAYS_TO_ABORT_INCOMPLETE_UPLOADS = 7;
+
     private StorageClass storageClass;
     private int daysToTransition;
 
@@ -53,6 +58,9 @@ public class StoragePolicy {
                 .withPrefix("")
                 .withStatus(BucketLifecycleConfiguration.ENABLED.toString());
         rule.addTransition(transition);
+        rule.setAbortIncompleteMultipartUpload(
+            new AbortIncompleteMultipartUpload()
+                .withDaysAfterInitiation(DAYS_TO_ABORT_INCOMPLETE_UPLOADS));
 
         return new BucketLifecycleConfiguration().withRules(rule);
     }
@@ -0,0 +1,109 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.s3storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.amazonaws.services.s3.model.Bucket;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BucketNameCacheTest {
+
+    private static final String PREFIX = "abcdefghijklmnopqrst";
+
+    private List<Bucket> buckets;
+    private int listings;
+
+    @Before
+    public void setUp() {
+        buckets = new ArrayList<>();
+        listings = 0;
+    }
+
+    private BucketNameCache createCache(long maxAgeMs) {
+        return new BucketNameCache(() -> {
+            listings++;
+            return new ArrayList<>(buckets);
+        }, maxAgeMs);
+    }
+
+    @Test
+    public void testGetBucketName() {
+        buckets.addAll(Arrays.asList(new Bucket("not-a-space"),
+                                     new Bucket(PREFIX + ".space-1"),
+                                     new Bucket(PREFIX + ".space.2"),
+                                     new Bucket(S3StorageProvider.HIDDEN_SPACE_PREFIX +
+                                                PREFIX + ".hidden")));
+        BucketNameCache cache = createCache(BucketNameCache.DEFAULT_MAX_AGE_MS);
+
+        assertEquals(PREFIX + ".space-1", cache.getBucketName("space-1"));
+        assertEquals(PREFIX + ".space.2", cache.getBucketName("space.2"));
+        assertEquals(S3StorageProvider.HIDDEN_SPACE_PREFIX + PREFIX + ".hidden",
+                     cache.getBucketName("hidden"));
+        assertEquals(1, listings);
+
+        // A miss reloads the listing
+        assertNull(cache.getBucketName("space"));
+        assertNull(cache.getBucketName("space-2"));
+        assertEquals(3, listings);
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.getRefreshCount());
+        assertEquals(0.4, cache.getHitRate(), 0.001);
+    }
+
+    @Test
+    public void testPutRemove() {
+        buckets.add(new Bucket(PREFIX + ".space-1"));
+        BucketNameCache cache = createCache(BucketNameCache.DEFAULT_MAX_AGE_MS);
+        assertEquals(PREFIX + ".space-1", cache.getBucketName("space-1"));
+
+        // Newly created spaces are found without listing buckets
+        cache.put("space-2", PREFIX + ".space-2");
+        assertEquals(PREFIX + ".space-2", cache.getBucketName("space-2"));
+        assertEquals(1, listings);
+
+        // Removed spaces are not found, even if still listed
+        cache.remove("space-2");
+        assertNull(cache.getBucketName("space-2"));
+        assertEquals(2, listings);
+
+        cache.clear();
+        assertEquals(PREFIX + ".space-1", cache.getBucketName("space-1"));
+        assertEquals(3, listings);
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        buckets.add(new Bucket(PREFIX + ".space-1"));
+        BucketNameCache cache = createCache(0);
+        assertEquals(PREFIX + ".space-1", cache.getBucketName("space-1"));
+
+        // A bucket removed elsewhere is dropped once the listing expires
+        buckets.clear();
+        Thread.sleep(5);
+        assertNull(cache.getBucketName("space-1"));
+        assertEquals(2, listings);
+    }
+
+    @Test
+    public void testFirstBucketUsed() {
+        buckets.add(new Bucket(PREFIX + ".space-1"));
+        buckets.add(new Bucket("zyxwvutsrqponmlkjihg.space-1"));
+        BucketNameCache cache = createCache(BucketNameCache.DEFAULT_MAX_AGE_MS);
+        assertEquals(PREFIX + ".space-1", cache.getBucketName("space-1"));
+    }
+
+}
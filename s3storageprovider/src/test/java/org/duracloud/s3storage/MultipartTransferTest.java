@@ -0,0 +1,269 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.s3storage;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.apache.commons.io.IOUtils;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.storage.error.ChecksumMismatchException;
+import org.duracloud.storage.error.StorageException;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultipartTransferTest {
+
+    private static final String bucketName = "bucket";
+    private static final String key = "content-id";
+    private static final String uploadId = "upload-id";
+    private static final byte[] content =
+        "abcdefghijklmnopqrstuvwxy".getBytes(StandardCharsets.UTF_8);
+
+    private AmazonS3 s3Client;
+    private MultipartTransfer transfer;
+    private Set<String> partThreads;
+
+    @Before
+    public void setUp() {
+        s3Client = createMock(AmazonS3.class);
+        transfer = new MultipartTransfer(s3Client, 10, 2);
+        partThreads = ConcurrentHashMap.newKeySet();
+    }
+
+    @After
+    public void tearDown() {
+        verify(s3Client);
+        transfer.shutdown();
+    }
+
+    private void expectInitiate() {
+        InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+        initResult.setUploadId(uploadId);
+        expect(s3Client.initiateMultipartUpload(isA(InitiateMultipartUploadRequest.class)))
+            .andReturn(initResult);
+    }
+
+    private InitiateMultipartUploadRequest createRequest() {
+        return new InitiateMultipartUploadRequest(bucketName, key, new ObjectMetadata());
+    }
+
+    private static byte[] md5(byte[] bytes, int offset, int length) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("MD5");
+        digest.update(bytes, offset, length);
+        return digest.digest();
+    }
+
+    /*
+     * Reads the part as S3 would, returning the MD5 of the part as its ETag
+     */
+    private UploadPartResult uploadPart() throws Exception {
+        UploadPartRequest request = (UploadPartRequest) EasyMock.getCurrentArguments()[0];
+        partThreads.add(Thread.currentThread().getName());
+        byte[] part = IOUtils.toByteArray(request.getInputStream());
+        assertEquals(request.getPartSize(), part.length);
+
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(ChecksumUtil.checksumBytesToString(md5(part, 0, part.length)));
+        return result;
+    }
+
+    private String getMultipartETag(int partSize) throws Exception {
+        ByteArrayOutputStream partMd5s = new ByteArrayOutputStream();
+        int parts = 0;
+        for (int offset = 0; offset < content.length; offset += partSize) {
+            partMd5s.write(md5(content, offset, Math.min(partSize, content.length - offset)));
+            parts++;
+        }
+        byte[] bytes = partMd5s.toByteArray();
+        return "\"" + ChecksumUtil.checksumBytesToString(md5(bytes, 0, bytes.length)) +
+               "-" + parts + "\"";
+    }
+
+    @Test
+    public void testUpload() throws Exception {
+        expectInitiate();
+        expect(s3Client.uploadPart(isA(UploadPartRequest.class)))
+            .andAnswer(this::uploadPart).times(3);
+
+        Capture<CompleteMultipartUploadRequest> completeCapture = Capture.newInstance();
+        CompleteMultipartUploadResult completeResult = new CompleteMultipartUploadResult();
+        completeResult.setETag(getMultipartETag(10));
+        expect(s3Client.completeMultipartUpload(capture(completeCapture)))
+            .andReturn(completeResult);
+        replay(s3Client);
+
+        String checksum = ChecksumUtil.checksumBytesToString(md5(content, 0, content.length));
+        assertEquals(checksum, transfer.upload(createRequest(),
+                                               new ByteArrayInputStream(content),
+                                               content.length,
+                                               checksum));
+
+        List<PartETag> partETags = completeCapture.getValue().getPartETags();
+        assertEquals(3, partETags.size());
+        for (int i = 0; i < partETags.size(); i++) {
+            assertEquals(i + 1, partETags.get(i).getPartNumber());
+        }
+        for (String thread : partThreads) {
+            assertTrue(thread, thread.startsWith("s3-multipart-"));
+        }
+    }
+
+    @Test
+    public void testUploadChecksumMismatch() throws Exception {
+        expectInitiate();
+        expect(s3Client.uploadPart(isA(UploadPartRequest.class)))
+            .andAnswer(this::uploadPart).times(3);
+        s3Client.abortMultipartUpload(isA(AbortMultipartUploadRequest.class));
+        expectLastCall();
+        replay(s3Client);
+
+        try {
+            transfer.upload(createRequest(), new ByteArrayInputStream(content),
+                            content.length, "not-the-checksum");
+            fail("Exception expected");
+        } catch (ChecksumMismatchException e) {
+            assertTrue(e.getMessage().contains("not-the-checksum"));
+        }
+    }
+
+    @Test
+    public void testUploadPartFailure() throws Exception {
+        expectInitiate();
+        expect(s3Client.uploadPart(isA(UploadPartRequest.class)))
+            .andThrow(new AmazonClientException("part failed")).atLeastOnce();
+        expect(s3Client.uploadPart(isA(UploadPartRequest.class)))
+            .andAnswer(this::uploadPart).anyTimes();
+        Capture<AbortMultipartUploadRequest> abortCapture = Capture.newInstance();
+        s3Client.abortMultipartUpload(capture(abortCapture));
+        expectLastCall();
+        replay(s3Client);
+
+        try {
+            transfer.upload(createRequest(), new ByteArrayInputStream(content),
+                            content.length, null);
+            fail("Exception expected");
+        } catch (StorageException e) {
+            assertTrue(e.getMessage().contains("part failed"));
+        }
+        assertEquals(uploadId, abortCapture.getValue().getUploadId());
+    }
+
+    @Test(timeout = 10000)
+    public void testUploadRejected() throws Exception {
+        // More uploads than there are buffered part permits
+        int uploads = 3;
+        for (int i = 0; i < uploads; i++) {
+            expectInitiate();
+        }
+        s3Client.abortMultipartUpload(isA(AbortMultipartUploadRequest.class));
+        expectLastCall().times(uploads);
+        replay(s3Client);
+
+        transfer.shutdown();
+        // Permits are released when parts are rejected, so uploads do not stall
+        for (int i = 0; i < uploads; i++) {
+            try {
+                transfer.upload(createRequest(), new ByteArrayInputStream(content),
+                                content.length, null);
+                fail("Exception expected");
+            } catch (RejectedExecutionException e) {
+                assertNotNull(e);
+            }
+        }
+    }
+
+    @Test
+    public void testUploadIncomplete() throws Exception {
+        expectInitiate();
+        expect(s3Client.uploadPart(isA(UploadPartRequest.class)))
+            .andAnswer(this::uploadPart).times(3);
+        s3Client.abortMultipartUpload(isA(AbortMultipartUploadRequest.class));
+        expectLastCall();
+        replay(s3Client);
+
+        try {
+            transfer.upload(createRequest(), new ByteArrayInputStream(content),
+                            content.length + 1, null);
+            fail("Exception expected");
+        } catch (StorageException e) {
+            assertTrue(e.getMessage().contains("incomplete"));
+        }
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        expectInitiate();
+        Set<String> ranges = ConcurrentHashMap.newKeySet();
+        expect(s3Client.copyPart(isA(CopyPartRequest.class))).andAnswer(() -> {
+            CopyPartRequest request = (CopyPartRequest) EasyMock.getCurrentArguments()[0];
+            assertEquals("source-bucket", request.getSourceBucketName());
+            assertEquals("source-key", request.getSourceKey());
+            ranges.add(request.getFirstByte() + "-" + request.getLastByte());
+
+            CopyPartResult result = new CopyPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag-" + request.getPartNumber());
+            return result;
+        }).times(3);
+
+        CompleteMultipartUploadResult completeResult = new CompleteMultipartUploadResult();
+        completeResult.setETag("copy-etag");
+        expect(s3Client.completeMultipartUpload(anyObject(CompleteMultipartUploadRequest.class)))
+            .andReturn(completeResult);
+        replay(s3Client);
+
+        assertEquals("copy-etag",
+                     transfer.copy(createRequest(), "source-bucket", "source-key", 25));
+        assertEquals(Set.of("0-9", "10-19", "20-24"), ranges);
+    }
+
+    @Test
+    public void testGetPartSize() {
+        replay(s3Client);
+        assertEquals(10, transfer.getPartSize(1000));
+        assertEquals(11, transfer.getPartSize(MultipartTransfer.MAX_PARTS * 10L + 1));
+    }
+
+}
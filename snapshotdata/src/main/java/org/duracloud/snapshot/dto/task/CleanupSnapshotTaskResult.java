@@ -26,6 +26,18 @@ public class CleanupSnapshotTaskResult extends BaseDTO {
     @XmlValue
     private int contentExpirationDays;
 
+    /**
+     * The status of queueing the delete audit tasks of the snapshot content
+     */
+    @XmlValue
+    private String deleteAuditStatus;
+
+    /**
+     * The number of delete audit tasks which have been queued
+     */
+    @XmlValue
+    private long deleteAuditTasksQueued;
+
     // Required by JAXB
     public CleanupSnapshotTaskResult() {
     }
@@ -34,6 +46,14 @@ public class CleanupSnapshotTaskResult extends BaseDTO {
         this.contentExpirationDays = contentExpirationDays;
     }
 
+    public CleanupSnapshotTaskResult(int contentExpirationDays,
+                                     String deleteAuditStatus,
+                                     long deleteAuditTasksQueued) {
+        this.contentExpirationDays = contentExpirationDays;
+        this.deleteAuditStatus = deleteAuditStatus;
+        this.deleteAuditTasksQueued = deleteAuditTasksQueued;
+    }
+
     public int getContentExpirationDays() {
         return contentExpirationDays;
     }
@@ -42,6 +62,22 @@ public class CleanupSnapshotTaskResult extends BaseDTO {
         this.contentExpirationDays = contentExpirationDays;
     }
 
+    public String getDeleteAuditStatus() {
+        return deleteAuditStatus;
+    }
+
+    public void setDeleteAuditStatus(String deleteAuditStatus) {
+        this.deleteAuditStatus = deleteAuditStatus;
+    }
+
+    public long getDeleteAuditTasksQueued() {
+        return deleteAuditTasksQueued;
+    }
+
+    public void setDeleteAuditTasksQueued(long deleteAuditTasksQueued) {
+        this.deleteAuditTasksQueued = deleteAuditTasksQueued;
+    }
+
     /**
      * Creates a serialized version of task results
      *
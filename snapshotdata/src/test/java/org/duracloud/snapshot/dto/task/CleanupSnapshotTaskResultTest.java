@@ -20,6 +20,8 @@ import org.junit.Test;
 public class CleanupSnapshotTaskResultTest {
 
     private int expirationDays = 42;
+    private String deleteAuditStatus = "QUEUEING";
+    private long deleteAuditTasksQueued = 1000;
 
     @Test
     public void testSerialize() {
@@ -29,6 +31,14 @@ public class CleanupSnapshotTaskResultTest {
         assertThat(cleanResult,
                    containsString("\"contentExpirationDays\":" + expirationDays));
 
+        result = new CleanupSnapshotTaskResult(expirationDays,
+                                               deleteAuditStatus,
+                                               deleteAuditTasksQueued).serialize();
+        cleanResult = result.replaceAll("\\s+", "");
+        assertThat(cleanResult,
+                   containsString("\"deleteAuditStatus\":\"" + deleteAuditStatus + "\""));
+        assertThat(cleanResult,
+                   containsString("\"deleteAuditTasksQueued\":" + deleteAuditTasksQueued));
     }
 
     @Test
@@ -41,6 +51,14 @@ public class CleanupSnapshotTaskResultTest {
             CleanupSnapshotTaskResult.deserialize(taskParamsSerialized);
         assertThat(expirationDays,
                    equalTo(taskResult.getContentExpirationDays()));
+
+        taskParamsSerialized =
+            "{\"contentExpirationDays\" : " + expirationDays + "," +
+            " \"deleteAuditStatus\" : \"" + deleteAuditStatus + "\"," +
+            " \"deleteAuditTasksQueued\" : " + deleteAuditTasksQueued + "}";
+        taskResult = CleanupSnapshotTaskResult.deserialize(taskParamsSerialized);
+        assertThat(deleteAuditStatus, equalTo(taskResult.getDeleteAuditStatus()));
+        assertThat(deleteAuditTasksQueued, equalTo(taskResult.getDeleteAuditTasksQueued()));
     }
 
 }
@@ -7,6 +7,8 @@
  */
 package org.duracloud.snapshottask;
 
+import java.io.File;
+
 import com.amazonaws.services.s3.AmazonS3;
 import org.duracloud.common.queue.TaskQueue;
 import org.duracloud.mill.manifest.ManifestStore;
@@ -49,7 +51,8 @@ public class SnapshotTaskProvider extends TaskProviderBase {
                                 String bridgePass,
                                 String bridgeMemberId,
                                 TaskQueue auditQueue,
-                                ManifestStore manifestStore) {
+                                ManifestStore manifestStore,
+                                File cleanupCheckpointDir) {
         super(dcStoreId);
         log = LoggerFactory.getLogger(SnapshotTaskProvider.class);
 
@@ -74,7 +77,8 @@ public class SnapshotTaskProvider extends TaskProviderBase {
                                                    auditQueue,
                                                    manifestStore,
                                                    dcAccountName,
-                                                   dcStoreId));
+                                                   dcStoreId,
+                                                   cleanupCheckpointDir));
         taskList.add(new CompleteSnapshotTaskRunner(snapshotProvider,
                                                     unwrappedSnapshotProvider,
                                                     s3Client));
@@ -7,18 +7,31 @@
  */
 package org.duracloud.snapshottask.snapshot;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.BucketLifecycleConfiguration;
@@ -27,7 +40,6 @@ import org.duracloud.audit.task.AuditTask.ActionType;
 import org.duracloud.common.error.DuraCloudRuntimeException;
 import org.duracloud.common.queue.TaskQueue;
 import org.duracloud.common.queue.task.Task;
-import org.duracloud.common.retry.Retriable;
 import org.duracloud.common.retry.Retrier;
 import org.duracloud.mill.db.model.ManifestItem;
 import org.duracloud.mill.manifest.ManifestStore;
@@ -35,6 +47,7 @@ import org.duracloud.snapshot.SnapshotConstants;
 import org.duracloud.snapshot.dto.task.CleanupSnapshotTaskParameters;
 import org.duracloud.snapshot.dto.task.CleanupSnapshotTaskResult;
 import org.duracloud.snapshotstorage.SnapshotStorageProvider;
+import org.duracloud.storage.error.TaskException;
 import org.duracloud.storage.provider.TaskRunner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,11 +57,35 @@ import org.springframework.security.core.context.SecurityContextHolder;
  * Cleans up the snapshot by removing content that is no longer
  * needed now that the snapshot has been transferred successfully.
  *
+ * The removal of each content item is recorded by a delete audit task. These
+ * are read from the manifest and published in the background, in batches
+ * which are published in parallel. When a checkpoint directory is provided,
+ * the position reached in the manifest is recorded as batches are published,
+ * so that publishing resumes from that position after a failure or restart.
+ * Progress is reported in the result of the task, which may be performed
+ * again to check on the progress of the audit tasks of a space.
+ *
  * @author Bill Branan
  * Date: 8/14/14
  */
 public class CleanupSnapshotTaskRunner implements TaskRunner {
 
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_PUBLISH_THREADS = 4;
+
+    protected static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private static final String SPACE_ID = "spaceId";
+    private static final String USER_ID = "userId";
+    private static final String STORE_TYPE = "storeType";
+    private static final String DATE_TIME = "dateTime";
+    private static final String LAST_ITEM_ID = "lastItemId";
+    private static final String QUEUED = "queued";
+
+    // Fan-outs in progress, shared by runners of the same account and store
+    // so that the audit tasks of a space are only published by one of them
+    private static final Map<String, DeleteAuditFanOut> FAN_OUTS = new ConcurrentHashMap<>();
+
     private Logger log =
         LoggerFactory.getLogger(CleanupSnapshotTaskRunner.class);
 
@@ -60,6 +97,14 @@ public class CleanupSnapshotTaskRunner implements TaskRunner {
     private ManifestStore manifestStore;
     private String account;
     private String storeId;
+    private File checkpointDir;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int publishThreads = DEFAULT_PUBLISH_THREADS;
+    private int maxRetries = 4;
+    private int retryWaitMillis = 60 * 1000;
+
+    private ThreadPoolExecutor fanOutExecutor;
+    private ThreadPoolExecutor publishExecutor;
 
     public CleanupSnapshotTaskRunner(SnapshotStorageProvider unwrappedSnapshotProvider,
                                      AmazonS3 s3Client,
@@ -67,12 +112,68 @@ public class CleanupSnapshotTaskRunner implements TaskRunner {
                                      ManifestStore manifestStore,
                                      String account,
                                      String storeId) {
+        this(unwrappedSnapshotProvider, s3Client, auditTaskQueue, manifestStore,
+             account, storeId, null);
+    }
+
+    /**
+     * @param checkpointDir directory in which the progress of publishing
+     *                      delete audit tasks is recorded, null to not record
+     *                      progress
+     */
+    public CleanupSnapshotTaskRunner(SnapshotStorageProvider unwrappedSnapshotProvider,
+                                     AmazonS3 s3Client,
+                                     TaskQueue auditTaskQueue,
+                                     ManifestStore manifestStore,
+                                     String account,
+                                     String storeId,
+                                     File checkpointDir) {
         this.unwrappedSnapshotProvider = unwrappedSnapshotProvider;
         this.s3Client = s3Client;
         this.auditTaskQueue = auditTaskQueue;
         this.manifestStore = manifestStore;
         this.storeId = storeId;
         this.account = account;
+        this.checkpointDir = checkpointDir;
+
+        // Threads are only held while there are audit tasks to publish
+        this.fanOutExecutor = createExecutor("snapshot-cleanup-", 2, 100);
+        this.publishExecutor =
+            createExecutor("snapshot-cleanup-publish-", publishThreads, publishThreads * 2);
+
+        resumeDeleteAuditFanOuts();
+    }
+
+    private ThreadPoolExecutor createExecutor(String prefix, int threads, int capacity) {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName(prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor =
+            new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                                   new ArrayBlockingQueue<>(capacity), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @param batchSize the number of audit tasks put on the queue at once
+     */
+    protected void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @param maxRetries      the number of times publishing is resumed after
+     *                        a failure
+     * @param retryWaitMillis the time to wait before the first retry
+     */
+    protected void setRetries(int maxRetries, int retryWaitMillis) {
+        this.maxRetries = maxRetries;
+        this.retryWaitMillis = retryWaitMillis;
     }
 
     @Override
@@ -108,101 +209,361 @@ public class CleanupSnapshotTaskRunner implements TaskRunner {
         // Set policy on bucket
         s3Client.setBucketLifecycleConfiguration(bucketName, configuration);
 
-        queueContentDeleteAuditTasks(spaceId, userId);
+        DeleteAuditFanOut fanOut = queueContentDeleteAuditTasks(spaceId, userId);
 
         log.info("Cleanup Snapshot Task for space " + spaceId +
                  " completed successfully");
 
-        return new CleanupSnapshotTaskResult(EXPIRATION_DAYS).serialize();
+        return new CleanupSnapshotTaskResult(EXPIRATION_DAYS,
+                                             fanOut.status.name(),
+                                             fanOut.queued.get()).serialize();
+    }
+
+    /**
+     * Starts publishing a delete audit task for each item of a space, unless
+     * the tasks are already being published. Publishing resumes from the
+     * checkpoint of an earlier attempt, if there is one.
+     *
+     * @return the progress of publishing the tasks
+     */
+    protected DeleteAuditFanOut queueContentDeleteAuditTasks(final String spaceId,
+                                                             final String userId) {
+        String key = getKey(spaceId);
+        synchronized (FAN_OUTS) {
+            DeleteAuditFanOut fanOut = FAN_OUTS.get(key);
+            if (null != fanOut && fanOut.isActive()) {
+                log.info("Delete audit tasks for space {} are already being queued, " +
+                         "{} queued so far", spaceId, fanOut.queued.get());
+                return fanOut;
+            }
+
+            fanOut = readCheckpoint(getCheckpointFile(spaceId));
+            if (null == fanOut) {
+                String storeType = unwrappedSnapshotProvider.getStorageProviderType().name();
+                fanOut = new DeleteAuditFanOut(spaceId, userId, storeType,
+                                               String.valueOf(System.currentTimeMillis()));
+                writeCheckpoint(fanOut);
+            } else {
+                log.info("Resuming queueing of delete audit tasks for space {} " +
+                         "after {} tasks", spaceId, fanOut.queued.get());
+            }
+            start(key, fanOut);
+            return fanOut;
+        }
     }
 
-    protected void queueContentDeleteAuditTasks(final String spaceId, final String userId) {
+    /*
+     * Resumes publishing the delete audit tasks of the spaces of this store
+     * which have checkpoints, such as those interrupted by a restart
+     */
+    private void resumeDeleteAuditFanOuts() {
+        if (null == checkpointDir) {
+            return;
+        }
+        String prefix = storeId + "-";
+        File[] files = checkpointDir.listFiles((dir, name) -> name.startsWith(prefix) &&
+                                                              name.endsWith(CHECKPOINT_SUFFIX));
+        if (null == files) {
+            return;
+        }
+        for (File file : files) {
+            DeleteAuditFanOut checkpoint = readCheckpoint(file);
+            if (null == checkpoint) {
+                continue;
+            }
+            String key = getKey(checkpoint.spaceId);
+            synchronized (FAN_OUTS) {
+                DeleteAuditFanOut fanOut = FAN_OUTS.get(key);
+                if (null == fanOut || !fanOut.isActive()) {
+                    log.info("Resuming queueing of delete audit tasks for space {} " +
+                             "after {} tasks", checkpoint.spaceId, checkpoint.queued.get());
+                    try {
+                        start(key, checkpoint);
+                    } catch (TaskException e) {
+                        // Resumed when the space is next cleaned up
+                        log.warn(e.getMessage());
+                    }
+                }
+            }
+        }
+    }
 
-        final String storeType = unwrappedSnapshotProvider.getStorageProviderType().name();
+    private void start(String key, DeleteAuditFanOut fanOut) {
+        FAN_OUTS.put(key, fanOut);
+        try {
+            fanOutExecutor.execute(() -> runFanOut(fanOut));
+        } catch (RejectedExecutionException e) {
+            fanOut.status = DeleteAuditStatus.FAILED;
+            throw new TaskException("Unable to queue delete audit tasks for space " +
+                                    fanOut.spaceId + ", too many spaces are being " +
+                                    "cleaned up. Please try again later.", e);
+        }
+    }
 
-        new Thread(new Runnable() {
-            public void run() {
+    /*
+     * Publishes the audit tasks, resuming from the last checkpoint after a
+     * failure
+     */
+    private void runFanOut(DeleteAuditFanOut fanOut) {
+        fanOut.status = DeleteAuditStatus.QUEUEING;
+        try {
+            new Retrier(maxRetries, retryWaitMillis, 2).execute(() -> {
+                publishTasks(fanOut);
+                return null;
+            });
+            fanOut.status = DeleteAuditStatus.COMPLETE;
+            deleteCheckpoint(fanOut);
+            log.info("Added {} delete audit tasks for space {}.",
+                     fanOut.queued.get(), fanOut.spaceId);
+        } catch (Exception e) {
+            fanOut.status = DeleteAuditStatus.FAILED;
+            String message = "Failed to complete queue of deletion audit tasks for " +
+                             fanOut.spaceId + " after " + fanOut.queued.get() +
+                             " tasks : message =" + e.getMessage();
+            log.error(message, e);
+        }
+    }
 
+    /*
+     * Reads the items of the space from the manifest, after the last item
+     * recorded by the checkpoint, and publishes a batch of audit tasks at a
+     * time. Batches are published in parallel; the checkpoint only moves past
+     * a batch once it and all of the batches before it have been published.
+     */
+    private void publishTasks(DeleteAuditFanOut fanOut) throws Exception {
+        Deque<Batch> batches = new ArrayDeque<>();
+        try {
+            Long checkpointId = fanOut.lastItemId;
+            Iterator<ManifestItem> items = manifestStore.getItems(account, storeId, fanOut.spaceId);
+            Set<Task> tasks = new HashSet<>();
+            Long lastItemId = null;
+            while (items.hasNext()) {
+                ManifestItem item = items.next();
+                // Items are read in the order of their IDs
+                if (null != checkpointId && null != item.getId() &&
+                    item.getId() <= checkpointId) {
+                    continue;
+                }
+
+                tasks.add(createTask(fanOut, item));
+                lastItemId = item.getId();
+                if (tasks.size() >= batchSize) {
+                    publish(fanOut, batches, tasks, lastItemId);
+                    tasks = new HashSet<>();
+                }
+            }
+            if (!tasks.isEmpty()) {
+                publish(fanOut, batches, tasks, lastItemId);
+            }
+
+            while (!batches.isEmpty()) {
+                complete(fanOut, batches.poll());
+            }
+        } finally {
+            // Wait for the batches published after a failed batch, their
+            // tasks are published again when publishing resumes
+            for (Batch batch : batches) {
                 try {
-                    final File tmpFile = File.createTempFile(account + "-" + storeId + "-" + spaceId, ".tsv");
-
-                    tmpFile.deleteOnExit();
-                    final long time = System.currentTimeMillis();
-                    new Retrier(4, 60 * 1000, 2).execute(new Retriable() {
-                        public Object retry() throws Exception {
-                            //create delete audit messages for each item in the space.
-                            Iterator<ManifestItem> items = manifestStore.getItems(account, storeId, spaceId);
-                            try (BufferedWriter writer = new BufferedWriter(
-                                new OutputStreamWriter(new FileOutputStream(tmpFile)))) {
-                                while (items.hasNext()) {
-                                    ManifestItem item = items.next();
-                                    String line = marshalItem(item);
-                                    writer.write(line + "\n");
-                                }
-
-                                writer.close();
-
-                            } catch (Exception ex) {
-                                throw new DuraCloudRuntimeException(ex);
-                            }
-                            long count = 0;
-                            Set<Task> tasks = new HashSet<Task>();
-
-                            try (BufferedReader reader = new BufferedReader(
-                                new InputStreamReader(new FileInputStream(tmpFile)))) {
-                                String line = null;
-                                while ((line = reader.readLine()) != null) {
-                                    String[] values = unmarshalItem(line);
-                                    AuditTask task = new AuditTask();
-                                    task.setAccount(account);
-                                    task.setSpaceId(spaceId);
-                                    task.setStoreId(storeId);
-                                    task.setDateTime(String.valueOf(time));
-                                    task.setContentId(values[0]);
-                                    task.setContentSize(values[1]);
-                                    task.setStoreType(storeType);
-                                    task.setContentChecksum(values[2]);
-                                    task.setAction(ActionType.DELETE_CONTENT.name());
-                                    task.setUserId(userId);
-                                    tasks.add(task.writeTask());
-
-                                    if (tasks.size() >= 10) {
-                                        auditTaskQueue.put(tasks);
-                                        tasks = new HashSet<>();
-                                    }
-
-                                    count++;
-                                }
-
-                                if (tasks.size() > 0) {
-                                    auditTaskQueue.put(tasks);
-                                }
-                                log.info("Added {} delete audit tasks.", count);
-                            } catch (Exception ex) {
-                                throw new DuraCloudRuntimeException(ex);
-                            }
-
-                            return null;
-                        }
-
-                    });
-
-                    tmpFile.delete();
-
-                } catch (Exception e) {
-                    String message = "Failed to complete queue of deletion audit tasks for " +
-                                     spaceId + " : message =" + e.getMessage();
-                    log.error(message, e);
+                    batch.future.get();
+                } catch (ExecutionException e) {
+                    log.debug("Unable to queue delete audit tasks: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void publish(DeleteAuditFanOut fanOut,
+                         Deque<Batch> batches,
+                         Set<Task> tasks,
+                         Long lastItemId) throws Exception {
+        // Limit the number of batches held in memory
+        while (batches.size() >= publishThreads * 2 ||
+               (!batches.isEmpty() && batches.peek().future.isDone())) {
+            complete(fanOut, batches.poll());
+        }
+
+        Future<?> future = null;
+        while (null == future) {
+            try {
+                future = publishExecutor.submit(() -> auditTaskQueue.put(tasks));
+            } catch (RejectedExecutionException e) {
+                // The publish threads are shared by all spaces of this store
+                if (batches.isEmpty()) {
+                    Thread.sleep(100);
+                } else {
+                    complete(fanOut, batches.poll());
                 }
             }
-        }, "snapshot-cleanup-" + spaceId).start();
+        }
+        batches.add(new Batch(future, tasks.size(), lastItemId));
+    }
+
+    private void complete(DeleteAuditFanOut fanOut, Batch batch) throws Exception {
+        try {
+            batch.future.get();
+        } catch (ExecutionException e) {
+            throw new DuraCloudRuntimeException(
+                "Unable to queue delete audit tasks: " + e.getCause().getMessage(), e.getCause());
+        }
+        fanOut.queued.addAndGet(batch.size);
+        if (null != batch.lastItemId) {
+            fanOut.lastItemId = batch.lastItemId;
+        }
+        writeCheckpoint(fanOut);
+    }
+
+    private Task createTask(DeleteAuditFanOut fanOut, ManifestItem item) {
+        AuditTask task = new AuditTask();
+        task.setAccount(account);
+        task.setSpaceId(fanOut.spaceId);
+        task.setStoreId(storeId);
+        task.setDateTime(fanOut.dateTime);
+        task.setContentId(item.getContentId());
+        task.setContentSize(item.getContentSize());
+        task.setStoreType(fanOut.storeType);
+        task.setContentChecksum(item.getContentChecksum());
+        task.setAction(ActionType.DELETE_CONTENT.name());
+        task.setUserId(fanOut.userId);
+        return task.writeTask();
+    }
+
+    /**
+     * @param spaceId the space
+     * @return the progress of publishing the delete audit tasks of a space,
+     * null if they have not been published since the last restart
+     */
+    public DeleteAuditFanOut getDeleteAuditFanOut(String spaceId) {
+        return FAN_OUTS.get(getKey(spaceId));
+    }
+
+    private String getKey(String spaceId) {
+        return account + "/" + storeId + "/" + spaceId;
+    }
+
+    private File getCheckpointFile(String spaceId) {
+        if (null == checkpointDir) {
+            return null;
+        }
+        return new File(checkpointDir, storeId + "-" + spaceId + CHECKPOINT_SUFFIX);
+    }
+
+    private DeleteAuditFanOut readCheckpoint(File file) {
+        if (null == file || !file.exists()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            props.load(in);
+            DeleteAuditFanOut fanOut = new DeleteAuditFanOut(props.getProperty(SPACE_ID),
+                                                             props.getProperty(USER_ID),
+                                                             props.getProperty(STORE_TYPE),
+                                                             props.getProperty(DATE_TIME));
+            String lastItemId = props.getProperty(LAST_ITEM_ID);
+            if (null != lastItemId) {
+                fanOut.lastItemId = Long.valueOf(lastItemId);
+            }
+            fanOut.queued.set(Long.parseLong(props.getProperty(QUEUED, "0")));
+            return fanOut;
+        } catch (IOException | RuntimeException e) {
+            log.error("Unable to read delete audit checkpoint {}, publishing will " +
+                      "start from the beginning: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /*
+     * Replaces the checkpoint file, so that a failure part way through
+     * writing does not leave a partial checkpoint
+     */
+    private void writeCheckpoint(DeleteAuditFanOut fanOut) {
+        File file = getCheckpointFile(fanOut.spaceId);
+        if (null == file) {
+            return;
+        }
+
+        Properties props = new Properties();
+        props.setProperty(SPACE_ID, fanOut.spaceId);
+        props.setProperty(USER_ID, fanOut.userId);
+        props.setProperty(STORE_TYPE, fanOut.storeType);
+        props.setProperty(DATE_TIME, fanOut.dateTime);
+        if (null != fanOut.lastItemId) {
+            props.setProperty(LAST_ITEM_ID, String.valueOf(fanOut.lastItemId));
+        }
+        props.setProperty(QUEUED, String.valueOf(fanOut.queued.get()));
+
+        try {
+            checkpointDir.mkdirs();
+            File tempFile = File.createTempFile(file.getName(), ".tmp", checkpointDir);
+            try (OutputStream out = Files.newOutputStream(tempFile.toPath())) {
+                props.store(out, null);
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Unable to write delete audit checkpoint {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void deleteCheckpoint(DeleteAuditFanOut fanOut) {
+        File file = getCheckpointFile(fanOut.spaceId);
+        if (null != file && file.exists() && !file.delete()) {
+            log.warn("Unable to delete delete audit checkpoint {}", file);
+        }
     }
 
-    private String marshalItem(ManifestItem item) {
-        return item.getContentId() + "\t" + item.getContentSize() + "\t" + item.getContentChecksum();
+    public enum DeleteAuditStatus {
+        PENDING, QUEUEING, COMPLETE, FAILED
     }
 
-    private String[] unmarshalItem(String line) {
-        return line.split("\t");
+    /**
+     * The progress of publishing the delete audit tasks of a space
+     */
+    public static class DeleteAuditFanOut {
+        private final String spaceId;
+        private final String userId;
+        private final String storeType;
+        private final String dateTime;
+        private final AtomicLong queued = new AtomicLong(0);
+        private volatile Long lastItemId;
+        private volatile DeleteAuditStatus status = DeleteAuditStatus.PENDING;
+
+        DeleteAuditFanOut(String spaceId, String userId, String storeType, String dateTime) {
+            this.spaceId = spaceId;
+            this.userId = userId;
+            this.storeType = storeType;
+            this.dateTime = dateTime;
+        }
+
+        public String getSpaceId() {
+            return spaceId;
+        }
+
+        /**
+         * @return the number of audit tasks which have been queued
+         */
+        public long getQueued() {
+            return queued.get();
+        }
+
+        public DeleteAuditStatus getStatus() {
+            return status;
+        }
+
+        boolean isActive() {
+            return status == DeleteAuditStatus.PENDING || status == DeleteAuditStatus.QUEUEING;
+        }
     }
+
+    private static class Batch {
+        private final Future<?> future;
+        private final int size;
+        private final Long lastItemId;
+
+        Batch(Future<?> future, int size, Long lastItemId) {
+            this.future = future;
+            this.size = size;
+            this.lastItemId = lastItemId;
+        }
+    }
+
 }
@@ -7,19 +7,28 @@
  */
 package org.duracloud.snapshottask.snapshot;
 
+import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.BucketLifecycleConfiguration;
@@ -29,15 +38,21 @@ import org.duracloud.common.queue.TaskQueue;
 import org.duracloud.common.queue.task.Task;
 import org.duracloud.mill.db.model.ManifestItem;
 import org.duracloud.mill.manifest.ManifestStore;
+import org.duracloud.snapshot.dto.task.CleanupSnapshotTaskResult;
 import org.duracloud.snapshotstorage.SnapshotStorageProvider;
+import org.duracloud.snapshottask.snapshot.CleanupSnapshotTaskRunner.DeleteAuditFanOut;
+import org.duracloud.snapshottask.snapshot.CleanupSnapshotTaskRunner.DeleteAuditStatus;
 import org.duracloud.storage.domain.StorageProviderType;
 import org.duracloud.storage.provider.StorageProvider;
 import org.easymock.Capture;
 import org.easymock.CaptureType;
+import org.easymock.EasyMock;
 import org.easymock.EasyMockSupport;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -57,6 +72,9 @@ public class CleanupSnapshotTaskRunnerTest extends EasyMockSupport {
     private String account = "account-id";
     private ManifestStore manifestStore;
 
+    @Rule
+    public TemporaryFolder checkpointFolder = new TemporaryFolder();
+
     @Before
     public void setup() {
         snapshotProvider = createMock("StorageProvider",
@@ -129,7 +147,8 @@ public class CleanupSnapshotTaskRunnerTest extends EasyMockSupport {
 
         SecurityContextHolder.setContext(context);
         replayAll();
-        taskRunner.performTask("{\"spaceId\":\"" + spaceId + "\"}");
+        String result = taskRunner.performTask("{\"spaceId\":\"" + spaceId + "\"}");
+        assertNotNull(CleanupSnapshotTaskResult.deserialize(result).getDeleteAuditStatus());
         BucketLifecycleConfiguration lifecycleConfig =
             lifecycleConfigCapture.getValue();
         BucketLifecycleConfiguration.Rule rule =
@@ -162,4 +181,171 @@ public class CleanupSnapshotTaskRunnerTest extends EasyMockSupport {
 
     }
 
+    private List<ManifestItem> createManifestItems(int count) {
+        List<ManifestItem> manifestItems = new LinkedList<>();
+        for (int i = 1; i <= count; i++) {
+            ManifestItem item = new ManifestItem();
+            item.setId((long) i);
+            item.setContentId("content-id-" + i);
+            item.setContentSize(i + "");
+            item.setContentChecksum("content-checksum-" + i);
+            manifestItems.add(item);
+        }
+        return manifestItems;
+    }
+
+    private CleanupSnapshotTaskRunner createCheckpointingRunner() {
+        CleanupSnapshotTaskRunner runner =
+            new CleanupSnapshotTaskRunner(unwrappedSnapshotProvider,
+                                          s3Client,
+                                          auditQueue,
+                                          manifestStore,
+                                          account,
+                                          storeId,
+                                          checkpointFolder.getRoot());
+        runner.setBatchSize(10);
+        runner.setRetries(0, 0);
+        return runner;
+    }
+
+    private DeleteAuditFanOut waitForFanOut(CleanupSnapshotTaskRunner runner,
+                                            String spaceId) throws Exception {
+        DeleteAuditFanOut fanOut = null;
+        for (int i = 0; i < 500; i++) {
+            fanOut = runner.getDeleteAuditFanOut(spaceId);
+            if (null != fanOut && (fanOut.getStatus() == DeleteAuditStatus.COMPLETE ||
+                                   fanOut.getStatus() == DeleteAuditStatus.FAILED)) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        return fanOut;
+    }
+
+    private Map<String, String> captureTasks(AtomicBoolean fail) {
+        Map<String, String> published = new ConcurrentHashMap<>();
+        auditQueue.put(anyObject(Set.class));
+        expectLastCall().andAnswer(() -> {
+            Set<Task> tasks = (Set<Task>) EasyMock.getCurrentArguments()[0];
+            for (Task task : tasks) {
+                // The second batch fails to publish while requested
+                String contentId = task.getProperty(AuditTask.CONTENT_ID_PROP);
+                int item = Integer.parseInt(contentId.substring("content-id-".length()));
+                if (fail.get() && item > 10 && item <= 20) {
+                    throw new RuntimeException("queue unavailable");
+                }
+            }
+            assertTrue(Thread.currentThread().getName().startsWith("snapshot-cleanup-publish-"));
+            for (Task task : tasks) {
+                published.put(task.getProperty(AuditTask.CONTENT_ID_PROP),
+                              task.getProperty(AuditTask.USER_ID_PROP));
+            }
+            return null;
+        }).anyTimes();
+        return published;
+    }
+
+    @Test
+    public void testQueueDeleteAuditTasksInBatches() throws Exception {
+        String spaceId = "space-batches";
+        List<ManifestItem> manifestItems = createManifestItems(25);
+        expect(manifestStore.getItems(account, storeId, spaceId))
+            .andReturn(manifestItems.iterator());
+        expect(unwrappedSnapshotProvider.getStorageProviderType())
+            .andReturn(StorageProviderType.AMAZON_S3);
+        Map<String, String> published = captureTasks(new AtomicBoolean(false));
+        replayAll();
+
+        CleanupSnapshotTaskRunner runner = createCheckpointingRunner();
+        runner.queueContentDeleteAuditTasks(spaceId, "user-id");
+        DeleteAuditFanOut fanOut = waitForFanOut(runner, spaceId);
+
+        assertEquals(DeleteAuditStatus.COMPLETE, fanOut.getStatus());
+        assertEquals(25, fanOut.getQueued());
+        assertEquals(25, published.size());
+        for (ManifestItem item : manifestItems) {
+            assertEquals("user-id", published.get(item.getContentId()));
+        }
+        // The checkpoint is removed once all tasks are queued
+        assertEquals(0, checkpointFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void testResumeAfterFailure() throws Exception {
+        String spaceId = "space-failure";
+        List<ManifestItem> manifestItems = createManifestItems(25);
+        expect(manifestStore.getItems(account, storeId, spaceId))
+            .andReturn(manifestItems.iterator());
+        expect(manifestStore.getItems(account, storeId, spaceId))
+            .andReturn(createManifestItems(25).iterator());
+        expect(unwrappedSnapshotProvider.getStorageProviderType())
+            .andReturn(StorageProviderType.AMAZON_S3);
+        AtomicBoolean fail = new AtomicBoolean(true);
+        Map<String, String> published = captureTasks(fail);
+        replayAll();
+
+        CleanupSnapshotTaskRunner runner = createCheckpointingRunner();
+        runner.queueContentDeleteAuditTasks(spaceId, "user-id");
+        DeleteAuditFanOut fanOut = waitForFanOut(runner, spaceId);
+
+        // Only the batch before the failed batch is recorded as queued
+        assertEquals(DeleteAuditStatus.FAILED, fanOut.getStatus());
+        assertEquals(10, fanOut.getQueued());
+        File checkpoint = new File(checkpointFolder.getRoot(),
+                                   storeId + "-" + spaceId +
+                                   CleanupSnapshotTaskRunner.CHECKPOINT_SUFFIX);
+        assertTrue(checkpoint.exists());
+
+        // Queueing resumes after the last queued batch
+        fail.set(false);
+        published.clear();
+        runner.queueContentDeleteAuditTasks(spaceId, "other-user-id");
+        fanOut = waitForFanOut(runner, spaceId);
+
+        assertEquals(DeleteAuditStatus.COMPLETE, fanOut.getStatus());
+        assertEquals(25, fanOut.getQueued());
+        assertEquals(15, published.size());
+        assertFalse(published.containsKey("content-id-10"));
+        // Tasks are created as they were before the failure
+        assertEquals("user-id", published.get("content-id-11"));
+        assertFalse(checkpoint.exists());
+    }
+
+    @Test
+    public void testResumeOnStartup() throws Exception {
+        String spaceId = "space-restart";
+        Properties props = new Properties();
+        props.setProperty("spaceId", spaceId);
+        props.setProperty("userId", "user-id");
+        props.setProperty("storeType", StorageProviderType.AMAZON_S3.name());
+        props.setProperty("dateTime", "1000");
+        props.setProperty("lastItemId", "20");
+        props.setProperty("queued", "20");
+        File checkpoint = new File(checkpointFolder.getRoot(),
+                                   storeId + "-" + spaceId +
+                                   CleanupSnapshotTaskRunner.CHECKPOINT_SUFFIX);
+        try (OutputStream out = Files.newOutputStream(checkpoint.toPath())) {
+            props.store(out, null);
+        }
+
+        expect(manifestStore.getItems(account, storeId, spaceId))
+            .andReturn(createManifestItems(25).iterator());
+        Capture<Set<Task>> taskCapture = Capture.newInstance(CaptureType.FIRST);
+        auditQueue.put(capture(taskCapture));
+        expectLastCall().once();
+        replayAll();
+
+        CleanupSnapshotTaskRunner runner = createCheckpointingRunner();
+        DeleteAuditFanOut fanOut = waitForFanOut(runner, spaceId);
+
+        assertEquals(DeleteAuditStatus.COMPLETE, fanOut.getStatus());
+        assertEquals(25, fanOut.getQueued());
+        Set<Task> tasks = taskCapture.getValue();
+        assertEquals(5, tasks.size());
+        for (Task task : tasks) {
+            assertEquals("1000", task.getProperty(AuditTask.DATE_TIME_PROP));
+        }
+        assertFalse(checkpoint.exists());
+    }
+
 }
@@ -119,8 +119,12 @@ public class FileStitcherImpl implements FileStitcher {
         throws InvalidManifestException {
         // sort chunks by their index.
         Map<Integer, String> sortedChunkIds = new TreeMap<Integer, String>();
+        Map<String, String> chunkChecksums = new HashMap<>();
         for (ChunksManifestBean.ManifestEntry entry : manifest.getEntries()) {
             int parsedIndex = manifest.parseIndex(entry.getChunkId());
+            if (null != entry.getChunkMD5()) {
+                chunkChecksums.put(entry.getChunkId(), entry.getChunkMD5());
+            }
 
             if (entry.getIndex() == parsedIndex) {
                 sortedChunkIds.put(entry.getIndex(), entry.getChunkId());
@@ -153,7 +157,12 @@ public class FileStitcherImpl implements FileStitcher {
                 }
             };
 
-        return new MultiContentInputStream(dataSource, chunks, contentListener);
+        // each chunk is verified against its checksum as it is stitched.
+        return new MultiContentInputStream(dataSource,
+                                           chunks,
+                                           contentListener,
+                                           chunkChecksums,
+                                           MultiContentInputStream.DEFAULT_READ_AHEAD);
     }
 
     private Map<String, String> getContentProperties(ChunksManifest manifest) {
@@ -9,11 +9,23 @@ package org.duracloud.stitch.stream;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.domain.Content;
 import org.duracloud.stitch.datasource.DataSource;
 
@@ -21,24 +33,58 @@ import org.duracloud.stitch.datasource.DataSource;
  * This class exposes a single InputStream composed of the sequence of content
  * streams read on-demand from the provided list of ContentItems.
  *
+ * While one content stream is being read, the streams of the next
+ * content items (up to the read-ahead limit) are opened in the background,
+ * so that reading does not stall between content items. When checksums are
+ * provided, each content stream is verified as it is read through.
+ *
  * @author Andrew Woods
  * Date: 9/8/11
  */
 public class MultiContentInputStream extends InputStream {
 
+    public static final int DEFAULT_READ_AHEAD = 1;
+
     private DataSource dataSource;
     private Iterator<ContentItem> contents;
     private InputStream currentStream;
     private MultiContentInputStreamListener listener;
     private ContentItem currentItem;
 
+    private Map<String, String> checksums;
+    private DigestInputStream currentDigestStream;
+    private int readAhead;
+    private Deque<PendingContent> pending;
+    private ThreadPoolExecutor executor;
+    private volatile boolean closed;
+
+    /**
+     * @param dataSource   source of the content streams
+     * @param contentItems content items in the order in which they are read
+     * @param listener     notified as each content item is read, may be null
+     * @param checksums    expected MD5 of content items, by content ID. Items
+     *                     without a checksum are not verified.
+     * @param readAhead    number of content streams to open ahead of the one
+     *                     being read, 0 opens each stream only when needed
+     */
     public MultiContentInputStream(DataSource dataSource,
                                    List<ContentItem> contentItems,
-                                   MultiContentInputStreamListener listener) {
+                                   MultiContentInputStreamListener listener,
+                                   Map<String, String> checksums,
+                                   int readAhead) {
         this.dataSource = dataSource;
         this.contents = contentItems.iterator();
         this.currentStream = null;
         this.listener = listener;
+        this.checksums = null == checksums ? Collections.emptyMap() : checksums;
+        this.readAhead = Math.max(0, readAhead);
+        this.pending = new ArrayDeque<>();
+    }
+
+    public MultiContentInputStream(DataSource dataSource,
+                                   List<ContentItem> contentItems,
+                                   MultiContentInputStreamListener listener) {
+        this(dataSource, contentItems, listener, null, DEFAULT_READ_AHEAD);
     }
 
     public MultiContentInputStream(DataSource dataSource,
@@ -48,36 +94,184 @@ public class MultiContentInputStream extends InputStream {
 
     @Override
     public int read() throws IOException {
-        // initialize current stream
+        while (currentStream != null || nextStream()) {
+            int bite = currentStream.read();
+            if (-1 != bite) {
+                return bite;
+            }
+            finishStream();
+        }
+        return -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (length == 0) {
+            return 0;
+        }
+
+        while (currentStream != null || nextStream()) {
+            int read = currentStream.read(bytes, offset, length);
+            if (read > 0) {
+                return read;
+            } else if (read < 0) {
+                finishStream();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of bytes which can be read from the current content
+     * stream without blocking
+     */
+    @Override
+    public int available() throws IOException {
         if (null == currentStream) {
-            if (contents.hasNext()) {
-                currentStream = nextStream();
+            return 0;
+        }
+        return currentStream.available();
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+
+        // Skipped bytes must still be read through the digest to be verified
+        if (!checksums.isEmpty()) {
+            return super.skip(n);
+        }
 
+        long skipped = 0;
+        while (skipped < n && (currentStream != null || nextStream())) {
+            long count = currentStream.skip(n - skipped);
+            if (count > 0) {
+                skipped += count;
+            } else if (-1 == currentStream.read()) {
+                // Skip may return 0 at the end of a stream, so the end of the
+                // stream is determined by a read
+                finishStream();
             } else {
-                return -1;
+                skipped++;
             }
         }
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (null != currentStream) {
+            IOUtils.closeQuietly(currentStream);
+            currentStream = null;
+            currentDigestStream = null;
+        }
 
-        int bite = currentStream.read();
-        if (-1 == bite) {
-            if (contents.hasNext()) {
-                currentStream = nextStream();
-                bite = currentStream.read();
-            } else {
-                notifyContentIdRead();
+        for (PendingContent content : pending) {
+            if (!content.stream.cancel(true)) {
+                content.closeQuietly();
             }
         }
+        pending.clear();
 
-        return bite;
+        if (null != executor) {
+            executor.shutdownNow();
+        }
     }
 
-    private InputStream nextStream() {
-        if (this.currentStream != null) {
-            IOUtils.closeQuietly(this.currentStream);
-            notifyContentIdRead();
+    /*
+     * Moves on to the stream of the next content item
+     *
+     * @return false if there are no more content items
+     */
+    private boolean nextStream() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+
+        PendingContent next = pending.poll();
+        if (null != next) {
+            currentItem = next.contentItem;
+            currentStream = next.getStream();
+        } else if (contents.hasNext()) {
+            currentItem = contents.next();
+            currentStream = getStream(currentItem);
+        } else {
+            return false;
+        }
+
+        if (checksums.containsKey(currentItem.getContentId())) {
+            currentDigestStream =
+                ChecksumUtil.wrapStream(currentStream, ChecksumUtil.Algorithm.MD5);
+            currentStream = currentDigestStream;
         }
-        currentItem = contents.next();
-        return getStream(currentItem);
+
+        openReadAhead();
+        return true;
+    }
+
+    /*
+     * Completes the reading of the current content stream, verifying the
+     * checksum of its content
+     */
+    private void finishStream() throws IOException {
+        IOUtils.closeQuietly(currentStream);
+        currentStream = null;
+
+        if (null != currentDigestStream) {
+            String contentId = currentItem.getContentId();
+            String expected = checksums.get(contentId);
+            String checksum = ChecksumUtil.getChecksum(currentDigestStream);
+            currentDigestStream = null;
+            if (!checksum.equalsIgnoreCase(expected)) {
+                throw new IOException("Checksum mismatch for " + contentId +
+                                      ": expected " + expected +
+                                      ", computed " + checksum);
+            }
+        }
+
+        notifyContentIdRead();
+    }
+
+    /*
+     * Opens the streams of upcoming content items in the background, up to
+     * the read-ahead limit
+     */
+    private void openReadAhead() {
+        while (pending.size() < readAhead && contents.hasNext()) {
+            ContentItem contentItem = contents.next();
+            pending.add(new PendingContent(contentItem, getExecutor().submit(
+                () -> openInBackground(contentItem))));
+        }
+    }
+
+    private InputStream openInBackground(ContentItem contentItem) {
+        InputStream stream = getStream(contentItem);
+        if (closed) {
+            IOUtils.closeQuietly(stream);
+            return null;
+        }
+        return stream;
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+        if (null == executor) {
+            // The thread is released while no content is being opened
+            executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                                              new LinkedBlockingQueue<>(),
+                                              MultiContentInputStream::newThread);
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    private static Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "stitch-read-ahead");
+        thread.setDaemon(true);
+        return thread;
     }
 
     protected void notifyContentIdRead() {
@@ -93,4 +287,47 @@ public class MultiContentInputStream extends InputStream {
         return content.getStream();
     }
 
+    /*
+     * A content item whose stream is being opened in the background
+     */
+    private static class PendingContent {
+        private final ContentItem contentItem;
+        private final Future<InputStream> stream;
+
+        PendingContent(ContentItem contentItem, Future<InputStream> stream) {
+            this.contentItem = contentItem;
+            this.stream = stream;
+        }
+
+        InputStream getStream() throws IOException {
+            try {
+                return stream.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted opening " +
+                                      contentItem.getContentId(), e);
+            } catch (ExecutionException e) {
+                // Keep the unchecked exceptions of the data source
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException("Unable to open " +
+                                      contentItem.getContentId(), cause);
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                IOUtils.closeQuietly(stream.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // Nothing was opened
+            }
+        }
+    }
+
 }
@@ -16,6 +16,7 @@ import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.duracloud.chunk.manifest.ChunksManifest;
 import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.domain.Content;
 import org.duracloud.stitch.datasource.DataSource;
 import org.easymock.EasyMock;
@@ -87,7 +88,7 @@ public class FileStitcherDriverTest {
                                                      sourceMimetype,
                                                      sourceByteSize);
         // build chunks
-        String md5 = "md5";
+        ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
         String index;
         String chunkId;
         String chunkText;
@@ -97,7 +98,9 @@ public class FileStitcherDriverTest {
             index = getStringIndex(i);
             chunkId = chunkIdPrefix + ChunksManifest.chunkSuffix + index;
             chunkText = getChunkContent(i);
-            manifest.addEntry(chunkId, md5, chunkText.length());
+            manifest.addEntry(chunkId,
+                              checksumUtil.generateChecksum(chunkText),
+                              chunkText.length());
 
             // create chunk expectation.
             Content chunk = new Content();
@@ -18,6 +18,7 @@ import static org.duracloud.storage.provider.StorageProvider.PROPERTIES_CONTENT_
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -25,8 +26,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.io.IOUtils;
 import org.duracloud.chunk.manifest.ChunksManifest;
 import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.IOUtil;
 import org.duracloud.domain.Content;
 import org.duracloud.stitch.FileStitcher;
@@ -60,6 +63,8 @@ public class FileStitcherImplTest {
     private static final String chunkIdPrefix = "chunk-id";
     private static final int NUM_CHUNKS = 5;
 
+    private int invalidChecksumIndex = -1;
+
     @Before
     public void setUp() throws Exception {
         dataSource = EasyMock.createMock("DataSource", DataSource.class);
@@ -158,6 +163,22 @@ public class FileStitcherImplTest {
         Assert.assertNotNull(props.get(PROPERTIES_CONTENT_CHECKSUM));
     }
 
+    @Test
+    public void testGetContentFromManifestChecksumMismatch() throws Exception {
+        invalidChecksumIndex = NUM_CHUNKS - 1;
+        createMocks(VALID_CHUNKS);
+        replayMocks();
+
+        stitcher = new FileStitcherImpl(dataSource);
+        Content content = stitcher.getContentFromManifest(spaceId, contentId);
+        try (InputStream stream = content.getStream()) {
+            IOUtils.copy(stream, new ByteArrayOutputStream());
+            Assert.fail("exception expected");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains(buildChunkId(invalidChecksumIndex)));
+        }
+    }
+
     @Test
     public void testGetContentFromManifestUnordered() throws Exception {
         createMocks(VALID_CHUNKS);
@@ -221,13 +242,17 @@ public class FileStitcherImplTest {
         // sanity check.
         Assert.assertEquals(NUM_CHUNKS, chunkIndexes.size());
 
-        String md5 = "md5";
+        ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
         String chunkId;
         String chunkText;
         for (int chunkIndex : chunkIndexes) {
             // create chunk entry.
             chunkId = buildChunkId(chunkIndex);
             chunkText = getChunkContent(chunkIndex);
+            String md5 = checksumUtil.generateChecksum(chunkText);
+            if (chunkIndex == invalidChecksumIndex) {
+                md5 = "invalid-md5";
+            }
             manifest.addEntry(chunkId, md5, chunkText.length());
 
             // create chunk expectation.
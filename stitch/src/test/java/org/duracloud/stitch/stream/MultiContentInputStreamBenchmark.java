@@ -0,0 +1,128 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.stitch.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.duracloud.common.model.ContentItem;
+import org.duracloud.domain.Content;
+import org.duracloud.stitch.datasource.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the time to read a stitched stream of in-memory chunks one byte
+ * at a time and in buffers, with and without read-ahead of the next chunk.
+ *
+ * Run with:
+ * mvn -pl stitch test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.duracloud.stitch.stream.MultiContentInputStreamBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiContentInputStreamBenchmark {
+
+    private static final int CHUNKS = 16;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    @Param({"0", "1"})
+    public int readAhead;
+
+    /**
+     * Time taken to open each chunk, as when chunks are retrieved over the
+     * network
+     */
+    @Param({"0", "5"})
+    public int openMillis;
+
+    private byte[] chunk;
+    private List<ContentItem> contentItems;
+    private DataSource dataSource;
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        chunk = new byte[CHUNK_SIZE];
+        ThreadLocalRandom.current().nextBytes(chunk);
+        buffer = new byte[8192];
+
+        contentItems = new ArrayList<>();
+        for (int i = 0; i < CHUNKS; i++) {
+            contentItems.add(new ContentItem("space-id", "chunk-" + i));
+        }
+
+        dataSource = (spaceId, contentId) -> {
+            if (openMillis > 0) {
+                try {
+                    Thread.sleep(openMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Content content = new Content();
+            content.setStream(new ByteArrayInputStream(chunk));
+            return content;
+        };
+    }
+
+    private MultiContentInputStream newStream() {
+        return new MultiContentInputStream(dataSource, contentItems, null, null, readAhead);
+    }
+
+    @Benchmark
+    public long singleByteRead() throws IOException {
+        long total = 0;
+        try (MultiContentInputStream stream = newStream()) {
+            while (stream.read() != -1) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long bulkRead() throws IOException {
+        long total = 0;
+        try (MultiContentInputStream stream = newStream()) {
+            int read;
+            while ((read = stream.read(buffer, 0, buffer.length)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                       .include(MultiContentInputStreamBenchmark.class.getSimpleName())
+                       .build()).run();
+    }
+
+}
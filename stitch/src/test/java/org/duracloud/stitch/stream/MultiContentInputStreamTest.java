@@ -9,12 +9,20 @@ package org.duracloud.stitch.stream;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.io.IOUtils;
 import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.IOUtil;
 import org.duracloud.domain.Content;
 import org.duracloud.stitch.datasource.DataSource;
@@ -90,6 +98,103 @@ public class MultiContentInputStreamTest {
         out.close();
     }
 
+    @Test
+    public void testBulkRead() throws Exception {
+        String text = createReadMocks();
+        replayMocks();
+
+        multiStream = new MultiContentInputStream(dataSource, contentItems, null, null, 0);
+        Assert.assertEquals(0, multiStream.available());
+
+        byte[] bytes = new byte[text.length() + 10];
+        int total = 0;
+        int read;
+        while ((read = multiStream.read(bytes, total, 4)) != -1) {
+            Assert.assertTrue(read > 0 && read <= 4);
+            total += read;
+        }
+        Assert.assertEquals(text, new String(bytes, 0, total));
+        Assert.assertEquals(0, multiStream.read(bytes, 0, 0));
+        multiStream.close();
+    }
+
+    @Test
+    public void testSkip() throws Exception {
+        String text = createReadMocks();
+        replayMocks();
+
+        multiStream = new MultiContentInputStream(dataSource, contentItems);
+        Assert.assertEquals(8, multiStream.skip(8));
+        Assert.assertEquals(text.charAt(8), multiStream.read());
+        Assert.assertTrue(multiStream.available() > 0);
+
+        Assert.assertEquals(text.length() - 9, multiStream.skip(text.length()));
+        Assert.assertEquals(-1, multiStream.read());
+        multiStream.close();
+    }
+
+    @Test
+    public void testReadAhead() throws Exception {
+        Set<String> openThreads = ConcurrentHashMap.newKeySet();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5; ++i) {
+            String spaceId = "spaceId-" + i;
+            String contentId = "contentId-" + i;
+            contentItems.add(new ContentItem(spaceId, contentId));
+            String chunkText = "text-" + i;
+            text.append(chunkText);
+
+            EasyMock.expect(dataSource.getContent(spaceId, contentId)).andAnswer(() -> {
+                if (!contentId.equals("contentId-0")) {
+                    openThreads.add(Thread.currentThread().getName());
+                }
+                Content content = new Content();
+                content.setStream(getStream(chunkText));
+                return content;
+            });
+        }
+        replayMocks();
+
+        multiStream = new MultiContentInputStream(dataSource, contentItems, null, null, 2);
+        Assert.assertEquals(text.toString(), IOUtils.toString(multiStream, "UTF-8"));
+        Assert.assertEquals(Collections.singleton("stitch-read-ahead"), openThreads);
+        multiStream.close();
+    }
+
+    @Test
+    public void testChecksums() throws Exception {
+        String text = createReadMocks();
+        ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+        Map<String, String> checksums = new HashMap<>();
+        for (int i = 0; i < contentItems.size(); ++i) {
+            checksums.put(contentItems.get(i).getContentId(),
+                          checksumUtil.generateChecksum("text-" + i));
+        }
+        replayMocks();
+
+        multiStream = new MultiContentInputStream(dataSource, contentItems, null, checksums, 1);
+        Assert.assertEquals(text, IOUtils.toString(multiStream, "UTF-8"));
+        multiStream.close();
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        createReadMocks();
+        Map<String, String> checksums = new HashMap<>();
+        checksums.put("contentId-4", "invalid-md5");
+        replayMocks();
+
+        multiStream = new MultiContentInputStream(dataSource, contentItems, null, checksums, 1);
+        try {
+            // Skipped content is verified as well
+            multiStream.skip(100);
+            Assert.fail("exception expected");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("contentId-4"));
+        }
+        multiStream.close();
+    }
+
     private String createReadMocks() {
         StringBuilder text = new StringBuilder();
         for (int i = 0; i < 5; ++i) {
@@ -25,6 +25,13 @@ public class AuditConfig {
     private String rabbitmqUsername;
     private String rabbitmqPassword;
 
+    // Settings of the background publishing of audit tasks, defaults are
+    // used when not set
+    private Integer publishBufferCapacity;
+    private Integer publishFlushSize;
+    private Long publishFlushLatencyMillis;
+    private String publishSpillDir;
+
     public String getAuditQueueName() {
         return auditQueueName;
     }
@@ -96,4 +103,40 @@ public class AuditConfig {
     public void setRabbitmqPassword(String rabbitmqPassword) {
         this.rabbitmqPassword = rabbitmqPassword;
     }
+
+    public Integer getPublishBufferCapacity() {
+        return publishBufferCapacity;
+    }
+
+    public void setPublishBufferCapacity(Integer publishBufferCapacity) {
+        this.publishBufferCapacity = publishBufferCapacity;
+    }
+
+    public Integer getPublishFlushSize() {
+        return publishFlushSize;
+    }
+
+    public void setPublishFlushSize(Integer publishFlushSize) {
+        this.publishFlushSize = publishFlushSize;
+    }
+
+    public Long getPublishFlushLatencyMillis() {
+        return publishFlushLatencyMillis;
+    }
+
+    public void setPublishFlushLatencyMillis(Long publishFlushLatencyMillis) {
+        this.publishFlushLatencyMillis = publishFlushLatencyMillis;
+    }
+
+    /**
+     * @return the directory to which audit tasks are spilled when they cannot
+     * be published, null if tasks are not spilled to disk
+     */
+    public String getPublishSpillDir() {
+        return publishSpillDir;
+    }
+
+    public void setPublishSpillDir(String publishSpillDir) {
+        this.publishSpillDir = publishSpillDir;
+    }
 }
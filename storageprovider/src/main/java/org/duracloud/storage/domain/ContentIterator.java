@@ -7,13 +7,22 @@
  */
 package org.duracloud.storage.domain;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 
+import org.duracloud.common.util.PagePrefetcher;
+import org.duracloud.storage.error.StorageException;
 import org.duracloud.storage.provider.StorageProvider;
 
 /**
+ * Iterates over the content IDs in a space, retrieving them from the
+ * provider one page at a time. When created with a number of pages to
+ * retrieve ahead, the following pages are retrieved in the background
+ * while the current page is consumed.
+ *
  * @author: Bill Branan
  * Date: Dec 22, 2009
  */
@@ -26,6 +35,7 @@ public class ContentIterator implements Iterator<String> {
     private int index;
     private List<String> contentList;
     private long maxResults;
+    private PagePrefetcher<String> prefetcher;
 
     public ContentIterator(StorageProvider provider,
                            String spaceId,
@@ -48,6 +58,37 @@ public class ContentIterator implements Iterator<String> {
                                                        null);
     }
 
+    /**
+     * Creates an iterator which retrieves pages ahead of the caller.
+     *
+     * @param pagesAhead maximum number of pages retrieved ahead of the page
+     *                   being consumed
+     * @param executor   runs the page retrievals, null to use a shared pool
+     *                   of daemon threads
+     */
+    public ContentIterator(StorageProvider provider,
+                           String spaceId,
+                           String prefix,
+                           long maxResults,
+                           int pagesAhead,
+                           Executor executor) {
+        this(provider, spaceId, prefix, maxResults);
+        if (pagesAhead < 1) {
+            throw new IllegalArgumentException("pagesAhead must be greater than zero");
+        }
+        if (contentList.size() > 0) {
+            String lastItem = contentList.get(contentList.size() - 1);
+            PagePrefetcher.PageLoader<String> loader = marker -> {
+                return provider.getSpaceContentsChunked(spaceId, prefix, maxResults, marker);
+            };
+            if (null == executor) {
+                prefetcher = new PagePrefetcher<>(loader, lastItem, pagesAhead);
+            } else {
+                prefetcher = new PagePrefetcher<>(loader, lastItem, pagesAhead, executor);
+            }
+        }
+    }
+
     public boolean hasNext() {
         if (index < contentList.size()) {
             return true;
@@ -76,6 +117,11 @@ public class ContentIterator implements Iterator<String> {
     }
 
     private void updateList() {
+        if (null != prefetcher) {
+            updatePrefetchedList();
+            return;
+        }
+
         String lastItem = contentList.get(contentList.size() - 1);
         contentList = provider.getSpaceContentsChunked(spaceId,
                                                        prefix,
@@ -84,4 +130,20 @@ public class ContentIterator implements Iterator<String> {
         index = 0;
     }
 
+    private void updatePrefetchedList() {
+        List<String> page;
+        try {
+            page = prefetcher.nextPage();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while listing space " + spaceId, e);
+        } catch (Exception e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+        contentList = null == page ? Collections.<String>emptyList() : page;
+        index = 0;
+    }
+
 }
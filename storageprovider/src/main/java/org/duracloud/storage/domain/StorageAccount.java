@@ -25,6 +25,9 @@ public interface StorageAccount {
         CF_KEY_ID,
         CF_KEY_PATH,
         AWS_REGION,
+        MULTIPART_THRESHOLD,
+        MULTIPART_PART_SIZE,
+        MULTIPART_THREADS,
         // Swift
         SWIFT_S3_ENDPOINT,
         SWIFT_S3_SIGNER_TYPE,
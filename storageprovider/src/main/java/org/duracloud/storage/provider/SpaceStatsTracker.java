@@ -0,0 +1,39 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.storage.provider;
+
+import org.duracloud.storage.domain.SpaceStats;
+
+/**
+ * Keeps track of the item count and byte total of the spaces in a store, so
+ * that they are available without listing the contents of each space.
+ */
+public interface SpaceStatsTracker {
+
+    /**
+     * @param spaceId the space
+     * @return the item count and byte total of the space, or null if they
+     * are not known
+     */
+    SpaceStats getSpaceStats(String spaceId);
+
+    /**
+     * Indicates that content in a space has been added, copied or deleted.
+     *
+     * @param spaceId the space
+     */
+    void spaceChanged(String spaceId);
+
+    /**
+     * Indicates that a space has been deleted.
+     *
+     * @param spaceId the space
+     */
+    void spaceDeleted(String spaceId);
+
+}
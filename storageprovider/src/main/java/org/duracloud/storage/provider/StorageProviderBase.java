@@ -14,6 +14,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.duracloud.common.model.AclType;
+import org.duracloud.storage.domain.SpaceStats;
 import org.duracloud.storage.error.NotFoundException;
 import org.duracloud.storage.error.StorageException;
 import org.duracloud.storage.util.StorageProviderUtil;
@@ -34,6 +35,7 @@ public abstract class StorageProviderBase implements StorageProvider {
 
     protected final Logger log = LoggerFactory.getLogger(StorageProviderBase.class);
     private StorageProvider wrappedStorageProvider;
+    private SpaceStatsTracker spaceStatsTracker;
 
     protected abstract boolean spaceExists(String spaceId);
 
@@ -41,18 +43,50 @@ public abstract class StorageProviderBase implements StorageProvider {
 
     protected abstract Map<String, String> getAllSpaceProperties(String spaceId);
 
+    /**
+     * Retrieves only the properties which are stored with a space, including
+     * the packed ACLs, without any calculated properties such as the space
+     * item count. This is used wherever the calculated properties are not
+     * needed (ACL lookups and property updates), as calculating them can
+     * require listing the contents of the space.
+     *
+     * Providers for which getAllSpaceProperties() includes calculated
+     * properties should override this method.
+     *
+     * @param spaceId - ID of the space
+     * @return map of stored space properties
+     */
+    protected Map<String, String> getStoredSpaceProperties(String spaceId) {
+        return getAllSpaceProperties(spaceId);
+    }
+
     protected abstract void doSetSpaceProperties(String spaceId,
                                                  Map<String, String> spaceProps);
 
     /**
      * This method returns all of the space properties EXCEPT the ACLs
      *
+     * When a space stats tracker is available and knows the item count and
+     * byte total of the space, those are used rather than the calculated
+     * properties, so the contents of the space are not listed.
+     *
      * @param spaceId - ID of the space
      * @return map of space properties
      */
     public Map<String, String> getSpaceProperties(String spaceId) {
         Map<String, String> spaceProps = new HashMap<String, String>();
-        Map<String, String> allProps = getAllSpaceProperties(spaceId);
+        Map<String, String> allProps = null;
+        if (null != spaceStatsTracker) {
+            SpaceStats stats = spaceStatsTracker.getSpaceStats(spaceId);
+            if (null != stats) {
+                allProps = new HashMap<>(getStoredSpaceProperties(spaceId));
+                allProps.put(PROPERTIES_SPACE_COUNT, String.valueOf(stats.getItemCount()));
+                allProps.put(PROPERTIES_SPACE_SIZE, String.valueOf(stats.getByteCount()));
+            }
+        }
+        if (null == allProps) {
+            allProps = getAllSpaceProperties(spaceId);
+        }
 
         // ONLY include non-ACL properties.
         for (String name : allProps.keySet()) {
@@ -115,8 +149,8 @@ public abstract class StorageProviderBase implements StorageProvider {
     }
 
     public Map<String, AclType> getSpaceACLs(String spaceId) {
-        Map<String, String> allProps = getAllSpaceProperties(spaceId);
-        return unpackACLs(allProps);
+        Map<String, String> storedProps = getStoredSpaceProperties(spaceId);
+        return unpackACLs(storedProps);
     }
 
     /*
@@ -173,10 +207,13 @@ public abstract class StorageProviderBase implements StorageProvider {
     public void setSpaceACLs(String spaceId, Map<String, AclType> spaceACLs) {
         Map<String, String> newProps = new HashMap<>();
 
-        // get properties excluding ACLs
-        Map<String, String> spaceProps = getSpaceProperties(spaceId);
         // add existing non ACLs properties
-        newProps.putAll(spaceProps);
+        Map<String, String> storedProps = getStoredSpaceProperties(spaceId);
+        for (String name : storedProps.keySet()) {
+            if (!name.startsWith(PROPERTIES_SPACE_ACL)) {
+                newProps.put(name, storedProps.get(name));
+            }
+        }
 
         // convert ACL format and add to props list
         newProps.putAll(packACLs(spaceACLs));
@@ -290,7 +327,7 @@ public abstract class StorageProviderBase implements StorageProvider {
         log.debug("deleteSpace(" + spaceId + ")");
         throwIfSpaceNotExist(spaceId);
 
-        Map<String, String> allProps = getAllSpaceProperties(spaceId);
+        Map<String, String> allProps = getStoredSpaceProperties(spaceId);
         allProps.put("is-delete", "true");
         doSetSpaceProperties(spaceId, allProps);
 
@@ -307,7 +344,7 @@ public abstract class StorageProviderBase implements StorageProvider {
         log.debug("deleteSpaceSync(" + spaceId + ")");
         throwIfSpaceNotExist(spaceId);
 
-        Map<String, String> allProps = getAllSpaceProperties(spaceId);
+        Map<String, String> allProps = getStoredSpaceProperties(spaceId);
         allProps.put("is-delete", "true");
         doSetSpaceProperties(spaceId, allProps);
 
@@ -362,7 +399,7 @@ public abstract class StorageProviderBase implements StorageProvider {
                 log.debug("deleteSpaceContents(" + spaceId +
                           ") exceeded retries");
 
-                Map<String, String> allProps = getAllSpaceProperties(spaceId);
+                Map<String, String> allProps = getStoredSpaceProperties(spaceId);
                 allProps.put("delete-error", "Unable to delete all contents");
                 doSetSpaceProperties(spaceId, allProps);
             } else {
@@ -392,4 +429,14 @@ public abstract class StorageProviderBase implements StorageProvider {
     public void setWrappedStorageProvider(StorageProvider wrappedStorageProvider) {
         this.wrappedStorageProvider = wrappedStorageProvider;
     }
+
+    /**
+     * Sets the source of the item count and byte total of spaces, which are
+     * otherwise calculated by listing the space contents.
+     *
+     * @param spaceStatsTracker
+     */
+    public void setSpaceStatsTracker(SpaceStatsTracker spaceStatsTracker) {
+        this.spaceStatsTracker = spaceStatsTracker;
+    }
 }
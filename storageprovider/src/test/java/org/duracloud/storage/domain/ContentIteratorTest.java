@@ -9,9 +9,12 @@ package org.duracloud.storage.domain;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.duracloud.storage.error.StorageException;
 import org.duracloud.storage.provider.StorageProvider;
@@ -39,6 +42,53 @@ public class ContentIteratorTest {
         }
     }
 
+    @Test
+    public void testPrefetchIterator() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 31; i++) {
+                StorageProvider testProvider = new MockProvider(i);
+                ContentIterator iterator =
+                    new ContentIterator(testProvider, "spaceId", "prefix", 10, 2, executor);
+                int count = 0;
+                while (iterator.hasNext()) {
+                    assertNotNull(iterator.next());
+                    count++;
+                }
+                assertEquals(i, count);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetchError() throws Exception {
+        StorageProvider testProvider = new MockProvider(25) {
+            @Override
+            public List<String> getSpaceContentsChunked(String spaceId,
+                                                        String prefix,
+                                                        long maxResults,
+                                                        String marker) {
+                if (null != marker) {
+                    throw new StorageException("expected");
+                }
+                return super.getSpaceContentsChunked(spaceId, prefix, maxResults, marker);
+            }
+        };
+        ContentIterator iterator =
+            new ContentIterator(testProvider, "spaceId", "prefix", 10, 1, null);
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(iterator.next());
+        }
+        try {
+            iterator.hasNext();
+            fail("Exception expected");
+        } catch (StorageException e) {
+            assertEquals("expected", e.getMessage());
+        }
+    }
+
     private class MockProvider extends MockStorageProvider {
 
         private long contentItems;
@@ -18,6 +18,7 @@ import java.util.Map;
 
 import org.duracloud.common.model.AclType;
 import org.duracloud.storage.domain.RetrievedContent;
+import org.duracloud.storage.domain.SpaceStats;
 import org.duracloud.storage.domain.StorageProviderType;
 import org.duracloud.storage.error.NotFoundException;
 import org.easymock.Capture;
@@ -99,6 +100,23 @@ public class StorageProviderBaseTest {
         Assert.assertEquals(sysPropVal, systemProps.get(sysPropName));
     }
 
+    @Test
+    public void testGetSpacePropertiesTrackedStats() {
+        SpaceStatsTracker tracker = EasyMock.createMock(SpaceStatsTracker.class);
+        EasyMock.expect(tracker.getSpaceStats(spaceId)).andReturn(new SpaceStats(1500, 2048));
+        EasyMock.replay(tracker);
+        providerBase.setSpaceStatsTracker(tracker);
+        // Only the stored properties are retrieved, the space is not counted
+        createGetSpacePropertiesMocks();
+
+        Map<String, String> props = providerBase.getSpaceProperties(spaceId);
+        Assert.assertEquals(systemProps.size() + 2, props.size());
+        Assert.assertEquals(sysPropVal, props.get(sysPropName));
+        Assert.assertEquals("1500", props.get(StorageProvider.PROPERTIES_SPACE_COUNT));
+        Assert.assertEquals("2048", props.get(StorageProvider.PROPERTIES_SPACE_SIZE));
+        EasyMock.verify(tracker);
+    }
+
     private void createGetSpacePropertiesMocks() {
         EasyMock.expect(providerMock.getAllSpaceProperties(spaceId)).andReturn(
             spaceProps);
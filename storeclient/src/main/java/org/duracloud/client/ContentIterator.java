@@ -7,11 +7,14 @@
  */
 package org.duracloud.client;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 
 import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.PagePrefetcher;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.storage.provider.StorageProvider;
 import org.slf4j.Logger;
@@ -23,6 +26,16 @@ import org.slf4j.LoggerFactory;
  * call next() to iterate through the entire content listing, regardless
  * of its length.
  *
+ * In streaming mode each page of content IDs is read from the response as
+ * the iterator advances, rather than being loaded into memory, so large
+ * page sizes can be used without a corresponding increase in heap use.
+ *
+ * In prefetch mode the following pages are retrieved in the background
+ * while the current page is consumed, so the caller does not wait on a
+ * request at each page boundary. Page requests are retried as in the
+ * default mode; an error which remains after retries is thrown from
+ * hasNext() once the pages retrieved before it have been consumed.
+ *
  * @author: Bill Branan
  * Date: Dec 23, 2009
  */
@@ -37,6 +50,14 @@ public class ContentIterator implements Iterator<String> {
     private long maxResults;
     private int maxRetries;
 
+    private boolean streaming;
+    private SpaceContentsReader reader;
+    private String nextItem;
+    private String lastItem;
+    private boolean pageEmpty;
+
+    private PagePrefetcher<String> prefetcher;
+
     private final Logger log =
         LoggerFactory.getLogger(ContentIterator.class);
 
@@ -50,13 +71,62 @@ public class ContentIterator implements Iterator<String> {
                            String spaceId,
                            String prefix,
                            long maxResults) throws ContentStoreException {
+        this(store, spaceId, prefix, maxResults, false);
+    }
+
+    /**
+     * @param streaming true if each page of content IDs should be read from
+     *                  the response as the iterator advances
+     */
+    public ContentIterator(ContentStore store,
+                           String spaceId,
+                           String prefix,
+                           long maxResults,
+                           boolean streaming) throws ContentStoreException {
         index = 0;
         this.store = store;
         this.spaceId = spaceId;
         this.prefix = prefix;
         this.maxResults = maxResults;
         this.maxRetries = 7;
-        contentList = retryBuildContentList(null);
+        this.streaming = streaming;
+        if (streaming) {
+            // Opening the first page up front surfaces errors such as
+            // a missing space to the caller, as in the non-streaming case
+            reader = retryOpenReader(null);
+            pageEmpty = true;
+        } else {
+            contentList = retryBuildContentList(null);
+        }
+    }
+
+    /**
+     * Creates an iterator which retrieves pages ahead of the caller.
+     *
+     * @param pagesAhead maximum number of pages retrieved ahead of the page
+     *                   being consumed
+     * @param executor   runs the page retrievals, null to use a shared pool
+     *                   of daemon threads
+     */
+    public ContentIterator(ContentStore store,
+                           String spaceId,
+                           String prefix,
+                           long maxResults,
+                           int pagesAhead,
+                           Executor executor) throws ContentStoreException {
+        this(store, spaceId, prefix, maxResults, false);
+        if (pagesAhead < 1) {
+            throw new IllegalArgumentException("pagesAhead must be greater than zero");
+        }
+        if (contentList.size() > 0) {
+            String lastItem = contentList.get(contentList.size() - 1);
+            PagePrefetcher.PageLoader<String> loader = this::retryBuildContentList;
+            if (null == executor) {
+                prefetcher = new PagePrefetcher<>(loader, lastItem, pagesAhead);
+            } else {
+                prefetcher = new PagePrefetcher<>(loader, lastItem, pagesAhead, executor);
+            }
+        }
     }
 
     public void setMaxRetries(int maxRetries) {
@@ -66,6 +136,10 @@ public class ContentIterator implements Iterator<String> {
     }
 
     public boolean hasNext() {
+        if (streaming) {
+            return hasNextStreamed();
+        }
+
         if (index < contentList.size()) {
             return true;
         } else {
@@ -79,6 +153,10 @@ public class ContentIterator implements Iterator<String> {
     }
 
     public String next() {
+        if (streaming) {
+            return nextStreamed();
+        }
+
         if (hasNext()) {
             String next = contentList.get(index);
             ++index;
@@ -93,6 +171,11 @@ public class ContentIterator implements Iterator<String> {
     }
 
     private void updateList() {
+        if (null != prefetcher) {
+            updatePrefetchedList();
+            return;
+        }
+
         String lastItem = contentList.get(contentList.size() - 1);
         try {
             contentList = retryBuildContentList(lastItem);
@@ -102,6 +185,22 @@ public class ContentIterator implements Iterator<String> {
         index = 0;
     }
 
+    private void updatePrefetchedList() {
+        List<String> page;
+        try {
+            page = prefetcher.nextPage();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        contentList = null == page ? Collections.<String>emptyList() : page;
+        index = 0;
+    }
+
     private List<String> retryBuildContentList(String lastItem)
         throws ContentStoreException {
         try {
@@ -119,4 +218,71 @@ public class ContentIterator implements Iterator<String> {
                     .getContentIds();
     }
 
-}
\ No newline at end of file
+    private boolean hasNextStreamed() {
+        if (null == nextItem) {
+            try {
+                nextItem = new Retrier(maxRetries, 1000, 1).execute(() -> {
+                    return readNextItem();
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return null != nextItem;
+    }
+
+    private String nextStreamed() {
+        if (hasNextStreamed()) {
+            String next = nextItem;
+            nextItem = null;
+            return next;
+        } else {
+            throw new NoSuchElementException();
+        }
+    }
+
+    /*
+     * Reads the next content ID, moving on to the next page as needed.
+     * If reading fails part way through a page, the reader is discarded and
+     * the next attempt starts a new page after the last item returned.
+     */
+    private String readNextItem() throws ContentStoreException {
+        while (true) {
+            if (null == reader) {
+                if (pageEmpty) {
+                    return null; // The last page held no items
+                }
+                reader = store.getSpaceContentsReader(spaceId, prefix, maxResults, lastItem);
+                pageEmpty = true;
+            }
+
+            try {
+                if (reader.hasNext()) {
+                    lastItem = reader.next();
+                    pageEmpty = false;
+                    return lastItem;
+                }
+            } catch (RuntimeException e) {
+                reader.close();
+                reader = null;
+                pageEmpty = false;
+                throw new ContentStoreException(e.getMessage(), e);
+            }
+
+            reader.close();
+            reader = null;
+        }
+    }
+
+    private SpaceContentsReader retryOpenReader(String lastItem)
+        throws ContentStoreException {
+        try {
+            return new Retrier(maxRetries, 1000, 1).execute(() -> {
+                return store.getSpaceContentsReader(spaceId, prefix, maxResults, lastItem);
+            });
+        } catch (Exception ex) {
+            throw new ContentStoreException(ex);
+        }
+    }
+
+}
@@ -143,8 +143,9 @@ public interface ContentStore {
     /**
      * Retrieves the complete list of content items within a space. For spaces
      * with many content items, the list is paged and updated automatically in
-     * order to retrieve the entire list. Allows for limiting the content id
-     * list to items which start with a given prefix.
+     * order to retrieve the entire list. The next page is retrieved in the
+     * background while the current page is being consumed. Allows for
+     * limiting the content id list to items which start with a given prefix.
      *
      * @param spaceId the identifier of the DuraCloud Space
      * @param prefix  only retrieve content ids with this prefix (null for all content ids)
@@ -174,6 +175,27 @@ public interface ContentStore {
                           String marker)
         throws ContentStoreException;
 
+    /**
+     * Provides a limited list of the content items within a space, like
+     * getSpace(), but the content IDs are read from the response as they are
+     * requested rather than being loaded into memory all at once. This allows
+     * for much larger values of maxResults. The reader must be closed if it is
+     * not read to the end.
+     *
+     * @param spaceId    the identifier of the DuraCloud Space
+     * @param prefix     only retrieve content ids with this prefix (null for all content ids)
+     * @param maxResults the maximum number of content ids to return in the list (0 indicates default)
+     * @param marker     the content id marking the last item in the previous set (null to specify first set of ids)
+     * @return SpaceContentsReader over the content IDs
+     * @throws NotFoundException     if the space does not exist
+     * @throws ContentStoreException if an error occurs
+     */
+    public SpaceContentsReader getSpaceContentsReader(String spaceId,
+                                                      String prefix,
+                                                      long maxResults,
+                                                      String marker)
+        throws ContentStoreException;
+
     /**
      * Creates a new space. Depending on the storage implementation, the spaceId
      * may be changed somewhat to comply with the naming rules of the underlying
@@ -80,6 +80,10 @@ public class ContentStoreImpl implements ContentStore {
 
     private static final String HEADER_PREFIX = Constants.HEADER_PREFIX;
 
+    // Number of pages of content IDs retrieved ahead of the caller when
+    // iterating over the contents of a space
+    private static final int SPACE_CONTENTS_PAGES_AHEAD = 1;
+
     private int maxRetries = 3;
 
     private final Logger log =
@@ -327,7 +331,12 @@ public class ContentStoreImpl implements ContentStore {
             @Override
             public Iterator<String> retry() throws ContentStoreException {
                 // The actual method being executed
-                return new ContentIterator(store, spaceId, prefix);
+                return new ContentIterator(store,
+                                           spaceId,
+                                           prefix,
+                                           StorageProvider.DEFAULT_MAX_RESULTS,
+                                           SPACE_CONTENTS_PAGES_AHEAD,
+                                           null);
             }
         });
     }
@@ -363,22 +372,13 @@ public class ContentStoreImpl implements ContentStore {
             Space space = new Space();
             space.setProperties(extractPropertiesFromHeaders(response));
 
-            String responseText = response.getResponseBody();
-            if (responseText != null) {
-                InputStream is =
-                    new ByteArrayInputStream(responseText.getBytes("UTF-8"));
-                SAXBuilder builder = new SAXBuilder();
-                Document doc = builder.build(is);
-                Element spaceElem = doc.getRootElement();
-
-                space.setId(spaceElem.getAttributeValue("id"));
-                Iterator<?> spaceContents = spaceElem.getChildren().iterator();
-                while (spaceContents.hasNext()) {
-                    Element contentElem = (Element) spaceContents.next();
-                    space.addContentId(contentElem.getText());
+            // Content IDs are read directly from the response stream
+            try (SpaceContentsReader reader =
+                     new SpaceContentsReader(response.getResponseStream())) {
+                space.setId(reader.getSpaceId());
+                while (reader.hasNext()) {
+                    space.addContentId(reader.next());
                 }
-            } else {
-                throw new ContentStoreException("Response body is empty");
             }
 
             return space;
@@ -391,6 +391,44 @@ public class ContentStoreImpl implements ContentStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SpaceContentsReader getSpaceContentsReader(final String spaceId,
+                                                      final String prefix,
+                                                      final long maxResults,
+                                                      final String marker)
+        throws ContentStoreException {
+        return execute(new Retriable() {
+            @Override
+            public SpaceContentsReader retry() throws ContentStoreException {
+                // The actual method being executed
+                return doGetSpaceContentsReader(spaceId, prefix, maxResults, marker);
+            }
+        });
+    }
+
+    private SpaceContentsReader doGetSpaceContentsReader(String spaceId,
+                                                         String prefix,
+                                                         long maxResults,
+                                                         String marker)
+        throws ContentStoreException {
+        String task = "get space contents";
+        String url = buildSpaceURL(spaceId, prefix, maxResults, marker);
+        try {
+            HttpResponse response = restHelper.get(url);
+            checkResponse(response, HttpStatus.SC_OK);
+            return new SpaceContentsReader(response.getResponseStream());
+        } catch (NotFoundException e) {
+            throw new NotFoundException(task, spaceId, e);
+        } catch (UnauthorizedException e) {
+            throw new UnauthorizedException(task, spaceId, e);
+        } catch (Exception e) {
+            throw new ContentStoreException(task, spaceId, e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
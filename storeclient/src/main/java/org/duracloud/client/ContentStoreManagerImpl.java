@@ -17,6 +17,7 @@ import java.util.Map;
 import org.apache.http.HttpStatus;
 import org.duracloud.common.model.Credential;
 import org.duracloud.common.model.Securable;
+import org.duracloud.common.web.HttpConnectionPool;
 import org.duracloud.common.web.RestHttpHelper;
 import org.duracloud.common.web.RestHttpHelper.HttpResponse;
 import org.duracloud.error.ContentStoreException;
@@ -44,6 +45,8 @@ public class ContentStoreManagerImpl implements ContentStoreManager, Securable {
 
     private int socketTimeoutMs;
 
+    private HttpConnectionPool connectionPool;
+
     /**
      * <p>Constructor for ContentStoreManagerImpl.</p>
      *
@@ -71,6 +74,24 @@ public class ContentStoreManagerImpl implements ContentStoreManager, Securable {
         this.socketTimeoutMs = socketTimeoutMs;
     }
 
+    /**
+     * <p>Constructor for ContentStoreManagerImpl which sends all requests over
+     * persistent connections drawn from the given pool. The pool may be shared
+     * with other ContentStoreManagers and is not closed by this class.</p>
+     *
+     * @param host           the host name on which DuraStore can be accessed
+     * @param port           the port on which DuraStore can be accessed
+     * @param context        the application context by which DuraStore can be accessed
+     * @param connectionPool the pool of http connections, which also defines the socket timeout
+     */
+    public ContentStoreManagerImpl(String host,
+                                   String port,
+                                   String context,
+                                   HttpConnectionPool connectionPool) {
+        this(host, port, context, -1);
+        this.connectionPool = connectionPool;
+    }
+
     private void init(String host, String port, String context) {
         if (host == null || host.equals("")) {
             throw new IllegalArgumentException("Host must be a valid server host name");
@@ -177,12 +198,19 @@ public class ContentStoreManagerImpl implements ContentStoreManager, Securable {
 
     public void login(Credential appCred) {
         log.debug("login: " + appCred.getUsername());
-        setRestHelper(new RestHttpHelper(appCred, socketTimeoutMs));
+        setRestHelper(createRestHelper(appCred));
     }
 
     public void logout() {
         log.debug("logout");
-        setRestHelper(new RestHttpHelper());
+        setRestHelper(createRestHelper(null));
+    }
+
+    private RestHttpHelper createRestHelper(Credential credential) {
+        if (null != connectionPool) {
+            return new RestHttpHelper(credential, connectionPool);
+        }
+        return new RestHttpHelper(credential, socketTimeoutMs);
     }
 
     private StorageAccountManager getStorageAccounts()
@@ -265,7 +293,7 @@ public class ContentStoreManagerImpl implements ContentStoreManager, Securable {
 
     protected RestHttpHelper getRestHelper() {
         if (null == restHelper) {
-            restHelper = new RestHttpHelper(this.socketTimeoutMs);
+            restHelper = createRestHelper(null);
         }
         return restHelper;
     }
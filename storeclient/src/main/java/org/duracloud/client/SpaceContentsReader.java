@@ -0,0 +1,159 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.client;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.duracloud.error.ContentStoreException;
+
+/**
+ * Reads the content IDs from a space listing XML document one at a time,
+ * directly from the underlying stream. Only the current content ID is held
+ * in memory, regardless of the size of the listing.
+ *
+ * The expected document format is:
+ * <pre>
+ * &lt;space id="spaceId"&gt;
+ *   &lt;item&gt;contentId&lt;/item&gt;
+ * &lt;/space&gt;
+ * </pre>
+ *
+ * The reader closes the stream once the end of the listing is reached or
+ * when close() is called.
+ */
+public class SpaceContentsReader implements Iterator<String>, Closeable {
+
+    private static final String SPACE_ELEMENT = "space";
+    private static final String ITEM_ELEMENT = "item";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private InputStream stream;
+    private XMLStreamReader xmlReader;
+    private String spaceId;
+    private String nextItem;
+    private boolean complete = false;
+
+    /**
+     * Creates a reader and reads up to the start of the space element.
+     *
+     * @param stream space listing XML
+     * @throws ContentStoreException if the stream cannot be read as a space listing
+     */
+    public SpaceContentsReader(InputStream stream) throws ContentStoreException {
+        this.stream = stream;
+        try {
+            this.xmlReader = XML_INPUT_FACTORY.createXMLStreamReader(stream);
+            while (xmlReader.hasNext()) {
+                if (xmlReader.next() == XMLStreamConstants.START_ELEMENT) {
+                    if (!SPACE_ELEMENT.equals(xmlReader.getLocalName())) {
+                        throw new ContentStoreException(
+                            "Unexpected element in space listing: " + xmlReader.getLocalName());
+                    }
+                    this.spaceId = xmlReader.getAttributeValue(null, "id");
+                    return;
+                }
+            }
+            throw new ContentStoreException("Response body is empty");
+        } catch (XMLStreamException e) {
+            close();
+            throw new ContentStoreException("Unable to read space listing due to: " +
+                                            e.getMessage(), e);
+        } catch (ContentStoreException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * @return the ID of the listed space
+     */
+    public String getSpaceId() {
+        return spaceId;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws RuntimeException wrapping the cause if the listing cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (null == nextItem && !complete) {
+            nextItem = readNextItem();
+        }
+        return null != nextItem;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String item = nextItem;
+        nextItem = null;
+        return item;
+    }
+
+    private String readNextItem() {
+        try {
+            while (xmlReader.hasNext()) {
+                int event = xmlReader.next();
+                if (event == XMLStreamConstants.START_ELEMENT &&
+                    ITEM_ELEMENT.equals(xmlReader.getLocalName())) {
+                    return xmlReader.getElementText();
+                } else if (event == XMLStreamConstants.END_ELEMENT &&
+                           SPACE_ELEMENT.equals(xmlReader.getLocalName())) {
+                    break;
+                }
+            }
+            complete = true;
+            close();
+            return null;
+        } catch (XMLStreamException e) {
+            close();
+            throw new RuntimeException("Unable to read space listing for " + spaceId +
+                                       " due to: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        complete = true;
+        if (null != xmlReader) {
+            try {
+                xmlReader.close();
+            } catch (XMLStreamException e) {
+                // Stream is closed below
+            }
+        }
+        IOUtils.closeQuietly(stream);
+    }
+
+}
@@ -11,6 +11,7 @@ import org.duracloud.client.ContentStore;
 import org.duracloud.client.ContentStoreManager;
 import org.duracloud.client.ContentStoreManagerImpl;
 import org.duracloud.common.model.Credential;
+import org.duracloud.common.web.HttpConnectionPool;
 import org.duracloud.error.ContentStoreException;
 
 /**
@@ -27,6 +28,35 @@ public class StoreClientUtil {
                                            String storeId) {
         ContentStoreManager storeManager =
             new ContentStoreManagerImpl(host, String.valueOf(port), context);
+        return createContentStore(storeManager, host, port, context,
+                                  username, password, storeId);
+    }
+
+    /**
+     * Creates a ContentStore which sends all requests over persistent
+     * connections drawn from the given connection pool.
+     */
+    public ContentStore createContentStore(String host,
+                                           int port,
+                                           String context,
+                                           String username,
+                                           String password,
+                                           String storeId,
+                                           HttpConnectionPool connectionPool) {
+        ContentStoreManager storeManager =
+            new ContentStoreManagerImpl(host, String.valueOf(port), context,
+                                        connectionPool);
+        return createContentStore(storeManager, host, port, context,
+                                  username, password, storeId);
+    }
+
+    private ContentStore createContentStore(ContentStoreManager storeManager,
+                                            String host,
+                                            int port,
+                                            String context,
+                                            String username,
+                                            String password,
+                                            String storeId) {
         storeManager.login(new Credential(username, password));
 
         ContentStore contentStore;
@@ -9,8 +9,12 @@ package org.duracloud.client;
 
 import static junit.framework.Assert.assertNotNull;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.duracloud.domain.Space;
 import org.duracloud.error.ContentStoreException;
@@ -41,6 +45,53 @@ public class ContentIteratorTest {
         }
     }
 
+    @Test
+    public void testStreamingIterator() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            ContentStore testStore = new MockStore(i);
+            long maxResults = 10;
+            ContentIterator iterator =
+                new ContentIterator(testStore, "spaceId", "prefix", maxResults, true);
+
+            List<String> items = new ArrayList<>();
+            while (iterator.hasNext()) {
+                items.add(iterator.next());
+                Assert.assertTrue("count=" + items.size() + ", i=" + i, items.size() <= i);
+            }
+            Assert.assertEquals(i, items.size());
+            for (int j = 0; j < i; j++) {
+                Assert.assertEquals("test" + j, items.get(j));
+            }
+            Assert.assertFalse(iterator.hasNext());
+        }
+    }
+
+    @Test
+    public void testPrefetchIterator() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 30; i++) {
+                ContentStore testStore = new MockStore(i);
+                long maxResults = 10;
+                ContentIterator iterator =
+                    new ContentIterator(testStore, "spaceId", "prefix", maxResults, 2, executor);
+
+                List<String> items = new ArrayList<>();
+                while (iterator.hasNext()) {
+                    items.add(iterator.next());
+                    Assert.assertTrue("count=" + items.size() + ", i=" + i, items.size() <= i);
+                }
+                Assert.assertEquals(i, items.size());
+                for (int j = 0; j < i; j++) {
+                    Assert.assertEquals("test" + j, items.get(j));
+                }
+                Assert.assertFalse(iterator.hasNext());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private class MockStore extends ContentStoreImpl {
 
         private List<String> contentItems;
@@ -77,6 +128,24 @@ public class ContentIteratorTest {
             space.setContentIds(items);
             return space;
         }
+
+        @Override
+        public SpaceContentsReader getSpaceContentsReader(String spaceId,
+                                                          String prefix,
+                                                          long maxResults,
+                                                          String marker)
+            throws ContentStoreException {
+            StringBuilder xml = new StringBuilder("<space id=\"" + spaceId + "\">");
+            for (String item : getSpace(spaceId, prefix, maxResults, marker).getContentIds()) {
+                xml.append("<item>").append(item).append("</item>");
+            }
+            // Occasionally cut the listing short to test recovery mid-page
+            if (System.currentTimeMillis() % 7 != 0) {
+                xml.append("</space>");
+            }
+            return new SpaceContentsReader(
+                new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)));
+        }
     }
 
 }
\ No newline at end of file
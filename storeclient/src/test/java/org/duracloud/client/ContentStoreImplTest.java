@@ -157,12 +157,20 @@ public class ContentStoreImplTest {
     @Test
     public void testGetSpaceContents() throws Exception {
         String xml = "<space id=\"space1\"><item>Image 1</item><item>Image 2</item></space>";
+        String emptyXml = "<space id=\"space1\"></space>";
         String fullURL = baseURL + "/" + spaceId +
                          "?maxResults=" + StorageProvider.DEFAULT_MAX_RESULTS + "&storeID=" + storeId;
-        EasyMock.expect(response.getStatusCode()).andReturn(200);
-        EasyMock.expect(response.getResponseBody()).andReturn(xml);
+        String nextURL = baseURL + "/" + spaceId +
+                         "?maxResults=" + StorageProvider.DEFAULT_MAX_RESULTS +
+                         "&marker=Image%202&storeID=" + storeId;
+        EasyMock.expect(response.getStatusCode()).andReturn(200).times(2);
+        EasyMock.expect(response.getResponseStream())
+                .andReturn(new ByteArrayInputStream(xml.getBytes()))
+                .andReturn(new ByteArrayInputStream(emptyXml.getBytes()));
         EasyMock.expect(restHelper.get(fullURL)).andReturn(response);
-        EasyMock.expect(response.getResponseHeaders()).andReturn(new Header[0]);
+        // The second page is retrieved ahead of the caller
+        EasyMock.expect(restHelper.get(nextURL)).andReturn(response);
+        EasyMock.expect(response.getResponseHeaders()).andReturn(new Header[0]).times(2);
 
         replayMocks();
 
@@ -170,6 +178,7 @@ public class ContentStoreImplTest {
         Assert.assertNotNull(spaceContents);
         Assert.assertEquals("Image 1", spaceContents.next());
         Assert.assertEquals("Image 2", spaceContents.next());
+        Assert.assertFalse(spaceContents.hasNext());
     }
 
     @Test
@@ -178,7 +187,8 @@ public class ContentStoreImplTest {
         String fullURL = baseURL + "/" + spaceId +
                          "?maxResults=10&storeID=" + storeId;
         EasyMock.expect(response.getStatusCode()).andReturn(200);
-        EasyMock.expect(response.getResponseBody()).andReturn(xml);
+        EasyMock.expect(response.getResponseStream())
+                .andReturn(new ByteArrayInputStream(xml.getBytes()));
         EasyMock.expect(response.getResponseHeaders()).andReturn(new Header[0]);
 
         EasyMock.expect(restHelper.get(fullURL)).andReturn(response);
@@ -187,10 +197,34 @@ public class ContentStoreImplTest {
 
         Space space = contentStore.getSpace(spaceId, null, 10, null);
         Assert.assertNotNull(space);
+        Assert.assertEquals("space1", space.getId());
         List<String> spaceContents = space.getContentIds();
         Assert.assertEquals(2, spaceContents.size());
     }
 
+    @Test
+    public void testGetSpaceContentsReader() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                     "<space id=\"space1\"><item>Image 1</item><item>a &amp; b</item></space>";
+        String fullURL = baseURL + "/" + spaceId +
+                         "?maxResults=100000&marker=Image%200&storeID=" + storeId;
+        EasyMock.expect(response.getStatusCode()).andReturn(200);
+        EasyMock.expect(response.getResponseStream())
+                .andReturn(new ByteArrayInputStream(xml.getBytes()));
+        EasyMock.expect(restHelper.get(fullURL)).andReturn(response);
+
+        replayMocks();
+
+        try (SpaceContentsReader reader =
+                 contentStore.getSpaceContentsReader(spaceId, null, 100000, "Image 0")) {
+            Assert.assertEquals("space1", reader.getSpaceId());
+            Assert.assertTrue(reader.hasNext());
+            Assert.assertEquals("Image 1", reader.next());
+            Assert.assertEquals("a & b", reader.next());
+            Assert.assertFalse(reader.hasNext());
+        }
+    }
+
     @Test
     public void testGetManifest() throws Exception {
         String tsv = "manifest stream";
@@ -0,0 +1,133 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.duracloud.common.model.Credential;
+import org.duracloud.common.web.HttpConnectionPool;
+import org.duracloud.common.web.RestHttpHelper;
+import org.duracloud.storage.domain.StorageProviderType;
+
+/**
+ * Compares per-request latency of ContentStoreImpl calls made with a new
+ * http client per request against calls made over pooled, persistent
+ * connections. Requests are made against a local stub server.
+ *
+ * This is not run as part of the test suite. To run:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.duracloud.client.ContentStoreTransportBenchmark
+ * [-Dexec.args="requests threads"]
+ */
+public class ContentStoreTransportBenchmark {
+
+    private static final String SPACE_ID = "space";
+    private static final String CONTENT_ID = "content";
+    private static final Credential CREDENTIAL = new Credential("user", "pass");
+
+    private ContentStoreTransportBenchmark() {
+        // Run via main()
+    }
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        ExecutorService serverExecutor = Executors.newFixedThreadPool(threads);
+        HttpServer server = startStubServer(serverExecutor);
+        String baseURL = "http://localhost:" + server.getAddress().getPort() + "/durastore";
+        try {
+            // Warm up both paths before measuring
+            run(baseURL, new RestHttpHelper(CREDENTIAL), requests / 10, threads);
+            try (HttpConnectionPool pool = new HttpConnectionPool()) {
+                run(baseURL, new RestHttpHelper(CREDENTIAL, pool), requests / 10, threads);
+            }
+
+            double unpooled = run(baseURL, new RestHttpHelper(CREDENTIAL), requests, threads);
+            double pooled;
+            try (HttpConnectionPool pool = new HttpConnectionPool(threads, threads, -1,
+                                                                  HttpConnectionPool.DEFAULT_MAX_IDLE_TIME_MS,
+                                                                  HttpConnectionPool.DEFAULT_KEEP_ALIVE_MS)) {
+                pooled = run(baseURL, new RestHttpHelper(CREDENTIAL, pool), requests, threads);
+            }
+
+            System.out.println(String.format("requests=%d threads=%d", requests, threads));
+            System.out.println(String.format("client per request: %.3f ms/request", unpooled));
+            System.out.println(String.format("pooled connections: %.3f ms/request", pooled));
+        } finally {
+            server.stop(0);
+            serverExecutor.shutdown();
+        }
+    }
+
+    /**
+     * @return mean latency per request in milliseconds
+     */
+    private static double run(String baseURL,
+                              RestHttpHelper restHelper,
+                              int requests,
+                              int threads) throws Exception {
+        ContentStore store = new ContentStoreImpl(baseURL,
+                                                  StorageProviderType.AMAZON_S3,
+                                                  "0",
+                                                  true,
+                                                  restHelper);
+        int perThread = Math.max(requests / threads, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        store.getContentProperties(SPACE_ID, CONTENT_ID);
+                        store.getSpaceProperties(SPACE_ID);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        long elapsedNs = System.nanoTime() - start;
+        // Each thread makes two requests per iteration
+        return (elapsedNs / 1000000.0) / (perThread * 2);
+    }
+
+    private static HttpServer startStubServer(ExecutorService executor) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/durastore", ContentStoreTransportBenchmark::handle);
+        server.setExecutor(executor);
+        server.start();
+        return server;
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain");
+        exchange.getResponseHeaders().add("x-dura-meta-content-checksum", "abc123");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(200, -1);
+        } else {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+}
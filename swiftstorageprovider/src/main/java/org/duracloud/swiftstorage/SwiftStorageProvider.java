@@ -69,6 +69,15 @@ public class SwiftStorageProvider extends S3StorageProvider {
         Headers.LAST_MODIFIED,
     };
 
+    /**
+     * Content is not transferred in parts, as Swift reports the ETag and
+     * metadata of segmented objects differently than S3.
+     */
+    @Override
+    protected boolean isMultipartEnabled() {
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -107,6 +116,8 @@ public class SwiftStorageProvider extends S3StorageProvider {
             throw new StorageException(err, e, RETRY);
         }
 
+        bucketNameCache.remove(spaceId);
+
         // Space properties are stored as tags with the S3 bucket.
         // So with Swift we need to delete the associated properties object in Swift.
         s3Client.deleteObject(propertiesBucketName, spaceId);
@@ -117,6 +128,7 @@ public class SwiftStorageProvider extends S3StorageProvider {
         String bucketName = getHiddenBucketName(spaceId);
         try {
             Bucket bucket = s3Client.createBucket(bucketName);
+            bucketNameCache.put(spaceId, bucketName);
             return spaceId;
         } catch (AmazonClientException e) {
             String err = "Could not create Swift container with name " + bucketName
@@ -147,7 +159,20 @@ public class SwiftStorageProvider extends S3StorageProvider {
     protected Map<String, String> getAllSpaceProperties(String spaceId) {
         log.debug("getAllSpaceProperties(" + spaceId + ")");
 
-        // Will throw if bucket does not exist
+        Map<String, String> spaceProperties = getStoredSpaceProperties(spaceId);
+
+        // Add space count
+        spaceProperties.put(PROPERTIES_SPACE_COUNT,
+                            getSpaceCount(spaceId, MAX_ITEM_COUNT));
+        return spaceProperties;
+    }
+
+    @Override
+    protected Map<String, String> getStoredSpaceProperties(String spaceId) {
+        log.debug("getStoredSpaceProperties(" + spaceId + ")");
+
+        // Will throw if the space or the properties bucket does not exist
+        getBucketName(spaceId);
         String propsBucketName = getBucketName(PROPERTIES_BUCKET);
 
         Map<String, String> spaceProperties = new HashMap<>();
@@ -173,12 +198,7 @@ public class SwiftStorageProvider extends S3StorageProvider {
         }
 
         // Handle @ symbol (change from +), to allow for email usernames in ACLs
-        spaceProperties = replaceInMapValues(spaceProperties, "+", "@");
-
-        // Add space count
-        spaceProperties.put(PROPERTIES_SPACE_COUNT,
-                            getSpaceCount(spaceId, MAX_ITEM_COUNT));
-        return spaceProperties;
+        return replaceInMapValues(spaceProperties, "+", "@");
     }
 
     @Override
@@ -188,7 +208,7 @@ public class SwiftStorageProvider extends S3StorageProvider {
 
         Map<String, String> originalProperties;
         try {
-            originalProperties = getAllSpaceProperties(spaceId);
+            originalProperties = getStoredSpaceProperties(spaceId);
         } catch (NotFoundException e) {
             // The metadata bucket does not exist yet, so create it
             createHiddenSpace(PROPERTIES_BUCKET, 0);
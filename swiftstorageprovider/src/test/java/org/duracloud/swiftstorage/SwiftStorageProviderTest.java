@@ -135,9 +135,10 @@ public class SwiftStorageProviderTest {
         expect(propsBucket.getName()).andReturn(propsBucketName).anyTimes();
         expect(s3Client.createBucket(bucketName)).andReturn(bucket);
         expect(s3Client.createBucket(propsBucketName)).andReturn(propsBucket).anyTimes();
+        // Created buckets are cached, so the properties bucket is found
+        // without listing buckets again
         expect(s3Client.listBuckets()).andReturn(new ArrayList<Bucket>());
         expect(s3Client.listBuckets()).andReturn(Arrays.asList(bucket));
-        expect(s3Client.listBuckets()).andReturn(Arrays.asList(propsBucket));
         expect(s3Client.putObject(
             propsBucketName, spaceId, "{space-created=" + formattedDate(date) + "}"
         )).andReturn(new PutObjectResult());
@@ -227,16 +228,14 @@ public class SwiftStorageProviderTest {
         expect(propsBucket.getName()).andReturn(propsBucketName).anyTimes();
         expect(s3Client.listBuckets()).andReturn(Arrays.asList(bucket, propsBucket)).anyTimes();
         expect(s3Client.getObjectAsString(propsBucketName, spaceId)).andReturn(properties);
-        ObjectListing objectListing = createMock("ObjectListing", ObjectListing.class);
-        setUpListObjects(objectListing, 1);
-        setUpListObjects(objectListing, 0);
+        // Setting properties does not count the items in the space
         expect(s3Client.putObject(
             propsBucketName, spaceId, propsWithDate
         )).andReturn(createMock(PutObjectResult.class));
 
         SwiftStorageProvider provider = getProvider();
 
-        replay(s3Client, bucket, propsBucket, objectListing);
+        replay(s3Client, bucket, propsBucket);
 
         Map<String, String> spaceProps = new HashMap<>();
         spaceProps.put("key1", "value1");
@@ -244,7 +243,7 @@ public class SwiftStorageProviderTest {
         spaceProps.put("key3", "value@3");
         provider.doSetSpaceProperties(spaceId, spaceProps);
 
-        verify(s3Client, bucket, propsBucket, objectListing);
+        verify(s3Client, bucket, propsBucket);
     }
 
     @Test
@@ -12,20 +12,22 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import org.duracloud.client.ContentStore;
 import org.duracloud.client.util.StoreClientUtil;
 import org.duracloud.common.util.ApplicationConfig;
+import org.duracloud.common.web.HttpConnectionPool;
 import org.duracloud.sync.backup.SyncBackupManager;
 import org.duracloud.sync.config.SyncToolConfig;
 import org.duracloud.sync.config.SyncToolConfigParser;
 import org.duracloud.sync.endpoint.DuraStoreChunkSyncEndpoint;
 import org.duracloud.sync.endpoint.EndPointLogger;
-import org.duracloud.sync.endpoint.SyncEndpoint;
 import org.duracloud.sync.mgmt.ChangedList;
 import org.duracloud.sync.mgmt.FileExclusionManager;
 import org.duracloud.sync.mgmt.StatusManager;
 import org.duracloud.sync.mgmt.SyncManager;
+import org.duracloud.sync.mgmt.SyncStateIndex;
 import org.duracloud.sync.monitor.DirectoryUpdateMonitor;
 import org.duracloud.sync.walker.DeleteChecker;
 import org.duracloud.sync.walker.DirWalker;
@@ -63,11 +65,13 @@ public class SyncTool {
     private SyncManager syncManager;
     private SyncBackupManager syncBackupManager;
     private DirectoryUpdateMonitor dirMonitor;
-    private SyncEndpoint syncEndpoint;
+    private DuraStoreChunkSyncEndpoint syncEndpoint;
     private DirWalker dirWalker;
     private DeleteChecker deleteChecker;
     private String version;
     private FileExclusionManager fileExclusionManager;
+    private SyncStateIndex syncStateIndex;
+    private HttpConnectionPool connectionPool;
 
     public SyncTool() {
         Properties props =
@@ -162,7 +166,33 @@ public class SyncTool {
         return false;
     }
 
+    /*
+     * Loads the index of files synced in previous runs. The index is only
+     * valid if the content dirs and space are those it was built with.
+     */
+    private void startSyncStateIndex(boolean restart) {
+        if (syncConfig.isSkipUnchanged()) {
+            File indexDir = new File(syncConfig.getWorkDir(), "syncState");
+            syncStateIndex =
+                new SyncStateIndex(indexDir, syncConfig.getVerifyPercent());
+            if (!restart) {
+                syncStateIndex.clear();
+            }
+            syncStateIndex.load();
+        }
+    }
+
     private void startSyncManager() {
+        // Allow for chunk transfers and listing and property calls alongside
+        // the sync workers
+        int maxConnections = Math.max(syncConfig.getNumThreads(), 1) * 3;
+        connectionPool =
+            new HttpConnectionPool(maxConnections,
+                                   maxConnections,
+                                   -1,
+                                   HttpConnectionPool.DEFAULT_MAX_IDLE_TIME_MS,
+                                   HttpConnectionPool.DEFAULT_KEEP_ALIVE_MS);
+
         StoreClientUtil clientUtil = new StoreClientUtil();
         ContentStore contentStore =
             clientUtil.createContentStore(syncConfig.getHost(),
@@ -170,7 +200,8 @@ public class SyncTool {
                                           syncConfig.getContext(),
                                           syncConfig.getUsername(),
                                           syncConfig.getPassword(),
-                                          syncConfig.getStoreId());
+                                          syncConfig.getStoreId(),
+                                          connectionPool);
 
         syncEndpoint =
             new DuraStoreChunkSyncEndpoint(contentStore,
@@ -182,7 +213,9 @@ public class SyncTool {
                                            syncConfig.isRenameUpdates(),
                                            syncConfig.isJumpStart(),
                                            syncConfig.getUpdateSuffix(),
-                                           syncConfig.getPrefix());
+                                           syncConfig.getPrefix(),
+                                           syncConfig.getNumThreads());
+        syncEndpoint.setSyncStateIndex(syncStateIndex);
 
         this.syncEndpoint.addEndPointListener(new EndPointLogger());
 
@@ -194,20 +227,25 @@ public class SyncTool {
     }
 
     private void startDirWalker() {
-        dirWalker = DirWalker.start(syncConfig.getContentDirs(), fileExclusionManager);
+        dirWalker = DirWalker.start(syncConfig.getContentDirs(),
+                                    fileExclusionManager,
+                                    syncStateIndex);
     }
 
     private void startRestartDirWalker(long lastBackup) {
         dirWalker = RestartDirWalker.start(syncConfig.getContentDirs(),
                                            lastBackup,
-                                           fileExclusionManager);
+                                           fileExclusionManager,
+                                           syncStateIndex);
     }
 
     private void startDeleteChecker() {
         deleteChecker = DeleteChecker.start(syncEndpoint,
                                             syncConfig.getSpaceId(),
                                             syncConfig.getContentDirs(),
-                                            syncConfig.getPrefix());
+                                            syncConfig.getPrefix(),
+                                            syncConfig.getNumThreads(),
+                                            syncConfig.getMaxDeletesPerSecond());
     }
 
     private void startDirMonitor() {
@@ -299,6 +337,21 @@ public class SyncTool {
             System.out.println("\nThe Sync Tool will exit after the remaining "
                                + inWork + " work items have completed\n");
         }
+
+        // The endpoint, connection pool and sync state index remain available
+        // to the in-progress work items
+        try {
+            while (!syncManager.awaitEndSync(10, TimeUnit.SECONDS)) {
+                logger.debug("Waiting for in-progress work to complete");
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted waiting for in-progress work to complete");
+        }
+        syncEndpoint.close();
+        connectionPool.close();
+        if (null != syncStateIndex) {
+            syncStateIndex.close();
+        }
     }
 
     public void runSyncTool() {
@@ -306,10 +359,9 @@ public class SyncTool {
         logger.info("Running Sync Tool with configuration: " +
                     syncConfig.getPrintableConfig());
         System.out.print("\nStarting up the Sync Tool ...");
-        startSyncManager();
-
-        System.out.print("...");
         boolean restart = restartPossible();
+        startSyncStateIndex(restart);
+        startSyncManager();
         System.out.print("...");
 
         File backupDir = new File(syncConfig.getWorkDir(), "backup");
@@ -321,15 +373,20 @@ public class SyncTool {
 
         boolean hasABackupFile = this.syncBackupManager.hasBackups();
 
+        long lastBackup = -1;
         if (restart && hasABackupFile) {
             //attempt restart
-            long lastBackup = syncBackupManager.attemptRestart();
+            lastBackup = syncBackupManager.attemptRestart();
+            System.out.print("...");
+        }
+
+        // Changes found from here on are journaled
+        syncBackupManager.startJournal();
+
+        if (lastBackup > 0) {
+            logger.info("Running Sync Tool re-start file check");
+            startRestartDirWalker(lastBackup);
             System.out.print("...");
-            if (lastBackup > 0) {
-                logger.info("Running Sync Tool re-start file check");
-                startRestartDirWalker(lastBackup);
-                System.out.print("...");
-            }
         }
 
         if (dirWalker == null) {
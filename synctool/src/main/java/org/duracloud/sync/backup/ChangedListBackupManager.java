@@ -16,7 +16,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Manages the backing up of the changed list on a consistent schedule.
+ * Manages the backing up of the changed list. Changes to the list are
+ * recorded in a ChangedListJournal, which is checkpointed on a consistent
+ * schedule. Backups written by earlier versions, which serialized the whole
+ * list, can still be loaded.
  *
  * @author: Bill Branan
  * Date: Mar 19, 2010
@@ -26,15 +29,12 @@ public class ChangedListBackupManager implements Runnable {
     private final Logger logger =
         LoggerFactory.getLogger(ChangedListBackupManager.class);
 
-    public static final int SAVED_BACKUPS = 3;
-    protected static final int DEFAULT_SLEEP_TIME = 5000; // 5 seconds
     private File backupDir;
-    private long backupFrequency;
     private ChangedList changedList;
-    private boolean continueBackup;
-    private long changedListVersion;
+    private ChangedListJournal journal;
+    private boolean journalStarted = false;
+    private boolean continueBackup = true;
     private List<File> contentDirs;
-    private boolean backingUp = false;
 
     public ChangedListBackupManager(ChangedList changedList,
                                     File backupDir,
@@ -44,21 +44,31 @@ public class ChangedListBackupManager implements Runnable {
             this.backupDir.mkdir();
         }
 
-        this.backupFrequency = backupFrequency;
+        this.journal =
+            new ChangedListJournal(new File(backupDir, "changeJournal"), backupFrequency);
         this.changedList = changedList;
         this.contentDirs = contentDirs;
-        continueBackup = true;
     }
 
     /**
-     * Attempts to reload the changed list from a backup file. If there are
-     * no backup files or the backup file cannot be read, returns -1, otherwise
-     * the backup file is loaded and the time the backup file was written is
-     * returned.
+     * Attempts to reload the changed list from the journal, or from a backup
+     * file written by an earlier version. If there is no backup, or the
+     * directory walk had not completed when the journal was last written,
+     * returns -1. Otherwise the time of the last backup is returned, and only
+     * files changed since then need to be found.
      *
-     * @return the write time of the backup file, or -1 if no backup is available
+     * @return the time of the last backup, or -1 if no complete backup is available
      */
     public long loadBackup() {
+        if (journal.hasEntries()) {
+            ChangedListJournal.Recovery recovery = journal.recover();
+            changedList.restore(recovery.getFiles(), this.contentDirs);
+            if (recovery.isWalkComplete() && recovery.getCheckpointTime() > 0) {
+                return recovery.getCheckpointTime();
+            }
+            return -1;
+        }
+
         long backupTime = -1;
         File[] backupDirFiles = getSortedBackupDirFiles();
         if (backupDirFiles.length > 0) {
@@ -77,46 +87,34 @@ public class ChangedListBackupManager implements Runnable {
     }
 
     /**
-     * Runs the backup manager. Writes out files which are a backups of the
-     * changed list based on the set backup frequency. Retains SAVED_BACKUPS
-     * number of backup files, removes the rest.
+     * Starts recording changes to the changed list in the journal. The
+     * current contents of the list are written to the journal first, after
+     * which earlier journal entries and backup files are removed. Should be
+     * called after any backup is loaded and before files are added to the
+     * list.
      */
-    public void run() {
-        while (continueBackup) {
-            if (changedListVersion < changedList.getVersion()) {
-                cleanupBackupDir(SAVED_BACKUPS);
-                String filename = String.valueOf(System.currentTimeMillis());
-                File persistFile = new File(backupDir, filename);
-                backingUp = true;
-                changedListVersion = changedList.persist(persistFile);
-                backingUp = false;
-            }
-
-            sleepAndCheck(backupFrequency);
+    public synchronized void startJournal() {
+        if (journalStarted || !continueBackup) {
+            return;
         }
+        journal.open();
+        changedList.setJournal(journal);
+        journal.checkpoint();
+        journal.removePreviousEntries();
+        cleanupBackupDir(0);
+        journalStarted = true;
     }
 
-    /*
-     * Sleeps for a given amount of time, checking frequently
-     * to see if the process should be continued. This allows
-     * the the backup manager to wait between activity and also
-     * ensure that the higher level system shutdown process is
-     * not held up by waiting for a sleep to complete here.
+    /**
+     * Runs the backup manager once the directory walk has completed. Records
+     * the completion of the walk, so that a restart only needs to find files
+     * which changed after the last checkpoint.
      */
-    private void sleepAndCheck(long backupFrequency) {
-        long sleepTime = DEFAULT_SLEEP_TIME;
-        for (long sleepCompleted = 0;
-             continueBackup && sleepCompleted < backupFrequency;
-             sleepCompleted += sleepTime) {
-            sleep(sleepTime);
-        }
-    }
-
-    protected void sleep(long milliseconds) {
-        try {
-            Thread.sleep(milliseconds);
-        } catch (InterruptedException e) {
-            logger.warn("ChangedListBackupManager thread interrupted");
+    public synchronized void run() {
+        startJournal();
+        if (journalStarted) {
+            journal.recordWalkComplete();
+            journal.checkpoint();
         }
     }
 
@@ -132,26 +130,32 @@ public class ChangedListBackupManager implements Runnable {
         }
     }
 
-    public void clear() {
-        while (backingUp) {
-            sleep(100);
-        }
-
-        synchronized (this) {
-            cleanupBackupDir(0);
-        }
-
+    /**
+     * Removes all backups. Backups must have been ended.
+     */
+    public synchronized void clear() {
+        cleanupBackupDir(0);
+        journal.delete();
     }
 
     private File[] getSortedBackupDirFiles() {
         return DirectoryUtil.listFilesSortedByModDate(backupDir);
     }
 
-    public void endBackup() {
+    /**
+     * Stops recording changes, after writing any outstanding changes to the
+     * journal.
+     */
+    public synchronized void endBackup() {
         continueBackup = false;
+        if (journalStarted) {
+            changedList.setJournal(null);
+            journal.close();
+            journalStarted = false;
+        }
     }
 
     public boolean hasBackups() {
-        return getSortedBackupDirFiles().length > 0;
+        return journal.hasEntries() || getSortedBackupDirFiles().length > 0;
     }
 }
@@ -0,0 +1,565 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.backup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.duracloud.sync.mgmt.ChangeJournal;
+import org.duracloud.sync.mgmt.ChangedFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only journal of the changes made to the ChangedList.
+ *
+ * Changes are queued without locking and appended to the current journal
+ * segment by the checkpoint thread, or by the recording thread once too many
+ * changes are queued. A checkpoint appends only the changes made since the
+ * previous checkpoint and syncs the segment to disk, so its cost does not
+ * depend on the size of the list.
+ *
+ * Once a segment holds more than the compaction threshold of records, a new
+ * segment is started and the closed segments are compacted in the
+ * background into a snapshot holding only the files which are still waiting
+ * to be processed. Snapshots are written to a temporary file and then
+ * renamed, and segments are only removed once they are covered by a
+ * snapshot, so the journal can be recovered after a crash at any point.
+ * A record which was only partly written when a crash occurred ends the
+ * replay of its segment.
+ */
+public class ChangedListJournal implements ChangeJournal {
+
+    private final Logger log = LoggerFactory.getLogger(ChangedListJournal.class);
+
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000000;
+
+    protected static final int MAX_QUEUED_RECORDS = 100000;
+
+    protected static final String SEGMENT_PREFIX = "segment-";
+    protected static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final byte WALK_COMPLETE = 4;
+    private static final byte CHECKPOINT = 5;
+
+    private final File journalDir;
+    private final long checkpointInterval;
+    private final int compactionThreshold;
+
+    private final AtomicLong changeIds = new AtomicLong(0);
+    private final Queue<Record> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+    private final Object writeLock = new Object();
+
+    private ScheduledExecutorService checkpointExecutor;
+    private ExecutorService compactionExecutor;
+    private FileOutputStream segmentStream;
+    private DataOutputStream segmentOut;
+    private long segment = -1;
+    private long firstSegment = -1;
+    private int segmentRecords;
+    private boolean unsynced;
+    private volatile boolean open = false;
+
+    /**
+     * @param journalDir         directory holding the journal files
+     * @param checkpointInterval period in milliseconds between checkpoints
+     */
+    public ChangedListJournal(File journalDir, long checkpointInterval) {
+        this(journalDir, checkpointInterval, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * @param journalDir          directory holding the journal files
+     * @param checkpointInterval  period in milliseconds between checkpoints
+     * @param compactionThreshold number of records written to a segment
+     *                            after which the journal is compacted
+     */
+    public ChangedListJournal(File journalDir,
+                              long checkpointInterval,
+                              int compactionThreshold) {
+        this.journalDir = journalDir;
+        this.checkpointInterval = checkpointInterval;
+        this.compactionThreshold = compactionThreshold;
+        if (!journalDir.exists()) {
+            journalDir.mkdirs();
+        }
+    }
+
+    /**
+     * @return true if the journal holds changes from a previous run
+     */
+    public boolean hasEntries() {
+        return !listFiles(SEGMENT_PREFIX).isEmpty() ||
+               !listFiles(SNAPSHOT_PREFIX).isEmpty();
+    }
+
+    /**
+     * Reads the state of the changed list as of the last record written to
+     * the journal. Must be called before the journal is opened.
+     *
+     * @return the recovered state
+     */
+    public Recovery recover() {
+        Replay replay = replay(Long.MAX_VALUE);
+        Map<String, ChangedFile> files = new LinkedHashMap<>();
+        for (String path : replay.files.keySet()) {
+            files.put(path, new ChangedFile(new File(path)));
+        }
+        log.info("Recovered {} changed files from journal {}",
+                 files.size(), journalDir.getAbsolutePath());
+        return new Recovery(files, replay.walkComplete, replay.checkpointTime);
+    }
+
+    /**
+     * Starts a new journal segment and schedules checkpoints. Segments
+     * written before the journal was opened are kept until
+     * removePreviousEntries() is called.
+     */
+    public void open() {
+        synchronized (writeLock) {
+            long last = Math.max(lastKey(listFiles(SEGMENT_PREFIX)),
+                                 lastKey(listFiles(SNAPSHOT_PREFIX)));
+            firstSegment = last + 1;
+            startSegment(firstSegment);
+            open = true;
+        }
+
+        checkpointExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "changed-list-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "changed-list-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (Exception e) {
+                log.error("Unable to checkpoint changed list journal: " +
+                          e.getMessage(), e);
+            }
+        }, checkpointInterval, checkpointInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Removes the segments and snapshots written before the journal was
+     * opened. Should be called once the journal holds the complete changed
+     * list and has been checkpointed.
+     */
+    public void removePreviousEntries() {
+        for (Map.Entry<Long, File> entry : listFiles(SEGMENT_PREFIX).entrySet()) {
+            if (entry.getKey() < firstSegment) {
+                entry.getValue().delete();
+            }
+        }
+        for (Map.Entry<Long, File> entry : listFiles(SNAPSHOT_PREFIX).entrySet()) {
+            if (entry.getKey() < firstSegment) {
+                entry.getValue().delete();
+            }
+        }
+    }
+
+    @Override
+    public long recordAdd(File file) {
+        long changeId = changeIds.incrementAndGet();
+        record(new Record(ADD, changeId, file.getAbsolutePath()));
+        return changeId;
+    }
+
+    @Override
+    public void recordRemove(File file, long changeId) {
+        record(new Record(REMOVE, changeId, file.getAbsolutePath()));
+    }
+
+    @Override
+    public void recordClear() {
+        record(new Record(CLEAR, 0, null));
+    }
+
+    /**
+     * Records that the directory walk has completed, so that all files
+     * changed before the next checkpoint are held in the journal.
+     */
+    public void recordWalkComplete() {
+        record(new Record(WALK_COMPLETE, 0, null));
+    }
+
+    private void record(Record record) {
+        if (!open) {
+            return;
+        }
+        queue.offer(record);
+        // Bound the memory used by queued records
+        if (queued.incrementAndGet() > MAX_QUEUED_RECORDS) {
+            synchronized (writeLock) {
+                writeQueued();
+            }
+        }
+    }
+
+    /**
+     * Writes all queued changes to the journal and syncs them to disk.
+     * Starts a compaction if the current segment has grown past the
+     * compaction threshold.
+     */
+    public void checkpoint() {
+        synchronized (writeLock) {
+            if (!open) {
+                return;
+            }
+            // All changes made before this time are written below
+            long checkpointTime = System.currentTimeMillis();
+            writeQueued();
+            if (!unsynced) {
+                return;
+            }
+            try {
+                writeRecord(segmentOut, new Record(CHECKPOINT, checkpointTime, null));
+                segmentOut.flush();
+                segmentStream.getFD().sync();
+                unsynced = false;
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to checkpoint changed list journal: " +
+                                           e.getMessage(), e);
+            }
+
+            if (segmentRecords >= compactionThreshold &&
+                compacting.compareAndSet(false, true)) {
+                final long compactThrough = segment;
+                closeSegment();
+                startSegment(segment + 1);
+                compactionExecutor.execute(() -> {
+                    try {
+                        compact(compactThrough);
+                    } catch (Exception e) {
+                        log.error("Unable to compact changed list journal: " +
+                                  e.getMessage(), e);
+                    } finally {
+                        compacting.set(false);
+                    }
+                });
+            }
+        }
+    }
+
+    /*
+     * Must be called while holding the write lock
+     */
+    private void writeQueued() {
+        if (null == segmentOut) {
+            return;
+        }
+        try {
+            Record record;
+            while ((record = queue.poll()) != null) {
+                queued.decrementAndGet();
+                writeRecord(segmentOut, record);
+                segmentRecords++;
+                unsynced = true;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write to changed list journal: " +
+                                       e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Must be called while holding the write lock
+     */
+    private void startSegment(long segmentNumber) {
+        try {
+            File segmentFile = new File(journalDir, SEGMENT_PREFIX + segmentNumber);
+            segmentStream = new FileOutputStream(segmentFile);
+            segmentOut = new DataOutputStream(new BufferedOutputStream(segmentStream));
+            segment = segmentNumber;
+            segmentRecords = 0;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to start changed list journal segment: " +
+                                       e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Must be called while holding the write lock
+     */
+    private void closeSegment() {
+        if (null != segmentOut) {
+            try {
+                segmentOut.close();
+            } catch (IOException e) {
+                log.warn("Unable to close changed list journal segment: " +
+                         e.getMessage());
+            }
+            segmentOut = null;
+            segmentStream = null;
+        }
+    }
+
+    /**
+     * Replaces the segments up to and including the given segment with a
+     * snapshot of the changed files they hold.
+     */
+    protected void compact(long throughSegment) throws IOException {
+        Replay replay = replay(throughSegment);
+
+        File snapshot = new File(journalDir, SNAPSHOT_PREFIX + throughSegment);
+        File tempSnapshot = new File(journalDir, snapshot.getName() + TEMP_SUFFIX);
+        try (FileOutputStream fileStream = new FileOutputStream(tempSnapshot);
+             DataOutputStream out =
+                 new DataOutputStream(new BufferedOutputStream(fileStream))) {
+            for (Map.Entry<String, Long> file : replay.files.entrySet()) {
+                writeRecord(out, new Record(ADD, file.getValue(), file.getKey()));
+            }
+            if (replay.walkComplete) {
+                writeRecord(out, new Record(WALK_COMPLETE, 0, null));
+            }
+            if (replay.checkpointTime > 0) {
+                writeRecord(out, new Record(CHECKPOINT, replay.checkpointTime, null));
+            }
+            out.flush();
+            fileStream.getFD().sync();
+        }
+        Files.move(tempSnapshot.toPath(), snapshot.toPath(),
+                   StandardCopyOption.ATOMIC_MOVE);
+
+        for (Map.Entry<Long, File> entry : listFiles(SEGMENT_PREFIX).entrySet()) {
+            if (entry.getKey() <= throughSegment) {
+                entry.getValue().delete();
+            }
+        }
+        for (Map.Entry<Long, File> entry : listFiles(SNAPSHOT_PREFIX).entrySet()) {
+            if (entry.getKey() < throughSegment) {
+                entry.getValue().delete();
+            }
+        }
+        log.info("Compacted changed list journal through segment {}, {} files " +
+                 "waiting to be processed", throughSegment, replay.files.size());
+    }
+
+    /*
+     * Replays the latest snapshot and the segments which follow it, up to
+     * and including the given segment.
+     */
+    private Replay replay(long throughSegment) {
+        Replay replay = new Replay();
+        long snapshotNumber = -1;
+        for (Map.Entry<Long, File> entry : listFiles(SNAPSHOT_PREFIX).entrySet()) {
+            if (entry.getKey() <= throughSegment) {
+                snapshotNumber = entry.getKey();
+                replay.read(entry.getValue());
+            }
+        }
+        for (Map.Entry<Long, File> entry : listFiles(SEGMENT_PREFIX).entrySet()) {
+            if (entry.getKey() > snapshotNumber && entry.getKey() <= throughSegment) {
+                replay.read(entry.getValue());
+            }
+        }
+        return replay;
+    }
+
+    /*
+     * Journal files with the given prefix, keyed by number in ascending order
+     */
+    private SortedMap<Long, File> listFiles(String prefix) {
+        SortedMap<Long, File> files = new TreeMap<>();
+        File[] journalFiles = journalDir.listFiles();
+        if (null != journalFiles) {
+            for (File file : journalFiles) {
+                String name = file.getName();
+                if (name.startsWith(prefix) && !name.endsWith(TEMP_SUFFIX)) {
+                    try {
+                        files.put(Long.parseLong(name.substring(prefix.length())), file);
+                    } catch (NumberFormatException e) {
+                        log.warn("Ignoring unexpected file in changed list journal: {}",
+                                 file.getAbsolutePath());
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private long lastKey(SortedMap<Long, File> files) {
+        return files.isEmpty() ? -1 : files.lastKey();
+    }
+
+    private static void writeRecord(DataOutputStream out, Record record)
+        throws IOException {
+        out.writeByte(record.type);
+        out.writeLong(record.value);
+        if (record.type == ADD || record.type == REMOVE) {
+            out.writeUTF(record.path);
+        }
+    }
+
+    /**
+     * Writes any queued changes, stops the checkpoint and compaction threads
+     * and closes the journal. Changes recorded after the journal is closed
+     * are ignored.
+     */
+    public void close() {
+        if (null != checkpointExecutor) {
+            checkpointExecutor.shutdown();
+        }
+        checkpoint();
+        synchronized (writeLock) {
+            open = false;
+            closeSegment();
+        }
+        if (null != compactionExecutor) {
+            compactionExecutor.shutdown();
+            try {
+                compactionExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        queue.clear();
+        queued.set(0);
+    }
+
+    /**
+     * Removes all journal files. The journal must be closed.
+     */
+    public void delete() {
+        File[] journalFiles = journalDir.listFiles();
+        if (null != journalFiles) {
+            for (File file : journalFiles) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * The state of the changed list recovered from the journal.
+     */
+    public static class Recovery {
+        private final Map<String, ChangedFile> files;
+        private final boolean walkComplete;
+        private final long checkpointTime;
+
+        public Recovery(Map<String, ChangedFile> files,
+                        boolean walkComplete,
+                        long checkpointTime) {
+            this.files = files;
+            this.walkComplete = walkComplete;
+            this.checkpointTime = checkpointTime;
+        }
+
+        /**
+         * @return files waiting to be processed, keyed by absolute path
+         */
+        public Map<String, ChangedFile> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return true if the directory walk had completed, so only files
+         * changed since the last checkpoint need to be found
+         */
+        public boolean isWalkComplete() {
+            return walkComplete;
+        }
+
+        /**
+         * @return time of the last checkpoint, or 0 if there was none
+         */
+        public long getCheckpointTime() {
+            return checkpointTime;
+        }
+    }
+
+    private static class Record {
+        private final byte type;
+        private final long value;
+        private final String path;
+
+        Record(byte type, long value, String path) {
+            this.type = type;
+            this.value = value;
+            this.path = path;
+        }
+    }
+
+    /*
+     * The changed files built up by replaying journal files, keyed by path
+     * with the ID of the latest change to each
+     */
+    private class Replay {
+        private final Map<String, Long> files = new LinkedHashMap<>();
+        private boolean walkComplete = false;
+        private long checkpointTime = 0;
+
+        void read(File journalFile) {
+            try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(journalFile)))) {
+                while (true) {
+                    byte type = in.readByte();
+                    long value = in.readLong();
+                    if (type == ADD) {
+                        String path = in.readUTF();
+                        // A path added again keeps its place in the list
+                        files.put(path, value);
+                    } else if (type == REMOVE) {
+                        String path = in.readUTF();
+                        files.remove(path, value);
+                    } else if (type == CLEAR) {
+                        files.clear();
+                        walkComplete = false;
+                    } else if (type == WALK_COMPLETE) {
+                        walkComplete = true;
+                    } else if (type == CHECKPOINT) {
+                        checkpointTime = value;
+                    } else {
+                        log.warn("Unexpected record in changed list journal {}, " +
+                                 "ignoring the remainder of the file",
+                                 journalFile.getAbsolutePath());
+                        break;
+                    }
+                }
+            } catch (EOFException e) {
+                // End of the file, or of the last complete record
+            } catch (IOException e) {
+                log.warn("Unable to read all of changed list journal {}: {}",
+                         journalFile.getAbsolutePath(), e.getMessage());
+            }
+        }
+    }
+
+}
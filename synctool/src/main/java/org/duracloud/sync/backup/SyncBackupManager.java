@@ -46,6 +46,14 @@ public class SyncBackupManager {
         return backupManager.loadBackup();
     }
 
+    /**
+     * Starts recording changes to the changed list. Should be called after
+     * any restart has been attempted and before the directory walk begins.
+     */
+    public void startJournal() {
+        backupManager.startJournal();
+    }
+
     public boolean hasBackups() {
         return this.backupManager.hasBackups();
     }
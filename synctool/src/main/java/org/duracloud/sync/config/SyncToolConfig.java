@@ -11,6 +11,8 @@ import java.io.File;
 import java.io.Serializable;
 import java.util.List;
 
+import org.duracloud.sync.walker.DeleteChecker;
+
 /**
  * Configuration for the Sync Tool
  *
@@ -44,6 +46,10 @@ public class SyncToolConfig implements Serializable {
     private String updateSuffix = DEFAULT_UPDATE_SUFFIX;
     private String prefix;
     private boolean jumpStart = false;
+    private boolean skipUnchanged = false;
+    private double verifyPercent = 0;
+    // Null in configurations saved before the delete rate could be set
+    private Integer maxDeletesPerSecond;
 
     public String getPrintableConfig() {
         StringBuilder config = new StringBuilder();
@@ -85,6 +91,12 @@ public class SyncToolConfig implements Serializable {
         config.append("SyncTool Syncing Deletes: ");
         config.append(syncDeletes()).append("\n");
 
+        if (syncDeletes()) {
+            config.append("SyncTool Max Deletes per Second: ");
+            config.append(getMaxDeletesPerSecond() > 0 ? getMaxDeletesPerSecond() : "no limit");
+            config.append("\n");
+        }
+
         if (getExcludeList() != null) {
             config.append("SyncTool Exclude List: ");
             config.append(getExcludeList()).append("\n");
@@ -94,6 +106,14 @@ public class SyncToolConfig implements Serializable {
         config.append(isCleanStart()).append("\n");
         config.append("Jump Start Mode: ");
         config.append(isJumpStart()).append("\n");
+        config.append("Skip Unchanged Files: ");
+        config.append(isSkipUnchanged()).append("\n");
+
+        if (isSkipUnchanged()) {
+            config.append("Unchanged Files Verified: ");
+            config.append(getVerifyPercent()).append("%\n");
+        }
+
         config.append("SyncTool Exit on Completion: ");
         config.append(exitOnCompletion()).append("\n");
         config.append("Sync Updates: ");
@@ -283,6 +303,37 @@ public class SyncToolConfig implements Serializable {
         this.jumpStart = jumpStart;
     }
 
+    public boolean isSkipUnchanged() {
+        return skipUnchanged;
+    }
+
+    public void setSkipUnchanged(boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    public double getVerifyPercent() {
+        return verifyPercent;
+    }
+
+    public void setVerifyPercent(double verifyPercent) {
+        this.verifyPercent = verifyPercent;
+    }
+
+    /**
+     * @return the maximum rate at which content removed locally is deleted
+     * from DuraCloud, 0 for no limit
+     */
+    public int getMaxDeletesPerSecond() {
+        if (null == maxDeletesPerSecond) {
+            return DeleteChecker.DEFAULT_MAX_DELETES_PER_SECOND;
+        }
+        return maxDeletesPerSecond;
+    }
+
+    public void setMaxDeletesPerSecond(int maxDeletesPerSecond) {
+        this.maxDeletesPerSecond = maxDeletesPerSecond;
+    }
+
     public long getBackupFrequency() {
         return backupFrequency;
     }
@@ -27,6 +27,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.duracloud.common.util.CommandLineToolUtil;
 import org.duracloud.common.util.ConsolePrompt;
+import org.duracloud.sync.walker.DeleteChecker;
 
 /**
  * Handles reading the configuration parameters for the Sync Tool
@@ -45,6 +46,7 @@ public class SyncToolConfigParser {
     protected static final long DEFAULT_POLL_FREQUENCY = 10000;
     protected static final int DEFAULT_NUM_THREADS = 3;
     protected static final int DEFAULT_MAX_FILE_SIZE = 1; // 1 GB
+    protected static final double DEFAULT_VERIFY_PERCENT = 0;
     protected static final String context = "durastore";
 
     private Options cmdOptions;
@@ -225,6 +227,37 @@ public class SyncToolConfigParser {
         prefixOption.setRequired(false);
         cmdOptions.addOption(prefixOption);
 
+        Option skipUnchanged =
+            new Option("k", "skip-unchanged", false,
+                       "indicates that the sync tool should keep an index of " +
+                       "the files it has synced in the work directory, and " +
+                       "should skip files whose size, modified date, and " +
+                       "file key have not changed since they were synced, " +
+                       "without checking them against DuraCloud. The index " +
+                       "is cleared on a clean start or when the " +
+                       "configuration changes. (optional, not set by default)");
+        skipUnchanged.setRequired(false);
+        cmdOptions.addOption(skipUnchanged);
+
+        Option verifyPercent =
+            new Option("v", "verify-percent", true,
+                       "the percentage of files skipped because they are " +
+                       "unchanged (-k) which should instead be checked " +
+                       "against DuraCloud on each run, to find content which " +
+                       "has been changed or removed in DuraCloud (optional, " +
+                       "default value is " + DEFAULT_VERIFY_PERCENT + ")");
+        verifyPercent.setRequired(false);
+        cmdOptions.addOption(verifyPercent);
+
+        Option maxDeletes =
+            new Option("q", "max-deletes-per-second", true,
+                       "the maximum number of items which are deleted from " +
+                       "DuraCloud per second when syncing deletes (-d), 0 " +
+                       "for no limit (optional, default value is " +
+                       DeleteChecker.DEFAULT_MAX_DELETES_PER_SECOND + ")");
+        maxDeletes.setRequired(false);
+        cmdOptions.addOption(maxDeletes);
+
         // Options to use Backup Config
         configFileOptions = new Options();
 
@@ -475,6 +508,46 @@ public class SyncToolConfigParser {
             config.setPrefix(cmd.getOptionValue("a"));
         }
 
+        if (cmd.hasOption("k")) {
+            config.setSkipUnchanged(true);
+        } else {
+            config.setSkipUnchanged(false);
+        }
+
+        if (cmd.hasOption("v")) {
+            String error = "The value for verify-percent (-v) must be a " +
+                           "number between 0 and 100.";
+            try {
+                double verify = Double.valueOf(cmd.getOptionValue("v"));
+                if (verify >= 0 && verify <= 100) {
+                    config.setVerifyPercent(verify);
+                } else {
+                    throw new ParseException(error);
+                }
+            } catch (NumberFormatException e) {
+                throw new ParseException(error);
+            }
+        } else {
+            config.setVerifyPercent(DEFAULT_VERIFY_PERCENT);
+        }
+
+        if (cmd.hasOption("q")) {
+            String error = "The value for max-deletes-per-second (-q) must " +
+                           "be a number which is 0 or greater.";
+            try {
+                int maxDeletes = Integer.valueOf(cmd.getOptionValue("q"));
+                if (maxDeletes >= 0) {
+                    config.setMaxDeletesPerSecond(maxDeletes);
+                } else {
+                    throw new ParseException(error);
+                }
+            } catch (NumberFormatException e) {
+                throw new ParseException(error);
+            }
+        } else {
+            config.setMaxDeletesPerSecond(DeleteChecker.DEFAULT_MAX_DELETES_PER_SECOND);
+        }
+
         return config;
     }
 
@@ -10,24 +10,37 @@ package org.duracloud.sync.endpoint;
 import static java.text.MessageFormat.format;
 import static org.duracloud.chunk.manifest.ChunksManifest.manifestSuffix;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.io.IOUtils;
 import org.duracloud.chunk.FileChunker;
 import org.duracloud.chunk.FileChunkerOptions;
 import org.duracloud.chunk.manifest.ChunksManifest;
 import org.duracloud.chunk.manifest.ChunksManifestBean;
+import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
 import org.duracloud.chunk.util.ChunksManifestVerifier;
+import org.duracloud.chunk.writer.ChunkTransferPool;
 import org.duracloud.chunk.writer.DuracloudContentWriter;
 import org.duracloud.client.ContentStore;
-import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.domain.Content;
 import org.duracloud.error.ContentStoreException;
-import org.duracloud.stitch.FileStitcher;
-import org.duracloud.stitch.datasource.impl.DuraStoreDataSource;
-import org.duracloud.stitch.impl.FileStitcherImpl;
+import org.duracloud.error.NotFoundException;
+import org.duracloud.storage.provider.StorageProvider;
 import org.duracloud.sync.config.SyncToolConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,10 +54,11 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
     private final Logger log = LoggerFactory.getLogger(
         DuraStoreChunkSyncEndpoint.class);
 
-    private FileStitcher stitcher;
-
     private boolean jumpStart;
     private FileChunkerOptions chunkerOptions;
+    private ChunkTransferPool transferPool;
+    private ExecutorService chunkExecutor;
+    private boolean trustManifests = true;
 
     public DuraStoreChunkSyncEndpoint(ContentStore contentStore,
                                       String username,
@@ -74,6 +88,36 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
                                       boolean jumpStart,
                                       String updateSuffix,
                                       String prefix) {
+        this(contentStore,
+             username,
+             spaceId,
+             syncDeletes,
+             maxFileSize,
+             syncUpdates,
+             renameUpdates,
+             jumpStart,
+             updateSuffix,
+             prefix,
+             1);
+    }
+
+    /**
+     * @param chunkTransferThreads number of chunks of large files which are
+     *                             transferred, verified or deleted
+     *                             concurrently, shared by all files being
+     *                             synced
+     */
+    public DuraStoreChunkSyncEndpoint(ContentStore contentStore,
+                                      String username,
+                                      String spaceId,
+                                      boolean syncDeletes,
+                                      long maxFileSize,
+                                      boolean syncUpdates,
+                                      boolean renameUpdates,
+                                      boolean jumpStart,
+                                      String updateSuffix,
+                                      String prefix,
+                                      int chunkTransferThreads) {
         super(contentStore,
               username,
               spaceId,
@@ -91,7 +135,42 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
         this.jumpStart = jumpStart;
         this.chunkerOptions = new FileChunkerOptions(maxFileSize);
 
-        stitcher = new FileStitcherImpl(new DuraStoreDataSource(contentStore));
+        if (chunkTransferThreads > 1) {
+            this.transferPool = new ChunkTransferPool(chunkTransferThreads);
+
+            final AtomicInteger threadCount = new AtomicInteger(0);
+            this.chunkExecutor = Executors.newFixedThreadPool(chunkTransferThreads, runnable -> {
+                Thread thread = new Thread(runnable, "chunk-check-" +
+                                                     threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Releases the threads used to transfer, verify and delete chunks. Should
+     * be called once the files being synced through this endpoint have
+     * completed.
+     */
+    public void close() {
+        if (null != transferPool) {
+            transferPool.shutdown();
+        }
+        if (null != chunkExecutor) {
+            chunkExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Determines whether chunked content is considered to be in DuraCloud
+     * based on its manifest alone, when the manifest is intact, rather than
+     * by checking each of its chunks. Manifests are only stored once all of
+     * their chunks have been stored and their checksums verified. Defaults
+     * to true.
+     */
+    public void setTrustManifests(boolean trustManifests) {
+        this.trustManifests = trustManifests;
     }
 
     @Override
@@ -101,11 +180,21 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
                                                                contentId);
 
         if (null == props) {
+            String manifestId = getManifestId(contentId);
             try {
-                ChunksManifest manifest = this.stitcher.getManifest(spaceId, getManifestId(contentId));
-
-                if (chunksInDuraCloudMatchChunksInManifest(spaceId, manifest)) {
-                    props = getManifestProperties(spaceId, manifest);
+                Content manifestContent = getContentStore().getContent(spaceId, manifestId);
+                byte[] manifestBytes;
+                try (InputStream manifestStream = manifestContent.getStream()) {
+                    manifestBytes = IOUtils.toByteArray(manifestStream);
+                }
+                ChunksManifest manifest = ManifestDocumentBinding.createManifestFrom(
+                    new ByteArrayInputStream(manifestBytes));
+                Map<String, String> manifestProps = manifestContent.getProperties();
+
+                if (isManifestIntact(manifest, manifestBytes, manifestProps) ||
+                    chunksInDuraCloudMatchChunksInManifest(spaceId, manifest)) {
+                    props = getManifestProperties(manifest, manifestProps);
+                    log.info("Manifest found for content: {}/{}", spaceId, manifestId);
                 }
 
             } catch (Exception ex) {
@@ -117,11 +206,42 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
         return props;
     }
 
+    /*
+     * Determines if a manifest can be trusted to describe the chunks in
+     * DuraCloud: the manifest is unchanged since it was stored, and its
+     * entries account for the full size of the content.
+     */
+    private boolean isManifestIntact(ChunksManifest manifest,
+                                     byte[] manifestBytes,
+                                     Map<String, String> manifestProps) {
+        if (!trustManifests || null == manifestProps ||
+            manifest.getEntries().isEmpty() ||
+            null == manifest.getHeader().getSourceMD5()) {
+            return false;
+        }
+
+        String storedChecksum = manifestProps.get(ContentStore.CONTENT_CHECKSUM);
+        String checksum = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+            .generateChecksum(new ByteArrayInputStream(manifestBytes));
+        if (!checksum.equals(storedChecksum)) {
+            return false;
+        }
+
+        long chunksSize = 0;
+        for (ChunksManifestBean.ManifestEntry entry : manifest.getEntries()) {
+            if (null == entry.getChunkMD5()) {
+                return false;
+            }
+            chunksSize += entry.getByteSize();
+        }
+        return chunksSize == manifest.getHeader().getSourceByteSize();
+    }
+
     private boolean chunksInDuraCloudMatchChunksInManifest(String spaceId,
                                                            ChunksManifest manifest) {
         try {
             ChunksManifestVerifier verifier =
-                new ChunksManifestVerifier(getContentStore());
+                new ChunksManifestVerifier(getContentStore(), chunkExecutor);
             return verifier.verifyAllChunks(spaceId, manifest).isSuccess();
         } catch (Exception e) {
             log.warn("chunked file does not exist or is not valid: {}/{}",
@@ -131,21 +251,22 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
         }
     }
 
-    private Map<String, String> getManifestProperties(String spaceId,
-                                                      ChunksManifest manifest) {
-        Map<String, String> props = null;
-        String manifestId = manifest.getManifestId();
-        try {
-
-            Content manifesContentItem = stitcher.getContentFromManifest(spaceId,
-                                                                         manifestId);
-            props = manifesContentItem.getProperties();
-            log.info("Manifest found for content: {}/{}", spaceId, manifestId);
-
-        } catch (Exception e) {
-            log.debug("Not a chunked content item: {}/{}", spaceId, manifestId);
+    /*
+     * The properties of the manifest, overlaid with the size, checksum and
+     * mimetype of the content it describes
+     */
+    private Map<String, String> getManifestProperties(ChunksManifest manifest,
+                                                      Map<String, String> manifestProps) {
+        Map<String, String> props = new HashMap<>();
+        if (null != manifestProps) {
+            props.putAll(manifestProps);
         }
-
+        ChunksManifestBean.ManifestHeader header = manifest.getHeader();
+        props.put(StorageProvider.PROPERTIES_CONTENT_SIZE,
+                  Long.toString(header.getSourceByteSize()));
+        props.put(StorageProvider.PROPERTIES_CONTENT_MIMETYPE, header.getSourceMimetype());
+        props.put(StorageProvider.PROPERTIES_CONTENT_MD5, header.getSourceMD5());
+        props.put(StorageProvider.PROPERTIES_CONTENT_CHECKSUM, header.getSourceMD5());
         return props;
     }
 
@@ -173,9 +294,7 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
                 String manifestId = manifest.getManifestId();
 
                 log.info("Deleting all chunks in manifest, {}", manifestId);
-                for (ChunksManifestBean.ManifestEntry entry : manifest.getEntries()) {
-                    super.deleteContent(spaceId, entry.getChunkId());
-                }
+                deleteChunks(spaceId, getChunkIds(manifest));
 
                 log.info("Deleting manifest: {}/{}", spaceId, manifestId);
                 super.deleteContent(spaceId, manifestId);
@@ -183,12 +302,64 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
         }
     }
 
+    /*
+     * Deletes chunks, concurrently when chunk threads are available. All of
+     * the deletes are attempted, the first failure is then thrown.
+     */
+    private void deleteChunks(String spaceId, Collection<String> chunkIds)
+        throws ContentStoreException {
+        if (null == chunkExecutor) {
+            for (String chunkId : chunkIds) {
+                super.deleteContent(spaceId, chunkId);
+            }
+            return;
+        }
+
+        List<Future<?>> deletes = new ArrayList<>(chunkIds.size());
+        for (String chunkId : chunkIds) {
+            deletes.add(chunkExecutor.submit(() -> {
+                super.deleteContent(spaceId, chunkId);
+                return null;
+            }));
+        }
+
+        ContentStoreException failure = null;
+        for (Future<?> delete : deletes) {
+            try {
+                delete.get();
+            } catch (ExecutionException e) {
+                if (null == failure) {
+                    failure = (e.getCause() instanceof ContentStoreException) ?
+                              (ContentStoreException) e.getCause() :
+                              new ContentStoreException(e.getCause().getMessage(), e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ContentStoreException("Interrupted while deleting chunks", e);
+            }
+        }
+        if (null != failure) {
+            throw failure;
+        }
+    }
+
+    private Set<String> getChunkIds(ChunksManifest manifest) {
+        Set<String> chunkIds = new HashSet<>();
+        for (ChunksManifestBean.ManifestEntry entry : manifest.getEntries()) {
+            chunkIds.add(entry.getChunkId());
+        }
+        return chunkIds;
+    }
+
     private ChunksManifest getManifest(String spaceId, String contentId) {
         String manifestId = getManifestId(contentId);
         ChunksManifest manifest = null;
-        try {
-            manifest = stitcher.getManifest(spaceId, manifestId);
+        try (InputStream manifestStream =
+                 getContentStore().getContent(spaceId, manifestId).getStream()) {
+            manifest = ManifestDocumentBinding.createManifestFrom(manifestStream);
 
+        } catch (NotFoundException e) {
+            log.debug("No manifest for item: {}/{}", spaceId, contentId);
         } catch (Exception e) {
             log.info("No manifest for item: {}/{}", spaceId, contentId);
         }
@@ -200,79 +371,67 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
                                     MonitoredFile syncFile) {
         Map<String, String> properties = createProps(syncFile.getAbsolutePath(), getUsername());
         final ContentStore store = getContentStore();
+        final String spaceId = getSpaceId();
+
+        // The chunks of the content being replaced
+        ChunksManifest previousManifest = getManifest(spaceId, contentId);
 
         DuracloudContentWriter contentWriter =
             new DuracloudContentWriter(store, getUsername(), true, this.jumpStart);
+        contentWriter.setTransferPool(transferPool);
         FileChunker chunker = new FileChunker(contentWriter, chunkerOptions);
-        final String spaceId = getSpaceId();
         chunker.addContent(spaceId,
                            contentId,
-                           syncFile.getChecksum(),
+                           syncFile.getKnownChecksum(),
                            syncFile.length(),
                            syncFile.getStream(),
                            properties);
 
-        cleanup(contentId, syncFile, store, spaceId);
+        if (null != previousManifest) {
+            cleanup(contentId, syncFile, previousManifest, store, spaceId);
+        }
     }
 
+    /*
+     * Removes the chunks of the previous version of the content which are not
+     * part of the new version, determined by comparing their manifests. An
+     * unchunked version of the content is removed by the content writer when
+     * the new version is chunked.
+     */
     private void cleanup(final String contentId,
                          final MonitoredFile syncFile,
+                         final ChunksManifest previousManifest,
                          final ContentStore store,
                          final String spaceId) {
-        //clean up any orphaned chunks and / or obsolete unchunked files
         try {
-            new Retrier().execute(() -> {
-                log.debug("checking for chunks, manifests, and/or unchunked files that should be removed : for {}/{}",
-                          spaceId, contentId);
-                Iterator<String> chunkedContentIdIt = store.getSpaceContents(getSpaceId(), contentId + ".dura-");
-                Set<String> chunkedContentIds = new HashSet<>();
-                chunkedContentIdIt.forEachRemaining(id -> chunkedContentIds.add(id));
-                //if there are chunks
-                if (!chunkedContentIds.isEmpty()) {
-                    //clean up
-                    if (syncFile.length() <= chunkerOptions.getMaxChunkSize()) {
-                        log.info("A chunked version was replaced by an unchunked version of {}/{}",
-                                 spaceId, contentId);
-
-                        //if file is less than or equal to max chunk size
-                        //then we can expect the new file is unchunked
-                        //look for any chunked content matching path
-                        //delete all.
-                        chunkedContentIds.stream().forEach(content -> {
-                            deleteContent(spaceId, content, store);
-                        });
-                        log.info("Deleted manifest and all chunks associated with {}/{} " +
-                                 "because the chunked file was replaced by an unchunked file with " +
-                                 "the same name.",
-                                 spaceId, contentId);
-                    } else {
-                        log.debug("Checking for orphaned chunks associated with {}/{}",
-                                  spaceId, contentId);
-
-                        //resolve the set of the chunks in the manifest
-                        ChunksManifest manifest = getManifest(spaceId, contentId);
-                        Set<String> manifestChunks = new HashSet<>();
-                        manifest.getEntries().stream().forEach(entry -> manifestChunks.add(entry.getChunkId()));
-                        //for each chunk in storage, delete if not in the manifest.
-                        chunkedContentIds.stream()
-                                         .filter(chunkedContentId -> !chunkedContentId.endsWith(manifestSuffix))
-                                         .forEach(chunk -> {
-                                             if (!manifestChunks.contains(chunk)) {
-                                                 log.debug(
-                                                     "Chunk not found in manifest: deleting orphaned chunk ({}/{})",
-                                                     spaceId, chunk);
-                                                 deleteContent(spaceId, chunk, store);
-                                             }
-                                         });
-                        //check for an unchunked version and remove it if happens to exist.
-                        if (store.contentExists(spaceId, contentId)) {
-                            deleteContent(spaceId, contentId, store);
-                        }
-                    }
+            Set<String> orphans = getChunkIds(previousManifest);
+            if (syncFile.length() <= chunkerOptions.getMaxChunkSize()) {
+                log.info("A chunked version was replaced by an unchunked version of {}/{}",
+                         spaceId, contentId);
+                orphans.add(previousManifest.getManifestId());
+            } else {
+                ChunksManifest manifest = getManifest(spaceId, contentId);
+                if (null == manifest) {
+                    log.warn("No manifest found for {}/{} after it was added, " +
+                             "chunks of the previous version were not removed",
+                             spaceId, contentId);
+                    return;
                 }
+                orphans.removeAll(getChunkIds(manifest));
+            }
 
-                return null;
-            });
+            List<Future<?>> deletes = new ArrayList<>();
+            for (String orphan : orphans) {
+                log.debug("Deleting orphaned chunk artifact ({}/{})", spaceId, orphan);
+                if (null == chunkExecutor) {
+                    deleteContent(spaceId, orphan, store);
+                } else {
+                    deletes.add(chunkExecutor.submit(() -> deleteContent(spaceId, orphan, store)));
+                }
+            }
+            for (Future<?> delete : deletes) {
+                delete.get();
+            }
         } catch (Exception ex) {
             log.error(format("Cleanup failed for  ({0}/{1})",
                              spaceId, contentId), ex);
@@ -21,8 +21,10 @@ import org.duracloud.client.ContentStore;
 import org.duracloud.common.util.ContentIdUtil;
 import org.duracloud.common.util.DateUtil;
 import org.duracloud.error.ContentStoreException;
+import org.duracloud.storage.provider.StorageProvider;
 import org.duracloud.storage.util.StorageProviderUtil;
 import org.duracloud.sync.config.SyncToolConfig;
+import org.duracloud.sync.mgmt.SyncStateIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +49,7 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
     private String updateSuffix;
     private String storeId;
     private String prefix;
+    private SyncStateIndex syncStateIndex;
     EventListenerSupport<EndPointListener> listenerList;
 
     public DuraStoreSyncEndpoint(ContentStore contentStore,
@@ -99,6 +102,16 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
         return this.username;
     }
 
+    /**
+     * Sets the index used to skip files which are unchanged since they were
+     * last synced, without contacting DuraCloud.
+     *
+     * @param syncStateIndex index of synced files, may be null
+     */
+    public void setSyncStateIndex(SyncStateIndex syncStateIndex) {
+        this.syncStateIndex = syncStateIndex;
+    }
+
     private void ensureSpaceExists() {
         try {
             contentStore.getSpaceACLs(spaceId);
@@ -125,10 +138,26 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
 
         logger.debug("Syncing file " + absPath +
                      " to DuraCloud with ID " + contentId);
+
+        SyncStateIndex.FileState fileState = null;
+        if (null != syncStateIndex) {
+            if (syncFile.exists()) {
+                fileState = syncStateIndex.readState(syncFile.getFile());
+                if (syncStateIndex.isUnchanged(fileState)) {
+                    logger.debug("Local file {} unchanged since it was last " +
+                                 "synced, no update needed.", absPath);
+                    return result;
+                }
+            } else {
+                syncStateIndex.remove(syncFile.getFile());
+            }
+        }
+
         try {
             if (jumpStart) { // Skip all of the usual checks, just push the file
                 if (syncFile.exists()) {
                     doAddContent(syncFile, contentId, absPath);
+                    recordSynced(fileState, contentId, syncFile.getKnownChecksum());
                     return SyncResultType.ADDED;
                 }
             }
@@ -139,12 +168,12 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
 
             if (syncFile.exists()) {
                 if (dcFileExists) { // File was updated
-                    String dcChecksum =
-                        contentProperties.get(ContentStore.CONTENT_CHECKSUM);
-                    if (dcChecksum.equals(syncFile.getChecksum())) {
-                        logger.debug("Checksum for local file {} matches " +
+                    if (!isChanged(syncFile, contentProperties)) {
+                        logger.debug("Local file {} matches " +
                                      "file in DuraCloud, no update needed.",
                                      absPath);
+                        recordSynced(fileState, contentId,
+                                     contentProperties.get(ContentStore.CONTENT_CHECKSUM));
                     } else {
                         if (syncUpdates) {
                             logger.debug("Local file {} changed, updating DuraCloud.",
@@ -178,6 +207,8 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
                             this.listenerList
                                 .fire().contentUpdated(this.storeId, this.spaceId,
                                                        contentId, absPath);
+                            recordSynced(fileState, contentId,
+                                         syncFile.getKnownChecksum());
                             result = SyncResultType.UPDATED;
                         } else {
                             logger.debug("Local file {} changed, but sync updates options ", absPath);
@@ -190,6 +221,7 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
                     }
                 } else { // File was added
                     doAddContent(syncFile, contentId, absPath);
+                    recordSynced(fileState, contentId, syncFile.getKnownChecksum());
                     result = SyncResultType.ADDED;
                 }
             } else { // File was deleted (does not exist locally)
@@ -215,6 +247,61 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
         return result;
     }
 
+    /*
+     * Records that a file is in sync with DuraCloud, using the state of the
+     * file from before it was checked so that any change made during the
+     * transfer is found on the next sync.
+     */
+    private void recordSynced(SyncStateIndex.FileState fileState,
+                              String contentId,
+                              String checksum) {
+        if (null != syncStateIndex) {
+            syncStateIndex.recordSynced(fileState, contentId, checksum);
+        }
+    }
+
+    /*
+     * Determines if a local file differs from its copy in DuraCloud. A file
+     * with the same size and modified date as when it was last transferred
+     * is considered unchanged, and a file with a different size is
+     * considered changed, so the file only needs to be read to compute its
+     * checksum when neither check is conclusive.
+     */
+    protected boolean isChanged(MonitoredFile syncFile,
+                                Map<String, String> contentProperties) {
+        String localSize = String.valueOf(syncFile.length());
+        String dcSize = contentProperties.get(ContentStore.CONTENT_SIZE);
+        if (null != dcSize && !dcSize.equals(localSize)) {
+            return true;
+        } else if (localSize.equals(dcSize) &&
+                   isUnmodified(syncFile, contentProperties)) {
+            return false;
+        }
+
+        String dcChecksum =
+            contentProperties.get(ContentStore.CONTENT_CHECKSUM);
+        return !dcChecksum.equals(syncFile.getChecksum());
+    }
+
+    /*
+     * Determines if the local file has the path and modified date which
+     * were recorded in the content properties when it was transferred
+     */
+    private boolean isUnmodified(MonitoredFile syncFile,
+                                 Map<String, String> contentProperties) {
+        String dcPath =
+            contentProperties.get(StorageProvider.PROPERTIES_CONTENT_FILE_PATH);
+        String dcModified =
+            contentProperties.get(StorageProvider.PROPERTIES_CONTENT_FILE_MODIFIED);
+        if (null == dcPath || null == dcModified ||
+            !dcPath.equals(syncFile.getAbsolutePath())) {
+            return false;
+        }
+        long lastModified = syncFile.getFile().lastModified();
+        return lastModified > 0 &&
+               dcModified.equals(DateUtil.convertToStringLong(lastModified));
+    }
+
     protected void doAddContent(MonitoredFile syncFile,
                                 String contentId,
                                 String absPath) throws ContentStoreException {
@@ -263,19 +350,38 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
         addUpdateContent(contentId, syncFile);
     }
 
+    /*
+     * Transfers the file to DuraCloud. Unless the checksum of the file was
+     * already computed, the file is read only once: its checksum is computed
+     * as it is transferred and then compared to the checksum of the stored
+     * content. Stored content which does not match is removed, so that it is
+     * not mistaken for an intact copy of the file on the next sync.
+     */
     protected void addUpdateContent(String contentId, MonitoredFile syncFile)
         throws ContentStoreException {
         InputStream syncStream = syncFile.getStream();
         Map<String, String> props = createProps(syncFile.getAbsolutePath(), this.username);
+        String checksum = syncFile.getKnownChecksum();
 
         try {
-            contentStore.addContent(spaceId,
-                                    contentId,
-                                    syncStream,
-                                    syncFile.length(),
-                                    syncFile.getMimetype(),
-                                    syncFile.getChecksum(),
-                                    props);
+            String dcChecksum = contentStore.addContent(spaceId,
+                                                        contentId,
+                                                        syncStream,
+                                                        syncFile.length(),
+                                                        syncFile.getMimetype(),
+                                                        checksum,
+                                                        props);
+            if (null == checksum) {
+                String localChecksum = syncFile.getChecksum();
+                if (!localChecksum.equals(dcChecksum)) {
+                    removeMismatchedContent(contentId);
+                    throw new ContentStoreException(
+                        "Checksum of local file " + syncFile.getAbsolutePath() +
+                        " (" + localChecksum + ") does not match checksum of " +
+                        "content " + contentId + " stored in DuraCloud (" +
+                        dcChecksum + ")");
+                }
+            }
         } finally {
             try {
                 syncStream.close();
@@ -286,6 +392,15 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
         }
     }
 
+    private void removeMismatchedContent(String contentId) {
+        try {
+            contentStore.deleteContent(spaceId, contentId);
+        } catch (ContentStoreException e) {
+            logger.warn("Unable to remove content {} with mismatched checksum " +
+                        "from space {}: {}", contentId, spaceId, e.getMessage());
+        }
+    }
+
     protected Map<String, String> createProps(String absolutePath, String username) {
         Map<String, String> props = StorageProviderUtil.createContentProperties(absolutePath, username);
         removePropsWithNonUSASCIINamesOrValues(props);
@@ -8,9 +8,11 @@
 package org.duracloud.sync.endpoint;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
+import java.security.DigestInputStream;
 
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.MimetypeUtil;
@@ -23,6 +25,7 @@ public class MonitoredFile {
 
     private File file;
     private MonitoredInputStream stream;
+    private DigestInputStream digestStream;
     private String checksum;
     private String mimetype;
 
@@ -64,10 +67,18 @@ public class MonitoredFile {
         return stream.getBytesRead();
     }
 
+    /**
+     * Gets a stream of the file contents. The MD5 checksum of the file is
+     * computed as the stream is read, so once the stream has been read to
+     * the end the checksum is available without reading the file again.
+     */
     public MonitoredInputStream getStream() {
         if (null == stream) {
             try {
-                stream = new MonitoredInputStream(file);
+                digestStream =
+                    ChecksumUtil.wrapStream(new FileInputStream(file),
+                                            ChecksumUtil.Algorithm.MD5);
+                stream = new MonitoredInputStream(digestStream);
             } catch (FileNotFoundException e) {
                 throw new RuntimeException("Could not get stream for " +
                                            "file: " + file.getAbsolutePath() + " due to " +
@@ -78,12 +89,40 @@ public class MonitoredFile {
     }
 
     public String getChecksum() {
+        if (null == checksum) {
+            checksum = getStreamChecksum();
+        }
         if (null == checksum) {
             checksum = computeChecksum(file);
         }
         return checksum;
     }
 
+    /**
+     * @return the MD5 checksum of the file if it has already been computed,
+     * either directly or by reading the stream, otherwise null
+     */
+    public String getKnownChecksum() {
+        if (null == checksum) {
+            checksum = getStreamChecksum();
+        }
+        return checksum;
+    }
+
+    /*
+     * Gets the checksum computed while reading the stream, if all of the file
+     * has been read
+     */
+    private String getStreamChecksum() {
+        if (null != digestStream && stream.getBytesRead() == file.length()) {
+            String streamChecksum = ChecksumUtil.getChecksum(digestStream);
+            // The digest is reset once computed, so it can only be used once
+            digestStream = null;
+            return streamChecksum;
+        }
+        return null;
+    }
+
     /*
      * Computes the checksum of a local file
      */
@@ -0,0 +1,41 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.mgmt;
+
+import java.io.File;
+
+/**
+ * Records the changes made to the ChangedList, so that the files which are
+ * waiting to be synced can be recovered after a restart.
+ */
+public interface ChangeJournal {
+
+    /**
+     * Records that a file has been added to the changed list.
+     *
+     * @param file the changed file
+     * @return an ID for the change, which is passed to recordRemove once the
+     * change has been processed
+     */
+    public long recordAdd(File file);
+
+    /**
+     * Records that a change has been processed. The removal does not apply
+     * to changes made to the same file after the given change.
+     *
+     * @param file     the changed file
+     * @param changeId ID of the change, as returned by recordAdd
+     */
+    public void recordRemove(File file, long changeId);
+
+    /**
+     * Records that all files have been removed from the changed list.
+     */
+    public void recordClear();
+
+}
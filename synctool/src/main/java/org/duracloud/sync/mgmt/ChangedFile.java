@@ -15,8 +15,12 @@ import java.io.Serializable;
  * Date: Apr 1, 2010
  */
 public class ChangedFile implements Serializable {
+
+    private static final long serialVersionUID = 7277123236609280196L;
+
     private File changedFile;
     private int syncAttempts;
+    private transient long changeId;
 
     public ChangedFile(File changedFile) {
         this.changedFile = changedFile;
@@ -35,6 +39,17 @@ public class ChangedFile implements Serializable {
         syncAttempts++;
     }
 
+    /**
+     * @return ID assigned to this change by the ChangeJournal, if any
+     */
+    long getChangeId() {
+        return changeId;
+    }
+
+    void setChangeId(long changeId) {
+        this.changeId = changeId;
+    }
+
     /**
      * Removes a previously reserved file from the ChangedList.
      */
@@ -20,8 +20,15 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.ExecutorService;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.event.EventListenerSupport;
 import org.slf4j.Logger;
@@ -30,21 +37,39 @@ import org.slf4j.LoggerFactory;
 /**
  * The list of files which have been changed.
  *
+ * The list may be updated from any number of threads without locking. Files
+ * waiting to be processed are held in a concurrent map keyed by path, so a
+ * file added again before it is reserved replaces the earlier change but
+ * keeps its place in the list. The order in which files are reserved is
+ * kept by a separate queue of paths, which may hold paths that have since
+ * been reserved or cleared; these are skipped.
+ *
+ * Listeners are notified on a separate thread, at most once per
+ * notification interval, with all changes made during the interval
+ * coalesced into a single notification.
+ *
  * @author: Bill Branan
  * Date: Mar 15, 2010
  */
 public class ChangedList implements Serializable {
 
     private static final Logger log = LoggerFactory.getLogger(ChangedList.class);
-    private LinkedHashMap<String, ChangedFile> fileList;
-    private LinkedHashMap<String, ChangedFile> reservedFiles;
-    private ExecutorService executorService;
-    private long listVersion;
-    private boolean shutdown = false;
+
+    public static final long DEFAULT_NOTIFICATION_INTERVAL_MS = 100;
+
+    private final Map<String, ChangedFile> fileList;
+    private final Queue<String> fileOrder;
+    private final Map<String, ChangedFile> reservedFiles;
+    private final ScheduledExecutorService executorService;
+    private final AtomicLong listVersion;
+    private final AtomicBoolean notificationPending;
+    private volatile long notificationInterval = DEFAULT_NOTIFICATION_INTERVAL_MS;
+    private volatile boolean shutdown = false;
 
     private static ChangedList instance;
 
-    private FileExclusionManager fileExclusionManager;
+    private volatile FileExclusionManager fileExclusionManager;
+    private volatile ChangeJournal journal;
     private EventListenerSupport<ChangedListListener> listeners;
 
     public static synchronized ChangedList getInstance() {
@@ -55,13 +80,15 @@ public class ChangedList implements Serializable {
     }
 
     private ChangedList() {
-        fileList = new LinkedHashMap<String, ChangedFile>();
-        reservedFiles = new LinkedHashMap<String, ChangedFile>();
+        fileList = new ConcurrentHashMap<String, ChangedFile>();
+        fileOrder = new ConcurrentLinkedQueue<String>();
+        reservedFiles = new ConcurrentHashMap<String, ChangedFile>();
         this.fileExclusionManager = new FileExclusionManager();
-        listVersion = 0;
+        listVersion = new AtomicLong(0);
+        notificationPending = new AtomicBoolean(false);
         listeners =
             new EventListenerSupport<ChangedListListener>(ChangedListListener.class);
-        this.executorService = Executors.newSingleThreadExecutor();
+        this.executorService = Executors.newSingleThreadScheduledExecutor();
     }
 
     public void setFileExclusionManager(FileExclusionManager fileExclusionManager) {
@@ -72,6 +99,27 @@ public class ChangedList implements Serializable {
         this.fileExclusionManager = fileExclusionManager;
     }
 
+    /**
+     * Records all further changes to the list in the given journal. The files
+     * currently in the list, including reserved files, are recorded first so
+     * that the journal holds the complete list. The journal should be set
+     * before files are added concurrently.
+     *
+     * @param journal the journal, or null to stop recording changes
+     */
+    public void setJournal(ChangeJournal journal) {
+        this.journal = journal;
+        if (null != journal) {
+            journal.recordClear();
+            for (ChangedFile changedFile : getOrderedFiles(Integer.MAX_VALUE).values()) {
+                changedFile.setChangeId(journal.recordAdd(changedFile.getFile()));
+            }
+            for (ChangedFile changedFile : reservedFiles.values()) {
+                changedFile.setChangeId(journal.recordAdd(changedFile.getFile()));
+            }
+        }
+    }
+
     /**
      * Adds a changed file to the list of items to be processed. If the file
      * happens to match exclusion rules it will not be added to the list (and
@@ -109,28 +157,66 @@ public class ChangedList implements Serializable {
         return fileList.size() + reservedFiles.size();
     }
 
-    synchronized boolean addChangedFile(ChangedFile changedFile) {
+    boolean addChangedFile(ChangedFile changedFile) {
         File file = changedFile.getFile();
         if (fileExclusionManager.isExcluded(file)) {
             return false;
         }
-        fileList.put(file.getAbsolutePath(), changedFile);
+        ChangeJournal currentJournal = journal;
+        if (null != currentJournal) {
+            changedFile.setChangeId(currentJournal.recordAdd(file));
+        }
+        String key = file.getAbsolutePath();
+        if (null == fileList.put(key, changedFile)) {
+            fileOrder.offer(key);
+        }
         incrementVersion();
-        fireChangedEvent();
+        fireChangedEventAsync();
         return true;
     }
 
+    /**
+     * Adds a file to the list only if the path is not already waiting to be
+     * processed.
+     */
+    private boolean addIfAbsent(String key, ChangedFile changedFile) {
+        if (null == fileList.putIfAbsent(key, changedFile)) {
+            fileOrder.offer(key);
+            return true;
+        }
+        return false;
+    }
+
     protected void fireChangedEvent() {
         listeners.fire().listChanged(this);
     }
 
+    /**
+     * Notifies listeners on the notification thread once the notification
+     * interval has passed. Further changes made before then are covered by
+     * the same notification.
+     */
     protected void fireChangedEventAsync() {
-        this.executorService.execute(new Runnable() {
-            @Override
-            public void run() {
+        if (shutdown || !notificationPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.executorService.schedule(() -> {
+                notificationPending.set(false);
                 fireChangedEvent();
-            }
-        });
+            }, notificationInterval, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Changed list notification not sent, list is shut down");
+        }
+    }
+
+    /**
+     * Sets the minimum period between listener notifications.
+     *
+     * @param notificationInterval interval in milliseconds
+     */
+    public void setNotificationInterval(long notificationInterval) {
+        this.notificationInterval = notificationInterval;
     }
 
     public void addListener(ChangedListListener listener) {
@@ -144,10 +230,15 @@ public class ChangedList implements Serializable {
     /**
      * Removes all files from the changed list.
      */
-    public synchronized void clear() {
+    public void clear() {
+        ChangeJournal currentJournal = journal;
+        if (null != currentJournal) {
+            currentJournal.recordClear();
+        }
+        fileOrder.clear();
         fileList.clear();
         reservedFiles.clear();
-        fireChangedEvent();
+        fireChangedEventAsync();
     }
 
     /**
@@ -156,29 +247,47 @@ public class ChangedList implements Serializable {
      *
      * @return a file which has changed on the file system
      */
-    public synchronized ChangedFile reserve() {
-        if (fileList.isEmpty() || shutdown) {
+    public ChangedFile reserve() {
+        if (shutdown) {
             return null;
         }
 
-        String key = fileList.keySet().iterator().next();
-        ChangedFile changedFile = fileList.remove(key);
-        reservedFiles.put(key, changedFile);
-        incrementVersion();
-        fireChangedEventAsync();
-        return changedFile;
+        String key;
+        while ((key = fileOrder.poll()) != null) {
+            // The path may have been reserved or cleared since it was queued
+            ChangedFile changedFile = fileList.remove(key);
+            if (null != changedFile) {
+                reservedFiles.put(key, changedFile);
+                incrementVersion();
+                fireChangedEventAsync();
+                return changedFile;
+            }
+        }
+        return null;
     }
 
     private void incrementVersion() {
-        if (listVersion < Long.MAX_VALUE) {
-            listVersion++;
-        } else {
-            listVersion = 0;
-        }
+        listVersion.updateAndGet(version -> version < Long.MAX_VALUE ? version + 1 : 0);
     }
 
     public long getVersion() {
-        return listVersion;
+        return listVersion.get();
+    }
+
+    /*
+     * Files waiting to be processed, in the order they will be reserved
+     */
+    private LinkedHashMap<String, ChangedFile> getOrderedFiles(int maxFiles) {
+        LinkedHashMap<String, ChangedFile> files = new LinkedHashMap<String, ChangedFile>();
+        Iterator<String> keys = fileOrder.iterator();
+        while (keys.hasNext() && files.size() < maxFiles) {
+            String key = keys.next();
+            ChangedFile changedFile = fileList.get(key);
+            if (null != changedFile) {
+                files.putIfAbsent(key, changedFile);
+            }
+        }
+        return files;
     }
 
     /**
@@ -192,13 +301,11 @@ public class ChangedList implements Serializable {
             FileOutputStream fileStream = new FileOutputStream(persistFile);
             ObjectOutputStream oStream = new ObjectOutputStream((fileStream));
 
-            long persistVersion;
-            Map<String, ChangedFile> fileListCopy;
-            synchronized (this) {
-                fileListCopy = (Map<String, ChangedFile>) fileList.clone();
-                fileListCopy.putAll(reservedFiles);
-                persistVersion = listVersion;
-            }
+            // Read the version first, so that changes made while copying
+            // are picked up by the next persist
+            long persistVersion = listVersion.get();
+            Map<String, ChangedFile> fileListCopy = getOrderedFiles(Integer.MAX_VALUE);
+            fileListCopy.putAll(reservedFiles);
 
             oStream.writeObject(fileListCopy);
             oStream.close();
@@ -215,42 +322,14 @@ public class ChangedList implements Serializable {
      * @param persistFile file containing previous state
      * @param contentDirs content directories currently configured.
      */
-    public synchronized void restore(File persistFile, List<File> contentDirs) {
+    public void restore(File persistFile, List<File> contentDirs) {
         try {
             FileInputStream fileStream = new FileInputStream(persistFile);
             ObjectInputStream oStream = new ObjectInputStream(fileStream);
             log.info("Restoring changed list from backup: {}", persistFile.getAbsolutePath());
-            synchronized (this) {
-                LinkedHashMap<String, ChangedFile> fileListFromDisk =
-                    (LinkedHashMap<String, ChangedFile>) oStream.readObject();
-
-                //remove files in change list that are not in the content dir list.
-                if (contentDirs != null && !contentDirs.isEmpty()) {
-
-                    Iterator<Entry<String, ChangedFile>> entries =
-                        fileListFromDisk.entrySet().iterator();
-                    while (entries.hasNext()) {
-                        Entry<String, ChangedFile> entry = entries.next();
-                        ChangedFile file = entry.getValue();
-                        boolean watched = false;
-                        for (File contentDir : contentDirs) {
-                            if (file.getFile()
-                                    .getAbsolutePath()
-                                    .startsWith(contentDir.getAbsolutePath()) &&
-                                !this.fileExclusionManager.isExcluded(file.getFile())) {
-                                watched = true;
-                                break;
-                            }
-                        }
-
-                        if (!watched) {
-                            entries.remove();
-                        }
-                    }
-                }
-
-                this.fileList = fileListFromDisk;
-            }
+            Map<String, ChangedFile> fileListFromDisk =
+                (Map<String, ChangedFile>) oStream.readObject();
+            restore(fileListFromDisk, contentDirs);
             oStream.close();
         } catch (Exception e) {
             throw new RuntimeException("Unable to restore File Changed List:" +
@@ -258,13 +337,55 @@ public class ChangedList implements Serializable {
         }
     }
 
-    public synchronized List<File> peek(int maxFiles) {
+    /**
+     * Replaces the files waiting to be processed with the given files.
+     *
+     * @param restoredFiles files keyed by absolute path, in the order in which
+     *                      they are to be processed
+     * @param contentDirs   content directories currently configured. Files
+     *                      which are not in these directories are dropped.
+     */
+    public synchronized void restore(Map<String, ChangedFile> restoredFiles,
+                                     List<File> contentDirs) {
+        //remove files in change list that are not in the content dir list.
+        if (contentDirs != null && !contentDirs.isEmpty()) {
+
+            Iterator<Entry<String, ChangedFile>> entries =
+                restoredFiles.entrySet().iterator();
+            while (entries.hasNext()) {
+                Entry<String, ChangedFile> entry = entries.next();
+                ChangedFile file = entry.getValue();
+                boolean watched = false;
+                for (File contentDir : contentDirs) {
+                    if (file.getFile()
+                            .getAbsolutePath()
+                            .startsWith(contentDir.getAbsolutePath()) &&
+                        !this.fileExclusionManager.isExcluded(file.getFile())) {
+                        watched = true;
+                        break;
+                    }
+                }
+
+                if (!watched) {
+                    entries.remove();
+                }
+            }
+        }
+
+        fileOrder.clear();
+        fileList.clear();
+        for (Entry<String, ChangedFile> entry : restoredFiles.entrySet()) {
+            addIfAbsent(entry.getKey(), entry.getValue());
+        }
+
+        // Record the restored list in the journal, if one is in use
+        setJournal(journal);
+    }
+
+    public List<File> peek(int maxFiles) {
         List<File> files = new LinkedList<File>();
-        Iterator<Entry<String, ChangedFile>> it = this.fileList.entrySet().iterator();
-        int count = 0;
-        while (it.hasNext() && count < maxFiles) {
-            files.add(it.next().getValue().getFile());
-            count++;
+        for (ChangedFile changedFile : getOrderedFiles(maxFiles).values()) {
+            files.add(changedFile.getFile());
         }
         return files;
     }
@@ -275,24 +396,34 @@ public class ChangedList implements Serializable {
      * However if this instance of the ChangedFile or a new
      * ChangedFile with an identical file path is re-added to the ChangedList
      * before the reserved file is removed,  calling remove will only remove
-     * the changed file from the reserved list.
+     * the changed file from the reserved list. If the same path has been
+     * reserved again since, the newer reservation is left in place.
      *
      * @param changedFile
      */
-    synchronized void remove(ChangedFile changedFile) {
-        this.reservedFiles.remove(getKey(changedFile));
+    void remove(ChangedFile changedFile) {
+        String key = getKey(changedFile);
+        ChangeJournal currentJournal = journal;
+        if (this.reservedFiles.remove(key, changedFile) &&
+            null != currentJournal && !this.fileList.containsKey(key)) {
+            currentJournal.recordRemove(changedFile.getFile(), changedFile.getChangeId());
+        }
     }
 
     /**
      * Releases the reservation on the file (if still reserved) and returns
-     * it to the list.
+     * it to the list, unless a newer change to the same path is already
+     * waiting to be processed.
      *
      * @param changedFile
      */
-    synchronized void unreserve(ChangedFile changedFile) {
-        ChangedFile removedFile = this.reservedFiles.remove(getKey(changedFile));
-        if (removedFile != null && !this.fileList.containsKey(getKey(removedFile))) {
-            addChangedFile(removedFile);
+    void unreserve(ChangedFile changedFile) {
+        String key = getKey(changedFile);
+        if (this.reservedFiles.remove(key, changedFile) &&
+            !fileExclusionManager.isExcluded(changedFile.getFile()) &&
+            addIfAbsent(key, changedFile)) {
+            incrementVersion();
+            fireChangedEventAsync();
         }
     }
 
@@ -10,6 +10,7 @@ package org.duracloud.sync.mgmt;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.duracloud.common.util.DateUtil;
 import org.slf4j.Logger;
@@ -31,6 +32,10 @@ public class StatusManager {
     private String startTime;
     private ChangedList changedList;
     private String version;
+    private volatile boolean deleteCheckRunning;
+    private AtomicLong deleteChecked;
+    private AtomicLong deleted;
+    private AtomicLong deleteFailed;
 
     private static StatusManager instance;
 
@@ -54,6 +59,10 @@ public class StatusManager {
         startTime = DateUtil.nowLong();
         changedList = ChangedList.getInstance();
         recentlyCompleted = new LinkedList<>();
+        deleteCheckRunning = false;
+        deleteChecked = new AtomicLong(0);
+        deleted = new AtomicLong(0);
+        deleteFailed = new AtomicLong(0);
     }
 
     public int getQueueSize() {
@@ -98,6 +107,46 @@ public class StatusManager {
         return new ArrayList<SyncSummary>(this.recentlyCompleted);
     }
 
+    public void deleteCheckStarted() {
+        deleteCheckRunning = true;
+    }
+
+    public void deleteCheckStopped() {
+        deleteCheckRunning = false;
+    }
+
+    /**
+     * Records that an item in the endpoint was checked for a matching
+     * local file
+     */
+    public void contentDeleteChecked() {
+        deleteChecked.incrementAndGet();
+    }
+
+    public void contentDeleted() {
+        deleted.incrementAndGet();
+    }
+
+    public void contentDeleteFailed() {
+        deleteFailed.incrementAndGet();
+    }
+
+    public boolean isDeleteCheckRunning() {
+        return deleteCheckRunning;
+    }
+
+    public long getDeleteChecked() {
+        return deleteChecked.get();
+    }
+
+    public long getDeleted() {
+        return deleted.get();
+    }
+
+    public long getDeleteFailed() {
+        return deleteFailed.get();
+    }
+
     public void setVersion(String version) {
         this.version = version;
     }
@@ -128,6 +177,13 @@ public class StatusManager {
         for (SyncSummary failedFile : getFailed()) {
             status.append("  " + failedFile.getAbsolutePath() + "\n");
         }
+        if (isDeleteCheckRunning() || getDeleteChecked() > 0) {
+            status.append("Delete Check: " +
+                          (isDeleteCheckRunning() ? "Running" : "Complete") + "\n");
+            status.append("Items Checked for Deletion: " + getDeleteChecked() + "\n");
+            status.append("Deleted Items: " + getDeleted() + "\n");
+            status.append("Failed Deletes: " + getDeleteFailed() + "\n");
+        }
         status.append("-------------------------------------------\n");
         return status.toString();
     }
@@ -90,6 +90,20 @@ public class SyncManager implements ChangeHandler {
         workerPool.shutdown();
     }
 
+    /**
+     * Waits for the files which were in progress when the sync was ended to
+     * complete.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout argument
+     * @return true if all in-progress work completed, false if the timeout
+     * elapsed first
+     */
+    public boolean awaitEndSync(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return workerPool.awaitTermination(timeout, unit);
+    }
+
     public void terminateSync() {
         logger.info("Closing Sync Manager, terminating sync");
         changeWatcher.endWatch();
@@ -0,0 +1,571 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.mgmt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent local index of the files which have been synced, recording
+ * the path, size, modified date and file key (inode) of each file as it was
+ * when it was last synced, along with its checksum and content ID. A file
+ * whose size, modified date and file key are unchanged since it was synced
+ * can be skipped without contacting DuraCloud or reading the file.
+ *
+ * Each sync is appended to a log file in the index directory. In memory,
+ * the index holds only a 64 bit hash of each path and a fingerprint of the
+ * file attributes, in open addressing arrays, which takes roughly 30 bytes
+ * per file. The log is compacted when the index is loaded if most of its
+ * records have been superseded. A record which was only partly written
+ * when the sync tool stopped is truncated.
+ *
+ * To detect content which has been changed or removed in DuraCloud, a
+ * percentage of the unchanged files can be verified on each run. Which
+ * files are verified is chosen at random when the index is loaded, and is
+ * consistent for the rest of the run.
+ */
+public class SyncStateIndex {
+
+    private final Logger log = LoggerFactory.getLogger(SyncStateIndex.class);
+
+    protected static final String LOG_FILE_NAME = "sync-state.log";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final byte SYNCED = 1;
+    private static final byte REMOVED = 2;
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int MIN_COMPACTION_RECORDS = 100000;
+
+    private final File logFile;
+    private final double verifyFraction;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Open addressing table of path hashes, 0 marks an empty slot
+    private long[] keys;
+    private long[] fingerprints;
+    private int[] recordNumbers;
+    private int size;
+
+    private DataOutputStream out;
+    private int records;
+    private long verifySeed;
+
+    private final AtomicLong skipped = new AtomicLong(0);
+    private final AtomicLong verified = new AtomicLong(0);
+
+    /**
+     * @param indexDir      directory in which the index is stored
+     * @param verifyPercent percentage of unchanged files to be verified
+     *                      against DuraCloud on each run
+     */
+    public SyncStateIndex(File indexDir, double verifyPercent) {
+        if (!indexDir.exists()) {
+            indexDir.mkdirs();
+        }
+        this.logFile = new File(indexDir, LOG_FILE_NAME);
+        this.verifyFraction = Math.max(0, Math.min(100, verifyPercent)) / 100;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * The attributes of a local file at a point in time.
+     */
+    public static class FileState {
+        private final String path;
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private final long key;
+        private final long fingerprint;
+
+        protected FileState(String path, long size, long modified, String fileKey) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.key = hashPath(path);
+            this.fingerprint = fingerprint(size, modified, fileKey);
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getModified() {
+            return modified;
+        }
+    }
+
+    /**
+     * Reads the current attributes of a file.
+     *
+     * @param file a local file
+     * @return the state of the file, or null if it is not a regular file
+     * which can be read
+     */
+    public FileState readState(File file) {
+        try {
+            BasicFileAttributes attributes =
+                Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            Object fileKey = attributes.fileKey();
+            return new FileState(file.getAbsolutePath(),
+                                 attributes.size(),
+                                 attributes.lastModifiedTime().toMillis(),
+                                 null == fileKey ? "" : fileKey.toString());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Loads the index from disk and opens it for recording syncs.
+     */
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            records = 0;
+            if (logFile.exists()) {
+                records = replay();
+                if (records >= MIN_COMPACTION_RECORDS && records > 2 * size) {
+                    records = compact();
+                }
+            }
+            if (size == 0) {
+                records = 0;
+                logFile.delete();
+            }
+            out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(logFile, true), 65536));
+            verifySeed = ThreadLocalRandom.current().nextLong();
+            log.info("Loaded sync state index with {} files", size);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to load sync state index " +
+                                       logFile.getAbsolutePath() + ": " +
+                                       e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Reads the log into the table, truncating any partial record at the
+     * end. Returns the number of records read.
+     */
+    private int replay() throws IOException {
+        int recordNumber = 0;
+        long validLength = 0;
+        try (CountingInputStream counter = new CountingInputStream(
+            new BufferedInputStream(new FileInputStream(logFile), 65536));
+             DataInputStream in = new DataInputStream(counter)) {
+            while (true) {
+                byte type = in.readByte();
+                String path = in.readUTF();
+                if (type == SYNCED) {
+                    long fileSize = in.readLong();
+                    long modified = in.readLong();
+                    String fileKey = in.readUTF();
+                    in.readUTF(); // checksum
+                    in.readUTF(); // content ID
+                    put(hashPath(path), fingerprint(fileSize, modified, fileKey),
+                        recordNumber);
+                } else if (type == REMOVED) {
+                    delete(hashPath(path));
+                } else {
+                    break;
+                }
+                recordNumber++;
+                validLength = counter.getByteCount();
+            }
+        } catch (EOFException e) {
+            // End of the log, or of the last complete record
+        }
+
+        if (validLength < logFile.length()) {
+            log.warn("Truncating partial record at the end of sync state index {}",
+                     logFile.getAbsolutePath());
+            try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+                file.setLength(validLength);
+            }
+        }
+        return recordNumber;
+    }
+
+    /*
+     * Rewrites the log keeping only the latest record for each file in the
+     * index. Must be called while holding the write lock. Returns the
+     * number of records kept.
+     */
+    private int compact() throws IOException {
+        File tempFile = new File(logFile.getParentFile(), LOG_FILE_NAME + TEMP_SUFFIX);
+        int recordNumber = 0;
+        int written = 0;
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(logFile), 65536));
+             FileOutputStream fileStream = new FileOutputStream(tempFile);
+             DataOutputStream compacted =
+                 new DataOutputStream(new BufferedOutputStream(fileStream, 65536))) {
+            while (true) {
+                byte type = in.readByte();
+                String path = in.readUTF();
+                if (type == SYNCED) {
+                    long fileSize = in.readLong();
+                    long modified = in.readLong();
+                    String fileKey = in.readUTF();
+                    String checksum = in.readUTF();
+                    String contentId = in.readUTF();
+                    int slot = find(hashPath(path));
+                    if (slot >= 0 && recordNumbers[slot] == recordNumber) {
+                        writeSynced(compacted, path, fileSize, modified, fileKey,
+                                    checksum, contentId);
+                        recordNumbers[slot] = written++;
+                    }
+                }
+                recordNumber++;
+            }
+        } catch (EOFException e) {
+            // End of the log
+        }
+        syncFile(tempFile);
+        Files.move(tempFile.toPath(), logFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                   StandardCopyOption.REPLACE_EXISTING);
+        log.info("Compacted sync state index from {} to {} records",
+                 recordNumber, written);
+        return written;
+    }
+
+    private void syncFile(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.getFD().sync();
+        }
+    }
+
+    /**
+     * Determines if a file is unchanged since it was last synced. Files
+     * selected for verification are reported as changed, so that they are
+     * checked against DuraCloud.
+     *
+     * @param file a local file
+     * @return true if the file can be skipped
+     */
+    public boolean isUnchanged(File file) {
+        return isUnchanged(readState(file));
+    }
+
+    /**
+     * Determines if a file is unchanged since it was last synced. Files
+     * selected for verification are reported as changed, so that they are
+     * checked against DuraCloud.
+     *
+     * @param state the current state of a local file, may be null
+     * @return true if the file can be skipped
+     */
+    public boolean isUnchanged(FileState state) {
+        if (null == state) {
+            return false;
+        }
+        boolean unchanged;
+        lock.readLock().lock();
+        try {
+            int slot = find(state.key);
+            unchanged = slot >= 0 && fingerprints[slot] == state.fingerprint;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (unchanged && isVerified(state.key)) {
+            verified.incrementAndGet();
+            return false;
+        }
+        if (unchanged) {
+            skipped.incrementAndGet();
+        }
+        return unchanged;
+    }
+
+    /*
+     * Selects the files to verify, consistently for the current run
+     */
+    private boolean isVerified(long key) {
+        if (verifyFraction <= 0) {
+            return false;
+        }
+        long mixed = mix(key ^ verifySeed) >>> 11;
+        return mixed < verifyFraction * (1L << 53);
+    }
+
+    /**
+     * Records that a file has been synced.
+     *
+     * @param state     the state of the file before it was synced, so that
+     *                  changes made while the file was being transferred
+     *                  are found on the next check
+     * @param contentId ID of the content in DuraCloud
+     * @param checksum  MD5 checksum of the content, if known
+     */
+    public void recordSynced(FileState state, String contentId, String checksum) {
+        if (null == state) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (null == out) {
+                return;
+            }
+            writeSynced(out, state.path, state.size, state.modified, state.fileKey,
+                        null == checksum ? "" : checksum, contentId);
+            put(state.key, state.fingerprint, records++);
+        } catch (IOException e) {
+            log.warn("Unable to record sync state of {}: {}", state.path, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a file from the index, for example once it has been deleted.
+     *
+     * @param file a local file
+     */
+    public void remove(File file) {
+        String path = file.getAbsolutePath();
+        long key = hashPath(path);
+        lock.writeLock().lock();
+        try {
+            if (null == out || find(key) < 0) {
+                return;
+            }
+            out.writeByte(REMOVED);
+            out.writeUTF(path);
+            records++;
+            delete(key);
+        } catch (IOException e) {
+            log.warn("Unable to remove sync state of {}: {}", path, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void writeSynced(DataOutputStream out,
+                                    String path,
+                                    long fileSize,
+                                    long modified,
+                                    String fileKey,
+                                    String checksum,
+                                    String contentId) throws IOException {
+        out.writeByte(SYNCED);
+        out.writeUTF(path);
+        out.writeLong(fileSize);
+        out.writeLong(modified);
+        out.writeUTF(fileKey);
+        out.writeUTF(checksum);
+        out.writeUTF(null == contentId ? "" : contentId);
+    }
+
+    /**
+     * @return number of files in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of checks which found a file unchanged
+     */
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    /**
+     * @return number of unchanged files selected for verification
+     */
+    public long getVerifiedCount() {
+        return verified.get();
+    }
+
+    /**
+     * Removes all files from the index, so that all files are checked
+     * against DuraCloud.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            closeLog();
+            logFile.delete();
+            allocate(INITIAL_CAPACITY);
+            records = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes all recorded syncs to disk and closes the index. Syncs recorded
+     * after the index is closed are ignored.
+     */
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            closeLog();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Sync state index closed, {} unchanged files skipped, {} verified",
+                 skipped.get(), verified.get());
+    }
+
+    private void closeLog() {
+        if (null != out) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("Unable to close sync state index: " + e.getMessage());
+            }
+            out = null;
+        }
+    }
+
+    /*
+     * Table operations, must be called while holding the lock
+     */
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        fingerprints = new long[capacity];
+        recordNumbers = new int[capacity];
+        size = 0;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = (int) key & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void put(long key, long fingerprint, int recordNumber) {
+        if ((size + 1) * 10L > keys.length * 7L) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = (int) key & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        fingerprints[slot] = fingerprint;
+        recordNumbers[slot] = recordNumber;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldFingerprints = fingerprints;
+        int[] oldRecordNumbers = recordNumbers;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldFingerprints[i], oldRecordNumbers[i]);
+            }
+        }
+    }
+
+    /*
+     * Removes a key, shifting back any entries in the same probe sequence
+     */
+    private void delete(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return;
+        }
+        int mask = keys.length - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == 0) {
+                break;
+            }
+            int home = (int) keys[next] & mask;
+            // Move the entry if its home slot is not between the gap and it
+            if ((next > slot && (home <= slot || home > next)) ||
+                (next < slot && home <= slot && home > next)) {
+                keys[slot] = keys[next];
+                fingerprints[slot] = fingerprints[next];
+                recordNumbers[slot] = recordNumbers[next];
+                slot = next;
+            }
+        }
+        keys[slot] = 0;
+        size--;
+    }
+
+    /*
+     * 64 bit FNV-1a hash of the path, never 0
+     */
+    protected static long hashPath(String path) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash = mix(hash);
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long fingerprint(long size, long modified, String fileKey) {
+        long hash = mix(size * 31 + modified);
+        return mix(hash ^ fileKey.hashCode());
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+}
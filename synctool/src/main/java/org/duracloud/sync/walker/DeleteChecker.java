@@ -10,10 +10,16 @@ package org.duracloud.sync.walker;
 import java.io.File;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.duracloud.common.retry.Retriable;
 import org.duracloud.common.retry.Retrier;
 import org.duracloud.sync.endpoint.SyncEndpoint;
+import org.duracloud.sync.mgmt.StatusManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,13 +32,23 @@ public class DeleteChecker implements Runnable {
     private final Logger logger =
         LoggerFactory.getLogger(DeleteChecker.class);
 
+    public static final int DEFAULT_THREADS = 1;
+    public static final int DEFAULT_MAX_DELETES_PER_SECOND = 100;
+
+    private static final long PROGRESS_INTERVAL = 100000;
+
     private SyncEndpoint syncEndpoint;
     private String spaceId;
     private Iterator<String> filesList;
     private List<File> syncDirs;
-    private boolean complete = false;
-    private boolean stopped = false;
+    private volatile boolean complete = false;
+    private volatile boolean stopped = false;
     private String prefix;
+    private int threads;
+    private int maxDeletesPerSecond;
+    private long nextDeleteNanos = 0;
+    private ThreadPoolExecutor deleteExecutor;
+    private StatusManager statusManager;
 
     /**
      * Creates a delete checker
@@ -44,10 +60,31 @@ public class DeleteChecker implements Runnable {
                             String spaceId,
                             List<File> syncDirs,
                             String prefix) {
+        this(syncEndpoint, spaceId, syncDirs, prefix, DEFAULT_THREADS,
+             DEFAULT_MAX_DELETES_PER_SECOND);
+    }
+
+    /**
+     * Creates a delete checker
+     *
+     * @param syncEndpoint        the endpoint to which files are synced
+     * @param syncDirs            the list of local source directories being synced
+     * @param threads             the number of deletes to perform at once
+     * @param maxDeletesPerSecond the maximum rate of deletes, 0 for no limit
+     */
+    protected DeleteChecker(SyncEndpoint syncEndpoint,
+                            String spaceId,
+                            List<File> syncDirs,
+                            String prefix,
+                            int threads,
+                            int maxDeletesPerSecond) {
         this.syncEndpoint = syncEndpoint;
         this.spaceId = spaceId;
         this.syncDirs = syncDirs;
         this.prefix = prefix;
+        this.threads = Math.max(1, threads);
+        this.maxDeletesPerSecond = maxDeletesPerSecond;
+        this.statusManager = StatusManager.getInstance();
 
         this.filesList = syncEndpoint.getFilesList();
     }
@@ -60,30 +97,98 @@ public class DeleteChecker implements Runnable {
      * (i.e. the source file has been deleted.) Each file of this type is
      * removed from the endpoint.
      *
+     * The endpoint lists its files in sorted order, so rather than checking
+     * for each file on the local file system, the listing is merged with a
+     * sorted walk of the sync directories. Files which are listed out of
+     * order are checked individually. Files which appear to be missing are
+     * checked once more before they are removed, as they may have been added
+     * since the walk passed them. Deletes are performed by a bounded set of
+     * threads, at a limited rate.
+     *
      * Note that if a prefix is used, all files in the endpoint that do not
      * have the prefix will be removed (as they cannot be consistent with
      * what the content ID will be for files pushed up with the prefix.)
      */
     public void run() {
         logger.info("Running Delete Checker");
+        statusManager.deleteCheckStarted();
+        deleteExecutor = createDeleteExecutor();
+
+        try {
+            SortedFileIterator localFiles = new SortedFileIterator(syncDirs);
+            String localFile = localFiles.hasNext() ? localFiles.next() : null;
+            String lastPath = null;
+            long checked = 0;
+
+            while (filesList.hasNext() && !stopped) {
+                String contentId = filesList.next();
+                statusManager.contentDeleteChecked();
+                if (++checked % PROGRESS_INTERVAL == 0) {
+                    logger.info("Delete Checker has checked {} items in space {}",
+                                checked, spaceId);
+                }
 
-        while (filesList.hasNext() && !stopped) {
-            String contentId = filesList.next();
-            if (null != prefix) { // A prefix is being used
-                if (contentId.startsWith(prefix)) {
-                    if (!exists(contentId.substring(prefix.length()))) {
+                String path = contentId;
+                if (null != prefix) { // A prefix is being used
+                    if (!contentId.startsWith(prefix)) {
+                        // Content Id does not start with prefix
                         deleteContent(contentId);
+                        continue;
                     }
-                } else { // Content Id does not start with prefix
-                    deleteContent(contentId);
+                    path = contentId.substring(prefix.length());
                 }
-            } else { // A prefix is not being used
-                if (!exists(contentId)) {
+
+                if (null != lastPath && path.compareTo(lastPath) < 0) {
+                    // Listed out of order, the walk may have passed this file
+                    if (!exists(path)) {
+                        deleteContent(contentId);
+                    }
+                    continue;
+                }
+                lastPath = path;
+
+                while (null != localFile && localFile.compareTo(path) < 0) {
+                    localFile = localFiles.hasNext() ? localFiles.next() : null;
+                }
+                if (!path.equals(localFile) && !exists(path)) {
                     deleteContent(contentId);
                 }
             }
+            logger.info("Delete Checker completed checking {} items in space {}",
+                        checked, spaceId);
+        } finally {
+            awaitDeletes();
+            statusManager.deleteCheckStopped();
+            complete = true;
+        }
+    }
+
+    private ThreadPoolExecutor createDeleteExecutor() {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("delete-checker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // Deletes are performed by the checking thread when the queue is full
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                      new ArrayBlockingQueue<>(threads * 10),
+                                      threadFactory,
+                                      new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void awaitDeletes() {
+        deleteExecutor.shutdown();
+        try {
+            while (!deleteExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.info("Delete Checker waiting on {} deletes",
+                            deleteExecutor.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            deleteExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
         }
-        complete = true;
     }
 
     private boolean exists(String fileToCheck) {
@@ -99,7 +204,17 @@ public class DeleteChecker implements Runnable {
     }
 
     private void deleteContent(final String contentId) {
+        if (!deleteExecutor.isShutdown()) {
+            deleteExecutor.execute(() -> performDelete(contentId));
+        }
+    }
+
+    private void performDelete(final String contentId) {
+        if (stopped) {
+            return;
+        }
         try {
+            waitForDeletePermit();
             new Retrier().execute(new Retriable() {
                 @Override
                 public String retry() throws Exception {
@@ -108,28 +223,70 @@ public class DeleteChecker implements Runnable {
                     return "success";
                 }
             });
+            statusManager.contentDeleted();
         } catch (Exception e) {
+            statusManager.contentDeleteFailed();
             logger.error("Failed to delete content item: " + contentId +
                          " from space: " + spaceId + " due to: " +
                          e.getMessage());
         }
     }
 
+    /*
+     * Spaces deletes evenly to stay within the maximum delete rate
+     */
+    private void waitForDeletePermit() throws InterruptedException {
+        if (maxDeletesPerSecond <= 0) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            long wait = nextDeleteNanos - now;
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            nextDeleteNanos = Math.max(now, nextDeleteNanos) +
+                              TimeUnit.SECONDS.toNanos(1) / maxDeletesPerSecond;
+        }
+    }
+
     public boolean checkComplete() {
         return complete;
     }
 
     public void stop() {
         this.stopped = true;
+        if (null != deleteExecutor) {
+            deleteExecutor.getQueue().clear();
+        }
     }
 
     public static DeleteChecker start(SyncEndpoint syncEndpoint,
                                       String spaceId,
                                       List<File> syncDirs,
                                       String prefix) {
+        return start(syncEndpoint, spaceId, syncDirs, prefix, DEFAULT_THREADS);
+    }
+
+    public static DeleteChecker start(SyncEndpoint syncEndpoint,
+                                      String spaceId,
+                                      List<File> syncDirs,
+                                      String prefix,
+                                      int threads) {
+        return start(syncEndpoint, spaceId, syncDirs, prefix, threads,
+                     DEFAULT_MAX_DELETES_PER_SECOND);
+    }
+
+    public static DeleteChecker start(SyncEndpoint syncEndpoint,
+                                      String spaceId,
+                                      List<File> syncDirs,
+                                      String prefix,
+                                      int threads,
+                                      int maxDeletesPerSecond) {
         DeleteChecker deleteChecker =
-            new DeleteChecker(syncEndpoint, spaceId, syncDirs, prefix);
-        (new Thread(deleteChecker)).start();
+            new DeleteChecker(syncEndpoint, spaceId, syncDirs, prefix, threads,
+                              maxDeletesPerSecond);
+        (new Thread(deleteChecker, "delete-checker")).start();
         return deleteChecker;
     }
 }
@@ -16,6 +16,7 @@ import java.util.List;
 import org.apache.commons.io.DirectoryWalker;
 import org.duracloud.sync.mgmt.ChangedList;
 import org.duracloud.sync.mgmt.FileExclusionManager;
+import org.duracloud.sync.mgmt.SyncStateIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,14 +40,23 @@ public class DirWalker extends DirectoryWalker implements Runnable {
 
     protected final ChangedList changedList;
     private int files = 0;
+    private int unchangedFiles = 0;
     private boolean complete = false;
     protected FileExclusionManager fileExclusionManager;
+    protected SyncStateIndex syncStateIndex;
 
     protected DirWalker(List<File> filesAndDirs, FileExclusionManager fileExclusionManager) {
+        this(filesAndDirs, fileExclusionManager, null);
+    }
+
+    protected DirWalker(List<File> filesAndDirs,
+                        FileExclusionManager fileExclusionManager,
+                        SyncStateIndex syncStateIndex) {
         super();
         this.filesAndDirs = filesAndDirs;
         this.changedList = ChangedList.getInstance();
         this.fileExclusionManager = fileExclusionManager;
+        this.syncStateIndex = syncStateIndex;
     }
 
     public void run() {
@@ -91,6 +101,10 @@ public class DirWalker extends DirectoryWalker implements Runnable {
             }
             logger.info("Found " + files +
                         " files to sync in initial directory walk");
+            if (null != syncStateIndex) {
+                logger.info("Skipped " + unchangedFiles + " files which are " +
+                            "unchanged since they were last synced");
+            }
 
         } catch (Exception e) {
             logger.error("dir walker failed: " + e.getMessage(), e);
@@ -112,7 +126,9 @@ public class DirWalker extends DirectoryWalker implements Runnable {
         if (null == file) {
             logger.warn("The file parameter is unexpectedly null. Ignoring...");
         } else if (!this.fileExclusionManager.isExcluded(file)) {
-            if (changedList.addChangedFile(file)) {
+            if (null != syncStateIndex && syncStateIndex.isUnchanged(file)) {
+                ++unchangedFiles;
+            } else if (changedList.addChangedFile(file)) {
                 ++files;
             }
         }
@@ -126,7 +142,17 @@ public class DirWalker extends DirectoryWalker implements Runnable {
     }
 
     public static DirWalker start(List<File> topDirs, FileExclusionManager fileExclusionManager) {
-        dirWalker = new DirWalker(topDirs, fileExclusionManager);
+        return start(topDirs, fileExclusionManager, null);
+    }
+
+    /**
+     * Starts a walk which skips files which are unchanged since they were
+     * last synced, according to the sync state index.
+     */
+    public static DirWalker start(List<File> topDirs,
+                                  FileExclusionManager fileExclusionManager,
+                                  SyncStateIndex syncStateIndex) {
+        dirWalker = new DirWalker(topDirs, fileExclusionManager, syncStateIndex);
         (new Thread(dirWalker)).start();
         return dirWalker;
     }
@@ -139,4 +165,8 @@ public class DirWalker extends DirectoryWalker implements Runnable {
         return files;
     }
 
+    public int getUnchangedFilesCount() {
+        return unchangedFiles;
+    }
+
 }
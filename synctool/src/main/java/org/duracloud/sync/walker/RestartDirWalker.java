@@ -13,6 +13,7 @@ import java.util.Collection;
 import java.util.List;
 
 import org.duracloud.sync.mgmt.FileExclusionManager;
+import org.duracloud.sync.mgmt.SyncStateIndex;
 
 /**
  * Walks a set of directory trees just like a DirWalker, but only adds files
@@ -35,7 +36,14 @@ public class RestartDirWalker extends DirWalker {
     protected RestartDirWalker(List<File> topDirs,
                                long lastBackup,
                                FileExclusionManager fileExclusionManager) {
-        super(topDirs, fileExclusionManager);
+        this(topDirs, lastBackup, fileExclusionManager, null);
+    }
+
+    protected RestartDirWalker(List<File> topDirs,
+                               long lastBackup,
+                               FileExclusionManager fileExclusionManager,
+                               SyncStateIndex syncStateIndex) {
+        super(topDirs, fileExclusionManager, syncStateIndex);
         this.lastBackup = lastBackup;
         changedDirs = new ArrayList<File>();
     }
@@ -46,7 +54,7 @@ public class RestartDirWalker extends DirWalker {
 
         // Walk and add all files in directories which have changed
         if (changedDirs.size() > 0) {
-            DirWalker dirWalker = new DirWalker(changedDirs, fileExclusionManager);
+            DirWalker dirWalker = new DirWalker(changedDirs, fileExclusionManager, syncStateIndex);
             dirWalker.walkDirs();
         }
     }
@@ -71,8 +79,16 @@ public class RestartDirWalker extends DirWalker {
     public static DirWalker start(List<File> topDirs,
                                   long lastBackup,
                                   FileExclusionManager fileExclusionManager) {
+        return start(topDirs, lastBackup, fileExclusionManager, null);
+    }
+
+    public static DirWalker start(List<File> topDirs,
+                                  long lastBackup,
+                                  FileExclusionManager fileExclusionManager,
+                                  SyncStateIndex syncStateIndex) {
         RestartDirWalker dirWalker =
-            new RestartDirWalker(topDirs, lastBackup, fileExclusionManager);
+            new RestartDirWalker(topDirs, lastBackup, fileExclusionManager,
+                                 syncStateIndex);
         (new Thread(dirWalker)).start();
         return dirWalker;
     }
@@ -0,0 +1,154 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.walker;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Walks a set of directory trees, providing the path of each file relative
+ * to the directory in which it was found, in sorted (String) order. Paths
+ * use '/' as the separator, so they can be compared to content IDs.
+ *
+ * Each directory is listed only when the walk reaches it, so the walk holds
+ * no more than the listings of the directories on the current path of each
+ * tree. Files found in more than one of the directory trees are provided
+ * once for each tree.
+ */
+public class SortedFileIterator implements Iterator<String> {
+
+    private final Logger logger =
+        LoggerFactory.getLogger(SortedFileIterator.class);
+
+    private static final Comparator<Entry> ENTRY_ORDER =
+        Comparator.comparing(entry -> entry.sortKey);
+
+    private PriorityQueue<TreeWalk> walks;
+
+    /**
+     * @param dirs the directories to walk, items which are not directories
+     *             are ignored
+     */
+    public SortedFileIterator(List<File> dirs) {
+        this.walks = new PriorityQueue<>(Comparator.comparing(TreeWalk::peek));
+        for (File dir : dirs) {
+            if (null != dir && dir.isDirectory()) {
+                TreeWalk walk = new TreeWalk(dir);
+                if (walk.hasNext()) {
+                    walks.add(walk);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !walks.isEmpty();
+    }
+
+    @Override
+    public String next() {
+        TreeWalk walk = walks.poll();
+        if (null == walk) {
+            throw new NoSuchElementException();
+        }
+        String path = walk.next();
+        if (walk.hasNext()) {
+            walks.add(walk);
+        }
+        return path;
+    }
+
+    /*
+     * Walks a single directory tree, depth first, visiting the entries of
+     * each directory in the order of their path. A directory is ordered by
+     * its path with a trailing separator, which is the prefix of all of the
+     * files it contains.
+     */
+    private class TreeWalk {
+        private Deque<Iterator<Entry>> stack = new ArrayDeque<>();
+        private String nextPath;
+
+        TreeWalk(File dir) {
+            stack.push(list(dir, ""));
+            advance();
+        }
+
+        boolean hasNext() {
+            return null != nextPath;
+        }
+
+        String peek() {
+            return nextPath;
+        }
+
+        String next() {
+            String path = nextPath;
+            advance();
+            return path;
+        }
+
+        private void advance() {
+            nextPath = null;
+            while (!stack.isEmpty() && null == nextPath) {
+                Iterator<Entry> entries = stack.peek();
+                if (!entries.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                Entry entry = entries.next();
+                if (entry.directory) {
+                    stack.push(list(entry.file, entry.sortKey));
+                } else {
+                    nextPath = entry.sortKey;
+                }
+            }
+        }
+
+        private Iterator<Entry> list(File dir, String path) {
+            File[] files = dir.listFiles();
+            if (null == files) {
+                logger.warn("Unable to list the contents of directory {}",
+                            dir.getAbsolutePath());
+                return new ArrayList<Entry>().iterator();
+            }
+
+            Entry[] entries = new Entry[files.length];
+            for (int i = 0; i < files.length; i++) {
+                entries[i] = new Entry(files[i], path);
+            }
+            Arrays.sort(entries, ENTRY_ORDER);
+            return Arrays.asList(entries).iterator();
+        }
+    }
+
+    private static class Entry {
+        private final File file;
+        private final boolean directory;
+        private final String sortKey;
+
+        Entry(File file, String parentPath) {
+            this.file = file;
+            this.directory = file.isDirectory();
+            String path = parentPath + file.getName();
+            this.sortKey = directory ? path + "/" : path;
+        }
+    }
+
+}
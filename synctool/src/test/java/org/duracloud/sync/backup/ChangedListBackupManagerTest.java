@@ -8,6 +8,7 @@
 package org.duracloud.sync.backup;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
@@ -44,25 +45,31 @@ public class ChangedListBackupManagerTest extends SyncTestBase {
 
     @Test
     public void testChangedListBackupManager() throws Exception {
-        long backupFrequency = 100;
         ChangedListBackupManager bkMan =
-            new ChangedListBackupManager(changedList, tempDir, backupFrequency, new LinkedList<File>());
-        new Thread(bkMan).start();
+            new ChangedListBackupManager(changedList, tempDir, 100, new LinkedList<File>());
+        assertFalse(bkMan.hasBackups());
+        bkMan.startJournal();
 
         String testFileName = "testfile" + System.currentTimeMillis();
         File file = new File(tempDir, testFileName);
         file.createNewFile();
         file.deleteOnExit();
+        File syncedFile = new File(tempDir, "synced" + testFileName);
         changedList.addChangedFile(file);
-        Thread.sleep((backupFrequency * 3) + ChangedListBackupManager.DEFAULT_SLEEP_TIME);
-        bkMan.endBackup();
+        changedList.addChangedFile(syncedFile);
+        bkMan.run();
 
+        // Reserved files which have not been removed are kept
         ChangedFile changedFile = changedList.reserve();
-        changedFile.remove();
         assertNotNull(changedFile);
         assertEquals(testFileName, changedFile.getFile().getName());
+        changedList.reserve().remove();
         assertNull(changedList.reserve());
+        bkMan.endBackup();
+        changedList.clear();
 
+        bkMan = new ChangedListBackupManager(changedList, tempDir, 100, new LinkedList<File>());
+        assertTrue(bkMan.hasBackups());
         assertTrue(bkMan.loadBackup() > 0);
 
         changedFile = changedList.reserve();
@@ -70,4 +77,47 @@ public class ChangedListBackupManagerTest extends SyncTestBase {
         assertEquals(testFileName, changedFile.getFile().getName());
         assertNull(changedList.reserve());
     }
+
+    @Test
+    public void testWalkIncomplete() throws Exception {
+        ChangedListBackupManager bkMan =
+            new ChangedListBackupManager(changedList, tempDir, 100, new LinkedList<File>());
+        bkMan.startJournal();
+        changedList.addChangedFile(new File(tempDir, "testfile"));
+        bkMan.endBackup();
+        changedList.clear();
+
+        // Files are recovered, but the walk must be repeated
+        bkMan = new ChangedListBackupManager(changedList, tempDir, 100, new LinkedList<File>());
+        assertEquals(-1, bkMan.loadBackup());
+        assertEquals(1, changedList.getListSize());
+
+        bkMan.clear();
+        assertFalse(bkMan.hasBackups());
+    }
+
+    @Test
+    public void testLegacyBackup() throws Exception {
+        ChangedListBackupManager bkMan =
+            new ChangedListBackupManager(changedList, tempDir, 100, new LinkedList<File>());
+        changedList.addChangedFile(new File(tempDir, "testfile"));
+        long backupTime = System.currentTimeMillis();
+        File legacyBackup = new File(new File(tempDir, "changeList"), String.valueOf(backupTime));
+        changedList.persist(legacyBackup);
+        changedList.clear();
+
+        assertTrue(bkMan.hasBackups());
+        assertEquals(backupTime, bkMan.loadBackup());
+        assertEquals(1, changedList.getListSize());
+
+        // The restored list is moved into the journal
+        bkMan.startJournal();
+        assertFalse(legacyBackup.exists());
+        bkMan.endBackup();
+        changedList.clear();
+
+        bkMan = new ChangedListBackupManager(changedList, tempDir, 100, new LinkedList<File>());
+        assertEquals(-1, bkMan.loadBackup());
+        assertEquals(1, changedList.getListSize());
+    }
 }
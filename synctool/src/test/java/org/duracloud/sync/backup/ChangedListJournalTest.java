@@ -0,0 +1,166 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.backup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.sync.mgmt.ChangedFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChangedListJournalTest {
+
+    private File journalDir;
+
+    @Before
+    public void setUp() throws Exception {
+        journalDir = new File("target", "journal-" + System.currentTimeMillis());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(journalDir);
+    }
+
+    private File file(int i) {
+        return new File("/sync/journal-test/file-" + i);
+    }
+
+    private List<String> recoveredPaths() {
+        ChangedListJournal journal = new ChangedListJournal(journalDir, 60000);
+        List<String> paths = new ArrayList<>();
+        for (ChangedFile changedFile : journal.recover().getFiles().values()) {
+            paths.add(changedFile.getFile().getAbsolutePath());
+        }
+        return paths;
+    }
+
+    @Test
+    public void testRecover() throws Exception {
+        ChangedListJournal journal = new ChangedListJournal(journalDir, 60000);
+        assertFalse(journal.hasEntries());
+        journal.open();
+
+        long id0 = journal.recordAdd(file(0));
+        journal.recordAdd(file(1));
+        long id2 = journal.recordAdd(file(2));
+        journal.recordRemove(file(0), id0);
+        // A newer change is not removed by processing an older one
+        journal.recordAdd(file(2));
+        journal.recordRemove(file(2), id2);
+        journal.recordAdd(file(0));
+        journal.close();
+
+        assertTrue(journal.hasEntries());
+        assertEquals(Arrays.asList(file(1).getAbsolutePath(),
+                                   file(2).getAbsolutePath(),
+                                   file(0).getAbsolutePath()),
+                     recoveredPaths());
+
+        ChangedListJournal.Recovery recovery =
+            new ChangedListJournal(journalDir, 60000).recover();
+        assertFalse(recovery.isWalkComplete());
+        assertTrue(recovery.getCheckpointTime() > 0);
+    }
+
+    @Test
+    public void testClearAndWalkComplete() throws Exception {
+        ChangedListJournal journal = new ChangedListJournal(journalDir, 60000);
+        journal.open();
+        journal.recordAdd(file(0));
+        journal.recordWalkComplete();
+        journal.checkpoint();
+        assertTrue(journal.recover().isWalkComplete());
+
+        journal.recordClear();
+        journal.recordAdd(file(1));
+        journal.close();
+
+        ChangedListJournal.Recovery recovery =
+            new ChangedListJournal(journalDir, 60000).recover();
+        assertFalse(recovery.isWalkComplete());
+        assertEquals(1, recovery.getFiles().size());
+        assertTrue(recovery.getFiles().containsKey(file(1).getAbsolutePath()));
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        ChangedListJournal journal = new ChangedListJournal(journalDir, 60000);
+        journal.open();
+        journal.recordAdd(file(0));
+        journal.close();
+
+        // A new run starts from the recovered list and drops earlier entries
+        journal = new ChangedListJournal(journalDir, 60000);
+        assertEquals(1, journal.recover().getFiles().size());
+        journal.open();
+        journal.recordClear();
+        journal.recordAdd(file(1));
+        journal.checkpoint();
+        journal.removePreviousEntries();
+        journal.close();
+
+        assertEquals(1, journalDir.listFiles().length);
+        assertEquals(Arrays.asList(file(1).getAbsolutePath()), recoveredPaths());
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        ChangedListJournal journal = new ChangedListJournal(journalDir, 60000, 10);
+        journal.open();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            long id = journal.recordAdd(file(i));
+            if (i % 2 == 0) {
+                journal.recordRemove(file(i), id);
+            } else {
+                expected.add(file(i).getAbsolutePath());
+            }
+            journal.checkpoint();
+        }
+        journal.close();
+
+        File[] snapshots =
+            journalDir.listFiles((dir, name) -> name.startsWith(ChangedListJournal.SNAPSHOT_PREFIX));
+        assertEquals(1, snapshots.length);
+        File[] segments =
+            journalDir.listFiles((dir, name) -> name.startsWith(ChangedListJournal.SEGMENT_PREFIX));
+        assertTrue(segments.length < 5);
+        assertEquals(expected, recoveredPaths());
+    }
+
+    @Test
+    public void testPartialRecord() throws Exception {
+        ChangedListJournal journal = new ChangedListJournal(journalDir, 60000);
+        journal.open();
+        journal.recordAdd(file(0));
+        journal.recordAdd(file(1));
+        journal.close();
+
+        // Simulate a crash part way through writing a record
+        File segment = journalDir.listFiles()[0];
+        try (FileOutputStream out = new FileOutputStream(segment, true)) {
+            out.write(new byte[] {1, 0, 0, 0});
+        }
+
+        assertEquals(Arrays.asList(file(0).getAbsolutePath(),
+                                   file(1).getAbsolutePath()),
+                     recoveredPaths());
+    }
+
+}
@@ -20,6 +20,7 @@ import java.util.HashMap;
 
 import org.apache.commons.cli.ParseException;
 import org.duracloud.common.util.ConsolePrompt;
+import org.duracloud.sync.walker.DeleteChecker;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Before;
@@ -96,6 +97,7 @@ public class SyncToolConfigParserTest {
         argsMap.remove("-n");
         argsMap.remove("-o");
         argsMap.remove("-j");
+        argsMap.remove("-q");
 
         // Process configs, make sure optional params are set to defaults
         syncConfig =
@@ -119,6 +121,8 @@ public class SyncToolConfigParserTest {
         assertFalse(syncConfig.isRenameUpdates());
         assertTrue(syncConfig.isSyncUpdates());
         assertFalse(syncConfig.isJumpStart());
+        assertEquals(DeleteChecker.DEFAULT_MAX_DELETES_PER_SECOND,
+                     syncConfig.getMaxDeletesPerSecond());
 
         // Make sure error is thrown on missing required params
         for (String arg : argsMap.keySet()) {
@@ -139,6 +143,10 @@ public class SyncToolConfigParserTest {
         failMsg = "Max file size arg should be between 1 and 5";
         addArgFailTest(argsMap, "-m", "0", failMsg);
         addArgFailTest(argsMap, "-m", "6", failMsg);
+        failMsg = "Max deletes arg should require a numerical value";
+        addArgFailTest(argsMap, "-q", "nonNum", failMsg);
+        failMsg = "Max deletes arg should not be negative";
+        addArgFailTest(argsMap, "-q", "-1", failMsg);
     }
 
     private HashMap<String, String> getArgsMap() {
@@ -158,6 +166,7 @@ public class SyncToolConfigParserTest {
         argsMap.put("-x", "");
         argsMap.put("-a", "prefix/");
         argsMap.put("-j", "");
+        argsMap.put("-q", "20");
         return argsMap;
     }
 
@@ -184,6 +193,8 @@ public class SyncToolConfigParserTest {
         assertEquals(true, syncConfig.syncDeletes());
         assertEquals(true, syncConfig.isCleanStart());
         assertEquals(true, syncConfig.exitOnCompletion());
+        assertEquals(argsMap.get("-q"),
+                     String.valueOf(syncConfig.getMaxDeletesPerSecond()));
     }
 
     private String[] mapToArray(HashMap<String, String> map) {
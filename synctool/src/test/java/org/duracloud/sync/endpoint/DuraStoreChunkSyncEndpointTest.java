@@ -11,6 +11,7 @@ import static org.duracloud.chunk.manifest.ChunksManifest.chunkSuffix;
 import static org.duracloud.chunk.manifest.ChunksManifest.manifestSuffix;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
@@ -22,19 +23,27 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.duracloud.chunk.manifest.ChunksManifestBean;
+import org.duracloud.chunk.manifest.ChunksManifestBean.ManifestEntry;
+import org.duracloud.chunk.manifest.ChunksManifestBean.ManifestHeader;
+import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.model.AclType;
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.ChecksumUtil.Algorithm;
 import org.duracloud.common.util.IOUtil;
 import org.duracloud.common.util.OperationTimer;
+import org.duracloud.domain.Content;
 import org.duracloud.error.ContentStoreException;
+import org.duracloud.error.NotFoundException;
 import org.duracloud.storage.provider.StorageProvider;
 import org.easymock.Capture;
 import org.easymock.CaptureType;
@@ -131,6 +140,21 @@ public class DuraStoreChunkSyncEndpointTest {
         setEndpoint(maxFileSize);
     }
 
+    private void setThreadedEndpoint(int threads) {
+        endpoint =
+            new DuraStoreChunkSyncEndpoint(contentStore,
+                                           username,
+                                           spaceId,
+                                           syncDeletes,
+                                           maxFileSize,
+                                           true,
+                                           false,
+                                           false,
+                                           null,
+                                           null,
+                                           threads);
+    }
+
     @Test
     public void testAddNewContent() throws Exception {
         String contentId = "contentId";
@@ -152,11 +176,10 @@ public class DuraStoreChunkSyncEndpointTest {
                                                 EasyMock.isA(InputStream.class),
                                                 EasyMock.eq(contentFile.length()),
                                                 EasyMock.eq("application/octet-stream"),
-                                                EasyMock.eq(checksum),
+                                                EasyMock.isNull(),
                                                 EasyMock.capture(propsCapture)))
-                .andReturn("");
-        EasyMock.expect(contentStore.getSpaceContents(spaceId, contentId + ".dura-")).andReturn(
-            new ArrayList<String>().iterator());
+                .andAnswer(() -> readStream(checksum));
+        expectNoManifest(contentId, 1);
 
         replayMocks();
         setEndpoint();
@@ -193,16 +216,16 @@ public class DuraStoreChunkSyncEndpointTest {
                                                 EasyMock.isA(InputStream.class),
                                                 EasyMock.eq(contentFile.length()),
                                                 EasyMock.eq("application/octet-stream"),
-                                                EasyMock.eq(checksum),
+                                                EasyMock.isNull(),
                                                 EasyMock.capture(propsCapture)))
-                .andReturn("");
+                .andAnswer(() -> readStream(checksum));
 
-        //return the chunk artifacts
+        //return the manifest of the chunked version
         List<String> chunkArtifacts = Arrays.asList(contentId + manifestSuffix,
                                               contentId + chunkSuffix + "0000",
                                               contentId + chunkSuffix + "0001");
-        EasyMock.expect(contentStore.getSpaceContents(spaceId, contentId + ".dura-")).andReturn(
-            chunkArtifacts.iterator());
+        EasyMock.expect(contentStore.getContent(spaceId, contentId + manifestSuffix))
+                .andReturn(createManifestContent(contentId, 2, 1000, null));
         chunkArtifacts.stream().forEach(chunkId -> {
             try {
                 contentStore.deleteContent(spaceId, chunkId);
@@ -299,8 +322,7 @@ public class DuraStoreChunkSyncEndpointTest {
                 .andReturn(false)
                 .times(chunkCount * threadCount);
 
-        EasyMock.expect(contentStore.getSpaceContents(spaceId, contentId + ".dura-")).andReturn(
-            new ArrayList<String>().iterator()).times(threadCount);
+        expectNoManifest(contentId, threadCount);
 
         // setup file
         File contentFile = IOUtil.writeStreamToFile(new ByteArrayInputStream(new byte[fileSize]));
@@ -331,4 +353,204 @@ public class DuraStoreChunkSyncEndpointTest {
         assertTrue(latch.await(10, TimeUnit.SECONDS));
         assertEquals(threadCount, successes.get());
     }
+
+    /*
+     * Reads the stream passed to addContent, as the content store would,
+     * and returns the given checksum
+     */
+    private String readStream(String checksum) throws Exception {
+        InputStream stream = (InputStream) EasyMock.getCurrentArguments()[2];
+        IOUtils.copy(stream, NullOutputStream.NULL_OUTPUT_STREAM);
+        return checksum;
+    }
+
+    private void expectNoManifest(String contentId, int times) throws Exception {
+        EasyMock.expect(contentStore.getContent(spaceId, contentId + manifestSuffix))
+                .andThrow(new NotFoundException("not found"))
+                .times(times);
+    }
+
+    /*
+     * Creates a manifest of chunks of the given size, with the manifest
+     * checksum property as stored in DuraCloud unless another is given
+     */
+    private Content createManifestContent(String contentId,
+                                          int chunkCount,
+                                          long chunkSize,
+                                          String manifestChecksum) {
+        ChunksManifestBean bean = new ChunksManifestBean();
+        ManifestHeader header =
+            new ManifestHeader(contentId, "text/plain", chunkCount * chunkSize);
+        header.setSourceMD5("source-md5");
+        bean.setHeader(header);
+        List<ManifestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            entries.add(new ManifestEntry(getChunkId(contentId, i),
+                                          "chunk-md5-" + i, i, chunkSize));
+        }
+        bean.setEntries(entries);
+        String xml = ManifestDocumentBinding.createDocumentFrom(bean);
+
+        Map<String, String> props = new HashMap<>();
+        props.put(ContentStore.CONTENT_CHECKSUM, null != manifestChecksum ? manifestChecksum :
+            new ChecksumUtil(Algorithm.MD5).generateChecksum(xml));
+        props.put(StorageProvider.PROPERTIES_CONTENT_FILE_PATH, "/path/" + contentId);
+        Content content = new Content();
+        content.setId(contentId + manifestSuffix);
+        content.setStream(new ByteArrayInputStream(xml.getBytes()));
+        content.setProperties(props);
+        return content;
+    }
+
+    private String getChunkId(String contentId, int index) {
+        return contentId + chunkSuffix + String.format("%04d", index);
+    }
+
+    @Test
+    public void testGetContentPropertiesTrustedManifest() throws Exception {
+        String contentId = "contentId";
+        EasyMock.expect(contentStore.getSpaceACLs(spaceId))
+                .andReturn(new HashMap<String, AclType>())
+                .anyTimes();
+        EasyMock.expect(contentStore.getContentProperties(spaceId, contentId))
+                .andThrow(new NotFoundException("not found"));
+        EasyMock.expect(contentStore.getContent(spaceId, contentId + manifestSuffix))
+                .andReturn(createManifestContent(contentId, 3, 1000, null));
+
+        replayMocks();
+        setEndpoint();
+
+        // The chunks are not checked
+        Map<String, String> props = endpoint.getContentProperties(spaceId, contentId);
+        assertEquals("3000", props.get(ContentStore.CONTENT_SIZE));
+        assertEquals("source-md5", props.get(ContentStore.CONTENT_CHECKSUM));
+        assertEquals("/path/" + contentId,
+                     props.get(StorageProvider.PROPERTIES_CONTENT_FILE_PATH));
+    }
+
+    @Test
+    public void testGetContentPropertiesVerifiesChunks() throws Exception {
+        String contentId = "contentId";
+        EasyMock.expect(contentStore.getSpaceACLs(spaceId))
+                .andReturn(new HashMap<String, AclType>())
+                .anyTimes();
+        EasyMock.expect(contentStore.getContentProperties(spaceId, contentId))
+                .andThrow(new NotFoundException("not found"));
+        // The manifest has changed since it was stored
+        EasyMock.expect(contentStore.getContent(spaceId, contentId + manifestSuffix))
+                .andReturn(createManifestContent(contentId, 3, 1000, "other-checksum"));
+
+        List<String> threads = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, String> chunkProps = new HashMap<>();
+            chunkProps.put(ContentStore.CONTENT_CHECKSUM, "chunk-md5-" + i);
+            chunkProps.put(ContentStore.CONTENT_SIZE, "1000");
+            EasyMock.expect(contentStore.getContentProperties(spaceId, getChunkId(contentId, i)))
+                    .andAnswer(() -> {
+                        threads.add(Thread.currentThread().getName());
+                        return chunkProps;
+                    });
+        }
+
+        replayMocks();
+        setThreadedEndpoint(3);
+
+        Map<String, String> props = endpoint.getContentProperties(spaceId, contentId);
+        assertEquals("source-md5", props.get(ContentStore.CONTENT_CHECKSUM));
+        assertEquals(3, threads.size());
+        for (String thread : threads) {
+            assertTrue(thread, thread.startsWith("chunk-check-"));
+        }
+    }
+
+    @Test
+    public void testGetContentPropertiesMissingChunk() throws Exception {
+        String contentId = "contentId";
+        EasyMock.expect(contentStore.getSpaceACLs(spaceId))
+                .andReturn(new HashMap<String, AclType>())
+                .anyTimes();
+        EasyMock.expect(contentStore.getContentProperties(spaceId, contentId))
+                .andThrow(new NotFoundException("not found"));
+        EasyMock.expect(contentStore.getContent(spaceId, contentId + manifestSuffix))
+                .andReturn(createManifestContent(contentId, 2, 1000, null));
+        EasyMock.expect(contentStore.getContentProperties(spaceId, getChunkId(contentId, 0)))
+                .andThrow(new NotFoundException("not found"));
+        Map<String, String> chunkProps = new HashMap<>();
+        chunkProps.put(ContentStore.CONTENT_CHECKSUM, "chunk-md5-1");
+        chunkProps.put(ContentStore.CONTENT_SIZE, "1000");
+        EasyMock.expect(contentStore.getContentProperties(spaceId, getChunkId(contentId, 1)))
+                .andReturn(chunkProps);
+
+        replayMocks();
+        setEndpoint();
+        endpoint.setTrustManifests(false);
+
+        assertNull(endpoint.getContentProperties(spaceId, contentId));
+    }
+
+    @Test
+    public void testDeleteChunkedContent() throws Exception {
+        String contentId = "contentId";
+        EasyMock.expect(contentStore.getSpaceACLs(spaceId))
+                .andReturn(new HashMap<String, AclType>())
+                .anyTimes();
+        contentStore.deleteContent(spaceId, contentId);
+        EasyMock.expectLastCall().andThrow(new NotFoundException("not found"));
+        EasyMock.expect(contentStore.getContent(spaceId, contentId + manifestSuffix))
+                .andReturn(createManifestContent(contentId, 4, 1000, null));
+        for (int i = 0; i < 4; i++) {
+            contentStore.deleteContent(spaceId, getChunkId(contentId, i));
+            EasyMock.expectLastCall();
+        }
+        contentStore.deleteContent(spaceId, contentId + manifestSuffix);
+        EasyMock.expectLastCall();
+
+        replayMocks();
+        setThreadedEndpoint(2);
+
+        endpoint.deleteContent(spaceId, contentId);
+    }
+
+    @Test
+    public void testUpdateChunkedContentRemovesOrphans() throws Exception {
+        String contentId = "contentId";
+        int chunkSize = 1000;
+        EasyMock.expect(contentStore.getSpaceACLs(spaceId))
+                .andReturn(new HashMap<String, AclType>())
+                .anyTimes();
+
+        // The previous version had 4 chunks, the new version has 2
+        EasyMock.expect(contentStore.getContent(spaceId, contentId + manifestSuffix))
+                .andReturn(createManifestContent(contentId, 4, chunkSize, null));
+        EasyMock.expect(contentStore.contentExists(EasyMock.eq(spaceId),
+                                                   EasyMock.isA(String.class)))
+                .andReturn(false)
+                .anyTimes();
+        EasyMock.expect(contentStore.addContent(EasyMock.eq(spaceId),
+                                                EasyMock.isA(String.class),
+                                                EasyMock.isA(InputStream.class),
+                                                EasyMock.anyLong(),
+                                                EasyMock.isA(String.class),
+                                                EasyMock.isA(String.class),
+                                                EasyMock.isA(Map.class)))
+                .andAnswer(() -> {
+                    String checksum = (String) EasyMock.getCurrentArguments()[5];
+                    return readStream(checksum);
+                }).times(3);
+        EasyMock.expect(contentStore.getContent(spaceId, contentId + manifestSuffix))
+                .andReturn(createManifestContent(contentId, 2, chunkSize, null));
+        contentStore.deleteContent(spaceId, getChunkId(contentId, 2));
+        EasyMock.expectLastCall();
+        contentStore.deleteContent(spaceId, getChunkId(contentId, 3));
+        EasyMock.expectLastCall();
+
+        File contentFile = IOUtil.writeStreamToFile(new ByteArrayInputStream(new byte[chunkSize * 2]));
+        contentFile.deleteOnExit();
+        replayMocks();
+        setEndpoint(chunkSize);
+
+        endpoint.addUpdateContent(contentId, new MonitoredFile(contentFile));
+        FileUtils.deleteQuietly(contentFile);
+    }
+
 }
@@ -7,7 +7,9 @@
  */
 package org.duracloud.sync.endpoint;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.fail;
 
 import java.io.File;
 import java.io.InputStream;
@@ -15,9 +17,15 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.model.AclType;
 import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.error.ContentStoreException;
+import org.duracloud.storage.provider.StorageProvider;
+import org.duracloud.storage.util.StorageProviderUtil;
+import org.duracloud.sync.mgmt.SyncStateIndex;
 import org.easymock.Capture;
 import org.easymock.CaptureType;
 import org.easymock.EasyMock;
@@ -37,6 +45,8 @@ public class DuraStoreSyncEndpointTest {
     private String spaceId;
     private File contentFile;
 
+    private static final String EMPTY_CHECKSUM = "d41d8cd98f00b204e9800998ecf8427e";
+
     @Before
     public void setUp() throws Exception {
         username = "userName";
@@ -89,9 +99,9 @@ public class DuraStoreSyncEndpointTest {
                                                 EasyMock.isA(InputStream.class),
                                                 EasyMock.eq(contentFile.length()),
                                                 EasyMock.eq("text/plain"),
-                                                EasyMock.eq(checksum),
+                                                EasyMock.isNull(),
                                                 EasyMock.capture(propsCapture)))
-                .andReturn("");
+                .andAnswer(() -> readStream(checksum));
 
         replayMocks();
         setEndpoint(null, false);
@@ -110,9 +120,9 @@ public class DuraStoreSyncEndpointTest {
                                                 EasyMock.isA(InputStream.class),
                                                 EasyMock.eq(0L),
                                                 EasyMock.eq("text/plain"),
-                                                EasyMock.isA(String.class),
+                                                EasyMock.eq(EMPTY_CHECKSUM),
                                                 EasyMock.isA(Map.class)))
-                .andReturn("");
+                .andReturn(EMPTY_CHECKSUM);
 
         replayMocks();
         setEndpoint(null, true);
@@ -121,4 +131,142 @@ public class DuraStoreSyncEndpointTest {
         endpoint.syncFile(monitoredFile, contentFile.getParentFile());
     }
 
+    /*
+     * Reads the stream passed to addContent, as the content store would,
+     * and returns the given checksum
+     */
+    private String readStream(String checksum) throws Exception {
+        InputStream stream = (InputStream) EasyMock.getCurrentArguments()[2];
+        IOUtils.copy(stream, NullOutputStream.NULL_OUTPUT_STREAM);
+        return checksum;
+    }
+
+    private Map<String, String> getStoredProperties(String checksum) {
+        Map<String, String> props =
+            StorageProviderUtil.createContentProperties(contentFile.getAbsolutePath(),
+                                                        username);
+        props.put(ContentStore.CONTENT_SIZE, String.valueOf(contentFile.length()));
+        props.put(ContentStore.CONTENT_CHECKSUM, checksum);
+        return props;
+    }
+
+    @Test
+    public void testSyncUnmodified() throws Exception {
+        FileUtils.writeStringToFile(contentFile, "content-file");
+        String contentId = contentFile.getName();
+
+        // Size and modified date match, so the checksum is not compared
+        EasyMock.expect(contentStore.getContentProperties(spaceId, contentId))
+                .andReturn(getStoredProperties("not-the-checksum"));
+
+        replayMocks();
+        setEndpoint(null, false);
+
+        MonitoredFile monitoredFile = new MonitoredFile(contentFile);
+        assertEquals(SyncResultType.ALREADY_IN_SYNC,
+                     endpoint.syncFileAndReturnDetailedResult(
+                         monitoredFile, contentFile.getParentFile()));
+    }
+
+    @Test
+    public void testSyncModified() throws Exception {
+        FileUtils.writeStringToFile(contentFile, "content-file");
+        String contentId = contentFile.getName();
+        String checksum = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+            .generateChecksum(contentFile);
+
+        // Modified date differs, so checksums are compared
+        Map<String, String> props = getStoredProperties(checksum);
+        props.put(StorageProvider.PROPERTIES_CONTENT_FILE_MODIFIED, "modified");
+        EasyMock.expect(contentStore.getContentProperties(spaceId, contentId))
+                .andReturn(props);
+
+        // Size differs, so the file is transferred with the checksum
+        // computed as it is read
+        props = getStoredProperties("not-the-checksum");
+        props.put(ContentStore.CONTENT_SIZE, "1");
+        EasyMock.expect(contentStore.getContentProperties(spaceId, contentId))
+                .andReturn(props);
+        EasyMock.expect(contentStore.addContent(EasyMock.eq(spaceId),
+                                                EasyMock.eq(contentId),
+                                                EasyMock.isA(InputStream.class),
+                                                EasyMock.eq(contentFile.length()),
+                                                EasyMock.eq("text/plain"),
+                                                EasyMock.isNull(),
+                                                EasyMock.isA(Map.class)))
+                .andAnswer(() -> readStream(checksum));
+
+        replayMocks();
+        setEndpoint(null, false);
+
+        assertEquals(SyncResultType.ALREADY_IN_SYNC,
+                     endpoint.syncFileAndReturnDetailedResult(
+                         new MonitoredFile(contentFile), contentFile.getParentFile()));
+        assertEquals(SyncResultType.UPDATED,
+                     endpoint.syncFileAndReturnDetailedResult(
+                         new MonitoredFile(contentFile), contentFile.getParentFile()));
+    }
+
+    @Test
+    public void testSyncStateIndex() throws Exception {
+        FileUtils.writeStringToFile(contentFile, "content-file");
+        String contentId = contentFile.getName();
+        String checksum = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+            .generateChecksum(contentFile);
+
+        // Only the first sync checks DuraCloud
+        EasyMock.expect(contentStore.getContentProperties(spaceId, contentId))
+                .andReturn(getStoredProperties(checksum));
+
+        replayMocks();
+        setEndpoint(null, false);
+
+        File indexDir = new File(contentFile.getParentFile(),
+                                 contentFile.getName() + "-index");
+        SyncStateIndex syncStateIndex = new SyncStateIndex(indexDir, 0);
+        try {
+            syncStateIndex.load();
+            endpoint.setSyncStateIndex(syncStateIndex);
+
+            for (int i = 0; i < 2; i++) {
+                assertEquals(SyncResultType.ALREADY_IN_SYNC,
+                             endpoint.syncFileAndReturnDetailedResult(
+                                 new MonitoredFile(contentFile),
+                                 contentFile.getParentFile()));
+            }
+            assertEquals(1, syncStateIndex.getSkippedCount());
+        } finally {
+            syncStateIndex.close();
+            FileUtils.deleteQuietly(indexDir);
+        }
+    }
+
+    @Test
+    public void testAddContentChecksumMismatch() throws Exception {
+        FileUtils.writeStringToFile(contentFile, "content-file");
+        String contentId = "contentId";
+
+        EasyMock.expect(contentStore.addContent(EasyMock.eq(spaceId),
+                                                EasyMock.eq(contentId),
+                                                EasyMock.isA(InputStream.class),
+                                                EasyMock.eq(contentFile.length()),
+                                                EasyMock.eq("text/plain"),
+                                                EasyMock.isNull(),
+                                                EasyMock.isA(Map.class)))
+                .andAnswer(() -> readStream(EMPTY_CHECKSUM));
+        // The stored content is removed, so it is transferred again on the next sync
+        contentStore.deleteContent(spaceId, contentId);
+        EasyMock.expectLastCall();
+
+        replayMocks();
+        setEndpoint(null, false);
+
+        try {
+            endpoint.addUpdateContent(contentId, new MonitoredFile(contentFile));
+            fail("Exception expected");
+        } catch (ContentStoreException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
 }
@@ -9,10 +9,13 @@ package org.duracloud.sync.endpoint;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.io.File;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.MimetypeUtil;
 import org.junit.After;
@@ -64,4 +67,21 @@ public class MonitoredFileTest {
         assertEquals(1, mFile.getStreamBytesRead());
     }
 
+    @Test
+    public void testStreamChecksum() throws Exception {
+        ChecksumUtil cksumUtil =
+            new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+        String checksum = cksumUtil.generateChecksum(file);
+
+        MonitoredInputStream stream = mFile.getStream();
+        stream.read();
+        assertNull(mFile.getKnownChecksum());
+
+        // Once the stream is fully read, its checksum is used
+        IOUtils.copy(stream, NullOutputStream.NULL_OUTPUT_STREAM);
+        assertEquals(checksum, mFile.getKnownChecksum());
+        assertEquals(checksum, mFile.getChecksum());
+        assertEquals(file.length(), mFile.getStreamBytesRead());
+    }
+
 }
@@ -0,0 +1,121 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.mgmt;
+
+import java.io.File;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures ChangedList throughput when it is updated by many threads, as
+ * when directory walkers and the update monitor add files while sync
+ * workers reserve and remove them.
+ *
+ * Run with:
+ * mvn -pl synctool test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.duracloud.sync.mgmt.ChangedListBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangedListBenchmark {
+
+    /**
+     * Number of distinct paths changed, fewer paths means more of the adds
+     * replace a change which is already in the list
+     */
+    @Param({"1000", "100000"})
+    public int paths;
+
+    private ChangedList changedList;
+    private File[] files;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        changedList = ChangedList.getInstance();
+        files = new File[paths];
+        for (int i = 0; i < paths; i++) {
+            files[i] = new File("/sync/benchmark/dir-" + (i % 100) + "/file-" + i);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() {
+        changedList.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        changedList.shutdown();
+    }
+
+    private File nextFile() {
+        return files[ThreadLocalRandom.current().nextInt(paths)];
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean add() {
+        return changedList.addChangedFile(nextFile());
+    }
+
+    @Benchmark
+    @Group("sync")
+    @GroupThreads(4)
+    public boolean syncAdd() {
+        return changedList.addChangedFile(nextFile());
+    }
+
+    @Benchmark
+    @Group("sync")
+    @GroupThreads(4)
+    public ChangedFile syncReserve() {
+        ChangedFile changedFile = changedList.reserve();
+        if (null != changedFile) {
+            changedFile.remove();
+        }
+        return changedFile;
+    }
+
+    @Benchmark
+    @Group("sync")
+    @GroupThreads(1)
+    public int syncStatus() {
+        return changedList.getListSizeIncludingReservedFiles();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                       .include(ChangedListBenchmark.class.getSimpleName())
+                       .build()).run();
+    }
+
+}
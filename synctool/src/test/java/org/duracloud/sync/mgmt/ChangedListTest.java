@@ -15,6 +15,14 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Assert;
 import org.duracloud.sync.SyncTestBase;
@@ -205,4 +213,91 @@ public class ChangedListTest extends SyncTestBase {
         Assert.assertEquals(0, changedList.getListSize());
     }
 
+    @Test
+    public void testConcurrentAddReserve() throws Exception {
+        int producers = 4;
+        int consumers = 4;
+        int paths = 50;
+        int addsPerProducer = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        CountDownLatch producing = new CountDownLatch(producers);
+        Map<String, ChangedFile> lastAdded = new ConcurrentHashMap<>();
+        Set<ChangedFile> processed = ConcurrentHashMap.newKeySet();
+
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            executor.submit(() -> {
+                for (int i = 0; i < addsPerProducer; i++) {
+                    // Each producer adds its own paths so the last add is known
+                    File file = new File("changedListTest-" + producer + "-" + (i % paths));
+                    ChangedFile changed = new ChangedFile(file);
+                    lastAdded.put(file.getAbsolutePath(), changed);
+                    changedList.addChangedFile(changed);
+                }
+                producing.countDown();
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            executor.submit(() -> {
+                while (producing.getCount() > 0 || changedList.getListSize() > 0) {
+                    ChangedFile changed = changedList.reserve();
+                    if (null != changed) {
+                        processed.add(changed);
+                        changed.remove();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // The last change to every path has been processed
+        assertEquals(0, changedList.getListSizeIncludingReservedFiles());
+        assertEquals(producers * paths, lastAdded.size());
+        for (ChangedFile changed : lastAdded.values()) {
+            assertTrue(processed.contains(changed));
+        }
+    }
+
+    @Test
+    public void testRemoveStaleReservation() throws Exception {
+        changedList.addChangedFile(changedFile);
+        ChangedFile first = changedList.reserve();
+        changedList.addChangedFile(changedFile);
+        ChangedFile second = changedList.reserve();
+
+        // Releasing the older reservation leaves the newer one in place
+        first.unreserve();
+        first.remove();
+        assertEquals(0, changedList.getListSize());
+        assertEquals(1, changedList.getListSizeIncludingReservedFiles());
+
+        second.unreserve();
+        assertEquals(1, changedList.getListSize());
+        assertEquals(1, changedList.getListSizeIncludingReservedFiles());
+    }
+
+    @Test
+    public void testListenerNotificationsCoalesced() throws Exception {
+        AtomicInteger notifications = new AtomicInteger(0);
+        CountDownLatch notified = new CountDownLatch(1);
+        ChangedListListener listener = list -> {
+            notifications.incrementAndGet();
+            notified.countDown();
+        };
+        changedList.setNotificationInterval(200);
+        changedList.addListener(listener);
+        try {
+            for (int i = 0; i < 100; i++) {
+                changedList.addChangedFile(new File("changedListTest-" + i + ".tmp"));
+            }
+            assertTrue(notified.await(5, TimeUnit.SECONDS));
+            Thread.sleep(300);
+            assertEquals(1, notifications.get());
+        } finally {
+            changedList.removeListener(listener);
+            changedList.setNotificationInterval(ChangedList.DEFAULT_NOTIFICATION_INTERVAL_MS);
+        }
+    }
+
 }
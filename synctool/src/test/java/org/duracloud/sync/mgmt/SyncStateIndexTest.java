@@ -0,0 +1,169 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.mgmt;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SyncStateIndexTest {
+
+    private File indexDir;
+    private File contentFile;
+    private SyncStateIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        indexDir = Files.createTempDirectory("sync-state").toFile();
+        contentFile = new File(indexDir, "content.txt");
+        FileUtils.writeStringToFile(contentFile, "content");
+        index = new SyncStateIndex(indexDir, 0);
+        index.load();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        index.close();
+        FileUtils.deleteQuietly(indexDir);
+    }
+
+    private SyncStateIndex reload() {
+        index.close();
+        index = new SyncStateIndex(indexDir, 0);
+        index.load();
+        return index;
+    }
+
+    private SyncStateIndex.FileState state(int i, long modified) {
+        return new SyncStateIndex.FileState("/sync/dir-" + (i % 10) + "/file-" + i,
+                                            i, modified, "key-" + i);
+    }
+
+    @Test
+    public void testSyncStateIndex() throws Exception {
+        assertFalse(index.isUnchanged(contentFile));
+
+        index.recordSynced(index.readState(contentFile), "content.txt", "md5");
+        assertTrue(index.isUnchanged(contentFile));
+
+        reload();
+        assertEquals(1, index.size());
+        assertTrue(index.isUnchanged(contentFile));
+
+        // Size changes
+        FileUtils.writeStringToFile(contentFile, "updated content");
+        assertFalse(index.isUnchanged(contentFile));
+        index.recordSynced(index.readState(contentFile), "content.txt", "md5");
+        assertTrue(index.isUnchanged(contentFile));
+
+        // Modified date changes
+        contentFile.setLastModified(contentFile.lastModified() - 10000);
+        assertFalse(index.isUnchanged(contentFile));
+
+        index.remove(contentFile);
+        assertEquals(0, index.size());
+        assertEquals(2, index.getSkippedCount());
+    }
+
+    @Test
+    public void testManyFiles() throws Exception {
+        int files = 50000;
+        for (int i = 0; i < files; i++) {
+            index.recordSynced(state(i, 1000), "file-" + i, null);
+        }
+        for (int i = 0; i < files; i += 2) {
+            index.remove(new File("/sync/dir-" + (i % 10) + "/file-" + i));
+        }
+
+        reload();
+        assertEquals(files / 2, index.size());
+        for (int i = 0; i < files; i++) {
+            assertEquals(i % 2 == 1, index.isUnchanged(state(i, 1000)));
+            assertFalse(index.isUnchanged(state(i, 2000)));
+        }
+    }
+
+    @Test
+    public void testPartialRecord() throws Exception {
+        index.recordSynced(state(1, 1000), "file-1", "md5");
+        index.recordSynced(state(2, 1000), "file-2", "md5");
+        index.close();
+
+        File logFile = new File(indexDir, SyncStateIndex.LOG_FILE_NAME);
+        long length = logFile.length();
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(new byte[] {1, 0, 20, 'x'});
+        }
+
+        reload();
+        assertEquals(2, index.size());
+        assertEquals(length, logFile.length());
+        index.recordSynced(state(3, 1000), "file-3", "md5");
+
+        reload();
+        assertEquals(3, index.size());
+        assertTrue(index.isUnchanged(state(3, 1000)));
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        for (int i = 0; i <= 200000; i++) {
+            index.recordSynced(state(i % 3, i), "file", "md5");
+        }
+        File logFile = new File(indexDir, SyncStateIndex.LOG_FILE_NAME);
+        long length = logFile.length();
+
+        reload();
+        assertTrue(logFile.length() < length / 1000);
+        assertEquals(3, index.size());
+        assertTrue(index.isUnchanged(state(0, 199998)));
+        assertTrue(index.isUnchanged(state(1, 199999)));
+        assertTrue(index.isUnchanged(state(2, 200000)));
+        assertFalse(index.isUnchanged(state(2, 199997)));
+
+        index.recordSynced(state(4, 1000), "file-4", "md5");
+        reload();
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void testVerify() throws Exception {
+        index.close();
+        index = new SyncStateIndex(indexDir, 100);
+        index.load();
+        index.recordSynced(index.readState(contentFile), "content.txt", "md5");
+
+        assertFalse(index.isUnchanged(contentFile));
+        assertEquals(1, index.getVerifiedCount());
+        assertEquals(0, index.getSkippedCount());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        index.recordSynced(index.readState(contentFile), "content.txt", "md5");
+        index.clear();
+        assertEquals(0, index.size());
+
+        // Syncs recorded once the index is closed are ignored
+        index.recordSynced(index.readState(contentFile), "content.txt", "md5");
+        reload();
+        assertEquals(0, index.size());
+        assertNull(index.readState(indexDir));
+    }
+
+}
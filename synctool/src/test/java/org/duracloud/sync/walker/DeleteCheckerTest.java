@@ -9,13 +9,17 @@ package org.duracloud.sync.walker;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.io.FileUtils;
 import org.duracloud.sync.SyncTestBase;
 import org.duracloud.sync.endpoint.SyncEndpoint;
+import org.duracloud.sync.mgmt.StatusManager;
 import org.easymock.EasyMock;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -138,4 +142,79 @@ public class DeleteCheckerTest extends SyncTestBase {
         deleteChecker.run();
     }
 
+    /*
+     * Verifies that:
+     * 1. Files listed in sorted order are matched with the local files
+     * 2. Files listed out of order are checked individually
+     * 3. Deletes are performed by the delete threads
+     */
+    @Test
+    public void testDeleteCheckerSortedMerge() throws Exception {
+        File subDir = new File(tempDir, "a");
+        subDir.mkdirs();
+        FileUtils.writeStringToFile(new File(tempDir, "a.txt"), "a", "UTF-8");
+        FileUtils.writeStringToFile(new File(subDir, "b"), "b", "UTF-8");
+        FileUtils.writeStringToFile(new File(tempDir, "c"), "c", "UTF-8");
+        FileUtils.writeStringToFile(new File(tempDir, "e"), "e", "UTF-8");
+
+        List<String> filesList =
+            Arrays.asList("a.txt", "a/a", "a/b", "b", "c", "d", "f", "e", "0");
+
+        List<File> syncDirs = new ArrayList<>();
+        syncDirs.add(tempDir);
+
+        List<String> deleteThreads = new CopyOnWriteArrayList<>();
+        EasyMock.expect(syncEndpoint.getFilesList())
+                .andReturn(filesList.iterator());
+        for (String deleted : Arrays.asList("a/a", "b", "d", "f", "0")) {
+            syncEndpoint.deleteContent(spaceId, deleted);
+            EasyMock.expectLastCall().andAnswer(() -> {
+                deleteThreads.add(Thread.currentThread().getName());
+                return null;
+            }).once();
+        }
+
+        replayMocks();
+
+        StatusManager statusManager = StatusManager.getInstance();
+        long checked = statusManager.getDeleteChecked();
+        long deleted = statusManager.getDeleted();
+
+        DeleteChecker deleteChecker =
+            new DeleteChecker(syncEndpoint, spaceId, syncDirs, null, 3, 0);
+        deleteChecker.run();
+
+        Assert.assertTrue(deleteChecker.checkComplete());
+        Assert.assertFalse(statusManager.isDeleteCheckRunning());
+        Assert.assertEquals(checked + filesList.size(),
+                            statusManager.getDeleteChecked());
+        Assert.assertEquals(deleted + 5, statusManager.getDeleted());
+        Assert.assertEquals(5, deleteThreads.size());
+        for (String thread : deleteThreads) {
+            Assert.assertTrue(thread, thread.startsWith("delete-checker-"));
+        }
+    }
+
+    @Test
+    public void testDeleteCheckerRateLimit() throws Exception {
+        List<String> filesList = Arrays.asList("a", "b", "c");
+
+        List<File> syncDirs = new ArrayList<>();
+        syncDirs.add(tempDir);
+
+        EasyMock.expect(syncEndpoint.getFilesList())
+                .andReturn(filesList.iterator());
+        syncEndpoint.deleteContent(EasyMock.eq(spaceId), EasyMock.anyString());
+        EasyMock.expectLastCall().times(3);
+
+        replayMocks();
+
+        // 3 deletes at 20 per second are spread over at least 100 millis
+        long start = System.currentTimeMillis();
+        DeleteChecker deleteChecker =
+            new DeleteChecker(syncEndpoint, spaceId, syncDirs, null, 3, 20);
+        deleteChecker.run();
+        Assert.assertTrue(System.currentTimeMillis() - start >= 100);
+    }
+
 }
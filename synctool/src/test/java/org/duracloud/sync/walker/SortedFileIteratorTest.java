@@ -0,0 +1,72 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.walker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.duracloud.sync.SyncTestBase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SortedFileIteratorTest extends SyncTestBase {
+
+    private File tempDir1;
+    private File tempDir2;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        tempDir1 = createTempDir("sorted-walk-1");
+        tempDir2 = createTempDir("sorted-walk-2");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        FileUtils.deleteDirectory(tempDir1);
+        FileUtils.deleteDirectory(tempDir2);
+    }
+
+    private void createFile(File dir, String path) throws Exception {
+        FileUtils.writeStringToFile(new File(dir, path), path, "UTF-8");
+    }
+
+    @Test
+    public void testSortedWalk() throws Exception {
+        createFile(tempDir1, "b");
+        createFile(tempDir1, "a.txt");
+        createFile(tempDir1, "a/z");
+        createFile(tempDir1, "a/b/c");
+        createFile(tempDir1, "a-b");
+        createFile(tempDir2, "a/a");
+        createFile(tempDir2, "c");
+        createFile(tempDir2, "b");
+        new File(tempDir2, "empty").mkdirs();
+
+        SortedFileIterator iterator =
+            new SortedFileIterator(Arrays.asList(tempDir1, tempDir2,
+                                                 new File(tempDir1, "b")));
+        List<String> paths = new ArrayList<>();
+        while (iterator.hasNext()) {
+            paths.add(iterator.next());
+        }
+
+        assertEquals(Arrays.asList("a-b", "a.txt", "a/a", "a/b/c", "a/z",
+                                   "b", "b", "c"), paths);
+        assertFalse(iterator.hasNext());
+    }
+
+}
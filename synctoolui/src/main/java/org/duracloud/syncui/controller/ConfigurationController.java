@@ -10,6 +10,7 @@ package org.duracloud.syncui.controller;
 import javax.validation.Valid;
 
 import org.duracloud.syncui.domain.AdvancedForm;
+import org.duracloud.syncui.domain.DeleteRateForm;
 import org.duracloud.syncui.domain.DirectoryConfig;
 import org.duracloud.syncui.domain.DirectoryConfigForm;
 import org.duracloud.syncui.domain.DirectoryConfigs;
@@ -187,6 +188,22 @@ public class ConfigurationController {
         return createConfigUpdatedRedirectView(redirectAttributes);
     }
 
+    @ModelAttribute("deleteRateForm")
+    public DeleteRateForm deleteRateForm() {
+        DeleteRateForm f = new DeleteRateForm();
+        f.setMaxDeletesPerSecond(this.syncConfigurationManager.getMaxDeletesPerSecond());
+        return f;
+    }
+
+    @RequestMapping(value = {"/delete-rate"}, method = RequestMethod.POST)
+    public View updateDeleteRate(DeleteRateForm form, RedirectAttributes redirectAttributes) {
+
+        int maxDeletesPerSecond = form.getMaxDeletesPerSecond();
+        log.debug("updating max deletes per second to : {}", maxDeletesPerSecond);
+        this.syncConfigurationManager.setMaxDeletesPerSecond(maxDeletesPerSecond);
+        return createConfigUpdatedRedirectView(redirectAttributes);
+    }
+
     @ModelAttribute("directoryConfigForm")
     public DirectoryConfigForm directoryConfigForm() {
         return new DirectoryConfigForm();
@@ -0,0 +1,31 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.syncui.domain;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sets the maximum rate at which items removed locally are deleted from
+ * DuraCloud, 0 for no limit.
+ */
+public class DeleteRateForm {
+    private int maxDeletesPerSecond;
+
+    public List<Integer> getValues() {
+        return Arrays.asList(new Integer[] {10, 25, 50, 100, 250, 500, 1000, 0});
+    }
+
+    public int getMaxDeletesPerSecond() {
+        return maxDeletesPerSecond;
+    }
+
+    public void setMaxDeletesPerSecond(int maxDeletesPerSecond) {
+        this.maxDeletesPerSecond = maxDeletesPerSecond;
+    }
+}
@@ -23,6 +23,10 @@ public class SyncProcessStats {
     private long currentUpBytesPerSecond;
     private long averageUpBytesPerSecond;
     private int queueSize;
+    private boolean deleteCheckRunning;
+    private long deleteChecked;
+    private long deleted;
+    private long deleteFailed;
 
     public SyncProcessStats() {
         this.startDate = new Date();
@@ -44,6 +48,19 @@ public class SyncProcessStats {
         this.queueSize = queueSize;
     }
 
+    public SyncProcessStats(Date startDate, Date estimatedCompletionDate,
+                            int errorCount, long currentUpBytesPerSecond,
+                            long averageUpBytesPerSecond, int queueSize,
+                            boolean deleteCheckRunning, long deleteChecked,
+                            long deleted, long deleteFailed) {
+        this(startDate, estimatedCompletionDate, errorCount,
+             currentUpBytesPerSecond, averageUpBytesPerSecond, queueSize);
+        this.deleteCheckRunning = deleteCheckRunning;
+        this.deleteChecked = deleteChecked;
+        this.deleted = deleted;
+        this.deleteFailed = deleteFailed;
+    }
+
     public Date getStartDate() {
         return startDate;
     }
@@ -67,4 +84,20 @@ public class SyncProcessStats {
     public int getQueueSize() {
         return this.queueSize;
     }
+
+    public boolean isDeleteCheckRunning() {
+        return deleteCheckRunning;
+    }
+
+    public long getDeleteChecked() {
+        return deleteChecked;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public long getDeleteFailed() {
+        return deleteFailed;
+    }
 }
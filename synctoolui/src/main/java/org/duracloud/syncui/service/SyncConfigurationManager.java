@@ -81,6 +81,10 @@ public interface SyncConfigurationManager {
 
     public void setThreadCount(int threadCount);
 
+    public int getMaxDeletesPerSecond();
+
+    public void setMaxDeletesPerSecond(int maxDeletesPerSecond);
+
     public void setJumpStart(boolean jumpStart);
 
     public boolean isJumpStart();
@@ -241,6 +241,17 @@ public class SyncConfigurationManagerImpl implements SyncConfigurationManager {
         persistSyncToolConfig();
     }
 
+    @Override
+    public int getMaxDeletesPerSecond() {
+        return this.syncToolConfig.getMaxDeletesPerSecond();
+    }
+
+    @Override
+    public void setMaxDeletesPerSecond(int maxDeletesPerSecond) {
+        this.syncToolConfig.setMaxDeletesPerSecond(maxDeletesPerSecond);
+        persistSyncToolConfig();
+    }
+
     @Override
     public void setJumpStart(boolean jumpStart) {
         if ((jumpStart && !this.syncToolConfig.isSyncUpdates()) ||
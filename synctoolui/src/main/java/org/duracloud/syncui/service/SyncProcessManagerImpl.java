@@ -25,7 +25,6 @@ import org.duracloud.sync.backup.SyncBackupManager;
 import org.duracloud.sync.endpoint.DuraStoreChunkSyncEndpoint;
 import org.duracloud.sync.endpoint.EndPointLogger;
 import org.duracloud.sync.endpoint.MonitoredFile;
-import org.duracloud.sync.endpoint.SyncEndpoint;
 import org.duracloud.sync.mgmt.ChangedList;
 import org.duracloud.sync.mgmt.ChangedListListener;
 import org.duracloud.sync.mgmt.FileExclusionManager;
@@ -73,6 +72,7 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
     private SyncProcessStateTransitionValidator syncProcessStateTransitionValidator;
 
     private SyncManager syncManager;
+    private DuraStoreChunkSyncEndpoint syncEndpoint;
     private DirWalker dirWalker;
     private DirectoryUpdateMonitor dirMonitor;
     private DeleteChecker deleteChecker;
@@ -302,7 +302,7 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
             ContentStore contentStore = csm.getPrimaryContentStore();
             boolean syncDeletes = this.syncConfigurationManager.isSyncDeletes();
             String prefix = this.syncConfigurationManager.getPrefix();
-            SyncEndpoint syncEndpoint =
+            syncEndpoint =
                 new DuraStoreChunkSyncEndpoint(contentStore,
                                                username,
                                                spaceId,
@@ -312,7 +312,8 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
                                                this.syncConfigurationManager.isRenameUpdates(),
                                                this.syncConfigurationManager.isJumpStart(),
                                                this.syncConfigurationManager.getUpdateSuffix(),
-                                               prefix);
+                                               prefix,
+                                               this.syncConfigurationManager.getThreadCount());
 
             syncEndpoint.addEndPointListener(new EndPointLogger());
 
@@ -324,6 +325,7 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
             if (syncBackupManager.hasBackups()) {
                 backup = syncBackupManager.attemptRestart();
             }
+            syncBackupManager.startJournal();
 
             syncManager = new SyncManager(dirs, syncEndpoint,
                                           this.syncConfigurationManager.getThreadCount(), // threads
@@ -345,7 +347,9 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
 
             configureMode(mode);
             if (syncDeletes) {
-                deleteChecker = DeleteChecker.start(syncEndpoint, spaceId, dirs, prefix);
+                deleteChecker = DeleteChecker.start(syncEndpoint, spaceId, dirs, prefix,
+                                                    this.syncConfigurationManager.getThreadCount(),
+                                                    this.syncConfigurationManager.getMaxDeletesPerSecond());
             }
 
         } catch (ContentStoreException e) {
@@ -404,6 +408,7 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
         log.error(message, e);
         setError(new SyncProcessError(message));
         shutdownSyncProcess();
+        closeSyncEndpoint();
         changeState(stoppingState);
         changeState(stoppedState);
         throw new SyncProcessException(message, e);
@@ -415,13 +420,18 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
 
     private SyncProcessStats getProcessStatsImpl() {
         int queueSize = ChangedList.getInstance().getListSize();
-        int errorSize = StatusManager.getInstance().getFailed().size();
+        StatusManager statusManager = StatusManager.getInstance();
+        int errorSize = statusManager.getFailed().size();
         return new SyncProcessStats(this.syncStartedDate,
                                     null,
                                     errorSize,
                                     0,
                                     0,
-                                    queueSize);
+                                    queueSize,
+                                    statusManager.isDeleteCheckRunning(),
+                                    statusManager.getDeleteChecked(),
+                                    statusManager.getDeleted(),
+                                    statusManager.getDeleteFailed());
     }
 
     private void shutdownSyncProcess() {
@@ -446,6 +456,13 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
 
     }
 
+    private void closeSyncEndpoint() {
+        if (this.syncEndpoint != null) {
+            this.syncEndpoint.close();
+            this.syncEndpoint = null;
+        }
+    }
+
     private void resetChangeList() {
         ChangedList.getInstance().clear();
         syncBackupManager.endBackups();
@@ -487,6 +504,7 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
                 while (!syncManager.getFilesInTransfer().isEmpty()) {
                     SyncProcessManagerImpl.this.sleep();
                 }
+                closeSyncEndpoint();
 
                 resetChangeList();
                 changeState(stoppedState);
@@ -504,6 +522,7 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
                 while (!sm.getFilesInTransfer().isEmpty()) {
                     SyncProcessManagerImpl.this.sleep();
                 }
+                closeSyncEndpoint();
 
                 changeState(pausedState);
             }
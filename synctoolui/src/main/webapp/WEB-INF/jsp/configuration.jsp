@@ -247,6 +247,23 @@
                     
               </fieldset>
 
+              <fieldset>
+                <legend>Delete Rate</legend>
+                <form:form
+                  method="post"
+                  modelAttribute="deleteRateForm"
+                  action="${pageContext.request.contextPath}/configuration/delete-rate">
+
+                    <label for="maxDeletesPerSecond">When syncing deletes, the maximum
+                                number of items deleted from DuraCloud per second.</label>
+                    <form:select path="maxDeletesPerSecond">
+                        <c:forEach items="${deleteRateForm.values}" var="val">
+                            <form:option value="${val}">${val == 0 ? 'No limit' : val}</form:option>
+                        </c:forEach>
+                    </form:select>
+                </form:form>
+              </fieldset>
+
             </div>
           </div>
         </div>
@@ -174,6 +174,26 @@
                     <td><spring:message code="errorCount" /></td>
                     <td>${syncProcessStats.errorCount}</td>
                   </tr>
+
+                  <c:if test="${syncProcessStats.deleteCheckRunning || syncProcessStats.deleteChecked > 0}">
+                    <tr>
+                      <td><spring:message code="deleteChecked" /></td>
+                      <td>
+                        <fmt:formatNumber value="${syncProcessStats.deleteChecked}" />
+                        <c:if test="${syncProcessStats.deleteCheckRunning}">
+                          (<spring:message code="deleteCheckRunning" />)
+                        </c:if>
+                      </td>
+                    </tr>
+                    <tr>
+                      <td><spring:message code="deleted" /></td>
+                      <td><fmt:formatNumber value="${syncProcessStats.deleted}" /></td>
+                    </tr>
+                    <tr>
+                      <td><spring:message code="deleteFailed" /></td>
+                      <td><fmt:formatNumber value="${syncProcessStats.deleteFailed}" /></td>
+                    </tr>
+                  </c:if>
                 </tbody>
               </table>
             </div>
@@ -10,6 +10,7 @@ package org.duracloud.syncui.controller;
 import org.duracloud.syncui.AbstractTest;
 import org.duracloud.syncui.controller.ConfigurationController.UpdatePolicy;
 import org.duracloud.syncui.domain.AdvancedForm;
+import org.duracloud.syncui.domain.DeleteRateForm;
 import org.duracloud.syncui.domain.DirectoryConfig;
 import org.duracloud.syncui.domain.DirectoryConfigForm;
 import org.duracloud.syncui.domain.DirectoryConfigs;
@@ -106,4 +107,14 @@ public class ConfigurationControllerTest extends AbstractTest {
         configurationController.updateOptions(f, new RedirectAttributesModelMap());
     }
 
+    @Test
+    public void testUpdateDeleteRate() {
+        DeleteRateForm f = new DeleteRateForm();
+        f.setMaxDeletesPerSecond(50);
+        syncConfigurationManager.setMaxDeletesPerSecond(50);
+        EasyMock.expectLastCall().once();
+        replay();
+        Assert.assertNotNull(configurationController.updateDeleteRate(f, new RedirectAttributesModelMap()));
+    }
+
 }
@@ -153,6 +153,9 @@ public class SyncProcessManagerImplTest extends AbstractTest {
         expect(this.syncConfigurationManager.isSyncDeletes())
             .andReturn(true).times(times);
 
+        expect(this.syncConfigurationManager.getMaxDeletesPerSecond())
+            .andReturn(100).times(times);
+
         expect(this.syncConfigurationManager.isSyncUpdates())
             .andReturn(true).times(times);
 